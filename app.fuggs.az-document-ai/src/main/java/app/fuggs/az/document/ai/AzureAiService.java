@@ -2,20 +2,36 @@ package app.fuggs.az.document.ai;
 
 import app.fuggs.az.document.ai.model.DocumentData;
 import app.fuggs.az.document.ai.model.DocumentDataHelper;
+import app.fuggs.az.document.ai.model.TagPrompts;
 import app.fuggs.az.document.ai.service.DocumentTagService;
+import app.fuggs.az.document.ai.service.PdfPageRanges;
+import app.fuggs.az.document.ai.service.PdfPageRanges.PageRange;
+import app.fuggs.tagging.TagCache;
+import app.fuggs.tagging.TagPrompt;
+import app.fuggs.tagging.VendorNames;
 import com.azure.ai.documentintelligence.models.AnalyzeResult;
 import com.azure.ai.documentintelligence.models.AnalyzedDocument;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.smallrye.mutiny.Uni;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
 import org.eclipse.microprofile.config.inject.ConfigProperty;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
 
 @ApplicationScoped
 public class AzureAiService
@@ -31,16 +47,101 @@ public class AzureAiService
 	@Inject
 	ObjectMapper objectMapper;
 
+	@Inject
+	TagCache tagCache;
+
 	@ConfigProperty(name = "app.fuggs.az-document-ai.azure.modelId")
 	String modelId;
 
-	public DocumentData scanDocument(Path documentData, String documentName) throws OcrException
+	@ConfigProperty(name = "app.fuggs.az-document-ai.tags.max-prompt-tokens", defaultValue = "300")
+	int maxPromptTokens;
+
+	@ConfigProperty(name = "app.fuggs.az-document-ai.split.pages-per-range", defaultValue = "2")
+	int pagesPerRange;
+
+	@ConfigProperty(name = "app.fuggs.az-document-ai.split.max-concurrent", defaultValue = "4")
+	int maxConcurrent;
+
+	private final ExecutorService executor = Executors
+		.newThreadPerTaskExecutor(Thread.ofVirtual().name("az-document-ai-", 0).factory());
+
+	private Semaphore rangePermits;
+
+	@PostConstruct
+	void init()
+	{
+		rangePermits = new Semaphore(Math.max(1, maxConcurrent));
+	}
+
+	@PreDestroy
+	void shutdown()
 	{
-		LOG.info("Starting scan of document: '{}'", documentName);
+		executor.shutdownNow();
+	}
 
-		AnalyzeResult analyzeLayoutResult = azureDocumentConnector.getAnalyzeResult(modelId, documentData);
-		List<AnalyzedDocument> documents = analyzeLayoutResult.getDocuments();
+	public DocumentData scanDocument(byte[] documentData, String documentName) throws OcrException
+	{
+		return scanDocument(documentData, documentName, Set.of());
+	}
 
+	/**
+	 * Scans a document. Tag generation is skipped if the merchant is one of
+	 * the caller's known vendors, which tags such documents from what it
+	 * learned about them.
+	 *
+	 * @param documentData
+	 *            the document content
+	 * @param documentName
+	 *            name used for logging
+	 * @param knownVendors
+	 *            normalized names of vendors that need no AI tags
+	 * @return the extracted data
+	 * @throws OcrException
+	 *             if Azure did not find a document
+	 */
+	public DocumentData scanDocument(byte[] documentData, String documentName, Collection<String> knownVendors)
+		throws OcrException
+	{
+		LOG.info("Starting scan of document: '{}', size={} bytes", documentName, documentData.length);
+		AnalyzeResult result = azureDocumentConnector.getAnalyzeResult(modelId, documentData);
+		return tag(Receipt.of(firstDocument(result, documentName)), documentName, knownVendors);
+	}
+
+	/**
+	 * Same as {@link #scanDocument(byte[], String, Collection)}, without
+	 * holding a thread while Azure analyzes the document. Only the tag
+	 * generation, which blocks on the AI request, runs on a virtual thread.
+	 *
+	 * @param documentData
+	 *            the document content
+	 * @param documentName
+	 *            name used for logging
+	 * @param knownVendors
+	 *            normalized names of vendors that need no AI tags
+	 * @return the extracted data, or an {@link OcrException} failure if Azure
+	 *         did not find a document
+	 */
+	public Uni<DocumentData> scanDocumentAsync(byte[] documentData, String documentName,
+		Collection<String> knownVendors)
+	{
+		LOG.info("Starting scan of document: '{}', size={} bytes", documentName, documentData.length);
+		return azureDocumentConnector.analyze(modelId, documentData)
+			.emitOn(executor)
+			.onItem().transformToUni(result -> {
+				try
+				{
+					return Uni.createFrom().item(tag(Receipt.of(firstDocument(result, documentName)), documentName, knownVendors));
+				}
+				catch (OcrException e)
+				{
+					return Uni.createFrom().failure(e);
+				}
+			});
+	}
+
+	private static AnalyzedDocument firstDocument(AnalyzeResult result, String documentName) throws OcrException
+	{
+		List<AnalyzedDocument> documents = result.getDocuments();
 		if (documents.isEmpty())
 		{
 			LOG.error("Couldn't analyze document '{}'", documentName);
@@ -50,22 +151,164 @@ public class AzureAiService
 		{
 			LOG.warn("Document analysis for '{}' found {} documents, using first one", documentName, documents.size());
 		}
+		return documents.getFirst();
+	}
+
+	/**
+	 * Scans a document that may bundle several receipts. PDFs with more than
+	 * {@code app.fuggs.az-document-ai.split.pages-per-range} pages are split
+	 * into page ranges, which are analyzed concurrently; at most
+	 * {@code app.fuggs.az-document-ai.split.max-concurrent} analyses of all
+	 * requests run at the same time, to stay within the Azure rate limit. A
+	 * receipt cut by a range boundary is merged back if both parts carry the
+	 * same invoice ID. Only meant for uploads known to bundle receipts: a
+	 * multi-page invoice without an invoice ID comes back as several
+	 * receipts.
+	 *
+	 * @param documentData
+	 *            the document content
+	 * @param documentName
+	 *            name used for logging
+	 * @param knownVendors
+	 *            normalized names of vendors that need no AI tags
+	 * @return one entry per receipt, in page order
+	 * @throws OcrException
+	 *             if Azure did not find any document
+	 */
+	public List<DocumentData> scanDocuments(byte[] documentData, String documentName,
+		Collection<String> knownVendors) throws OcrException
+	{
+		List<PageRange> ranges = PdfPageRanges.split(documentData, Math.max(1, pagesPerRange));
+		LOG.info("Starting scan of document: '{}', size={} bytes, pageRanges={}", documentName, documentData.length,
+			ranges.size());
+
+		List<CompletableFuture<List<Receipt>>> analyses = ranges.stream()
+			.map(range -> CompletableFuture.supplyAsync(() -> analyze(range, documentName), executor))
+			.toList();
+		List<List<Receipt>> results = new ArrayList<>();
+		try
+		{
+			for (CompletableFuture<List<Receipt>> analysis : analyses)
+			{
+				results.add(analysis.join());
+			}
+		}
+		catch (CompletionException e)
+		{
+			analyses.forEach(analysis -> analysis.cancel(true));
+			throw e.getCause() instanceof RuntimeException cause ? cause : e;
+		}
+
+		List<Receipt> receipts = mergeRanges(results);
+		if (receipts.isEmpty())
+		{
+			LOG.error("Couldn't analyze document '{}'", documentName);
+			throw new OcrException("Could not analyze document, AI's return value is empty");
+		}
+		LOG.info("Scanned document '{}': receipts={}", documentName, receipts.size());
+
+		List<DocumentData> tagged = new ArrayList<>();
+		for (Receipt receipt : receipts)
+		{
+			tagged.add(tag(receipt, documentName, knownVendors));
+		}
+		return tagged;
+	}
 
-		AnalyzedDocument document = documents.getFirst();
-		LOG.info("Scanned document '{}': docType={}, fields={}", documentName, document.getDocumentType(),
-			document.getFields().keySet());
+	private List<Receipt> analyze(PageRange range, String documentName)
+	{
+		rangePermits.acquireUninterruptibly();
+		try
+		{
+			LOG.debug("Analyzing pages {}-{} of document '{}'", range.firstPage(), range.lastPage(), documentName);
+			return azureDocumentConnector.getAnalyzeResult(modelId, range.content()).getDocuments().stream()
+				.map(Receipt::of)
+				.toList();
+		}
+		finally
+		{
+			rangePermits.release();
+		}
+	}
 
-		List<String> tags = generateTags(document, documentName);
+	/**
+	 * Joins the receipts of all ranges. The last receipt of a range and the
+	 * first of the next one are the same receipt if they have the same
+	 * invoice ID and merchant; their fields are merged.
+	 */
+	static List<Receipt> mergeRanges(List<List<Receipt>> ranges)
+	{
+		List<Receipt> merged = new ArrayList<>();
+		for (List<Receipt> range : ranges)
+		{
+			for (int i = 0; i < range.size(); i++)
+			{
+				Receipt receipt = range.get(i);
+				if (i == 0 && !merged.isEmpty() && isSameReceipt(merged.getLast(), receipt))
+				{
+					merged.set(merged.size() - 1, merged.getLast().merge(receipt));
+				}
+				else
+				{
+					merged.add(receipt);
+				}
+			}
+		}
+		return merged;
+	}
 
-		return DocumentDataHelper.fromDocument(document, tags);
+	private static boolean isSameReceipt(Receipt a, Receipt b)
+	{
+		return a.data().documentId() != null
+			&& a.data().documentId().equals(b.data().documentId())
+			&& VendorNames.normalize(a.data().merchantName()).equals(VendorNames.normalize(b.data().merchantName()));
+	}
+
+	private DocumentData tag(Receipt receipt, String documentName, Collection<String> knownVendors)
+	{
+		AnalyzedDocument document = receipt.documents().getFirst();
+		LOG.info("Scanned document '{}': docType={}, fields={}, parts={}", documentName, document.getDocumentType(),
+			document.getFields().keySet(), receipt.documents().size());
+
+		DocumentData untagged = receipt.data();
+		if (!knownVendors.isEmpty() && knownVendors.contains(VendorNames.normalize(untagged.merchantName())))
+		{
+			LOG.info("Skipping tag generation for known vendor of document '{}'", documentName);
+			return untagged;
+		}
+
+		TagPrompt prompt = TagPrompts.fromDocuments(receipt.documents(), untagged, maxPromptTokens);
+		List<String> tags = tagCache.getOrGenerate(prompt, () -> generateTags(prompt, documentName));
+
+		return untagged.withTags(tags);
+	}
+
+	/**
+	 * A receipt found by Azure, with its untagged data. A receipt cut by a
+	 * range boundary has a document per part.
+	 */
+	record Receipt(List<AnalyzedDocument> documents, DocumentData data)
+	{
+		static Receipt of(AnalyzedDocument document)
+		{
+			return new Receipt(List.of(document), DocumentDataHelper.fromDocument(document, List.of()));
+		}
+
+		Receipt merge(Receipt tail)
+		{
+			List<AnalyzedDocument> parts = new ArrayList<>(documents);
+			parts.addAll(tail.documents());
+			return new Receipt(parts, DocumentDataHelper.merge(data, tail.data()));
+		}
 	}
 
-	private List<String> generateTags(AnalyzedDocument document, String documentName)
+	private List<String> generateTags(TagPrompt prompt, String documentName)
 	{
 		try
 		{
-			String documentJson = objectMapper.writeValueAsString(document);
-			LOG.debug("Generating tags for document '{}', JSON length: {}", documentName, documentJson.length());
+			String documentJson = objectMapper.writeValueAsString(prompt);
+			LOG.debug("Generating tags for document '{}', JSON length: {}, omitted items: {}", documentName,
+				documentJson.length(), prompt.omittedItems());
 
 			List<String> tags = documentTagService.generateTags(documentJson);
 
@@ -1,44 +1,139 @@
 package app.fuggs.az.document.ai;
 
-import com.azure.ai.documentintelligence.DocumentIntelligenceClient;
+import com.azure.ai.documentintelligence.DocumentIntelligenceAsyncClient;
 import com.azure.ai.documentintelligence.DocumentIntelligenceClientBuilder;
 import com.azure.ai.documentintelligence.models.AnalyzeDocumentOptions;
 import com.azure.ai.documentintelligence.models.AnalyzeResult;
 import com.azure.core.credential.AzureKeyCredential;
+import com.azure.core.util.polling.AsyncPollResponse;
+import io.smallrye.mutiny.Uni;
 import jakarta.enterprise.context.ApplicationScoped;
 import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
 
-import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
 
+/**
+ * Analyzes documents with the asynchronous Azure client, so waiting for an
+ * analysis holds no thread.
+ * <p>
+ * The poll interval adapts to how long analyses take: it is a fifth of the
+ * moving average of recent durations, bounded by
+ * {@code app.fuggs.az-document-ai.azure.poll-interval.min} and {@code .max}.
+ * Until the first analysis finished, {@code .initial} is used. A Retry-After
+ * header of the service takes precedence in the SDK.
+ * </p>
+ */
 @ApplicationScoped
 public class AzureDocumentConnector
 {
-	private final DocumentIntelligenceClient azureClient;
+	private static final Logger LOG = LoggerFactory.getLogger(AzureDocumentConnector.class);
+
+	/** Polls per average analysis; the result is seen within a fifth of it. */
+	static final int POLLS_PER_ANALYSIS = 5;
+
+	/** Weight of the latest duration in the moving average. */
+	private static final int AVERAGE_WEIGHT = 5;
+
+	private final DocumentIntelligenceAsyncClient azureClient;
+	private final Duration initialPollInterval;
+	private final Duration minPollInterval;
+	private final Duration maxPollInterval;
+	private final Duration analysisTimeout;
+
+	// Moving average of analysis durations in ms, 0 until the first one
+	private final AtomicLong averageMillis = new AtomicLong();
 
 	public AzureDocumentConnector(
 		@ConfigProperty(name = "app.fuggs.az-document-ai.azure.endpoint") String endpoint,
-		@ConfigProperty(name = "app.fuggs.az-document-ai.azure.key") String key)
+		@ConfigProperty(name = "app.fuggs.az-document-ai.azure.key") String key,
+		@ConfigProperty(name = "app.fuggs.az-document-ai.azure.poll-interval.initial", defaultValue = "PT1S") Duration initialPollInterval,
+		@ConfigProperty(name = "app.fuggs.az-document-ai.azure.poll-interval.min", defaultValue = "PT0.5S") Duration minPollInterval,
+		@ConfigProperty(name = "app.fuggs.az-document-ai.azure.poll-interval.max", defaultValue = "PT5S") Duration maxPollInterval,
+		@ConfigProperty(name = "app.fuggs.az-document-ai.azure.analysis-timeout", defaultValue = "PT2M") Duration analysisTimeout)
 	{
 		azureClient = new DocumentIntelligenceClientBuilder()
 			.credential(new AzureKeyCredential(key))
 			.endpoint(endpoint)
-			.buildClient();
+			.buildAsyncClient();
+		this.initialPollInterval = initialPollInterval;
+		this.minPollInterval = minPollInterval;
+		this.maxPollInterval = maxPollInterval;
+		this.analysisTimeout = analysisTimeout;
+	}
+
+	/**
+	 * Analyzes a document. Nothing is sent before subscription; cancelling
+	 * the subscription stops polling. Fails with a
+	 * {@link io.smallrye.mutiny.TimeoutException} after
+	 * {@code app.fuggs.az-document-ai.azure.analysis-timeout}.
+	 *
+	 * @param modelId
+	 *            the Azure model
+	 * @param document
+	 *            the document content
+	 * @return the analysis result
+	 */
+	public Uni<AnalyzeResult> analyze(String modelId, byte[] document)
+	{
+		return Uni.createFrom().deferred(() -> {
+			Duration pollInterval = pollInterval(averageMillis.get(), initialPollInterval, minPollInterval,
+				maxPollInterval);
+			long start = System.nanoTime();
+			Mono<AnalyzeResult> result = azureClient
+				.beginAnalyzeDocument(modelId, new AnalyzeDocumentOptions(document))
+				.setPollInterval(pollInterval)
+				.last()
+				.flatMap(AsyncPollResponse::getFinalResult)
+				.switchIfEmpty(Mono.error(() -> new IllegalStateException("Azure returned no analysis result")));
+			return fromMono(result)
+				.ifNoItem().after(analysisTimeout).fail()
+				.invoke(() -> record(Duration.ofNanos(System.nanoTime() - start), pollInterval));
+		});
+	}
+
+	/**
+	 * Blocking variant of {@link #analyze(String, byte[])}, for callers on
+	 * worker or virtual threads. Never waits longer than the analysis
+	 * timeout, so callers holding a permit always get to release it.
+	 */
+	public AnalyzeResult getAnalyzeResult(String modelId, byte[] document)
+	{
+		return analyze(modelId, document).await().atMost(analysisTimeout);
+	}
+
+	private void record(Duration duration, Duration pollInterval)
+	{
+		long millis = duration.toMillis();
+		long average = averageMillis
+			.accumulateAndGet(millis, (avg, latest) -> avg == 0 ? latest
+				: (avg * (AVERAGE_WEIGHT - 1) + latest) / AVERAGE_WEIGHT);
+		LOG.debug("Azure analysis took {} ms (pollInterval={}, average={} ms)", millis, pollInterval, average);
 	}
 
-	public AnalyzeResult getAnalyzeResult(String modelId, Path image)
+	static Duration pollInterval(long averageMillis, Duration initial, Duration min, Duration max)
 	{
-		try
+		if (averageMillis <= 0)
 		{
-			byte[] imageBytes = Files.readAllBytes(image);
-			var options = new AnalyzeDocumentOptions(imageBytes);
-			var analyzeDocumentPoller = azureClient.beginAnalyzeDocument(modelId, options);
-			return analyzeDocumentPoller.getFinalResult();
+			return initial;
 		}
-		catch (IOException e)
+		Duration interval = Duration.ofMillis(averageMillis / POLLS_PER_ANALYSIS);
+		if (interval.compareTo(min) < 0)
 		{
-			throw new RuntimeException("Failed to read document file: " + image, e);
+			return min;
 		}
+		return interval.compareTo(max) > 0 ? max : interval;
+	}
+
+	private static <T> Uni<T> fromMono(Mono<T> mono)
+	{
+		return Uni.createFrom().emitter(emitter -> {
+			Disposable subscription = mono.subscribe(emitter::complete, emitter::fail);
+			emitter.onTermination(subscription::dispose);
+		});
 	}
 }
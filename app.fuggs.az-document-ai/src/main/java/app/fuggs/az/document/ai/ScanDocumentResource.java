@@ -1,6 +1,8 @@
 package app.fuggs.az.document.ai;
 
 import app.fuggs.az.document.ai.model.DocumentData;
+import io.smallrye.common.annotation.Blocking;
+import io.smallrye.mutiny.Uni;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
 import jakarta.ws.rs.Consumes;
@@ -11,14 +13,21 @@ import jakarta.ws.rs.WebApplicationException;
 import jakarta.ws.rs.core.MediaType;
 import jakarta.ws.rs.core.Response;
 import org.eclipse.microprofile.openapi.annotations.Operation;
+import org.eclipse.microprofile.openapi.annotations.enums.SchemaType;
 import org.eclipse.microprofile.openapi.annotations.media.Content;
 import org.eclipse.microprofile.openapi.annotations.media.Schema;
 import org.eclipse.microprofile.openapi.annotations.responses.APIResponse;
 import org.jboss.resteasy.reactive.PartType;
 import org.jboss.resteasy.reactive.RestForm;
+import org.jboss.resteasy.reactive.RestQuery;
 import org.jboss.resteasy.reactive.multipart.FileUpload;
 import org.slf4j.Logger;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Set;
+
 import static org.slf4j.LoggerFactory.getLogger;
 
 @ApplicationScoped
@@ -41,12 +50,54 @@ public class ScanDocumentResource
 	@Operation(summary = "Scans the document uploaded with this request", description = "Uses Azure Document AI to extract data from invoices and receipts")
 	@APIResponse(responseCode = "200", description = "Extracted document data", content = @Content(mediaType = MediaType.APPLICATION_JSON, schema = @Schema(implementation = DocumentData.class)))
 	@APIResponse(responseCode = "400", description = "Couldn't extract data / invalid request")
-	public DocumentData scanDocument(@RestForm @PartType(MediaType.APPLICATION_OCTET_STREAM) FileUpload document,
-		@RestForm long transactionRecordId)
+	@Blocking // reads the uploaded file, the analysis itself does not block
+	public Uni<DocumentData> scanDocument(
+		@RestForm @PartType(MediaType.APPLICATION_OCTET_STREAM) FileUpload document,
+		@RestForm long transactionRecordId) throws IOException
+	{
+		return scan(Files.readAllBytes(document.uploadedFile()), transactionRecordId, List.of());
+	}
+
+	/**
+	 * Same as {@link #scanDocument(FileUpload, long)}, but takes the document
+	 * as raw request body. The body is kept in memory (bounded by
+	 * {@code quarkus.http.limits.max-body-size}) and handed to Azure without
+	 * being written to a temporary file first. Merchants listed as
+	 * {@code knownVendor} (normalized names) get no AI tags. Runs on the event
+	 * loop; no thread waits for the Azure analysis.
+	 */
+	@POST
+	@Consumes(MediaType.APPLICATION_OCTET_STREAM)
+	@Produces(MediaType.APPLICATION_JSON)
+	@Operation(summary = "Scans the document sent as request body", description = "Uses Azure Document AI to extract data from invoices and receipts")
+	@APIResponse(responseCode = "200", description = "Extracted document data", content = @Content(mediaType = MediaType.APPLICATION_JSON, schema = @Schema(implementation = DocumentData.class)))
+	@APIResponse(responseCode = "400", description = "Couldn't extract data / invalid request")
+	public Uni<DocumentData> scanDocumentBody(byte[] document, @RestQuery long transactionRecordId,
+		@RestQuery("knownVendor") List<String> knownVendors)
+	{
+		return scan(document, transactionRecordId, knownVendors != null ? knownVendors : List.of());
+	}
+
+	/**
+	 * Scans a document that bundles several receipts, like a scan of all
+	 * receipts of a month. Long PDFs are split into page ranges that are
+	 * analyzed concurrently; the result has one entry per receipt.
+	 */
+	@POST
+	@Path("/receipts")
+	@Consumes(MediaType.APPLICATION_OCTET_STREAM)
+	@Produces(MediaType.APPLICATION_JSON)
+	@Operation(summary = "Scans all receipts of the document sent as request body", description = "Uses Azure Document AI to extract one entry per receipt or invoice found in the document")
+	@APIResponse(responseCode = "200", description = "Extracted data of each receipt, in page order", content = @Content(mediaType = MediaType.APPLICATION_JSON, schema = @Schema(implementation = DocumentData.class, type = SchemaType.ARRAY)))
+	@APIResponse(responseCode = "400", description = "Couldn't extract data / invalid request")
+	public List<DocumentData> scanReceipts(byte[] document, @RestQuery long transactionRecordId,
+		@RestQuery("knownVendor") List<String> knownVendors)
 	{
+		requireContent(document);
 		try
 		{
-			return aiService.scanDocument(document.uploadedFile(), String.valueOf(transactionRecordId));
+			return aiService.scanDocuments(document, String.valueOf(transactionRecordId),
+				Set.copyOf(knownVendors != null ? knownVendors : List.of()));
 		}
 		catch (OcrException e)
 		{
@@ -54,4 +105,22 @@ public class ScanDocumentResource
 			throw new WebApplicationException("Could not extract document", Response.Status.BAD_REQUEST);
 		}
 	}
-}
\ No newline at end of file
+
+	private Uni<DocumentData> scan(byte[] document, long transactionRecordId, List<String> knownVendors)
+	{
+		requireContent(document);
+		return aiService.scanDocumentAsync(document, String.valueOf(transactionRecordId), Set.copyOf(knownVendors))
+			.onFailure(OcrException.class).transform(e -> {
+				LOG.error("Could not extract document", e);
+				return new WebApplicationException("Could not extract document", Response.Status.BAD_REQUEST);
+			});
+	}
+
+	private static void requireContent(byte[] document)
+	{
+		if (document == null || document.length == 0)
+		{
+			throw new WebApplicationException("Document is empty", Response.Status.BAD_REQUEST);
+		}
+	}
+}
@@ -0,0 +1,142 @@
+package app.fuggs.az.document.ai;
+
+import app.fuggs.az.document.ai.model.DocumentData;
+import app.fuggs.az.document.ai.model.ScanOperation;
+import app.fuggs.az.document.ai.service.ScanOperationService;
+import io.smallrye.mutiny.Uni;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.Consumes;
+import jakarta.ws.rs.DefaultValue;
+import jakarta.ws.rs.GET;
+import jakarta.ws.rs.POST;
+import jakarta.ws.rs.Path;
+import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.WebApplicationException;
+import jakarta.ws.rs.core.Context;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.core.UriInfo;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.eclipse.microprofile.openapi.annotations.Operation;
+import org.eclipse.microprofile.openapi.annotations.enums.SchemaType;
+import org.eclipse.microprofile.openapi.annotations.media.Content;
+import org.eclipse.microprofile.openapi.annotations.media.Schema;
+import org.eclipse.microprofile.openapi.annotations.responses.APIResponse;
+import org.jboss.resteasy.reactive.RestPath;
+import org.jboss.resteasy.reactive.RestQuery;
+import org.slf4j.Logger;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+import static org.slf4j.LoggerFactory.getLogger;
+
+/**
+ * Submit/poll variant of {@code /document/scan/receipts}: the submit request
+ * returns at once with an operation ID, the caller polls the status and then
+ * fetches the result. No connection is held open for the whole analysis.
+ * Operations live in the memory of one instance, see
+ * {@link ScanOperationService}.
+ */
+@ApplicationScoped
+@Path("/document/scan/operations")
+public class ScanOperationResource
+{
+	private static final Logger LOG = getLogger(ScanOperationResource.class);
+
+	private final ScanOperationService operationService;
+	private final Duration maxWait;
+
+	@Inject
+	public ScanOperationResource(ScanOperationService operationService,
+		@ConfigProperty(name = "app.fuggs.az-document-ai.operations.max-wait", defaultValue = "PT30S") Duration maxWait)
+	{
+		this.operationService = operationService;
+		this.maxWait = maxWait;
+	}
+
+	@POST
+	@Consumes(MediaType.APPLICATION_OCTET_STREAM)
+	@Produces(MediaType.APPLICATION_JSON)
+	@Operation(summary = "Starts the scan of the document sent as request body", description = "Returns an operation ID at once; poll the operation for its status and fetch the result when it succeeded. With split=false the document is scanned as a single receipt.")
+	@APIResponse(responseCode = "202", description = "Scan started", content = @Content(mediaType = MediaType.APPLICATION_JSON, schema = @Schema(implementation = ScanOperation.class)))
+	@APIResponse(responseCode = "400", description = "Invalid request")
+	public Response submit(byte[] document, @RestQuery long transactionRecordId,
+		@RestQuery("knownVendor") List<String> knownVendors, @RestQuery @DefaultValue("true") boolean split,
+		@Context UriInfo uriInfo)
+	{
+		if (document == null || document.length == 0)
+		{
+			throw new WebApplicationException("Document is empty", Response.Status.BAD_REQUEST);
+		}
+		String operationId = operationService.submit(document, String.valueOf(transactionRecordId),
+			Set.copyOf(knownVendors != null ? knownVendors : List.of()), split);
+		return Response.accepted(ScanOperation.running(operationId))
+			.location(uriInfo.getAbsolutePathBuilder().path(operationId).build())
+			.build();
+	}
+
+	/**
+	 * Returns the status of an operation. With {@code waitSeconds}, waits up
+	 * to that long, at most
+	 * {@code app.fuggs.az-document-ai.operations.max-wait}, for the scan to
+	 * finish, so callers need few requests.
+	 */
+	@GET
+	@Path("/{operationId}")
+	@Produces(MediaType.APPLICATION_JSON)
+	@Operation(summary = "Returns the status of a scan")
+	@APIResponse(responseCode = "200", description = "Status of the scan", content = @Content(mediaType = MediaType.APPLICATION_JSON, schema = @Schema(implementation = ScanOperation.class)))
+	@APIResponse(responseCode = "404", description = "Unknown or expired operation")
+	public Uni<ScanOperation> status(@RestPath String operationId, @RestQuery int waitSeconds)
+	{
+		CompletableFuture<List<DocumentData>> result = find(operationId);
+		if (result.isDone() || waitSeconds <= 0)
+		{
+			return Uni.createFrom().item(ScanOperationService.status(operationId, result));
+		}
+		Duration wait = Duration.ofSeconds(waitSeconds);
+		return Uni.createFrom().completionStage(result.handle((receipts, failure) -> null))
+			.map(ignored -> ScanOperationService.status(operationId, result))
+			.ifNoItem().after(wait.compareTo(maxWait) < 0 ? wait : maxWait)
+			.recoverWithItem(ScanOperation.running(operationId));
+	}
+
+	@GET
+	@Path("/{operationId}/result")
+	@Produces(MediaType.APPLICATION_JSON)
+	@Operation(summary = "Returns the data extracted by a finished scan", description = "One entry per receipt or invoice found in the document, in page order")
+	@APIResponse(responseCode = "200", description = "Extracted data of each receipt", content = @Content(mediaType = MediaType.APPLICATION_JSON, schema = @Schema(implementation = DocumentData.class, type = SchemaType.ARRAY)))
+	@APIResponse(responseCode = "400", description = "Couldn't extract data")
+	@APIResponse(responseCode = "404", description = "Unknown or expired operation")
+	@APIResponse(responseCode = "409", description = "Scan still running")
+	public List<DocumentData> result(@RestPath String operationId)
+	{
+		CompletableFuture<List<DocumentData>> result = find(operationId);
+		if (!result.isDone())
+		{
+			throw new WebApplicationException("Scan still running", Response.Status.CONFLICT);
+		}
+		Throwable failure = ScanOperationService.failure(result);
+		if (failure instanceof OcrException)
+		{
+			LOG.error("Could not extract document (operationId={})", operationId, failure);
+			throw new WebApplicationException("Could not extract document", Response.Status.BAD_REQUEST);
+		}
+		if (failure != null)
+		{
+			LOG.error("Scan failed (operationId={})", operationId, failure);
+			throw new WebApplicationException("Scan failed", Response.Status.INTERNAL_SERVER_ERROR);
+		}
+		return result.join();
+	}
+
+	private CompletableFuture<List<DocumentData>> find(String operationId)
+	{
+		return operationService.find(operationId)
+			.orElseThrow(() -> new WebApplicationException("Unknown operation", Response.Status.NOT_FOUND));
+	}
+}
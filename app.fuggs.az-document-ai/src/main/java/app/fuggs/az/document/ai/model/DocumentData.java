@@ -31,4 +31,16 @@ public record DocumentData(
 	LocalDate serviceEndDate,
 	List<String> tags)
 {
+	/**
+	 * @param tags
+	 *            the generated tags
+	 * @return a copy of this data with the given tags
+	 */
+	public DocumentData withTags(List<String> tags)
+	{
+		return new DocumentData(total, currencyCode, date, time, documentId, merchantName, merchantAddress,
+			merchantTaxId, customerName, customerId, customerAddress, billingAddress, shippingAddress, dueDate,
+			amountDue, subTotal, totalTax, totalDiscount, previousUnpaidBalance, purchaseOrderNumber, paymentTerm,
+			serviceStartDate, serviceEndDate, tags);
+	}
 }
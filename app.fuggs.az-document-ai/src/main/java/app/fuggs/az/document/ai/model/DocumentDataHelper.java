@@ -56,6 +56,52 @@ public class DocumentDataHelper
 			tags);
 	}
 
+	/**
+	 * Joins the data of a receipt whose pages were analyzed separately. Each
+	 * field is taken from the part that has it. If both have it, the header
+	 * fields come from the first part and the amounts from the second, as
+	 * receipts print the totals at the end.
+	 *
+	 * @param head
+	 *            data of the first pages
+	 * @param tail
+	 *            data of the following pages
+	 * @return the joined data
+	 */
+	public static DocumentData merge(DocumentData head, DocumentData tail)
+	{
+		return new DocumentData(
+			either(tail.total(), head.total()),
+			either(head.currencyCode(), tail.currencyCode()),
+			either(head.date(), tail.date()),
+			either(head.time(), tail.time()),
+			either(head.documentId(), tail.documentId()),
+			either(head.merchantName(), tail.merchantName()),
+			either(head.merchantAddress(), tail.merchantAddress()),
+			either(head.merchantTaxId(), tail.merchantTaxId()),
+			either(head.customerName(), tail.customerName()),
+			either(head.customerId(), tail.customerId()),
+			either(head.customerAddress(), tail.customerAddress()),
+			either(head.billingAddress(), tail.billingAddress()),
+			either(head.shippingAddress(), tail.shippingAddress()),
+			either(head.dueDate(), tail.dueDate()),
+			either(tail.amountDue(), head.amountDue()),
+			either(tail.subTotal(), head.subTotal()),
+			either(tail.totalTax(), head.totalTax()),
+			either(tail.totalDiscount(), head.totalDiscount()),
+			either(tail.previousUnpaidBalance(), head.previousUnpaidBalance()),
+			either(head.purchaseOrderNumber(), tail.purchaseOrderNumber()),
+			either(head.paymentTerm(), tail.paymentTerm()),
+			either(head.serviceStartDate(), tail.serviceStartDate()),
+			either(head.serviceEndDate(), tail.serviceEndDate()),
+			head.tags() != null && !head.tags().isEmpty() ? head.tags() : tail.tags());
+	}
+
+	private static <T> T either(T preferred, T fallback)
+	{
+		return preferred != null ? preferred : fallback;
+	}
+
 	private static BigDecimal extractTotal(Map<String, DocumentField> fields, BigDecimal subTotal,
 		BigDecimal totalTax)
 	{
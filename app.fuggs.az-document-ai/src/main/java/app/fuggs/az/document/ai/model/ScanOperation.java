@@ -0,0 +1,26 @@
+package app.fuggs.az.document.ai.model;
+
+/**
+ * State of a scan submitted to run in the background.
+ *
+ * @param operationId
+ *            the ID returned by the submit request
+ * @param status
+ *            whether the scan is running, done or failed
+ * @param error
+ *            the failure message, null unless the scan failed
+ */
+public record ScanOperation(String operationId, Status status, String error)
+{
+	public enum Status
+	{
+		RUNNING,
+		SUCCEEDED,
+		FAILED
+	}
+
+	public static ScanOperation running(String operationId)
+	{
+		return new ScanOperation(operationId, Status.RUNNING, null);
+	}
+}
@@ -0,0 +1,86 @@
+package app.fuggs.az.document.ai.model;
+
+import app.fuggs.tagging.TagPrompt;
+import com.azure.ai.documentintelligence.models.AnalyzedDocument;
+import com.azure.ai.documentintelligence.models.DocumentField;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Builds the {@link TagPrompt} of an analyzed document. Replaces the
+ * serialized {@link AnalyzedDocument} in the prompt, whose bounding polygons
+ * and spans make up most of its size.
+ */
+public final class TagPrompts
+{
+	private TagPrompts()
+	{
+		// only call the static methods
+	}
+
+	/**
+	 * Builds the prompt data of an analyzed document.
+	 *
+	 * @param document
+	 *            the Azure result, source of the line items
+	 * @param data
+	 *            the data extracted from it, source of vendor and total
+	 * @param maxTokens
+	 *            token budget; line items that exceed it are left out
+	 * @return the prompt data
+	 */
+	public static TagPrompt fromDocument(AnalyzedDocument document, DocumentData data, int maxTokens)
+	{
+		return fromDocuments(List.of(document), data, maxTokens);
+	}
+
+	/**
+	 * Builds the prompt data of a receipt whose pages were analyzed
+	 * separately.
+	 *
+	 * @param documents
+	 *            the Azure results of its parts, in page order
+	 * @param data
+	 *            the data merged from them, source of vendor and total
+	 * @param maxTokens
+	 *            token budget; line items that exceed it are left out
+	 * @return the prompt data
+	 */
+	public static TagPrompt fromDocuments(List<AnalyzedDocument> documents, DocumentData data, int maxTokens)
+	{
+		List<String> descriptions = new ArrayList<>();
+		for (AnalyzedDocument document : documents)
+		{
+			DocumentField items = document.getFields().get("Items");
+			if (items != null && items.getValueList() != null)
+			{
+				for (DocumentField item : items.getValueList())
+				{
+					descriptions.add(describe(item));
+				}
+			}
+		}
+		return TagPrompt.of(data.merchantName(), descriptions, data.total(), data.currencyCode(), maxTokens);
+	}
+
+	private static String describe(DocumentField item)
+	{
+		Map<String, DocumentField> fields = item.getValueMap();
+		if (fields == null)
+		{
+			return item.getContent();
+		}
+		DocumentField description = fields.get("Description");
+		if (description == null)
+		{
+			description = fields.get("ProductCode");
+		}
+		if (description == null)
+		{
+			return null;
+		}
+		return description.getValueString() != null ? description.getValueString() : description.getContent();
+	}
+}
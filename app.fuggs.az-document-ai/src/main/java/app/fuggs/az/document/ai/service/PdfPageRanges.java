@@ -0,0 +1,99 @@
+package app.fuggs.az.document.ai.service;
+
+import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.multipdf.Splitter;
+import org.apache.pdfbox.pdmodel.PDDocument;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Splits a PDF into ranges of consecutive pages, so the ranges of a scan that
+ * bundles many receipts can be analyzed independently.
+ */
+public final class PdfPageRanges
+{
+	private static final byte[] PDF_MAGIC = "%PDF-".getBytes(StandardCharsets.US_ASCII);
+
+	private PdfPageRanges()
+	{
+		// only call the static method
+	}
+
+	/**
+	 * Pages of the original document, numbered from 1.
+	 *
+	 * @param firstPage
+	 *            first page of the range
+	 * @param lastPage
+	 *            last page of the range
+	 * @param content
+	 *            the range as separate document
+	 */
+	public record PageRange(int firstPage, int lastPage, byte[] content)
+	{
+	}
+
+	/**
+	 * Splits a document into ranges of at most {@code pagesPerRange} pages.
+	 * Images, unreadable PDFs and PDFs that fit into one range are returned
+	 * unchanged as single range; Azure reports the problems of those.
+	 *
+	 * @param document
+	 *            the document content
+	 * @param pagesPerRange
+	 *            maximum number of pages per range
+	 * @return the ranges in page order
+	 */
+	public static List<PageRange> split(byte[] document, int pagesPerRange)
+	{
+		if (!isPdf(document))
+		{
+			return List.of(new PageRange(1, 1, document));
+		}
+		try (PDDocument pdf = Loader.loadPDF(document))
+		{
+			int pages = pdf.getNumberOfPages();
+			if (pages <= pagesPerRange)
+			{
+				return List.of(new PageRange(1, Math.max(pages, 1), document));
+			}
+
+			Splitter splitter = new Splitter();
+			splitter.setSplitAtPage(pagesPerRange);
+			List<PageRange> ranges = new ArrayList<>();
+			int firstPage = 1;
+			for (PDDocument part : splitter.split(pdf))
+			{
+				try (part)
+				{
+					int lastPage = firstPage + part.getNumberOfPages() - 1;
+					ranges.add(new PageRange(firstPage, lastPage, save(part)));
+					firstPage = lastPage + 1;
+				}
+			}
+			return ranges;
+		}
+		catch (IOException e)
+		{
+			return List.of(new PageRange(1, 1, document));
+		}
+	}
+
+	private static byte[] save(PDDocument document) throws IOException
+	{
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		document.save(out);
+		return out.toByteArray();
+	}
+
+	private static boolean isPdf(byte[] document)
+	{
+		return document.length >= PDF_MAGIC.length
+			&& Arrays.equals(document, 0, PDF_MAGIC.length, PDF_MAGIC, 0, PDF_MAGIC.length);
+	}
+}
@@ -0,0 +1,215 @@
+package app.fuggs.az.document.ai.service;
+
+import app.fuggs.az.document.ai.AzureAiService;
+import app.fuggs.az.document.ai.OcrException;
+import app.fuggs.az.document.ai.model.DocumentData;
+import app.fuggs.az.document.ai.model.ScanOperation;
+import app.fuggs.az.document.ai.model.ScanOperation.Status;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.quarkus.scheduler.Scheduled;
+import io.quarkus.scheduler.Scheduled.ConcurrentExecution;
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Runs scans in the background, so neither the caller nor a load balancer
+ * holds a connection open for the whole Azure analysis.
+ * <p>
+ * Operations are kept in memory of the instance that accepted them and
+ * dropped after {@code app.fuggs.az-document-ai.operations.ttl}, checked
+ * every minute. With several replicas, status and result requests must be
+ * routed to that instance (sticky sessions), otherwise they get a 404. If
+ * {@code app.fuggs.az-document-ai.operations.callback-url} is set, the final
+ * {@link ScanOperation} is posted there when a scan finishes; callers that
+ * poll do not need it.
+ * </p>
+ */
+@ApplicationScoped
+public class ScanOperationService
+{
+	private static final Logger LOG = LoggerFactory.getLogger(ScanOperationService.class);
+
+	@Inject
+	AzureAiService aiService;
+
+	@Inject
+	ObjectMapper objectMapper;
+
+	@ConfigProperty(name = "app.fuggs.az-document-ai.operations.ttl", defaultValue = "PT30M")
+	Duration ttl;
+
+	@ConfigProperty(name = "app.fuggs.az-document-ai.operations.callback-url")
+	Optional<URI> callbackUrl;
+
+	private final Map<String, Operation> operations = new ConcurrentHashMap<>();
+
+	private final ExecutorService executor = Executors
+		.newThreadPerTaskExecutor(Thread.ofVirtual().name("az-document-ai-operation-", 0).factory());
+
+	private final HttpClient httpClient = HttpClient.newBuilder()
+		.connectTimeout(Duration.ofSeconds(10))
+		.build();
+
+	private record Operation(CompletableFuture<List<DocumentData>> result, Instant createdAt)
+	{
+	}
+
+	/**
+	 * Starts the scan of a document.
+	 *
+	 * @param document
+	 *            the document content
+	 * @param documentName
+	 *            name used for logging
+	 * @param knownVendors
+	 *            normalized names of vendors that need no AI tags
+	 * @param split
+	 *            whether the document may bundle several receipts; if not,
+	 *            the result is the single document Azure found first
+	 * @return the operation ID
+	 */
+	public String submit(byte[] document, String documentName, Collection<String> knownVendors, boolean split)
+	{
+		String operationId = UUID.randomUUID().toString();
+		CompletableFuture<List<DocumentData>> result = CompletableFuture
+			.supplyAsync(() -> scan(document, documentName, knownVendors, split), executor);
+		operations.put(operationId, new Operation(result, Instant.now()));
+		result.whenComplete((receipts, failure) -> notifyCallback(status(operationId, result)));
+		LOG.info("Submitted scan of document '{}' (operationId={})", documentName, operationId);
+		return operationId;
+	}
+
+	/**
+	 * @param operationId
+	 *            the operation ID
+	 * @return the pending receipts, empty if the operation is unknown or
+	 *         expired
+	 */
+	public Optional<CompletableFuture<List<DocumentData>>> find(String operationId)
+	{
+		return Optional.ofNullable(operations.get(operationId)).map(Operation::result);
+	}
+
+	/**
+	 * @param operationId
+	 *            the operation ID
+	 * @param result
+	 *            the pending receipts of the operation
+	 * @return the current state of the operation
+	 */
+	public static ScanOperation status(String operationId, CompletableFuture<List<DocumentData>> result)
+	{
+		if (!result.isDone())
+		{
+			return ScanOperation.running(operationId);
+		}
+		Throwable failure = failure(result);
+		return failure == null
+			? new ScanOperation(operationId, Status.SUCCEEDED, null)
+			: new ScanOperation(operationId, Status.FAILED, failure.getMessage());
+	}
+
+	/**
+	 * @return the exception a completed operation failed with, null if it
+	 *         succeeded
+	 */
+	public static Throwable failure(CompletableFuture<?> result)
+	{
+		try
+		{
+			result.join();
+			return null;
+		}
+		catch (CompletionException e)
+		{
+			return e.getCause() != null ? e.getCause() : e;
+		}
+		catch (RuntimeException e)
+		{
+			return e;
+		}
+	}
+
+	private List<DocumentData> scan(byte[] document, String documentName, Collection<String> knownVendors,
+		boolean split)
+	{
+		try
+		{
+			return split ? aiService.scanDocuments(document, documentName, knownVendors)
+				: List.of(aiService.scanDocument(document, documentName, knownVendors));
+		}
+		catch (OcrException e)
+		{
+			throw new CompletionException(e);
+		}
+	}
+
+	private void notifyCallback(ScanOperation operation)
+	{
+		if (callbackUrl.isEmpty())
+		{
+			return;
+		}
+		try
+		{
+			HttpRequest request = HttpRequest.newBuilder(callbackUrl.get())
+				.timeout(Duration.ofSeconds(10))
+				.header("Content-Type", "application/json")
+				.POST(HttpRequest.BodyPublishers.ofString(objectMapper.writeValueAsString(operation)))
+				.build();
+			httpClient.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+				.whenComplete((response, e) -> {
+					if (e != null || response.statusCode() >= 300)
+					{
+						LOG.warn("Scan callback failed (operationId={}, status={}, error={})",
+							operation.operationId(), response != null ? response.statusCode() : null,
+							e != null ? e.getMessage() : null);
+					}
+				});
+		}
+		catch (JsonProcessingException e)
+		{
+			LOG.warn("Failed to serialize scan callback (operationId={})", operation.operationId(), e);
+		}
+	}
+
+	@Scheduled(every = "1m", concurrentExecution = ConcurrentExecution.SKIP)
+	void evictExpired()
+	{
+		Instant cutoff = Instant.now().minus(ttl);
+		int before = operations.size();
+		operations.values().removeIf(operation -> operation.createdAt().isBefore(cutoff));
+		if (operations.size() < before)
+		{
+			LOG.debug("Dropped expired scan operations: count={}", before - operations.size());
+		}
+	}
+
+	@PreDestroy
+	void shutdown()
+	{
+		executor.shutdownNow();
+	}
+}
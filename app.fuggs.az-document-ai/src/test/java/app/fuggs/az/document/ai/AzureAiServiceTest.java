@@ -6,10 +6,14 @@ import jakarta.inject.Inject;
 import org.junit.jupiter.api.Tag;
 import org.junit.jupiter.api.Test;
 
+import java.math.BigDecimal;
 import java.net.URL;
-import java.nio.file.Path;
+import java.nio.file.Files;
 import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.util.List;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 
 @QuarkusTest
@@ -24,12 +28,79 @@ class AzureAiServiceTest
 	{
 		// given
 		URL imageResource = getClass().getClassLoader().getResource("receipt.png");
-		Path imagePath = Paths.get(imageResource.toURI());
+		byte[] image = Files.readAllBytes(Paths.get(imageResource.toURI()));
 
 		// when
-		DocumentData documentData = aiService.scanDocument(imagePath, "receipt.png");
+		DocumentData documentData = aiService.scanDocument(image, "receipt.png");
 
 		// then
 		assertNotNull(documentData);
 	}
+
+	@Test
+	void shouldMergeReceiptCutByRangeBoundary()
+	{
+		// given - range 1 ends with the first page of INV-2, range 2 starts
+		// with its last page, which carries the total
+		AzureAiService.Receipt first = receipt("INV-1", "Bäckerei Huber", new BigDecimal("4.20"));
+		AzureAiService.Receipt secondStart = receipt("INV-2", "Musikhaus Klangfarbe GmbH", null);
+		AzureAiService.Receipt secondEnd = receipt("INV-2", "Musikhaus Klangfarbe", new BigDecimal("148.75"));
+		AzureAiService.Receipt third = receipt("INV-3", "Bäckerei Huber", new BigDecimal("3.10"));
+
+		// when
+		List<AzureAiService.Receipt> merged = AzureAiService.mergeRanges(
+			List.of(List.of(first, secondStart), List.of(secondEnd, third)));
+
+		// then
+		assertEquals(3, merged.size());
+		assertEquals(first, merged.get(0));
+		assertEquals(new BigDecimal("148.75"), merged.get(1).data().total());
+		assertEquals("Musikhaus Klangfarbe GmbH", merged.get(1).data().merchantName());
+		assertEquals(third, merged.get(2));
+	}
+
+	@Test
+	void shouldMergeFieldsOfBothParts()
+	{
+		// given - the first page has the date, the last one the amounts
+		AzureAiService.Receipt head = new AzureAiService.Receipt(List.of(), new DocumentData(null, "EUR",
+			LocalDate.of(2026, 3, 14), null, "INV-7", "Musikhaus Klangfarbe", null, null, null, null, null, null,
+			null, null, null, new BigDecimal("100.00"), null, null, null, null, null, null, null, List.of()));
+		AzureAiService.Receipt tail = new AzureAiService.Receipt(List.of(), new DocumentData(
+			new BigDecimal("119.00"), null, null, null, "INV-7", "Musikhaus Klangfarbe", null, null, null, null,
+			null, null, null, null, null, new BigDecimal("100.00"), new BigDecimal("19.00"), null, null, null, null,
+			null, null, List.of()));
+
+		// when
+		List<AzureAiService.Receipt> merged = AzureAiService.mergeRanges(List.of(List.of(head), List.of(tail)));
+
+		// then
+		assertEquals(1, merged.size());
+		DocumentData data = merged.getFirst().data();
+		assertEquals(new BigDecimal("119.00"), data.total());
+		assertEquals("EUR", data.currencyCode());
+		assertEquals(LocalDate.of(2026, 3, 14), data.date());
+		assertEquals(new BigDecimal("19.00"), data.totalTax());
+	}
+
+	@Test
+	void shouldKeepReceiptsWithoutInvoiceIdApart()
+	{
+		// given
+		AzureAiService.Receipt a = receipt(null, "Bäckerei Huber", new BigDecimal("4.20"));
+		AzureAiService.Receipt b = receipt(null, "Bäckerei Huber", new BigDecimal("4.20"));
+
+		// when
+		List<AzureAiService.Receipt> merged = AzureAiService.mergeRanges(List.of(List.of(a), List.of(b)));
+
+		// then
+		assertEquals(2, merged.size());
+	}
+
+	private static AzureAiService.Receipt receipt(String invoiceId, String merchant, BigDecimal total)
+	{
+		return new AzureAiService.Receipt(List.of(), new DocumentData(total, "EUR", null, null, invoiceId, merchant, null,
+			null, null, null, null, null, null, null, total, null, null, null, null, null, null, null, null,
+			List.of()));
+	}
 }
@@ -4,6 +4,9 @@ import io.quarkus.test.junit.QuarkusTest;
 import jakarta.inject.Inject;
 import org.junit.jupiter.api.Test;
 
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 
 @QuarkusTest
@@ -17,4 +20,19 @@ class AzureDocumentConnectorTest
 	{
 		assertNotNull(connector);
 	}
+
+	@Test
+	void pollIntervalFollowsAverageAnalysisDuration()
+	{
+		// given
+		Duration initial = Duration.ofSeconds(1);
+		Duration min = Duration.ofMillis(500);
+		Duration max = Duration.ofSeconds(5);
+
+		// when / then
+		assertEquals(initial, AzureDocumentConnector.pollInterval(0, initial, min, max));
+		assertEquals(Duration.ofMillis(1200), AzureDocumentConnector.pollInterval(6000, initial, min, max));
+		assertEquals(min, AzureDocumentConnector.pollInterval(1000, initial, min, max));
+		assertEquals(max, AzureDocumentConnector.pollInterval(60000, initial, min, max));
+	}
 }
@@ -6,6 +6,7 @@ import io.quarkus.test.InjectMock;
 import io.quarkus.test.common.http.TestHTTPEndpoint;
 import io.quarkus.test.junit.QuarkusTest;
 import io.restassured.http.ContentType;
+import io.smallrye.mutiny.Uni;
 import org.junit.jupiter.api.Test;
 
 import java.io.File;
@@ -13,7 +14,6 @@ import java.io.IOException;
 import java.math.BigDecimal;
 import java.net.URISyntaxException;
 import java.nio.file.Files;
-import java.nio.file.Path;
 import java.time.LocalDate;
 import java.util.List;
 
@@ -22,6 +22,7 @@ import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.when;
 
 @QuarkusTest
@@ -39,8 +40,8 @@ class ScanDocumentResourceTest
 		// Arrange
 		DocumentData documentData = fakeDocumentData();
 
-		when(azureAiServiceMock.scanDocument(any(), anyString()))
-			.thenReturn(documentData);
+		when(azureAiServiceMock.scanDocumentAsync(any(), anyString(), any()))
+			.thenReturn(Uni.createFrom().item(documentData));
 
 		// Act
 		var receivedData = given()
@@ -62,8 +63,8 @@ class ScanDocumentResourceTest
 	void azureFailureIsPropagatedAsBadRequest() throws OcrException
 	{
 		// Arrange
-		when(azureAiServiceMock.scanDocument(any(), anyString()))
-			.thenThrow(new OcrException("Test error"));
+		when(azureAiServiceMock.scanDocumentAsync(any(), anyString(), any()))
+			.thenReturn(Uni.createFrom().failure(new OcrException("Test error")));
 
 		// Act + Assert
 		given()
@@ -80,8 +81,8 @@ class ScanDocumentResourceTest
 	void azureRuntimeFailureIsPropagatedAsInternalServerError() throws OcrException
 	{
 		// Arrange
-		when(azureAiServiceMock.scanDocument(any(), anyString()))
-			.thenThrow(new RuntimeException());
+		when(azureAiServiceMock.scanDocumentAsync(any(), anyString(), any()))
+			.thenReturn(Uni.createFrom().failure(new RuntimeException()));
 
 		// Act + Assert
 		given()
@@ -101,14 +102,12 @@ class ScanDocumentResourceTest
 		File receiptFile = new File(getClass().getClassLoader().getResource("receipt.png").toURI());
 		byte[] expectedBytes = Files.readAllBytes(receiptFile.toPath());
 
-		// Use Answer to verify bytes during invocation (before temp file
-		// cleanup)
-		when(azureAiServiceMock.scanDocument(any(), anyString()))
+		// Use Answer to verify the bytes handed to the service
+		when(azureAiServiceMock.scanDocumentAsync(any(), anyString(), any()))
 			.thenAnswer(invocation -> {
-				Path uploadedPath = invocation.getArgument(0);
-				byte[] actualBytes = Files.readAllBytes(uploadedPath);
+				byte[] actualBytes = invocation.getArgument(0);
 				assertArrayEquals(expectedBytes, actualBytes, "Uploaded file bytes should match original file");
-				return fakeDocumentData();
+				return Uni.createFrom().item(fakeDocumentData());
 			});
 
 		// Act
@@ -122,7 +121,74 @@ class ScanDocumentResourceTest
 			.statusCode(200);
 	}
 
-	private static DocumentData fakeDocumentData()
+	@Test
+	void rawBodyScanWorks() throws URISyntaxException, IOException, OcrException
+	{
+		// Arrange
+		File receiptFile = new File(getClass().getClassLoader().getResource("receipt.png").toURI());
+		byte[] expectedBytes = Files.readAllBytes(receiptFile.toPath());
+		DocumentData documentData = fakeDocumentData();
+
+		when(azureAiServiceMock.scanDocumentAsync(any(), eq("77"), any()))
+			.thenAnswer(invocation -> {
+				byte[] actualBytes = invocation.getArgument(0);
+				assertArrayEquals(expectedBytes, actualBytes, "Request body bytes should match original file");
+				return Uni.createFrom().item(documentData);
+			});
+
+		// Act
+		var receivedData = given()
+			.body(expectedBytes)
+			.queryParam("transactionRecordId", 77)
+			.contentType(ContentType.BINARY)
+			.when()
+			.post()
+			.then()
+			.statusCode(200)
+			.extract()
+			.as(DocumentData.class);
+
+		// Assert
+		assertEquals(documentData, receivedData);
+	}
+
+	@Test
+	void emptyRawBodyIsRejected()
+	{
+		given()
+			.body(new byte[0])
+			.queryParam("transactionRecordId", 77)
+			.contentType(ContentType.BINARY)
+			.when()
+			.post()
+			.then()
+			.statusCode(400);
+	}
+
+	@Test
+	void receiptsScanReturnsAllReceipts() throws OcrException
+	{
+		// Arrange
+		List<DocumentData> receipts = List.of(fakeDocumentData(), fakeDocumentData());
+		when(azureAiServiceMock.scanDocuments(any(), eq("78"), any())).thenReturn(receipts);
+
+		// Act
+		DocumentData[] receivedData = given()
+			.body(REQUEST_BODY.getBytes())
+			.queryParam("transactionRecordId", 78)
+			.contentType(ContentType.BINARY)
+			.when()
+			.post("/receipts")
+			.then()
+			.statusCode(200)
+			.extract()
+			.as(DocumentData[].class);
+
+		// Assert
+		assertEquals(receipts, List.of(receivedData));
+	}
+
+	static DocumentData fakeDocumentData()
 	{
 		return new DocumentData(
 			BigDecimal.valueOf(135.0),
@@ -0,0 +1,193 @@
+package app.fuggs.az.document.ai;
+
+import app.fuggs.az.document.ai.model.DocumentData;
+import app.fuggs.az.document.ai.model.ScanOperation;
+import io.quarkus.test.InjectMock;
+import io.quarkus.test.common.http.TestHTTPEndpoint;
+import io.quarkus.test.junit.QuarkusTest;
+import io.restassured.http.ContentType;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static app.fuggs.az.document.ai.ScanDocumentResourceTest.fakeDocumentData;
+import static io.restassured.RestAssured.given;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@QuarkusTest
+@TestHTTPEndpoint(ScanOperationResource.class)
+class ScanOperationResourceTest
+{
+	private static final byte[] REQUEST_BODY = "fake document data here".getBytes();
+
+	@InjectMock
+	AzureAiService azureAiServiceMock;
+
+	@Test
+	void submittedScanCanBePolledAndFetched() throws OcrException
+	{
+		// Arrange
+		List<DocumentData> receipts = List.of(fakeDocumentData(), fakeDocumentData());
+		when(azureAiServiceMock.scanDocuments(any(), eq("90"), any())).thenReturn(receipts);
+
+		// Act
+		String operationId = submit(90);
+		ScanOperation status = await(operationId);
+		DocumentData[] receivedData = given()
+			.when()
+			.get("/{operationId}/result", operationId)
+			.then()
+			.statusCode(200)
+			.extract()
+			.as(DocumentData[].class);
+
+		// Assert
+		assertEquals(ScanOperation.Status.SUCCEEDED, status.status());
+		assertEquals(receipts, List.of(receivedData));
+	}
+
+	@Test
+	void scanWithoutSplitYieldsSingleDocument() throws OcrException
+	{
+		// Arrange
+		DocumentData document = fakeDocumentData();
+		when(azureAiServiceMock.scanDocument(any(), eq("93"), any())).thenReturn(document);
+
+		// Act
+		String operationId = submit(93, false);
+		ScanOperation status = await(operationId);
+		DocumentData[] receivedData = given()
+			.when()
+			.get("/{operationId}/result", operationId)
+			.then()
+			.statusCode(200)
+			.extract()
+			.as(DocumentData[].class);
+
+		// Assert
+		assertEquals(ScanOperation.Status.SUCCEEDED, status.status());
+		assertEquals(List.of(document), List.of(receivedData));
+		verify(azureAiServiceMock, never()).scanDocuments(any(), eq("93"), any());
+	}
+
+	@Test
+	void runningScanHasNoResultYet() throws Exception
+	{
+		// Arrange
+		CountDownLatch release = new CountDownLatch(1);
+		when(azureAiServiceMock.scanDocuments(any(), eq("91"), any())).thenAnswer(invocation -> {
+			release.await(10, TimeUnit.SECONDS);
+			return List.of(fakeDocumentData());
+		});
+
+		try
+		{
+			// Act
+			String operationId = submit(91);
+
+			// Assert
+			ScanOperation status = given()
+				.when()
+				.get("/{operationId}", operationId)
+				.then()
+				.statusCode(200)
+				.extract()
+				.as(ScanOperation.class);
+			assertEquals(ScanOperation.Status.RUNNING, status.status());
+			given()
+				.when()
+				.get("/{operationId}/result", operationId)
+				.then()
+				.statusCode(409);
+		}
+		finally
+		{
+			release.countDown();
+		}
+	}
+
+	@Test
+	void azureFailureIsReportedAsFailedOperation() throws OcrException
+	{
+		// Arrange
+		when(azureAiServiceMock.scanDocuments(any(), eq("92"), any())).thenThrow(new OcrException("Test error"));
+
+		// Act
+		String operationId = submit(92);
+		ScanOperation status = await(operationId);
+
+		// Assert
+		assertEquals(ScanOperation.Status.FAILED, status.status());
+		assertEquals("Test error", status.error());
+		given()
+			.when()
+			.get("/{operationId}/result", operationId)
+			.then()
+			.statusCode(400);
+	}
+
+	@Test
+	void unknownOperationIsNotFound()
+	{
+		given()
+			.when()
+			.get("/{operationId}", "unknown")
+			.then()
+			.statusCode(404);
+	}
+
+	@Test
+	void emptyBodyIsRejected()
+	{
+		given()
+			.body(new byte[0])
+			.contentType(ContentType.BINARY)
+			.when()
+			.post()
+			.then()
+			.statusCode(400);
+	}
+
+	private static String submit(long transactionRecordId)
+	{
+		return submit(transactionRecordId, true);
+	}
+
+	private static String submit(long transactionRecordId, boolean split)
+	{
+		var response = given()
+			.body(REQUEST_BODY)
+			.queryParam("transactionRecordId", transactionRecordId)
+			.queryParam("split", split)
+			.contentType(ContentType.BINARY)
+			.when()
+			.post()
+			.then()
+			.statusCode(202)
+			.extract();
+		ScanOperation operation = response.as(ScanOperation.class);
+		assertEquals(ScanOperation.Status.RUNNING, operation.status());
+		assertTrue(response.header("Location").endsWith("/document/scan/operations/" + operation.operationId()));
+		return operation.operationId();
+	}
+
+	private static ScanOperation await(String operationId)
+	{
+		return given()
+			.queryParam("waitSeconds", 10)
+			.when()
+			.get("/{operationId}", operationId)
+			.then()
+			.statusCode(200)
+			.extract()
+			.as(ScanOperation.class);
+	}
+}
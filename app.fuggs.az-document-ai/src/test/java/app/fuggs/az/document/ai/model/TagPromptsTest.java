@@ -0,0 +1,48 @@
+package app.fuggs.az.document.ai.model;
+
+import app.fuggs.tagging.TagPrompt;
+import com.azure.ai.documentintelligence.models.AnalyzedDocument;
+import com.azure.json.JsonProviders;
+import com.azure.json.JsonReader;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+class TagPromptsTest
+{
+	@Test
+	void shouldSummarizeAnalyzedDocument() throws IOException
+	{
+		// given
+		AnalyzedDocument document = loadSampleDocument("sample-receipt.02.json");
+		DocumentData data = DocumentDataHelper.fromDocument(document, Collections.emptyList());
+
+		// when
+		TagPrompt prompt = TagPrompts.fromDocument(document, data, 300);
+
+		// then
+		assertEquals("Kassenbeleg", prompt.vendor());
+		assertEquals(List.of("226391 Herrenuhr"), prompt.items());
+		assertEquals(0, prompt.omittedItems());
+		assertEquals(0, new BigDecimal("100.00").compareTo(prompt.total()));
+	}
+
+	private AnalyzedDocument loadSampleDocument(String filename) throws IOException
+	{
+		try (InputStream is = getClass().getClassLoader().getResourceAsStream(filename))
+		{
+			assertNotNull(is, "Could not find test resource: " + filename);
+			try (JsonReader jsonReader = JsonProviders.createReader(is))
+			{
+				return AnalyzedDocument.fromJson(jsonReader);
+			}
+		}
+	}
+}
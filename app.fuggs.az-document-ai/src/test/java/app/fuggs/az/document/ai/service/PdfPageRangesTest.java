@@ -0,0 +1,78 @@
+package app.fuggs.az.document.ai.service;
+
+import app.fuggs.az.document.ai.service.PdfPageRanges.PageRange;
+import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class PdfPageRangesTest
+{
+	@Test
+	void shouldSplitIntoRangesOfPages() throws IOException
+	{
+		// given
+		byte[] pdf = pdfWithPages(5);
+
+		// when
+		List<PageRange> ranges = PdfPageRanges.split(pdf, 2);
+
+		// then
+		assertEquals(3, ranges.size());
+		assertEquals(List.of(1, 3, 5), ranges.stream().map(PageRange::firstPage).toList());
+		assertEquals(List.of(2, 4, 5), ranges.stream().map(PageRange::lastPage).toList());
+		try (PDDocument last = Loader.loadPDF(ranges.getLast().content()))
+		{
+			assertEquals(1, last.getNumberOfPages());
+		}
+	}
+
+	@Test
+	void shouldKeepShortPdfUnchanged() throws IOException
+	{
+		// given
+		byte[] pdf = pdfWithPages(2);
+
+		// when
+		List<PageRange> ranges = PdfPageRanges.split(pdf, 2);
+
+		// then
+		assertEquals(1, ranges.size());
+		assertArrayEquals(pdf, ranges.getFirst().content());
+	}
+
+	@Test
+	void shouldKeepImagesUnchanged()
+	{
+		// given
+		byte[] image = { (byte)0x89, 'P', 'N', 'G' };
+
+		// when
+		List<PageRange> ranges = PdfPageRanges.split(image, 1);
+
+		// then
+		assertEquals(1, ranges.size());
+		assertArrayEquals(image, ranges.getFirst().content());
+	}
+
+	private static byte[] pdfWithPages(int pages) throws IOException
+	{
+		try (PDDocument document = new PDDocument())
+		{
+			for (int i = 0; i < pages; i++)
+			{
+				document.addPage(new PDPage());
+			}
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			document.save(out);
+			return out.toByteArray();
+		}
+	}
+}
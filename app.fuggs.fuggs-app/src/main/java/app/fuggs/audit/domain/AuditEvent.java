@@ -0,0 +1,48 @@
+package app.fuggs.audit.domain;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Immutable audit event as handed to the audit log writer. Unlike
+ * {@link AuditLogEntry} it holds no entity references, so it can be buffered
+ * and written outside the transaction that produced it.
+ */
+public record AuditEvent(
+	Long organizationId,
+	String username,
+	Instant timestamp,
+	String taskName,
+	String details,
+	String entityName,
+	String entityId,
+	List<FieldChange> changes)
+{
+	public AuditEvent
+	{
+		changes = changes == null ? List.of() : List.copyOf(changes);
+	}
+
+	/**
+	 * Creates an event with the current time as timestamp.
+	 */
+	public static AuditEvent of(Long organizationId, String username, String entityName, String entityId,
+		String taskName, String details)
+	{
+		return new AuditEvent(organizationId, username, Instant.now(), taskName, details, entityName, entityId,
+			List.of());
+	}
+
+	/**
+	 * Creates an event describing field changes of an entity, with the current
+	 * time as timestamp. The details list the names of the changed fields.
+	 */
+	public static AuditEvent ofChanges(Long organizationId, String username, String entityName, String entityId,
+		String taskName, List<FieldChange> changes)
+	{
+		String details = "Changed: " + changes.stream().map(FieldChange::field).collect(Collectors.joining(", "));
+		return new AuditEvent(organizationId, username, Instant.now(), taskName, details, entityName, entityId,
+			changes);
+	}
+}
@@ -1,6 +1,13 @@
 package app.fuggs.audit.domain;
 
 import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
 
 import app.fuggs.organization.domain.Organization;
 import io.quarkus.hibernate.orm.panache.PanacheEntity;
@@ -31,6 +38,13 @@ public class AuditLogEntry extends PanacheEntity
 
 	private String entityId;
 
+	/**
+	 * Field-level diff of the change, stored as JSON. Empty for entries that
+	 * only record an action.
+	 */
+	@JdbcTypeCode(SqlTypes.JSON)
+	private List<FieldChange> changes = new ArrayList<>();
+
 	public Organization getOrganization()
 	{
 		return organization;
@@ -101,6 +115,30 @@ public class AuditLogEntry extends PanacheEntity
 		this.entityId = entityId;
 	}
 
+	public List<FieldChange> getChanges()
+	{
+		return changes;
+	}
+
+	public void setChanges(List<FieldChange> changes)
+	{
+		this.changes = changes;
+	}
+
+	public String getDisplayTimestamp()
+	{
+		if (timestamp == null)
+		{
+			return "-";
+		}
+		return timestamp.atZone(ZoneId.systemDefault()).format(DateTimeFormatter.ofPattern("dd.MM.yyyy HH:mm"));
+	}
+
+	public boolean hasChanges()
+	{
+		return changes != null && !changes.isEmpty();
+	}
+
 	@PrePersist
 	public void prePersist()
 	{
@@ -0,0 +1,64 @@
+package app.fuggs.audit.domain;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * A single field-level change recorded in the audit log. Values are stored as
+ * display strings, so the history does not depend on the entity still
+ * existing in its old form.
+ */
+public record FieldChange(String field, String oldValue, String newValue)
+{
+	private static final Map<String, String> LABELS = Map.ofEntries(
+		Map.entry("name", "Name"),
+		Map.entry("total", "Betrag"),
+		Map.entry("totalTax", "Steuer"),
+		Map.entry("currencyCode", "Währung"),
+		Map.entry("transactionDate", "Datum"),
+		Map.entry("bommel", "Bommel"),
+		Map.entry("sender", "Absender"),
+		Map.entry("privatelyPaid", "Privat bezahlt"),
+		Map.entry("tags", "Tags"),
+		Map.entry("status", "Status"));
+
+	/**
+	 * Compares two snapshots and returns the fields whose values differ, in the
+	 * order of the snapshot keys.
+	 *
+	 * @param before
+	 *            snapshot taken before the change
+	 * @param after
+	 *            snapshot taken after the change
+	 * @return the changed fields, empty if nothing changed
+	 */
+	public static List<FieldChange> diff(Map<String, String> before, Map<String, String> after)
+	{
+		Set<String> fields = new LinkedHashSet<>(before.keySet());
+		fields.addAll(after.keySet());
+
+		List<FieldChange> changes = new ArrayList<>();
+		for (String field : fields)
+		{
+			String oldValue = before.get(field);
+			String newValue = after.get(field);
+			if (!Objects.equals(oldValue, newValue))
+			{
+				changes.add(new FieldChange(field, oldValue, newValue));
+			}
+		}
+		return changes;
+	}
+
+	/**
+	 * Returns the German display label of the field.
+	 */
+	public String label()
+	{
+		return LABELS.getOrDefault(field, field);
+	}
+}
@@ -1,5 +1,6 @@
 package app.fuggs.audit.repository;
 
+import java.time.Instant;
 import java.util.List;
 
 import jakarta.enterprise.context.ApplicationScoped;
@@ -7,11 +8,14 @@ import jakarta.inject.Inject;
 
 import app.fuggs.shared.security.OrganizationContext;
 import io.quarkus.hibernate.orm.panache.PanacheRepositoryBase;
+import io.quarkus.panache.common.Sort;
 import app.fuggs.audit.domain.AuditLogEntry;
 
 @ApplicationScoped
 public class AuditLogRepository implements PanacheRepositoryBase<AuditLogEntry, Long>
 {
+	private static final Sort NEWEST_FIRST = Sort.descending("timestamp", "id");
+
 	@Inject
 	OrganizationContext organizationContext;
 
@@ -66,6 +70,47 @@ public class AuditLogRepository implements PanacheRepositoryBase<AuditLogEntry,
 		return list("username = ?1 and organization.id = ?2", username, orgId);
 	}
 
+	/**
+	 * Finds the change history of an entity within the current organization,
+	 * newest first. Uses keyset pagination: pass the timestamp and ID of the
+	 * last entry of the previous page to continue after it, or null for the
+	 * first page. Unlike offset paging this stays cheap on long histories and
+	 * does not skip or repeat entries written between two page requests.
+	 *
+	 * @param entityName
+	 *            The entity name, e.g. "Document"
+	 * @param entityId
+	 *            The entity ID
+	 * @param beforeTime
+	 *            Timestamp of the last entry already shown, or null
+	 * @param beforeId
+	 *            ID of the last entry already shown, or null
+	 * @param size
+	 *            Maximum number of entries to return
+	 * @return List of audit log entries, newest first
+	 */
+	public List<AuditLogEntry> findHistory(String entityName, String entityId, Instant beforeTime, Long beforeId,
+		int size)
+	{
+		Long orgId = organizationContext.getCurrentOrganizationId();
+		if (orgId == null)
+		{
+			return List.of();
+		}
+		if (beforeTime == null || beforeId == null)
+		{
+			return find("organization.id = ?1 and entityName = ?2 and entityId = ?3", NEWEST_FIRST, orgId,
+				entityName, entityId)
+				.page(0, size)
+				.list();
+		}
+		return find("organization.id = ?1 and entityName = ?2 and entityId = ?3"
+			+ " and (timestamp < ?4 or (timestamp = ?4 and id < ?5))",
+			NEWEST_FIRST, orgId, entityName, entityId, beforeTime, beforeId)
+			.page(0, size)
+			.list();
+	}
+
 	/**
 	 * Finds an audit log entry by ID, scoped to the current organization. This
 	 * prevents cross-organization access.
@@ -0,0 +1,89 @@
+package app.fuggs.audit.service;
+
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+
+import app.fuggs.audit.domain.AuditLogEntry;
+import app.fuggs.audit.repository.AuditLogRepository;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+
+/**
+ * Loads the change history of a document or transaction page by page, newest
+ * first. Pages are addressed by a cursor (timestamp and ID of the last entry
+ * shown) instead of an offset.
+ */
+@ApplicationScoped
+public class AuditHistoryService
+{
+	static final int PAGE_SIZE = 25;
+
+	@Inject
+	AuditLogRepository auditLogRepository;
+
+	/**
+	 * Loads one page of history.
+	 *
+	 * @param entityName
+	 *            The entity name, e.g. "Document"
+	 * @param entityId
+	 *            The entity ID
+	 * @param before
+	 *            Cursor timestamp in ISO-8601 format, or null for the first
+	 *            page
+	 * @param beforeId
+	 *            Cursor entry ID, or null for the first page
+	 * @return The page, with the cursor of the next page if there is one
+	 */
+	public HistoryPage loadPage(String entityName, Long entityId, String before, Long beforeId)
+	{
+		Instant beforeTime = parseCursor(before);
+		// Fetch one extra entry to know whether another page follows
+		List<AuditLogEntry> entries = auditLogRepository.findHistory(entityName, entityId.toString(), beforeTime,
+			beforeTime != null ? beforeId : null, PAGE_SIZE + 1);
+
+		if (entries.size() <= PAGE_SIZE)
+		{
+			return new HistoryPage(entries, null, null);
+		}
+		List<AuditLogEntry> page = entries.subList(0, PAGE_SIZE);
+		AuditLogEntry last = page.get(PAGE_SIZE - 1);
+		return new HistoryPage(page, last.getTimestamp().toString(), last.id);
+	}
+
+	private static Instant parseCursor(String before)
+	{
+		if (before == null || before.isBlank())
+		{
+			return null;
+		}
+		try
+		{
+			return Instant.parse(before);
+		}
+		catch (DateTimeParseException e)
+		{
+			// Tampered or outdated link, start from the newest entry
+			return null;
+		}
+	}
+
+	/**
+	 * One page of history entries.
+	 *
+	 * @param entries
+	 *            Entries of this page, newest first
+	 * @param nextBefore
+	 *            Cursor timestamp of the next page, or null on the last page
+	 * @param nextBeforeId
+	 *            Cursor entry ID of the next page, or null on the last page
+	 */
+	public record HistoryPage(List<AuditLogEntry> entries, String nextBefore, Long nextBeforeId)
+	{
+		public boolean hasMore()
+		{
+			return nextBefore != null;
+		}
+	}
+}
@@ -0,0 +1,414 @@
+package app.fuggs.audit.service;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.OffsetDateTime;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPOutputStream;
+
+import javax.sql.DataSource;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import app.fuggs.document.service.StorageService;
+import io.quarkus.narayana.jta.QuarkusTransaction;
+import io.quarkus.runtime.StartupEvent;
+import io.quarkus.scheduler.Scheduled;
+import io.quarkus.scheduler.Scheduled.ConcurrentExecution;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+
+/**
+ * Keeps the audit log range-partitioned by month on {@code timestamp}.
+ * <p>
+ * Hibernate creates {@code AuditLogEntry} as a plain table. On startup it is
+ * converted into a partitioned table (primary key {@code (id, timestamp)}),
+ * with indexes for the organization/entity and organization/user queries.
+ * A daily job creates partitions ahead of time and archives partitions older
+ * than the retention period: their rows are exported to a gzipped CSV in
+ * object storage below {@code audit-archive/}, then the partition is detached
+ * and dropped.
+ * </p>
+ * <p>
+ * A default partition takes the rows of months without partition, so inserts
+ * keep working if the daily job is late or fails. When the partition of such
+ * a month is created, its rows are moved over from the default partition.
+ * </p>
+ */
+@ApplicationScoped
+public class AuditLogPartitionService
+{
+	private static final Logger LOG = LoggerFactory.getLogger(AuditLogPartitionService.class);
+
+	static final String TABLE = "auditlogentry";
+	static final String DEFAULT_PARTITION = TABLE + "_default";
+	static final String ARCHIVE_PREFIX = "audit-archive/";
+
+	private static final Pattern PARTITION_NAME = Pattern.compile(TABLE + "_(\\d{4})_(\\d{2})");
+	private static final DateTimeFormatter PARTITION_SUFFIX = DateTimeFormatter.ofPattern("yyyy_MM");
+
+	@Inject
+	DataSource dataSource;
+
+	@Inject
+	StorageService storageService;
+
+	@ConfigProperty(name = "fuggs.audit.partitions.enabled", defaultValue = "true")
+	boolean enabled;
+
+	@ConfigProperty(name = "fuggs.audit.partitions.months-ahead", defaultValue = "3")
+	int monthsAhead;
+
+	@ConfigProperty(name = "fuggs.audit.retention-months", defaultValue = "24")
+	int retentionMonths;
+
+	void onStart(@Observes StartupEvent event)
+	{
+		if (!enabled)
+		{
+			return;
+		}
+
+		try
+		{
+			QuarkusTransaction.requiringNew().run(this::convertToPartitionedTable);
+			ensurePartitions();
+		}
+		catch (RuntimeException e)
+		{
+			// The audit log still works as a plain table, so do not block
+			// startup
+			LOG.error("Failed to set up audit log partitioning", e);
+		}
+	}
+
+	/**
+	 * Creates upcoming partitions and archives expired ones. Runs daily at
+	 * 2:00 AM by default.
+	 */
+	@Scheduled(cron = "${fuggs.audit.partitions.cron:0 0 2 * * ?}", concurrentExecution = ConcurrentExecution.SKIP)
+	void scheduledMaintenance()
+	{
+		if (!enabled)
+		{
+			return;
+		}
+		try
+		{
+			ensurePartitions();
+		}
+		catch (RuntimeException e)
+		{
+			LOG.error("Failed to create audit log partitions, new entries go to the default partition", e);
+		}
+		archiveExpiredPartitions();
+	}
+
+	/**
+	 * Makes sure the default partition and the partitions from the current
+	 * month up to the configured number of months ahead exist.
+	 */
+	public void ensurePartitions()
+	{
+		YearMonth current = YearMonth.now(ZoneOffset.UTC);
+		QuarkusTransaction.requiringNew().run(() -> {
+			createDefaultPartition();
+			for (int i = 0; i <= monthsAhead; i++)
+			{
+				createPartition(current.plusMonths(i));
+			}
+		});
+	}
+
+	/**
+	 * Archives and drops all partitions older than the retention period.
+	 *
+	 * @return number of archived partitions
+	 */
+	public int archiveExpiredPartitions()
+	{
+		YearMonth oldestKept = YearMonth.now(ZoneOffset.UTC).minusMonths(retentionMonths);
+		int archived = 0;
+
+		for (String partition : QuarkusTransaction.requiringNew().call(this::listPartitions))
+		{
+			YearMonth month = monthOf(partition);
+			if (month == null || !month.isBefore(oldestKept))
+			{
+				continue;
+			}
+
+			try
+			{
+				archivePartition(partition);
+				archived++;
+			}
+			catch (RuntimeException e)
+			{
+				LOG.error("Failed to archive audit log partition: partition={}", partition, e);
+			}
+		}
+
+		if (archived > 0)
+		{
+			LOG.info("Archived audit log partitions: count={}, olderThan={}", archived, oldestKept);
+		}
+		return archived;
+	}
+
+	void convertToPartitionedTable()
+	{
+		String kind = queryString("SELECT relkind::text FROM pg_class WHERE oid = to_regclass('" + TABLE + "')");
+		if (kind == null || "p".equals(kind))
+		{
+			return;
+		}
+
+		LOG.info("Converting audit log to a partitioned table");
+		String legacy = TABLE + "_unpartitioned";
+		execute("ALTER TABLE " + TABLE + " RENAME TO " + legacy);
+		execute("CREATE TABLE " + TABLE + " (LIKE " + legacy + " INCLUDING DEFAULTS) "
+			+ "PARTITION BY RANGE (timestamp)");
+		execute("ALTER TABLE " + TABLE + " ADD PRIMARY KEY (id, timestamp)");
+		execute("ALTER TABLE " + TABLE + " ADD FOREIGN KEY (organization_id) REFERENCES organization (id)");
+		execute("CREATE INDEX " + TABLE + "_entity_idx ON " + TABLE
+			+ " (organization_id, entityName, entityId, timestamp DESC)");
+		execute("CREATE INDEX " + TABLE + "_username_idx ON " + TABLE
+			+ " (organization_id, username, timestamp DESC)");
+
+		// Existing rows need a partition before they can be copied over
+		String oldest = queryString("SELECT to_char(min(timestamp) AT TIME ZONE 'UTC', 'YYYY-MM') FROM " + legacy);
+		if (oldest != null)
+		{
+			YearMonth current = YearMonth.now(ZoneOffset.UTC);
+			for (YearMonth month = YearMonth.parse(oldest); !month.isAfter(current); month = month.plusMonths(1))
+			{
+				createPartition(month);
+			}
+		}
+
+		createDefaultPartition();
+		execute("INSERT INTO " + TABLE + " SELECT * FROM " + legacy);
+		execute("DROP TABLE " + legacy);
+	}
+
+	void createDefaultPartition()
+	{
+		execute("CREATE TABLE IF NOT EXISTS " + DEFAULT_PARTITION + " PARTITION OF " + TABLE + " DEFAULT");
+	}
+
+	void createPartition(YearMonth month)
+	{
+		String partition = partitionName(month);
+		if (queryString("SELECT to_regclass('" + partition + "')::text") != null)
+		{
+			return;
+		}
+
+		OffsetDateTime from = month.atDay(1).atStartOfDay().atOffset(ZoneOffset.UTC);
+		OffsetDateTime to = month.plusMonths(1).atDay(1).atStartOfDay().atOffset(ZoneOffset.UTC);
+		String range = "FOR VALUES FROM ('" + from + "') TO ('" + to + "')";
+		String inRange = "timestamp >= '" + from + "' AND timestamp < '" + to + "'";
+		if (queryString("SELECT to_regclass('" + DEFAULT_PARTITION + "')::text") == null
+			|| queryString("SELECT 1 FROM " + DEFAULT_PARTITION + " WHERE " + inRange + " LIMIT 1") == null)
+		{
+			execute("CREATE TABLE " + partition + " PARTITION OF " + TABLE + " " + range);
+			return;
+		}
+
+		// Postgres refuses a partition whose rows are in the default partition,
+		// so move them into a new table and attach that
+		execute("CREATE TABLE " + partition + " (LIKE " + TABLE + " INCLUDING DEFAULTS)");
+		execute("WITH moved AS (DELETE FROM " + DEFAULT_PARTITION + " WHERE " + inRange + " RETURNING *) "
+			+ "INSERT INTO " + partition + " SELECT * FROM moved");
+		execute("ALTER TABLE " + TABLE + " ATTACH PARTITION " + partition + " " + range);
+		LOG.warn("Moved audit log entries out of the default partition: partition={}", partition);
+	}
+
+	private void archivePartition(String partition)
+	{
+		Path export = null;
+		try
+		{
+			export = Files.createTempFile(partition, ".csv.gz");
+			Path target = export;
+			long rows = QuarkusTransaction.requiringNew().call(() -> exportPartition(partition, target));
+
+			storageService.uploadFile(ARCHIVE_PREFIX + partition + ".csv.gz", export, "application/gzip");
+
+			QuarkusTransaction.requiringNew().run(() -> {
+				execute("ALTER TABLE " + TABLE + " DETACH PARTITION " + partition);
+				execute("DROP TABLE " + partition);
+			});
+			LOG.info("Archived audit log partition: partition={}, rows={}", partition, rows);
+		}
+		catch (IOException e)
+		{
+			throw new UncheckedIOException("Failed to export audit log partition " + partition, e);
+		}
+		finally
+		{
+			if (export != null)
+			{
+				try
+				{
+					Files.deleteIfExists(export);
+				}
+				catch (IOException e)
+				{
+					LOG.debug("Failed to delete temporary export: path={}", export, e);
+				}
+			}
+		}
+	}
+
+	private long exportPartition(String partition, Path target)
+	{
+		try (Connection connection = dataSource.getConnection();
+			Statement statement = connection.createStatement();
+			Writer writer = new BufferedWriter(new OutputStreamWriter(
+				new GZIPOutputStream(Files.newOutputStream(target)), StandardCharsets.UTF_8)))
+		{
+			statement.setFetchSize(1000);
+			long rows = 0;
+			try (ResultSet resultSet = statement.executeQuery("SELECT * FROM " + partition + " ORDER BY timestamp, id"))
+			{
+				ResultSetMetaData metaData = resultSet.getMetaData();
+				int columns = metaData.getColumnCount();
+				List<String> header = new ArrayList<>();
+				for (int i = 1; i <= columns; i++)
+				{
+					header.add(metaData.getColumnName(i));
+				}
+				writeCsvLine(writer, header);
+
+				List<String> values = new ArrayList<>(columns);
+				while (resultSet.next())
+				{
+					values.clear();
+					for (int i = 1; i <= columns; i++)
+					{
+						values.add(resultSet.getString(i));
+					}
+					writeCsvLine(writer, values);
+					rows++;
+				}
+			}
+			return rows;
+		}
+		catch (SQLException e)
+		{
+			throw new IllegalStateException("Failed to read audit log partition " + partition, e);
+		}
+		catch (IOException e)
+		{
+			throw new UncheckedIOException("Failed to write audit log export " + target, e);
+		}
+	}
+
+	private List<String> listPartitions()
+	{
+		List<String> partitions = new ArrayList<>();
+		try (Connection connection = dataSource.getConnection();
+			PreparedStatement statement = connection.prepareStatement(
+				"SELECT c.relname FROM pg_inherits i JOIN pg_class c ON c.oid = i.inhrelid "
+					+ "WHERE i.inhparent = to_regclass(?) ORDER BY c.relname"))
+		{
+			statement.setString(1, TABLE);
+			try (ResultSet resultSet = statement.executeQuery())
+			{
+				while (resultSet.next())
+				{
+					partitions.add(resultSet.getString(1));
+				}
+			}
+		}
+		catch (SQLException e)
+		{
+			throw new IllegalStateException("Failed to list audit log partitions", e);
+		}
+		return partitions;
+	}
+
+	static String partitionName(YearMonth month)
+	{
+		return TABLE + "_" + month.format(PARTITION_SUFFIX);
+	}
+
+	static YearMonth monthOf(String partition)
+	{
+		Matcher matcher = PARTITION_NAME.matcher(partition);
+		if (!matcher.matches())
+		{
+			return null;
+		}
+		return YearMonth.of(Integer.parseInt(matcher.group(1)), Integer.parseInt(matcher.group(2)));
+	}
+
+	private static void writeCsvLine(Writer writer, List<String> values) throws IOException
+	{
+		for (int i = 0; i < values.size(); i++)
+		{
+			if (i > 0)
+			{
+				writer.write(',');
+			}
+			String value = values.get(i);
+			if (value != null)
+			{
+				writer.write('"');
+				writer.write(value.replace("\"", "\"\""));
+				writer.write('"');
+			}
+		}
+		writer.write('\n');
+	}
+
+	private void execute(String sql)
+	{
+		try (Connection connection = dataSource.getConnection();
+			Statement statement = connection.createStatement())
+		{
+			statement.execute(sql);
+		}
+		catch (SQLException e)
+		{
+			throw new IllegalStateException("Audit log partition statement failed: " + sql, e);
+		}
+	}
+
+	private String queryString(String sql)
+	{
+		try (Connection connection = dataSource.getConnection();
+			Statement statement = connection.createStatement();
+			ResultSet resultSet = statement.executeQuery(sql))
+		{
+			return resultSet.next() ? resultSet.getString(1) : null;
+		}
+		catch (SQLException e)
+		{
+			throw new IllegalStateException("Audit log partition query failed: " + sql, e);
+		}
+	}
+}
@@ -0,0 +1,340 @@
+package app.fuggs.audit.service;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.sql.DataSource;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import app.fuggs.audit.domain.AuditEvent;
+import app.fuggs.audit.domain.AuditLogEntry;
+import app.fuggs.audit.repository.AuditLogRepository;
+import app.fuggs.organization.domain.Organization;
+import io.quarkus.narayana.jta.QuarkusTransaction;
+import io.quarkus.runtime.ShutdownEvent;
+import io.quarkus.scheduler.Scheduled;
+import io.quarkus.scheduler.Scheduled.ConcurrentExecution;
+import io.smallrye.mutiny.infrastructure.Infrastructure;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import jakarta.transaction.Transactional;
+
+/**
+ * Writes audit log entries.
+ * <p>
+ * {@link #log(AuditEvent)} buffers events in a lock-free queue and returns
+ * immediately. The queue is flushed with a JDBC batch insert once it holds
+ * {@code fuggs.audit.batch-size} events, and at the latest every
+ * {@code fuggs.audit.flush-interval}. Buffered events are lost if the JVM
+ * dies before the next flush, so entries that must be atomic with a business
+ * change use {@link #logInTransaction(AuditEvent)} instead, which writes them
+ * as part of the caller's transaction.
+ * </p>
+ * <p>
+ * If a batch fails, its events are written one by one, so a single bad event
+ * does not hold back the others. Events the database rejects as invalid are
+ * dropped at once; events failing for other reasons, e.g. while the database
+ * is down, are retried with the next flush up to
+ * {@code fuggs.audit.max-attempts} times. Dropped events are logged with their
+ * content.
+ * </p>
+ */
+@ApplicationScoped
+public class AuditLogService
+{
+	private static final Logger LOG = LoggerFactory.getLogger(AuditLogService.class);
+
+	private static final String INSERT_SQL = "INSERT INTO AuditLogEntry "
+		+ "(id, organization_id, username, timestamp, taskName, details, entityName, entityId, changes) "
+		+ "VALUES (nextval('AuditLogEntry_SEQ'), ?, ?, ?, ?, ?, ?, ?, ?)";
+
+	private static final int MAX_DETAILS_LENGTH = 4000;
+
+	@Inject
+	DataSource dataSource;
+
+	@Inject
+	AuditLogRepository auditLogRepository;
+
+	@Inject
+	ObjectMapper objectMapper;
+
+	@ConfigProperty(name = "fuggs.audit.batch-size", defaultValue = "100")
+	int batchSize;
+
+	@ConfigProperty(name = "fuggs.audit.queue-capacity", defaultValue = "10000")
+	int queueCapacity;
+
+	@ConfigProperty(name = "fuggs.audit.max-attempts", defaultValue = "30")
+	int maxAttempts;
+
+	private final ConcurrentLinkedQueue<QueuedEvent> queue = new ConcurrentLinkedQueue<>();
+	private final AtomicInteger queued = new AtomicInteger();
+	private final AtomicBoolean flushScheduled = new AtomicBoolean();
+
+	/**
+	 * Queues an audit event for asynchronous writing.
+	 *
+	 * @param event
+	 *            the event to write
+	 */
+	public void log(AuditEvent event)
+	{
+		queue.offer(new QueuedEvent(event, 0));
+		int size = queued.incrementAndGet();
+
+		if (size >= queueCapacity)
+		{
+			// Writer cannot keep up, make the producer pay for the flush
+			// instead of growing the queue without bound
+			LOG.warn("Audit queue full, flushing synchronously: size={}", size);
+			flush();
+		}
+		else if (size >= batchSize && flushScheduled.compareAndSet(false, true))
+		{
+			Infrastructure.getDefaultWorkerPool().execute(() -> {
+				try
+				{
+					flush();
+				}
+				finally
+				{
+					flushScheduled.set(false);
+				}
+			});
+		}
+	}
+
+	/**
+	 * Writes an audit event in the current transaction, so it is committed or
+	 * rolled back together with the business change.
+	 *
+	 * @param event
+	 *            the event to write
+	 */
+	@Transactional(Transactional.TxType.MANDATORY)
+	public void logInTransaction(AuditEvent event)
+	{
+		AuditLogEntry entry = new AuditLogEntry();
+		entry.setOrganization(
+			auditLogRepository.getEntityManager().getReference(Organization.class, event.organizationId()));
+		entry.setUsername(event.username());
+		entry.setTimestamp(event.timestamp());
+		entry.setTaskName(event.taskName());
+		entry.setDetails(truncate(event.details()));
+		entry.setEntityName(event.entityName());
+		entry.setEntityId(event.entityId());
+		entry.setChanges(new ArrayList<>(event.changes()));
+		auditLogRepository.persist(entry);
+	}
+
+	@Scheduled(every = "${fuggs.audit.flush-interval:2s}", concurrentExecution = ConcurrentExecution.SKIP)
+	void scheduledFlush()
+	{
+		flush();
+	}
+
+	void onStop(@Observes ShutdownEvent event)
+	{
+		int written = flush();
+		LOG.info("Flushed audit log on shutdown: written={}", written);
+	}
+
+	/**
+	 * Writes all queued events, one batch insert per {@code batch-size}
+	 * events.
+	 *
+	 * @return number of events written
+	 */
+	public synchronized int flush()
+	{
+		int written = 0;
+		List<QueuedEvent> batch;
+		while (!(batch = drain()).isEmpty())
+		{
+			try
+			{
+				List<AuditEvent> events = batch.stream().map(QueuedEvent::event).toList();
+				QuarkusTransaction.requiringNew().run(() -> insert(events));
+				written += batch.size();
+			}
+			catch (RuntimeException e)
+			{
+				LOG.warn("Failed to write audit log batch, writing events one by one: size={}, error={}",
+					batch.size(), e.getMessage());
+				BatchResult result = insertOneByOne(batch);
+				written += result.written();
+				if (result.requeued() > 0)
+				{
+					// Re-queued events are retried with the next flush
+					break;
+				}
+			}
+		}
+
+		if (written > 0)
+		{
+			LOG.debug("Audit log flushed: written={}", written);
+		}
+		return written;
+	}
+
+	/**
+	 * Writes the events of a failed batch in separate transactions. Stops at
+	 * the first failure that is not caused by the event itself and re-queues
+	 * the rest, as the other events would fail the same way.
+	 */
+	private BatchResult insertOneByOne(List<QueuedEvent> batch)
+	{
+		int written = 0;
+		int requeued = 0;
+		for (int i = 0; i < batch.size(); i++)
+		{
+			QueuedEvent queuedEvent = batch.get(i);
+			try
+			{
+				QuarkusTransaction.requiringNew().run(() -> insert(List.of(queuedEvent.event())));
+				written++;
+			}
+			catch (RuntimeException e)
+			{
+				if (isInvalidEvent(e))
+				{
+					drop(queuedEvent, e);
+					continue;
+				}
+				for (QueuedEvent remaining : batch.subList(i, batch.size()))
+				{
+					requeued += retry(remaining, e);
+				}
+				break;
+			}
+		}
+		return new BatchResult(written, requeued);
+	}
+
+	private int retry(QueuedEvent queuedEvent, RuntimeException failure)
+	{
+		QueuedEvent retried = new QueuedEvent(queuedEvent.event(), queuedEvent.attempts() + 1);
+		if (retried.attempts() >= maxAttempts)
+		{
+			drop(retried, failure);
+			return 0;
+		}
+		queue.offer(retried);
+		queued.incrementAndGet();
+		return 1;
+	}
+
+	private static void drop(QueuedEvent queuedEvent, RuntimeException failure)
+	{
+		AuditEvent event = queuedEvent.event();
+		LOG.error("Dropping audit event: organizationId={}, entity={}/{}, task={}, user={}, timestamp={}, "
+			+ "details={}, attempts={}", event.organizationId(), event.entityName(), event.entityId(),
+			event.taskName(), event.username(), event.timestamp(), event.details(), queuedEvent.attempts() + 1,
+			failure);
+	}
+
+	/**
+	 * Checks whether the database rejected the event itself (SQLSTATE class 22
+	 * data exception or 23 integrity constraint violation), so retrying it is
+	 * pointless.
+	 */
+	static boolean isInvalidEvent(Throwable failure)
+	{
+		for (Throwable cause = failure; cause != null; cause = cause.getCause())
+		{
+			if (cause instanceof JsonProcessingException)
+			{
+				return true;
+			}
+			if (cause instanceof SQLException sqlException)
+			{
+				for (SQLException next = sqlException; next != null; next = next.getNextException())
+				{
+					String state = next.getSQLState();
+					if (state != null && (state.startsWith("22") || state.startsWith("23")))
+					{
+						return true;
+					}
+				}
+			}
+		}
+		return false;
+	}
+
+	int queuedCount()
+	{
+		return queued.get();
+	}
+
+	private List<QueuedEvent> drain()
+	{
+		List<QueuedEvent> batch = new ArrayList<>();
+		QueuedEvent event;
+		while (batch.size() < batchSize && (event = queue.poll()) != null)
+		{
+			batch.add(event);
+		}
+		queued.addAndGet(-batch.size());
+		return batch;
+	}
+
+	private void insert(List<AuditEvent> events)
+	{
+		try (Connection connection = dataSource.getConnection();
+			PreparedStatement statement = connection.prepareStatement(INSERT_SQL))
+		{
+			for (AuditEvent event : events)
+			{
+				statement.setLong(1, event.organizationId());
+				statement.setString(2, event.username());
+				statement.setObject(3, OffsetDateTime.ofInstant(event.timestamp(), ZoneOffset.UTC));
+				statement.setString(4, event.taskName());
+				statement.setString(5, truncate(event.details()));
+				statement.setString(6, event.entityName());
+				statement.setString(7, event.entityId());
+				statement.setObject(8, objectMapper.writeValueAsString(event.changes()), Types.OTHER);
+				statement.addBatch();
+			}
+			statement.executeBatch();
+		}
+		catch (SQLException | JsonProcessingException e)
+		{
+			throw new IllegalStateException("Audit log batch insert failed", e);
+		}
+	}
+
+	private static String truncate(String details)
+	{
+		if (details != null && details.length() > MAX_DETAILS_LENGTH)
+		{
+			return details.substring(0, MAX_DETAILS_LENGTH);
+		}
+		return details;
+	}
+
+	private record QueuedEvent(AuditEvent event, int attempts)
+	{
+	}
+
+	private record BatchResult(int written, int requeued)
+	{
+	}
+}
@@ -2,6 +2,7 @@ package app.fuggs.bommel.api;
 
 import app.fuggs.bommel.domain.Bommel;
 import app.fuggs.bommel.repository.BommelRepository;
+import app.fuggs.bommel.service.BommelPickerService;
 import app.fuggs.member.domain.Member;
 import app.fuggs.member.repository.MemberRepository;
 import app.fuggs.organization.domain.Organization;
@@ -40,6 +41,9 @@ public class BommelResource extends Controller
 	@Inject
 	MemberRepository memberRepository;
 
+	@Inject
+	BommelPickerService bommelPickerService;
+
 	@Inject
 	OrganizationContext organizationContext;
 
@@ -99,6 +103,7 @@ public class BommelResource extends Controller
 		root.parent = null;
 		root.setOrganization(currentOrg);
 		bommelRepository.persist(root);
+		bommelPickerService.invalidate(currentOrg.id);
 
 		flash(FlashKeys.SUCCESS, "Hauptbommel erstellt");
 		redirect(BommelResource.class).index(root.getId());
@@ -149,6 +154,7 @@ public class BommelResource extends Controller
 		child.parent = parent;
 		child.setOrganization(currentOrg);
 		bommelRepository.persist(child);
+		bommelPickerService.invalidate(currentOrg.id);
 
 		flash(FlashKeys.SUCCESS, "Kind-Bommel hinzugefügt");
 		redirect(BommelResource.class).index(child.getId());
@@ -178,6 +184,7 @@ public class BommelResource extends Controller
 
 		bommel.setIcon(icon != null ? icon : bommel.getIcon());
 		bommel.setTitle(title);
+		bommelPickerService.invalidate(bommel.getOrganization().id);
 
 		flash(FlashKeys.SUCCESS, BOMMEL_AKTUALISIERT);
 		redirect(BommelResource.class).index(id);
@@ -212,6 +219,7 @@ public class BommelResource extends Controller
 		Long redirectToId = bommel.parent != null ? bommel.parent.getId() : null;
 
 		bommelRepository.delete(bommel);
+		bommelPickerService.invalidate(bommel.getOrganization().id);
 		flash(FlashKeys.SUCCESS, BOMMEL_GELOESCHT);
 		redirect(BommelResource.class).index(redirectToId);
 	}
@@ -6,6 +6,7 @@ import java.util.List;
 import app.fuggs.member.domain.Member;
 import app.fuggs.organization.domain.Organization;
 import io.quarkus.hibernate.orm.panache.PanacheEntity;
+import jakarta.persistence.Cacheable;
 import jakarta.persistence.Entity;
 import jakarta.persistence.FetchType;
 import jakarta.persistence.JoinColumn;
@@ -13,6 +14,7 @@ import jakarta.persistence.ManyToOne;
 import jakarta.persistence.OneToMany;
 
 @Entity
+@Cacheable
 public class Bommel extends PanacheEntity
 {
 	private String icon;
@@ -0,0 +1,32 @@
+package app.fuggs.bommel.domain;
+
+/**
+ * Entry of the Bommel picker in document and transaction forms. The tree is
+ * flattened depth-first; {@code depth} is the distance from the root.
+ */
+public record BommelOption(Long id, Long parentId, String title, String icon, int depth)
+{
+	private static final String INDENT = "   ";
+
+	/**
+	 * Option with depth 0, as loaded by the repository before the tree is
+	 * flattened.
+	 */
+	public BommelOption(Long id, Long parentId, String title, String icon)
+	{
+		this(id, parentId, title, icon, 0);
+	}
+
+	public BommelOption withDepth(int depth)
+	{
+		return new BommelOption(id, parentId, title, icon, depth);
+	}
+
+	/**
+	 * Returns the title indented by its depth, for plain select items.
+	 */
+	public String getLabel()
+	{
+		return INDENT.repeat(depth) + title;
+	}
+}
@@ -1,9 +1,12 @@
 package app.fuggs.bommel.repository;
 
+import org.hibernate.jpa.HibernateHints;
+
 import io.quarkus.hibernate.orm.panache.PanacheRepository;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
 import app.fuggs.bommel.domain.Bommel;
+import app.fuggs.bommel.domain.BommelOption;
 import app.fuggs.shared.security.OrganizationContext;
 
 import java.util.List;
@@ -26,7 +29,9 @@ public class BommelRepository implements PanacheRepository<Bommel>
 		{
 			return null;
 		}
-		return find("parent is null and organization.id = ?1", orgId).firstResult();
+		return find("parent is null and organization.id = ?1", orgId)
+			.withHint(HibernateHints.HINT_CACHEABLE, true)
+			.firstResult();
 	}
 
 	/**
@@ -54,7 +59,9 @@ public class BommelRepository implements PanacheRepository<Bommel>
 		{
 			return List.of();
 		}
-		return list("parent = ?1 and organization.id = ?2", parent, orgId);
+		return find("parent = ?1 and organization.id = ?2", parent, orgId)
+			.withHint(HibernateHints.HINT_CACHEABLE, true)
+			.list();
 	}
 
 	/**
@@ -75,6 +82,24 @@ public class BommelRepository implements PanacheRepository<Bommel>
 		return count("parent = ?1 and organization.id = ?2", bommel, orgId) > 0;
 	}
 
+	/**
+	 * Loads id, parent, title and icon of all bommels of an organization, for
+	 * the Bommel picker. Does not load entities, so it stays cheap for large
+	 * trees.
+	 *
+	 * @param organizationId
+	 *            The organization ID
+	 * @return Unordered options, all with depth 0
+	 */
+	public List<BommelOption> findOptions(Long organizationId)
+	{
+		return getEntityManager()
+			.createQuery("select new app.fuggs.bommel.domain.BommelOption(b.id, b.parent.id, b.title, b.icon) "
+				+ "from Bommel b where b.organization.id = ?1", BommelOption.class)
+			.setParameter(1, organizationId)
+			.getResultList();
+	}
+
 	/**
 	 * Finds a bommel by ID, scoped to the current organization. This prevents
 	 * cross-organization access.
@@ -90,6 +115,9 @@ public class BommelRepository implements PanacheRepository<Bommel>
 		{
 			return null;
 		}
-		return find("id = ?1 and organization.id = ?2", id, orgId).firstResult();
+		// Load by primary key so the lookup is served from the second-level
+		// cache, then check the organization
+		Bommel bommel = findById(id);
+		return bommel != null && orgId.equals(bommel.getOrganization().id) ? bommel : null;
 	}
 }
@@ -0,0 +1,176 @@
+package app.fuggs.bommel.service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import app.fuggs.bommel.domain.BommelOption;
+import app.fuggs.bommel.repository.BommelRepository;
+import app.fuggs.shared.security.OrganizationContext;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.transaction.Status;
+import jakarta.transaction.Synchronization;
+import jakarta.transaction.TransactionSynchronizationRegistry;
+
+/**
+ * Provides the Bommel picker options of the current organization.
+ * <p>
+ * The tree is loaded with a single projection query, flattened depth-first
+ * with siblings sorted by title, and cached per organization. Bommel
+ * mutations call {@link #invalidate(Long)}; entries also expire after
+ * {@code fuggs.bommel.picker.ttl} as a safety net for changes made outside
+ * the application.
+ * </p>
+ */
+@ApplicationScoped
+public class BommelPickerService
+{
+	private static final Logger LOG = LoggerFactory.getLogger(BommelPickerService.class);
+
+	private static final Comparator<BommelOption> BY_TITLE = Comparator.comparing(BommelOption::title,
+		Comparator.nullsLast(String.CASE_INSENSITIVE_ORDER));
+
+	@Inject
+	BommelRepository bommelRepository;
+
+	@Inject
+	OrganizationContext organizationContext;
+
+	@Inject
+	TransactionSynchronizationRegistry transactionRegistry;
+
+	@ConfigProperty(name = "fuggs.bommel.picker.ttl", defaultValue = "PT10M")
+	Duration ttl;
+
+	private final Map<Long, CachedOptions> cache = new ConcurrentHashMap<>();
+
+	/**
+	 * Returns the picker options of the current organization.
+	 *
+	 * @return flattened Bommel tree, or an empty list without organization
+	 *         context
+	 */
+	public List<BommelOption> getOptions()
+	{
+		Long orgId = organizationContext.getCurrentOrganizationId();
+		if (orgId == null)
+		{
+			return List.of();
+		}
+
+		CachedOptions cached = cache.get(orgId);
+		if (cached != null && cached.loadedAt().plus(ttl).isAfter(Instant.now()))
+		{
+			return cached.options();
+		}
+
+		List<BommelOption> options = flatten(bommelRepository.findOptions(orgId));
+		cache.put(orgId, new CachedOptions(options, Instant.now()));
+		LOG.debug("Bommel picker loaded: organizationId={}, size={}", orgId, options.size());
+		return options;
+	}
+
+	/**
+	 * Drops the cached options of an organization. Inside a transaction the
+	 * entry is dropped again after completion, so a request that reads the old
+	 * tree before the commit cannot leave a stale entry behind.
+	 *
+	 * @param organizationId
+	 *            the organization whose Bommel tree changed
+	 */
+	public void invalidate(Long organizationId)
+	{
+		if (organizationId == null)
+		{
+			return;
+		}
+		cache.remove(organizationId);
+
+		if (transactionRegistry.getTransactionStatus() == Status.STATUS_ACTIVE)
+		{
+			transactionRegistry.registerInterposedSynchronization(new Synchronization()
+			{
+				@Override
+				public void beforeCompletion()
+				{
+					// nothing to do
+				}
+
+				@Override
+				public void afterCompletion(int status)
+				{
+					cache.remove(organizationId);
+				}
+			});
+		}
+	}
+
+	/**
+	 * Orders the options depth-first and sets their depth. Options whose
+	 * parent is missing are treated as roots.
+	 */
+	static List<BommelOption> flatten(List<BommelOption> options)
+	{
+		Map<Long, List<BommelOption>> childrenByParent = new HashMap<>();
+		Set<Long> ids = new HashSet<>();
+		for (BommelOption option : options)
+		{
+			ids.add(option.id());
+		}
+
+		List<BommelOption> roots = new ArrayList<>();
+		for (BommelOption option : options)
+		{
+			if (option.parentId() == null || !ids.contains(option.parentId()))
+			{
+				roots.add(option);
+			}
+			else
+			{
+				childrenByParent.computeIfAbsent(option.parentId(), k -> new ArrayList<>()).add(option);
+			}
+		}
+
+		List<BommelOption> result = new ArrayList<>(options.size());
+		Set<Long> visited = new HashSet<>();
+		Deque<BommelOption> stack = new ArrayDeque<>();
+		roots.sort(BY_TITLE.reversed());
+		roots.forEach(stack::push);
+		while (!stack.isEmpty())
+		{
+			BommelOption option = stack.pop();
+			if (!visited.add(option.id()))
+			{
+				continue;
+			}
+			result.add(option);
+
+			List<BommelOption> children = childrenByParent.getOrDefault(option.id(), List.of());
+			List<BommelOption> sorted = new ArrayList<>(children);
+			sorted.sort(BY_TITLE.reversed());
+			for (BommelOption child : sorted)
+			{
+				stack.push(child.withDepth(option.depth() + 1));
+			}
+		}
+		return List.copyOf(result);
+	}
+
+	private record CachedOptions(List<BommelOption> options, Instant loadedAt)
+	{
+	}
+}
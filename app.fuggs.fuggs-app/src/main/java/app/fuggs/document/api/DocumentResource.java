@@ -1,17 +1,25 @@
 package app.fuggs.document.api;
 
+import app.fuggs.audit.domain.AuditEvent;
+import app.fuggs.audit.domain.FieldChange;
+import app.fuggs.audit.service.AuditHistoryService;
+import app.fuggs.audit.service.AuditHistoryService.HistoryPage;
+import app.fuggs.audit.service.AuditLogService;
 import app.fuggs.bommel.domain.Bommel;
+import app.fuggs.bommel.domain.BommelOption;
 import app.fuggs.bommel.repository.BommelRepository;
+import app.fuggs.bommel.service.BommelPickerService;
 import app.fuggs.document.domain.AnalysisStatus;
 import app.fuggs.document.domain.Document;
 import app.fuggs.document.domain.DocumentStatus;
 import app.fuggs.document.domain.DocumentTag;
 import app.fuggs.document.domain.TagSource;
-import app.fuggs.document.domain.TradeParty;
 import app.fuggs.document.repository.DocumentRepository;
+import app.fuggs.document.service.AsyncTagService;
 import app.fuggs.document.service.DocumentAnalysisService;
 import app.fuggs.document.service.DocumentDataService;
 import app.fuggs.document.service.DocumentFileService;
+import app.fuggs.document.service.VendorRegistry;
 import app.fuggs.organization.domain.Organization;
 import app.fuggs.shared.security.OrganizationContext;
 import app.fuggs.shared.util.FlashKeys;
@@ -42,6 +50,7 @@ import java.time.LocalDate;
 import java.time.ZoneId;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.stream.Collectors;
 
 @Authenticated
@@ -58,6 +67,9 @@ public class DocumentResource extends Controller
 	@Inject
 	BommelRepository bommelRepository;
 
+	@Inject
+	BommelPickerService bommelPickerService;
+
 	@Inject
 	TransactionRecordRepository transactionRepository;
 
@@ -73,12 +85,24 @@ public class DocumentResource extends Controller
 	@Inject
 	DocumentDataService dataService;
 
+	@Inject
+	VendorRegistry vendorRegistry;
+
+	@Inject
+	AsyncTagService asyncTagService;
+
 	@Inject
 	OrganizationContext organizationContext;
 
 	@Inject
 	app.fuggs.document.flow.DocumentAnalysisActivitiesService activitiesService;
 
+	@Inject
+	AuditLogService auditLogService;
+
+	@Inject
+	AuditHistoryService auditHistoryService;
+
 	@CheckedTemplate
 	public static class Templates
 	{
@@ -91,9 +115,11 @@ public class DocumentResource extends Controller
 
 		public static native TemplateInstance create();
 
-		public static native TemplateInstance review(Document document, List<Bommel> bommels);
+		public static native TemplateInstance review(Document document, List<BommelOption> bommels);
+
+		public static native TemplateInstance show(Document document, List<BommelOption> bommels);
 
-		public static native TemplateInstance show(Document document, List<Bommel> bommels);
+		public static native TemplateInstance history(Document document, HistoryPage history);
 	}
 
 	@GET
@@ -146,7 +172,7 @@ public class DocumentResource extends Controller
 			redirect(DocumentResource.class).index(null, null, null);
 			return null;
 		}
-		List<Bommel> bommels = bommelRepository.listAll();
+		List<BommelOption> bommels = bommelPickerService.getOptions();
 		return Templates.review(document, bommels);
 	}
 
@@ -168,10 +194,20 @@ public class DocumentResource extends Controller
 		return Response.ok(new AnalysisStatusResponse(
 			status,
 			document.isAnalysisComplete(),
-			document.getAnalysisError())).build();
+			document.getAnalysisError(),
+			asyncTagService.isPending(id),
+			document.getTagsAsString())).build();
 	}
 
-	public record AnalysisStatusResponse(String status, boolean complete, String error)
+	/**
+	 * @param tagsPending
+	 *            whether AI tags are still generated after the analysis
+	 *            completed
+	 * @param tags
+	 *            the current tags, comma-separated
+	 */
+	public record AnalysisStatusResponse(String status, boolean complete, String error, boolean tagsPending,
+		String tags)
 	{
 	}
 
@@ -191,10 +227,30 @@ public class DocumentResource extends Controller
 		long count = transactionRepository.findByDocument(id).size();
 		document.setTransactionCount(count);
 
-		List<Bommel> bommels = bommelRepository.listAll();
+		List<BommelOption> bommels = bommelPickerService.getOptions();
 		return Templates.show(document, bommels);
 	}
 
+	/**
+	 * Change history of a document, newest first. Older entries are loaded
+	 * page by page via the before/beforeId cursor.
+	 */
+	@GET
+	@Path("/{id}/verlauf")
+	public TemplateInstance history(Long id, @RestQuery String before, @RestQuery Long beforeId)
+	{
+		Document document = documentRepository.findByIdScoped(id);
+		if (document == null)
+		{
+			flash(FlashKeys.ERROR, BELEG_NICHT_GEFUNDEN);
+			redirect(DocumentResource.class).index(null, null, null);
+			return null;
+		}
+
+		HistoryPage history = auditHistoryService.loadPage("Document", id, before, beforeId);
+		return Templates.history(document, history);
+	}
+
 	/**
 	 * Enriches documents with transaction counts using a single optimized
 	 * query.
@@ -400,8 +456,10 @@ public class DocumentResource extends Controller
 		app.fuggs.document.flow.ReviewInput reviewInput = new app.fuggs.document.flow.ReviewInput(
 			confirmed, reanalyze, formData);
 
+		Map<String, String> before = document.toAuditSnapshot();
 		document.setReviewedBy(securityIdentity.getPrincipal().getName());
 		activitiesService.processReviewResult(id, reviewInput);
+		logChanges(document, before, "ReviewDocument");
 		LOG.info("Review completed: documentId={}", id);
 
 		if (Boolean.TRUE.equals(confirmed))
@@ -450,6 +508,7 @@ public class DocumentResource extends Controller
 			return;
 		}
 
+		Map<String, String> before = document.toAuditSnapshot();
 		document.setName(name);
 		document.setTotal(total);
 		document.setTotalTax(totalTax);
@@ -478,17 +537,8 @@ public class DocumentResource extends Controller
 
 		if (senderName != null && !senderName.isBlank())
 		{
-			TradeParty sender = document.getSender();
-			if (sender == null)
-			{
-				sender = new TradeParty();
-				sender.setOrganization(document.getOrganization());
-			}
-			sender.setName(senderName);
-			sender.setStreet(senderStreet);
-			sender.setZipCode(senderZipCode);
-			sender.setCity(senderCity);
-			document.setSender(sender);
+			document.setSender(vendorRegistry.resolve(document.getSender(), document.getOrganization(), senderName,
+				senderStreet, senderZipCode, senderCity));
 		}
 		else if (document.getSender() != null)
 		{
@@ -497,6 +547,7 @@ public class DocumentResource extends Controller
 
 		// Handle tags
 		updateDocumentTags(document, tags);
+		logChanges(document, before, "UpdateDocument");
 
 		flash(FlashKeys.SUCCESS, "Beleg gespeichert");
 		redirect(DocumentResource.class).show(document.getId());
@@ -532,6 +583,7 @@ public class DocumentResource extends Controller
 			return;
 		}
 
+		Map<String, String> before = document.toAuditSnapshot();
 		document.setName(name);
 		document.setTotal(total);
 		document.setTotalTax(totalTax);
@@ -558,27 +610,19 @@ public class DocumentResource extends Controller
 			document.setBommel(null);
 		}
 
-		TradeParty sender = document.getSender();
 		if (senderName != null && !senderName.isBlank())
 		{
-			if (sender == null)
-			{
-				sender = new TradeParty();
-				sender.setOrganization(document.getOrganization());
-			}
-			sender.setName(senderName);
-			sender.setStreet(senderStreet);
-			sender.setZipCode(senderZipCode);
-			sender.setCity(senderCity);
-			document.setSender(sender);
+			document.setSender(vendorRegistry.resolve(document.getSender(), document.getOrganization(), senderName,
+				senderStreet, senderZipCode, senderCity));
 		}
-		else if (sender != null)
+		else if (document.getSender() != null)
 		{
 			document.setSender(null);
 		}
 
 		// Handle tags
 		updateDocumentTags(document, tags);
+		logChanges(document, before, "UpdateDocument");
 
 		flash(FlashKeys.SUCCESS, "Beleg aktualisiert");
 		redirect(DocumentResource.class).show(id);
@@ -589,6 +633,21 @@ public class DocumentResource extends Controller
 		dataService.updateTags(document, tagsInput);
 	}
 
+	/**
+	 * Records the fields changed since the given snapshot in the audit log, as
+	 * part of the current transaction.
+	 */
+	private void logChanges(Document document, Map<String, String> before, String taskName)
+	{
+		List<FieldChange> changes = FieldChange.diff(before, document.toAuditSnapshot());
+		if (changes.isEmpty())
+		{
+			return;
+		}
+		auditLogService.logInTransaction(AuditEvent.ofChanges(document.getOrganization().id,
+			securityIdentity.getPrincipal().getName(), "Document", document.getId().toString(), taskName, changes));
+	}
+
 	@POST
 	@Transactional
 	public void delete(@RestForm @NotNull Long id)
@@ -698,8 +757,7 @@ public class DocumentResource extends Controller
 			return Response.status(Response.Status.NOT_FOUND).build();
 		}
 
-		var inputStream = fileService.downloadFile(document.getFileKey());
-		return Response.ok(inputStream)
+		return Response.ok(openFile(document))
 			.header("Content-Disposition", "attachment; filename=\"" + document.getFileName() + "\"")
 			.header("Content-Type", document.getFileContentType())
 			.build();
@@ -716,13 +774,27 @@ public class DocumentResource extends Controller
 			return Response.status(Response.Status.NOT_FOUND).build();
 		}
 
-		var inputStream = fileService.downloadFile(document.getFileKey());
-		return Response.ok(inputStream)
+		return Response.ok(openFile(document))
 			.header("Content-Disposition", "inline; filename=\"" + document.getFileName() + "\"")
 			.header("Content-Type", document.getFileContentType())
 			.build();
 	}
 
+	/**
+	 * Returns the response entity for a document file. Files kept on the local
+	 * filesystem are returned as {@link java.nio.file.Path}, which the server
+	 * sends with sendfile (zero-copy); remote files are streamed.
+	 */
+	private Object openFile(Document document)
+	{
+		Optional<java.nio.file.Path> localFile = fileService.findLocalFile(document.getFileKey());
+		if (localFile.isPresent())
+		{
+			return localFile.get();
+		}
+		return fileService.downloadFile(document.getFileKey());
+	}
+
 	private void deleteFileFromStorage(String fileKey)
 	{
 		fileService.deleteFile(fileKey);
@@ -796,18 +868,8 @@ public class DocumentResource extends Controller
 		transaction.setCurrencyCode(
 			document.getCurrencyCode() != null ? document.getCurrencyCode() : "EUR");
 
-		// Copy sender (create new TradeParty instance to avoid shared
-		// references)
-		if (document.getSender() != null)
-		{
-			TradeParty sender = new TradeParty();
-			sender.setName(document.getSender().getName());
-			sender.setStreet(document.getSender().getStreet());
-			sender.setZipCode(document.getSender().getZipCode());
-			sender.setCity(document.getSender().getCity());
-			sender.setOrganization(document.getOrganization());
-			transaction.setSender(sender);
-		}
+		// Link the same canonical vendor
+		transaction.setSender(document.getSender());
 
 		// Copy tags (preserve AI source)
 		for (DocumentTag docTag : document.getDocumentTags())
@@ -1,13 +1,16 @@
 package app.fuggs.document.client;
 
 import java.io.InputStream;
+import java.util.List;
 
 import org.eclipse.microprofile.rest.client.inject.RegisterRestClient;
-import org.jboss.resteasy.reactive.RestForm;
+import org.jboss.resteasy.reactive.RestQuery;
 
 import jakarta.ws.rs.Consumes;
+import jakarta.ws.rs.GET;
 import jakarta.ws.rs.POST;
 import jakarta.ws.rs.Path;
+import jakarta.ws.rs.PathParam;
 import jakarta.ws.rs.Produces;
 import jakarta.ws.rs.core.MediaType;
 
@@ -15,9 +18,61 @@ import jakarta.ws.rs.core.MediaType;
 @RegisterRestClient(configKey = "document-ai")
 public interface DocumentAiClient
 {
+	/**
+	 * Sends the document as raw request body, so it is streamed through
+	 * without multipart encoding or a temporary file on the receiving side.
+	 * No AI tags are generated for merchants in {@code knownVendors}
+	 * (normalized names, see VendorProfileService).
+	 */
 	@POST
-	@Consumes(MediaType.MULTIPART_FORM_DATA)
+	@Consumes(MediaType.APPLICATION_OCTET_STREAM)
 	@Produces(MediaType.APPLICATION_JSON)
-	DocumentData scanDocument(@RestForm("document") InputStream document,
-		@RestForm("transactionRecordId") Long transactionRecordId);
+	DocumentData scanDocument(InputStream document,
+		@RestQuery("transactionRecordId") Long transactionRecordId,
+		@RestQuery("knownVendor") List<String> knownVendors);
+
+	/**
+	 * Scans a document that may bundle several receipts. Returns one entry
+	 * per receipt, in page order; long PDFs are analyzed in page ranges.
+	 */
+	@POST
+	@Path("/receipts")
+	@Consumes(MediaType.APPLICATION_OCTET_STREAM)
+	@Produces(MediaType.APPLICATION_JSON)
+	List<DocumentData> scanReceipts(InputStream document,
+		@RestQuery("transactionRecordId") Long transactionRecordId,
+		@RestQuery("knownVendor") List<String> knownVendors);
+
+	/**
+	 * Starts a scan like {@link #scanReceipts}, or like {@link #scanDocument}
+	 * if {@code split} is false, and returns at once, so no connection is
+	 * held open during the analysis. Poll it with {@link #awaitScan} and
+	 * fetch the data with {@link #scanResult}.
+	 */
+	@POST
+	@Path("/operations")
+	@Consumes(MediaType.APPLICATION_OCTET_STREAM)
+	@Produces(MediaType.APPLICATION_JSON)
+	ScanOperation submitScan(InputStream document,
+		@RestQuery("transactionRecordId") Long transactionRecordId,
+		@RestQuery("knownVendor") List<String> knownVendors,
+		@RestQuery("split") boolean split);
+
+	/**
+	 * Returns the state of a submitted scan. The service waits up to
+	 * {@code waitSeconds} for the scan to finish.
+	 */
+	@GET
+	@Path("/operations/{operationId}")
+	@Produces(MediaType.APPLICATION_JSON)
+	ScanOperation awaitScan(@PathParam("operationId") String operationId,
+		@RestQuery("waitSeconds") int waitSeconds);
+
+	/**
+	 * Returns one entry per receipt of a succeeded scan, in page order.
+	 */
+	@GET
+	@Path("/operations/{operationId}/result")
+	@Produces(MediaType.APPLICATION_JSON)
+	List<DocumentData> scanResult(@PathParam("operationId") String operationId);
 }
@@ -27,6 +27,7 @@ public record DocumentData(
 	String paymentTerm,
 	LocalDate serviceStartDate,
 	LocalDate serviceEndDate,
-	List<String> tags)
+	List<String> tags,
+	String tagJobId)
 {
 }
@@ -0,0 +1,8 @@
+package app.fuggs.document.client;
+
+/**
+ * Result of the ZugFerd service's embedded invoice check.
+ */
+public record EmbeddedInvoice(boolean embedded, String fileName)
+{
+}
@@ -0,0 +1,19 @@
+package app.fuggs.document.client;
+
+/**
+ * State of a scan the document AI service runs in the background. Status is
+ * one of {@code RUNNING}, {@code SUCCEEDED} or {@code FAILED}; error is only
+ * set for failed scans.
+ */
+public record ScanOperation(String operationId, String status, String error)
+{
+	public boolean running()
+	{
+		return "RUNNING".equals(status);
+	}
+
+	public boolean succeeded()
+	{
+		return "SUCCEEDED".equals(status);
+	}
+}
@@ -0,0 +1,10 @@
+package app.fuggs.document.client;
+
+import java.util.List;
+
+/**
+ * State of a tag generation the ZugFerd service runs in the background.
+ */
+public record TagJobResult(String jobId, boolean done, List<String> tags)
+{
+}
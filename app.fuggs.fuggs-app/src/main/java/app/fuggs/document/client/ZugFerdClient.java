@@ -1,23 +1,56 @@
 package app.fuggs.document.client;
 
 import java.io.InputStream;
+import java.util.List;
 
 import org.eclipse.microprofile.rest.client.inject.RegisterRestClient;
-import org.jboss.resteasy.reactive.RestForm;
+import org.jboss.resteasy.reactive.RestQuery;
 
 import jakarta.ws.rs.Consumes;
+import jakarta.ws.rs.GET;
 import jakarta.ws.rs.POST;
 import jakarta.ws.rs.Path;
+import jakarta.ws.rs.PathParam;
 import jakarta.ws.rs.Produces;
 import jakarta.ws.rs.core.MediaType;
 
-@Path("/api/zugferd/document/scan")
+@Path("/api/zugferd/document")
 @RegisterRestClient(configKey = "zugferd")
 public interface ZugFerdClient
 {
+	/**
+	 * Extracts the embedded invoice. No AI tags are generated for sellers in
+	 * {@code knownVendors} (normalized names, see VendorProfileService). With
+	 * {@code asyncTags} the call returns before the tags are generated; they
+	 * are fetched with {@link #awaitTags} and {@link DocumentData#tagJobId()}.
+	 */
 	@POST
-	@Consumes(MediaType.MULTIPART_FORM_DATA)
+	@Path("/scan")
+	@Consumes(MediaType.APPLICATION_OCTET_STREAM)
 	@Produces(MediaType.APPLICATION_JSON)
-	DocumentData scanDocument(@RestForm("document") InputStream document,
-		@RestForm("transactionRecordId") Long transactionRecordId);
+	DocumentData scanDocument(InputStream document,
+		@RestQuery("transactionRecordId") Long transactionRecordId,
+		@RestQuery("knownVendor") List<String> knownVendors,
+		@RestQuery("asyncTags") boolean asyncTags);
+
+	/**
+	 * Fetches the tags of a scan started with {@code asyncTags}. The service
+	 * waits up to {@code waitSeconds} for the generation to finish.
+	 */
+	@GET
+	@Path("/tags/{jobId}")
+	@Produces(MediaType.APPLICATION_JSON)
+	TagJobResult awaitTags(@PathParam("jobId") String jobId, @RestQuery("waitSeconds") int waitSeconds);
+
+	/**
+	 * Checks whether the PDF embeds a ZUGFeRD, Factur-X or XRechnung XML.
+	 * Only the PDF's embedded-file names are read, so this is much cheaper
+	 * than {@link #scanDocument}.
+	 */
+	@POST
+	@Path("/detect")
+	@Consumes(MediaType.APPLICATION_OCTET_STREAM)
+	@Produces(MediaType.APPLICATION_JSON)
+	EmbeddedInvoice detectInvoice(InputStream document,
+		@RestQuery("transactionRecordId") Long transactionRecordId);
 }
@@ -9,9 +9,12 @@ import jakarta.persistence.Entity;
 import jakarta.persistence.EnumType;
 import jakarta.persistence.Enumerated;
 import jakarta.persistence.FetchType;
+import jakarta.persistence.Index;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
 import jakarta.persistence.OneToMany;
+import jakarta.persistence.PrePersist;
+import jakarta.persistence.Table;
 import jakarta.persistence.Transient;
 
 import java.math.BigDecimal;
@@ -20,11 +23,14 @@ import java.time.LocalDate;
 import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 @Entity
+@Table(indexes = { @Index(columnList = "fileKey"), @Index(columnList = "sender_id"), @Index(columnList = "sourceDocumentId") })
 public class Document extends PanacheEntity
 {
 	@ManyToOne(fetch = FetchType.LAZY)
@@ -43,7 +49,8 @@ public class Document extends PanacheEntity
 
 	private Instant transactionTime;
 
-	@ManyToOne(cascade = CascadeType.ALL, fetch = FetchType.LAZY)
+	// Canonical vendor shared with other records, so never cascade removal
+	@ManyToOne(cascade = { CascadeType.PERSIST, CascadeType.MERGE }, fetch = FetchType.LAZY)
 	private TradeParty sender;
 
 	@ManyToOne(cascade = CascadeType.ALL, fetch = FetchType.LAZY)
@@ -63,6 +70,10 @@ public class Document extends PanacheEntity
 	private String fileContentType; // MIME type
 	private Long fileSize; // Size in bytes
 
+	// Document whose file this one was split from as a further receipt; a
+	// plain ID so deleting the source keeps the split documents
+	private Long sourceDocumentId;
+
 	// AI analysis status
 	@Enumerated(EnumType.STRING)
 	private AnalysisStatus analysisStatus;
@@ -88,6 +99,11 @@ public class Document extends PanacheEntity
 	@Column(nullable = false, updatable = false)
 	private Instant createdAt;
 
+	// Denormalized search input; the database derives the full-text vector
+	// from it (see SearchIndexSetup)
+	@Column(length = 4000)
+	private String searchText;
+
 	// Transient field for transaction count (populated by controller)
 	@Transient
 	private Long transactionCount;
@@ -385,6 +401,16 @@ public class Document extends PanacheEntity
 		this.fileSize = fileSize;
 	}
 
+	public Long getSourceDocumentId()
+	{
+		return sourceDocumentId;
+	}
+
+	public void setSourceDocumentId(Long sourceDocumentId)
+	{
+		this.sourceDocumentId = sourceDocumentId;
+	}
+
 	public boolean hasFile()
 	{
 		return fileKey != null && !fileKey.isBlank();
@@ -674,4 +700,64 @@ public class Document extends PanacheEntity
 			return transactionCount + " Transaktionen";
 		}
 	}
+
+	/**
+	 * Returns the user-editable fields as display strings, in a stable order.
+	 * Two snapshots are compared to record the field-level diff of an edit in
+	 * the audit log.
+	 */
+	public Map<String, String> toAuditSnapshot()
+	{
+		Map<String, String> snapshot = new LinkedHashMap<>();
+		snapshot.put("name", name);
+		snapshot.put("total", total != null ? total.toPlainString() : null);
+		snapshot.put("totalTax", totalTax != null ? totalTax.toPlainString() : null);
+		snapshot.put("currencyCode", currencyCode);
+		snapshot.put("transactionDate", transactionTime != null ? getTransactionDateForInput() : null);
+		snapshot.put("bommel", bommel != null ? bommel.getTitle() : null);
+		snapshot.put("sender", sender != null ? sender.getName() : null);
+		snapshot.put("privatelyPaid", privatelyPaid ? "ja" : "nein");
+		snapshot.put("tags", hasTags() ? getTagsAsString() : null);
+		snapshot.put("status", documentStatus != null ? documentStatus.name() : null);
+		return snapshot;
+	}
+
+	public String getSearchText()
+	{
+		return searchText;
+	}
+
+	/**
+	 * Rebuilds the search text from name, sender, tags, amounts and date.
+	 * Runs on insert; code that edits a document calls it after the change.
+	 * It is deliberately not a PreUpdate callback, because reading the lazy
+	 * tag collection during a flush is not allowed, and tag or sender changes
+	 * would not trigger it anyway.
+	 */
+	@PrePersist
+	public void updateSearchText()
+	{
+		List<String> terms = new ArrayList<>();
+		terms.add(name);
+		terms.add(sender != null ? sender.getName() : null);
+		if (documentTags != null)
+		{
+			documentTags.forEach(documentTag -> terms.add(documentTag.getName()));
+		}
+		if (total != null)
+		{
+			terms.add(total.toPlainString());
+			terms.add(total.toPlainString().replace('.', ','));
+		}
+		if (transactionTime != null)
+		{
+			LocalDate date = transactionTime.atZone(ZoneId.systemDefault()).toLocalDate();
+			terms.add(date.toString());
+			terms.add(date.format(DateTimeFormatter.ofPattern("dd.MM.yyyy")));
+		}
+		String text = terms.stream()
+			.filter(term -> term != null && !term.isBlank())
+			.collect(Collectors.joining(" "));
+		searchText = text.length() > 4000 ? text.substring(0, 4000) : text;
+	}
 }
@@ -0,0 +1,100 @@
+package app.fuggs.document.domain;
+
+import java.time.Instant;
+
+import io.quarkus.hibernate.orm.panache.PanacheEntity;
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+
+/**
+ * Outbox entry for a storage object that should be deleted. Entries are
+ * written in the same transaction as the change that orphans the file, so a
+ * rollback also discards the deletion. They are flushed to the object store in
+ * batches after commit by the storage cleanup job.
+ */
+@Entity
+@Table(indexes = @Index(columnList = "fileKey"))
+public class PendingFileDeletion extends PanacheEntity
+{
+	@Column(nullable = false, length = 1024)
+	private String fileKey;
+
+	@Column(nullable = false, updatable = false)
+	private Instant requestedAt;
+
+	private int attempts;
+
+	@Column(length = 1000)
+	private String lastError;
+
+	// Set after a failed attempt, the entry is not retried before
+	private Instant nextAttemptAt;
+
+	public PendingFileDeletion()
+	{
+		this.requestedAt = Instant.now();
+	}
+
+	public PendingFileDeletion(String fileKey)
+	{
+		this();
+		this.fileKey = fileKey;
+	}
+
+	public Long getId()
+	{
+		return id;
+	}
+
+	public String getFileKey()
+	{
+		return fileKey;
+	}
+
+	public void setFileKey(String fileKey)
+	{
+		this.fileKey = fileKey;
+	}
+
+	public Instant getRequestedAt()
+	{
+		return requestedAt;
+	}
+
+	public int getAttempts()
+	{
+		return attempts;
+	}
+
+	public String getLastError()
+	{
+		return lastError;
+	}
+
+	public Instant getNextAttemptAt()
+	{
+		return nextAttemptAt;
+	}
+
+	/**
+	 * Records a failed deletion attempt so the entry is retried later (up to
+	 * the configured maximum number of attempts).
+	 *
+	 * @param error
+	 *            the failure message
+	 * @param nextAttemptAt
+	 *            the entry is not retried before this instant
+	 */
+	public void recordFailure(String error, Instant nextAttemptAt)
+	{
+		this.attempts++;
+		this.nextAttemptAt = nextAttemptAt;
+		if (error != null && error.length() > 1000)
+		{
+			error = error.substring(0, 1000);
+		}
+		this.lastError = error;
+	}
+}
@@ -1,19 +1,40 @@
 package app.fuggs.document.domain;
 
+import java.text.Normalizer;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
 import app.fuggs.organization.domain.Organization;
 import io.quarkus.hibernate.orm.panache.PanacheEntity;
 import jakarta.persistence.Entity;
+import jakarta.persistence.Index;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
-
+import jakarta.persistence.PrePersist;
+import jakarta.persistence.PreUpdate;
+import jakarta.persistence.Table;
+
+/**
+ * A vendor or other business partner of an organization. Trade parties are
+ * canonical per organization: documents and transactions of the same vendor
+ * share one row, matched by {@link #normalizeName(String)} and zip code (see
+ * VendorRegistry).
+ */
 @Entity
+@Table(indexes = @Index(columnList = "organization_id, normalizedName"))
 public class TradeParty extends PanacheEntity
 {
+	private static final Pattern DIACRITICS = Pattern.compile("\\p{M}+");
+	private static final Pattern NON_ALPHANUMERIC = Pattern.compile("[^a-z0-9]+");
+	private static final Pattern LEGAL_FORM = Pattern.compile(
+		"\\b(gmbh|mbh|ag|kg|kgaa|ohg|gbr|ug|haftungsbeschrankt|e v|e k|co|se|ltd|inc|llc)\\b");
+
 	@ManyToOne(optional = false)
 	@JoinColumn(name = "organization_id", nullable = false)
 	private Organization organization;
 
 	private String name;
+	private String normalizedName;
 	private String country;
 	private String state;
 	private String city;
@@ -43,6 +64,19 @@ public class TradeParty extends PanacheEntity
 		this.name = name;
 	}
 
+	public String getNormalizedName()
+	{
+		return normalizedName;
+	}
+
+	@PrePersist
+	@PreUpdate
+	void updateNormalizedName()
+	{
+		String normalized = normalizeName(name);
+		normalizedName = normalized.isEmpty() ? null : normalized;
+	}
+
 	public String getCountry()
 	{
 		return country;
@@ -147,4 +181,45 @@ public class TradeParty extends PanacheEntity
 		}
 		return sb.toString().trim();
 	}
+
+	/**
+	 * Normalizes a vendor name for matching: lower case, without diacritics,
+	 * punctuation and legal forms, so "Müller GmbH &amp; Co. KG" and "MÜLLER"
+	 * both become "muller".
+	 *
+	 * @param name
+	 *            the name as printed on the receipt
+	 * @return the normalized name, or an empty string if nothing is left
+	 */
+	public static String normalizeName(String name)
+	{
+		if (name == null)
+		{
+			return "";
+		}
+		String folded = Normalizer.normalize(name.toLowerCase(Locale.ROOT).replace("ß", "ss"), Normalizer.Form.NFD);
+		folded = DIACRITICS.matcher(folded).replaceAll("");
+		folded = NON_ALPHANUMERIC.matcher(folded).replaceAll(" ").trim();
+
+		String withoutLegalForm = LEGAL_FORM.matcher(folded).replaceAll(" ").trim().replaceAll(" +", " ");
+		// A name that only consists of a legal form still has to match itself
+		return withoutLegalForm.isEmpty() ? folded : withoutLegalForm;
+	}
+
+	/**
+	 * Normalizes a zip code for matching.
+	 *
+	 * @param zipCode
+	 *            the zip code as entered
+	 * @return upper case letters and digits only, or null if blank
+	 */
+	public static String normalizeZipCode(String zipCode)
+	{
+		if (zipCode == null)
+		{
+			return null;
+		}
+		String normalized = zipCode.replaceAll("[^A-Za-z0-9]", "").toUpperCase(Locale.ROOT);
+		return normalized.isEmpty() ? null : normalized;
+	}
 }
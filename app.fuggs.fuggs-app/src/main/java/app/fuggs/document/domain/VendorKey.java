@@ -0,0 +1,9 @@
+package app.fuggs.document.domain;
+
+/**
+ * Matching key of a canonical trade party, as held in the in-memory vendor
+ * index.
+ */
+public record VendorKey(Long id, String normalizedName, String zipCode)
+{
+}
@@ -0,0 +1,24 @@
+package app.fuggs.document.domain;
+
+import java.util.List;
+
+/**
+ * What the confirmed documents of an organization tell about one vendor: the
+ * Bommel, currency and tags its documents usually get. A profile is
+ * {@code confident} when it is based on enough documents to prefill new ones
+ * without asking the AI for tags.
+ */
+public record VendorProfile(
+	Long vendorId,
+	String normalizedName,
+	long documents,
+	Long bommelId,
+	String currencyCode,
+	List<String> tags,
+	boolean confident)
+{
+	public VendorProfile
+	{
+		tags = tags != null ? List.copyOf(tags) : List.of();
+	}
+}
@@ -0,0 +1,9 @@
+package app.fuggs.document.domain;
+
+/**
+ * Number of confirmed documents of a vendor that share a value, e.g. the
+ * same Bommel or tag. {@code value} is null for documents without one.
+ */
+public record VendorStatistic(Long vendorId, String value, Long count)
+{
+}
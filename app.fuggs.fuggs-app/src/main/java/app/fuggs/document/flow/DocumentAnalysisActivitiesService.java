@@ -1,18 +1,24 @@
 package app.fuggs.document.flow;
 
 import java.io.InputStream;
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
 import java.util.function.BiFunction;
 
+import org.eclipse.microprofile.config.inject.ConfigProperty;
 import org.eclipse.microprofile.rest.client.inject.RestClient;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import app.fuggs.audit.domain.AuditLogEntry;
-import app.fuggs.audit.repository.AuditLogRepository;
+import app.fuggs.audit.domain.AuditEvent;
+import app.fuggs.audit.service.AuditLogService;
 import app.fuggs.bommel.domain.Bommel;
 import app.fuggs.bommel.repository.BommelRepository;
 import app.fuggs.document.client.DocumentAiClient;
 import app.fuggs.document.client.DocumentData;
+import app.fuggs.document.client.ScanOperation;
 import app.fuggs.document.client.ZugFerdClient;
 import app.fuggs.document.domain.AnalysisStatus;
 import app.fuggs.document.domain.Document;
@@ -20,9 +26,11 @@ import app.fuggs.document.domain.DocumentStatus;
 import app.fuggs.document.domain.ExtractionSource;
 import app.fuggs.document.domain.TagSource;
 import app.fuggs.document.repository.DocumentRepository;
+import app.fuggs.document.service.AsyncTagService;
 import app.fuggs.document.service.DocumentDataApplier;
 import app.fuggs.document.service.DocumentDataService;
 import app.fuggs.document.service.StorageService;
+import app.fuggs.document.service.VendorProfileService;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
 import jakarta.transaction.Transactional;
@@ -48,7 +56,13 @@ public class DocumentAnalysisActivitiesService
 	DocumentDataService documentDataService;
 
 	@Inject
-	AuditLogRepository auditLogRepository;
+	AuditLogService auditLogService;
+
+	@Inject
+	VendorProfileService vendorProfileService;
+
+	@Inject
+	AsyncTagService asyncTagService;
 
 	@RestClient
 	ZugFerdClient zugFerdClient;
@@ -56,6 +70,18 @@ public class DocumentAnalysisActivitiesService
 	@RestClient
 	DocumentAiClient documentAiClient;
 
+	@ConfigProperty(name = "fuggs.analysis.split-receipts", defaultValue = "false")
+	boolean splitReceipts;
+
+	@ConfigProperty(name = "fuggs.analysis.document-ai.async", defaultValue = "true")
+	boolean documentAiAsync;
+
+	@ConfigProperty(name = "fuggs.analysis.document-ai.timeout", defaultValue = "PT50S")
+	Duration documentAiTimeout;
+
+	@ConfigProperty(name = "fuggs.analysis.document-ai.poll-wait", defaultValue = "PT20S")
+	Duration documentAiPollWait;
+
 	@Transactional
 	public AnalysisResult analyzeWithZugFerd(Long documentId)
 	{
@@ -76,13 +102,26 @@ public class DocumentAnalysisActivitiesService
 			return new AnalysisResult(documentId, false, null, "Not a PDF file");
 		}
 
+		if (!hasEmbeddedInvoice(document))
+		{
+			LOG.info("Document has no embedded e-invoice, skipping ZugFerd: documentId={}", documentId);
+			return new AnalysisResult(documentId, false, null, "No embedded e-invoice");
+		}
+
 		document.setAnalysisStatus(AnalysisStatus.ANALYZING);
 		document.setDocumentStatus(DocumentStatus.ANALYZING);
 
 		try
 		{
-			DocumentData data = performScan(document, zugFerdClient::scanDocument);
+			List<String> knownVendors = vendorProfileService.getKnownVendorKeys(document.getOrganization().id);
+			DocumentData data = performScan(document.getFileKey(), documentId,
+				(stream, id) -> zugFerdClient.scanDocument(stream, id, knownVendors, true));
 			completeAnalysis(document, data, ExtractionSource.ZUGFERD);
+			if (data.tagJobId() != null)
+			{
+				// The review can start right away, tags follow when generated
+				asyncTagService.fetchAfterCommit(documentId, data.tagJobId());
+			}
 			logAuditEvent(document, "AnalyzeDocumentZugFerd", "ZugFerd analysis completed successfully");
 			LOG.info("ZugFerd analysis completed: documentId={}", documentId);
 			return new AnalysisResult(documentId, true, ExtractionSource.ZUGFERD, null);
@@ -98,10 +137,47 @@ public class DocumentAnalysisActivitiesService
 		}
 	}
 
-	@Transactional
+	/**
+	 * Runs the AI analysis. The scan runs outside of any database
+	 * transaction, so its duration is not bound by the transaction timeout;
+	 * only preparing and applying the result are transactional.
+	 */
 	public void analyzeWithDocumentAi(Long documentId)
 	{
 		LOG.info("Starting AI analysis: documentId={}", documentId);
+		try
+		{
+			AiScan scan = startAiAnalysis(documentId);
+			if (scan == null)
+			{
+				return;
+			}
+			List<DocumentData> receipts = scanWithDocumentAi(documentId, scan);
+			completeAiAnalysis(documentId, receipts, scan.split());
+			LOG.info("AI analysis completed: documentId={}", documentId);
+		}
+		catch (Exception e)
+		{
+			LOG.error("AI analysis failed: documentId={}, error={}", documentId, e.getMessage(), e);
+			failAiAnalysis(documentId, e.getMessage());
+		}
+	}
+
+	/**
+	 * What the AI scan of a document needs, read before the scan.
+	 */
+	record AiScan(String fileKey, List<String> knownVendors, boolean split)
+	{
+	}
+
+	/**
+	 * Marks the document as analyzing.
+	 *
+	 * @return what the scan needs, null if the document has no file
+	 */
+	@Transactional
+	AiScan startAiAnalysis(Long documentId)
+	{
 		Document document = requireDocument(documentId);
 		logAuditEvent(document, "AnalyzeDocumentAi", "Started AI analysis");
 
@@ -109,25 +185,58 @@ public class DocumentAnalysisActivitiesService
 		{
 			LOG.warn("Document has no file: documentId={}", documentId);
 			markAnalysisFailed(document, "Kein Dokument vorhanden");
-			return;
+			return null;
 		}
 
 		document.setAnalysisStatus(AnalysisStatus.ANALYZING);
 		document.setDocumentStatus(DocumentStatus.ANALYZING);
+		return new AiScan(document.getFileKey(), vendorProfileService.getKnownVendorKeys(document.getOrganization().id),
+			shouldSplit(document));
+	}
 
-		try
+	/**
+	 * Applies the data of the first receipt to the document and, if the file
+	 * was split, creates documents for the further ones.
+	 */
+	@Transactional
+	void completeAiAnalysis(Long documentId, List<DocumentData> receipts, boolean split)
+	{
+		Document document = requireDocument(documentId);
+		completeAnalysis(document, receipts.getFirst(), ExtractionSource.AI);
+		if (split)
 		{
-			DocumentData data = performScan(document, documentAiClient::scanDocument);
-			completeAnalysis(document, data, ExtractionSource.AI);
-			logAuditEvent(document, "AnalyzeDocumentAi", "AI analysis completed successfully");
-			LOG.info("AI analysis completed: documentId={}", documentId);
+			replaceReceiptDocuments(document, receipts.subList(1, receipts.size()));
 		}
-		catch (Exception e)
+		logAuditEvent(document, "AnalyzeDocumentAi", "AI analysis completed successfully");
+	}
+
+	@Transactional
+	void failAiAnalysis(Long documentId, String error)
+	{
+		Document document = requireDocument(documentId);
+		markAnalysisFailed(document, "KI-Analyse fehlgeschlagen: " + error);
+		logAuditEvent(document, "AnalyzeDocumentAi", "AI analysis failed: " + error);
+	}
+
+	private List<DocumentData> scanWithDocumentAi(Long documentId, AiScan scan) throws Exception
+	{
+		List<String> knownVendors = scan.knownVendors();
+		if (documentAiAsync)
 		{
-			LOG.error("AI analysis failed: documentId={}, error={}", documentId, e.getMessage(), e);
-			markAnalysisFailed(document, "KI-Analyse fehlgeschlagen: " + e.getMessage());
-			logAuditEvent(document, "AnalyzeDocumentAi", "AI analysis failed: " + e.getMessage());
+			return scanInBackground(documentId, scan);
 		}
+		if (scan.split())
+		{
+			List<DocumentData> receipts = performScan(scan.fileKey(), documentId,
+				(stream, id) -> documentAiClient.scanReceipts(stream, id, knownVendors));
+			if (receipts.isEmpty())
+			{
+				throw new RuntimeException("Scanner returned no data");
+			}
+			return receipts;
+		}
+		return List.of(performScan(scan.fileKey(), documentId,
+			(stream, id) -> documentAiClient.scanDocument(stream, id, knownVendors)));
 	}
 
 	@Transactional
@@ -149,7 +258,8 @@ public class DocumentAnalysisActivitiesService
 			documentDataService.updateTags(document, (String)reviewInput.formData().get("tags"));
 
 			document.setDocumentStatus(DocumentStatus.CONFIRMED);
-			logAuditEvent(document, "ReviewDocument", "Document confirmed by user");
+			vendorProfileService.invalidate(document.getOrganization().id);
+			logAuditEventInTransaction(document, "ReviewDocument", "Document confirmed by user");
 			LOG.info("Document confirmed: documentId={}", documentId);
 		}
 		else
@@ -160,12 +270,12 @@ public class DocumentAnalysisActivitiesService
 
 			if (reviewInput.reanalyze())
 			{
-				logAuditEvent(document, "ReviewDocument", "Re-analysis requested by user");
+				logAuditEventInTransaction(document, "ReviewDocument", "Re-analysis requested by user");
 				LOG.info("Re-analysis requested: documentId={}", documentId);
 			}
 			else
 			{
-				logAuditEvent(document, "ReviewDocument", "Manual entry selected by user");
+				logAuditEventInTransaction(document, "ReviewDocument", "Manual entry selected by user");
 				LOG.info("Manual entry selected: documentId={}", documentId);
 			}
 		}
@@ -182,13 +292,31 @@ public class DocumentAnalysisActivitiesService
 		return document;
 	}
 
-	private DocumentData performScan(Document document,
-		BiFunction<InputStream, Long, DocumentData> scanner) throws Exception
+	/**
+	 * Asks the ZugFerd service whether the PDF embeds an e-invoice, which
+	 * most uploads do not. If the check fails, the full scan decides.
+	 */
+	private boolean hasEmbeddedInvoice(Document document)
 	{
 		try (InputStream fileStream = storageService.downloadFile(document.getFileKey()))
 		{
-			LOG.debug("Downloaded file from S3: key={}", document.getFileKey());
-			DocumentData data = scanner.apply(fileStream, document.getId());
+			return zugFerdClient.detectInvoice(fileStream, document.getId()).embedded();
+		}
+		catch (Exception e)
+		{
+			LOG.warn("Embedded invoice check failed, scanning anyway: documentId={}, error={}", document.getId(),
+				e.getMessage());
+			return true;
+		}
+	}
+
+	private <T> T performScan(String fileKey, Long documentId, BiFunction<InputStream, Long, T> scanner)
+		throws Exception
+	{
+		try (InputStream fileStream = storageService.downloadFile(fileKey))
+		{
+			LOG.debug("Downloaded file from S3: key={}", fileKey);
+			T data = scanner.apply(fileStream, documentId);
 			if (data == null)
 			{
 				throw new RuntimeException("Scanner returned no data");
@@ -197,6 +325,100 @@ public class DocumentAnalysisActivitiesService
 		}
 	}
 
+	/**
+	 * Submits the scan to the document AI service and long-polls it, so no
+	 * connection is held open for the whole analysis. No poll waits beyond
+	 * the timeout. Unless the file is split, the service scans it as a single
+	 * document.
+	 */
+	private List<DocumentData> scanInBackground(Long documentId, AiScan scan) throws Exception
+	{
+		ScanOperation operation = performScan(scan.fileKey(), documentId,
+			(stream, id) -> documentAiClient.submitScan(stream, id, scan.knownVendors(), scan.split()));
+		Instant deadline = Instant.now().plus(documentAiTimeout);
+		while (operation.running())
+		{
+			long remainingSeconds = Duration.between(Instant.now(), deadline).toSeconds();
+			if (remainingSeconds <= 0)
+			{
+				throw new RuntimeException("Scan timed out: operationId=" + operation.operationId());
+			}
+			int waitSeconds = (int)Math.min(documentAiPollWait.toSeconds(), remainingSeconds);
+			operation = documentAiClient.awaitScan(operation.operationId(), waitSeconds);
+		}
+		if (!operation.succeeded())
+		{
+			throw new RuntimeException("Scan failed: " + operation.error());
+		}
+
+		List<DocumentData> receipts = documentAiClient.scanResult(operation.operationId());
+		if (receipts == null || receipts.isEmpty())
+		{
+			throw new RuntimeException("Scanner returned no data");
+		}
+		return receipts;
+	}
+
+	/**
+	 * Only PDFs are split, and not the documents already split from one, as
+	 * their file is the whole bundle.
+	 */
+	private boolean shouldSplit(Document document)
+	{
+		return splitReceipts && document.isPdf() && document.getSourceDocumentId() == null;
+	}
+
+	/**
+	 * Creates a document for each further receipt found in the file of the
+	 * scanned document. They share its file, Bommel and uploader and wait for
+	 * review like the original. On re-analysis the documents of the previous
+	 * split are replaced, unless a user already confirmed or linked one of
+	 * them; then the split is kept as it is.
+	 */
+	private void replaceReceiptDocuments(Document original, List<DocumentData> receipts)
+	{
+		if (documentRepository.hasReviewedBySourceDocument(original.getId()))
+		{
+			LOG.info("Keeping reviewed documents of a previous split: documentId={}", original.getId());
+			return;
+		}
+		List<Document> previous = documentRepository.findBySourceDocument(original.getId());
+		for (Document document : previous)
+		{
+			documentRepository.delete(document);
+		}
+		if (!previous.isEmpty())
+		{
+			LOG.info("Removed documents of a previous split: documentId={}, count={}", original.getId(),
+				previous.size());
+		}
+
+		for (DocumentData receipt : receipts)
+		{
+			Document document = new Document();
+			document.setOrganization(original.getOrganization());
+			document.setBommel(original.getBommel());
+			document.setTotal(BigDecimal.ZERO);
+			document.setCurrencyCode("EUR");
+			document.setFileKey(original.getFileKey());
+			document.setFileName(original.getFileName());
+			document.setFileContentType(original.getFileContentType());
+			document.setFileSize(original.getFileSize());
+			document.setUploadedBy(original.getUploadedBy());
+			document.setSourceDocumentId(original.getId());
+			documentRepository.persist(document);
+
+			completeAnalysis(document, receipt, ExtractionSource.AI);
+			logAuditEvent(document, "AnalyzeDocumentAi",
+				"Created from a further receipt in document " + original.getId());
+		}
+		if (!receipts.isEmpty())
+		{
+			LOG.info("Created documents for further receipts: documentId={}, count={}", original.getId(),
+				receipts.size());
+		}
+	}
+
 	private void completeAnalysis(Document document, DocumentData data, ExtractionSource source)
 	{
 		documentDataApplier.applyDocumentData(document, data, TagSource.AI);
@@ -214,13 +436,21 @@ public class DocumentAnalysisActivitiesService
 
 	private void logAuditEvent(Document document, String taskName, String details)
 	{
-		AuditLogEntry entry = new AuditLogEntry();
-		entry.setEntityName("Document");
-		entry.setEntityId(document.getId().toString());
-		entry.setTaskName(taskName);
-		entry.setDetails(details);
-		entry.setUsername("system");
-		entry.setOrganization(document.getOrganization());
-		auditLogRepository.persist(entry);
+		auditLogService.log(toAuditEvent(document, taskName, details));
+	}
+
+	/**
+	 * Audit entry for a user decision, written atomically with the document
+	 * change it describes.
+	 */
+	private void logAuditEventInTransaction(Document document, String taskName, String details)
+	{
+		auditLogService.logInTransaction(toAuditEvent(document, taskName, details));
+	}
+
+	private static AuditEvent toAuditEvent(Document document, String taskName, String details)
+	{
+		return AuditEvent.of(document.getOrganization().id, "system", "Document", document.getId().toString(),
+			taskName, details);
 	}
 }
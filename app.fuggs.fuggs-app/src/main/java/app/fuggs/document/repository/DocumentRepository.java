@@ -1,9 +1,14 @@
 package app.fuggs.document.repository;
 
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import app.fuggs.document.domain.Document;
+import app.fuggs.document.domain.DocumentStatus;
+import app.fuggs.document.domain.VendorStatistic;
 import app.fuggs.shared.security.OrganizationContext;
 import app.fuggs.shared.util.SortHelper;
 import io.quarkus.hibernate.orm.panache.PanacheRepository;
@@ -144,4 +149,122 @@ public class DocumentRepository implements PanacheRepository<Document>
 		}
 		return find("id = ?1 and organization.id = ?2", id, orgId).firstResult();
 	}
+
+	/**
+	 * Returns those of the given storage keys that are still referenced by a
+	 * document. NOT scoped to organization, used by storage cleanup jobs.
+	 *
+	 * @param fileKeys
+	 *            The storage keys to check
+	 * @return The subset of keys referenced by at least one document
+	 */
+	public Set<String> findReferencedFileKeys(Collection<String> fileKeys)
+	{
+		if (fileKeys.isEmpty())
+		{
+			return Set.of();
+		}
+		return new HashSet<>(getEntityManager()
+			.createQuery("SELECT DISTINCT d.fileKey FROM Document d WHERE d.fileKey IN :keys", String.class)
+			.setParameter("keys", fileKeys)
+			.getResultList());
+	}
+
+	/**
+	 * Finds the documents split from the file of a document. NOT scoped to
+	 * organization, used by background analysis.
+	 *
+	 * @param sourceDocumentId
+	 *            The ID of the document the file was uploaded with
+	 * @return The documents created for further receipts in its file
+	 */
+	public List<Document> findBySourceDocument(Long sourceDocumentId)
+	{
+		return list("sourceDocumentId", sourceDocumentId);
+	}
+
+	/**
+	 * Checks whether a user already worked with a document split from the
+	 * file of a document, i.e. confirmed it or linked a transaction. NOT
+	 * scoped to organization, used by background analysis.
+	 *
+	 * @param sourceDocumentId
+	 *            The ID of the document the file was uploaded with
+	 * @return true if any split document is confirmed or linked
+	 */
+	public boolean hasReviewedBySourceDocument(Long sourceDocumentId)
+	{
+		return getEntityManager()
+			.createQuery("SELECT count(d) FROM Document d WHERE d.sourceDocumentId = :source "
+				+ "AND (d.documentStatus = :confirmed "
+				+ "OR EXISTS (SELECT t FROM TransactionRecord t WHERE t.document = d))", Long.class)
+			.setParameter("source", sourceDocumentId)
+			.setParameter("confirmed", DocumentStatus.CONFIRMED)
+			.getSingleResult() > 0;
+	}
+
+	/**
+	 * Counts the confirmed documents per named vendor of an organization. The
+	 * value of each statistic is the vendor's normalized name. NOT scoped to
+	 * the current organization, used by background analysis.
+	 *
+	 * @param organizationId
+	 *            The organization ID
+	 * @return One statistic per vendor
+	 */
+	public List<VendorStatistic> countConfirmedByVendor(Long organizationId)
+	{
+		return vendorStatistics(organizationId, "s.normalizedName", "", "count(d)",
+			"and s.normalizedName is not null");
+	}
+
+	/**
+	 * Counts the confirmed documents per vendor and Bommel ID.
+	 *
+	 * @param organizationId
+	 *            The organization ID
+	 * @return One statistic per vendor and Bommel, the value is the Bommel ID
+	 */
+	public List<VendorStatistic> countConfirmedByVendorAndBommel(Long organizationId)
+	{
+		return vendorStatistics(organizationId, "cast(b.id as String)", "left join d.bommel b", "count(d)", "");
+	}
+
+	/**
+	 * Counts the confirmed documents per vendor and currency.
+	 *
+	 * @param organizationId
+	 *            The organization ID
+	 * @return One statistic per vendor and currency code
+	 */
+	public List<VendorStatistic> countConfirmedByVendorAndCurrency(Long organizationId)
+	{
+		return vendorStatistics(organizationId, "d.currencyCode", "", "count(d)", "");
+	}
+
+	/**
+	 * Counts the confirmed documents per vendor and tag.
+	 *
+	 * @param organizationId
+	 *            The organization ID
+	 * @return One statistic per vendor and tag name
+	 */
+	public List<VendorStatistic> countConfirmedByVendorAndTag(Long organizationId)
+	{
+		return vendorStatistics(organizationId, "t.tag.name", "join d.documentTags t", "count(distinct d.id)", "");
+	}
+
+	private List<VendorStatistic> vendorStatistics(Long organizationId, String value, String join, String count,
+		String condition)
+	{
+		// Grouped by sender_id, which is indexed
+		return getEntityManager()
+			.createQuery("select new app.fuggs.document.domain.VendorStatistic(s.id, " + value + ", " + count + ") "
+				+ "from Document d join d.sender s " + join + " "
+				+ "where d.organization.id = ?1 and d.documentStatus = ?2 " + condition + " "
+				+ "group by s.id, " + value, VendorStatistic.class)
+			.setParameter(1, organizationId)
+			.setParameter(2, DocumentStatus.CONFIRMED)
+			.getResultList();
+	}
 }
@@ -0,0 +1,82 @@
+package app.fuggs.document.repository;
+
+import java.time.Instant;
+import java.util.List;
+
+import app.fuggs.document.domain.PendingFileDeletion;
+import io.quarkus.hibernate.orm.panache.PanacheRepository;
+import io.quarkus.panache.common.Page;
+import io.quarkus.panache.common.Sort;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.persistence.LockModeType;
+
+/**
+ * Repository for the file deletion outbox. NOT scoped to organization, as the
+ * entries are processed by background jobs without a user context.
+ */
+@ApplicationScoped
+public class PendingFileDeletionRepository implements PanacheRepository<PendingFileDeletion>
+{
+	/**
+	 * Records that the given storage key should be deleted once the current
+	 * transaction commits. Keys that are already queued are not added twice.
+	 *
+	 * @param fileKey
+	 *            The storage key of the file
+	 */
+	public void enqueue(String fileKey)
+	{
+		if (count("fileKey", fileKey) > 0)
+		{
+			return;
+		}
+		persist(new PendingFileDeletion(fileKey));
+	}
+
+	/**
+	 * Removes a queued deletion because the key is referenced again, e.g. when
+	 * the same content is uploaded once more. Blocks while a flush holds the
+	 * entry, so the caller sees whether the object was removed in the meantime.
+	 *
+	 * @param fileKey
+	 *            The storage key of the file
+	 * @return true if a queued deletion was removed
+	 */
+	public boolean cancel(String fileKey)
+	{
+		return delete("fileKey", fileKey) > 0;
+	}
+
+	/**
+	 * Finds the oldest pending deletions that have not yet exceeded the retry
+	 * limit and whose retry backoff has passed, and locks them for the current
+	 * transaction.
+	 *
+	 * @param batchSize
+	 *            Maximum number of entries to return
+	 * @param maxAttempts
+	 *            Entries with this many failed attempts or more are skipped
+	 * @param requestedBefore
+	 *            Only entries requested before this instant are returned
+	 * @return List of pending deletions, oldest first
+	 */
+	public List<PendingFileDeletion> findBatch(int batchSize, int maxAttempts, Instant requestedBefore)
+	{
+		return find("attempts < ?1 and requestedAt < ?2 and (nextAttemptAt is null or nextAttemptAt <= ?3)",
+			Sort.by("requestedAt").and("id"), maxAttempts, requestedBefore, Instant.now())
+			.withLock(LockModeType.PESSIMISTIC_WRITE)
+			.page(Page.ofSize(batchSize))
+			.list();
+	}
+
+	/**
+	 * @param maxAttempts
+	 *            The retry limit
+	 * @return number of entries that reached the retry limit and are no longer
+	 *         processed
+	 */
+	public long countExhausted(int maxAttempts)
+	{
+		return count("attempts >= ?1", maxAttempts);
+	}
+}
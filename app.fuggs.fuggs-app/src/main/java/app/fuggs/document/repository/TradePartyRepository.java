@@ -3,6 +3,7 @@ package app.fuggs.document.repository;
 import java.util.List;
 
 import app.fuggs.document.domain.TradeParty;
+import app.fuggs.document.domain.VendorKey;
 import app.fuggs.shared.security.OrganizationContext;
 import io.quarkus.hibernate.orm.panache.PanacheRepository;
 import jakarta.enterprise.context.ApplicationScoped;
@@ -15,7 +16,9 @@ public class TradePartyRepository implements PanacheRepository<TradeParty>
 	OrganizationContext organizationContext;
 
 	/**
-	 * Finds trade parties by name within the current organization.
+	 * Finds trade parties by name within the current organization. The
+	 * {@code LOWER(name) LIKE} form matches the trigram index created by
+	 * SearchIndexSetup, so the leading wildcard does not force a full scan.
 	 *
 	 * @param name
 	 *            The name to search for
@@ -50,4 +53,44 @@ public class TradePartyRepository implements PanacheRepository<TradeParty>
 		}
 		return find("id = ?1 and organization.id = ?2", id, orgId).firstResult();
 	}
+
+	/**
+	 * Counts the documents and transactions linked to a trade party, as sender
+	 * or recipient.
+	 *
+	 * @param tradePartyId
+	 *            the trade party ID
+	 * @return the number of linked records
+	 */
+	public long countReferences(Long tradePartyId)
+	{
+		long documents = getEntityManager()
+			.createQuery("select count(d) from Document d where d.sender.id = ?1 or d.recipient.id = ?1", Long.class)
+			.setParameter(1, tradePartyId)
+			.getSingleResult();
+		long transactions = getEntityManager()
+			.createQuery("select count(t) from TransactionRecord t where t.sender.id = ?1 or t.recipient.id = ?1",
+				Long.class)
+			.setParameter(1, tradePartyId)
+			.getSingleResult();
+		return documents + transactions;
+	}
+
+	/**
+	 * Loads the matching keys of all named trade parties of an organization,
+	 * oldest first, to build the vendor index.
+	 *
+	 * @param organizationId
+	 *            the organization ID
+	 * @return ID, normalized name and zip code of each trade party
+	 */
+	public List<VendorKey> findVendorKeys(Long organizationId)
+	{
+		return getEntityManager()
+			.createQuery("select new app.fuggs.document.domain.VendorKey(t.id, t.normalizedName, t.zipCode) "
+				+ "from TradeParty t where t.organization.id = ?1 and t.normalizedName is not null order by t.id",
+				VendorKey.class)
+			.setParameter(1, organizationId)
+			.getResultList();
+	}
 }
@@ -0,0 +1,180 @@
+package app.fuggs.document.service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.eclipse.microprofile.rest.client.inject.RestClient;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import app.fuggs.document.client.TagJobResult;
+import app.fuggs.document.client.ZugFerdClient;
+import app.fuggs.document.domain.Document;
+import app.fuggs.document.domain.DocumentStatus;
+import app.fuggs.document.domain.TagSource;
+import app.fuggs.document.repository.DocumentRepository;
+import app.fuggs.shared.domain.Tag;
+import app.fuggs.shared.repository.TagRepository;
+import io.quarkus.narayana.jta.QuarkusTransaction;
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.transaction.Status;
+import jakarta.transaction.Synchronization;
+import jakarta.transaction.TransactionSynchronizationRegistry;
+
+/**
+ * Applies the AI tags the ZugFerd service generates after the extracted data
+ * was returned.
+ * <p>
+ * Once the analysis is committed, a virtual thread long-polls the ZugFerd
+ * service for the tags and adds them to the document in its own transaction.
+ * Tags are only added while the document is unconfirmed and has no tags, so
+ * a user who was faster wins. Pending documents are tracked in memory for the
+ * review page, see {@link #isPending(Long)}.
+ * </p>
+ */
+@ApplicationScoped
+public class AsyncTagService
+{
+	private static final Logger LOG = LoggerFactory.getLogger(AsyncTagService.class);
+
+	@RestClient
+	ZugFerdClient zugFerdClient;
+
+	@Inject
+	DocumentRepository documentRepository;
+
+	@Inject
+	TagRepository tagRepository;
+
+	@Inject
+	TransactionSynchronizationRegistry transactionRegistry;
+
+	@ConfigProperty(name = "fuggs.analysis.async-tags.timeout", defaultValue = "PT2M")
+	Duration timeout;
+
+	@ConfigProperty(name = "fuggs.analysis.async-tags.poll-wait", defaultValue = "PT20S")
+	Duration pollWait;
+
+	private final Set<Long> pendingDocuments = ConcurrentHashMap.newKeySet();
+
+	private final ExecutorService executor = Executors
+		.newThreadPerTaskExecutor(Thread.ofVirtual().name("async-tags-", 0).factory());
+
+	/**
+	 * Fetches the tags of a ZugFerd tag job once the current transaction has
+	 * committed, so the document already carries the extracted data.
+	 *
+	 * @param documentId
+	 *            the analyzed document
+	 * @param jobId
+	 *            the tag job ID returned by the scan
+	 */
+	public void fetchAfterCommit(Long documentId, String jobId)
+	{
+		pendingDocuments.add(documentId);
+		if (transactionRegistry.getTransactionStatus() != Status.STATUS_ACTIVE)
+		{
+			executor.submit(() -> fetch(documentId, jobId));
+			return;
+		}
+
+		transactionRegistry.registerInterposedSynchronization(new Synchronization()
+		{
+			@Override
+			public void beforeCompletion()
+			{
+				// nothing to do
+			}
+
+			@Override
+			public void afterCompletion(int status)
+			{
+				if (status == Status.STATUS_COMMITTED)
+				{
+					executor.submit(() -> fetch(documentId, jobId));
+				}
+				else
+				{
+					pendingDocuments.remove(documentId);
+				}
+			}
+		});
+	}
+
+	/**
+	 * @param documentId
+	 *            the document
+	 * @return whether AI tags for the document are still being generated
+	 */
+	public boolean isPending(Long documentId)
+	{
+		return pendingDocuments.contains(documentId);
+	}
+
+	private void fetch(Long documentId, String jobId)
+	{
+		Instant deadline = Instant.now().plus(timeout);
+		try
+		{
+			while (Instant.now().isBefore(deadline))
+			{
+				TagJobResult result = zugFerdClient.awaitTags(jobId, (int)pollWait.toSeconds());
+				if (result.done())
+				{
+					applyTags(documentId, result.tags());
+					return;
+				}
+			}
+			LOG.warn("Gave up waiting for tags: documentId={}, jobId={}", documentId, jobId);
+		}
+		catch (Exception e)
+		{
+			LOG.warn("Fetching tags failed: documentId={}, jobId={}, error={}", documentId, jobId, e.getMessage());
+		}
+		finally
+		{
+			pendingDocuments.remove(documentId);
+		}
+	}
+
+	private void applyTags(Long documentId, List<String> tagNames)
+	{
+		if (tagNames == null || tagNames.isEmpty())
+		{
+			LOG.info("No tags generated: documentId={}", documentId);
+			return;
+		}
+
+		QuarkusTransaction.requiringNew().run(() -> {
+			Document document = documentRepository.findById(documentId);
+			if (document == null || document.getDocumentStatus() == DocumentStatus.CONFIRMED
+				|| document.hasTags())
+			{
+				LOG.info("Document changed meanwhile, dropping generated tags: documentId={}", documentId);
+				return;
+			}
+			Set<Tag> tags = tagRepository.findOrCreateTags(new HashSet<>(tagNames), document.getOrganization());
+			for (Tag tag : tags)
+			{
+				document.addTag(tag, TagSource.AI);
+			}
+			document.updateSearchText();
+			LOG.info("Applied {} generated tags: documentId={}, tags={}", tags.size(), documentId, tagNames);
+		});
+	}
+
+	@PreDestroy
+	void shutdown()
+	{
+		executor.shutdownNow();
+	}
+}
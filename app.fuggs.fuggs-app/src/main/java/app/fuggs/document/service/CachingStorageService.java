@@ -0,0 +1,101 @@
+package app.fuggs.document.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.Optional;
+import java.util.Set;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import jakarta.annotation.Priority;
+import jakarta.decorator.Decorator;
+import jakarta.decorator.Delegate;
+import jakarta.enterprise.inject.Any;
+import jakarta.inject.Inject;
+
+/**
+ * Read-through cache in front of the configured {@link StorageService}.
+ * <p>
+ * During upload, analysis and review the same file is read several times
+ * (ZugFerd, AI, inline viewer). Downloads are therefore served from the
+ * {@link FileCache} without asking the object store first: keys are
+ * content-addressed, so the content under a key never changes. Backends that
+ * keep files locally are passed through unchanged.
+ * </p>
+ */
+@Decorator
+@Priority(10)
+public abstract class CachingStorageService implements StorageService
+{
+	private static final Logger LOG = LoggerFactory.getLogger(CachingStorageService.class);
+
+	@Inject
+	@Delegate
+	@Any
+	StorageService delegate;
+
+	@Inject
+	FileCache fileCache;
+
+	@Override
+	public InputStream downloadFile(String key)
+	{
+		if (!fileCache.isEnabled() || delegate.findLocalFile(key).isPresent())
+		{
+			return delegate.downloadFile(key);
+		}
+
+		Optional<InputStream> cached = fileCache.open(key);
+		if (cached.isPresent())
+		{
+			return cached.get();
+		}
+
+		try (InputStream content = delegate.downloadFile(key))
+		{
+			return fileCache.store(key, content);
+		}
+		catch (IOException e)
+		{
+			LOG.warn("Failed to cache file, reading from storage: key={}", key, e);
+			return delegate.downloadFile(key);
+		}
+	}
+
+	@Override
+	public void uploadFile(String key, Path filePath, String contentType)
+	{
+		fileCache.evict(key);
+		delegate.uploadFile(key, filePath, contentType);
+	}
+
+	@Override
+	public void uploadFile(String key, byte[] content, String contentType)
+	{
+		fileCache.evict(key);
+		delegate.uploadFile(key, content, contentType);
+	}
+
+	@Override
+	public InputStream downloadFileUncached(String key)
+	{
+		return delegate.downloadFileUncached(key);
+	}
+
+	@Override
+	public void deleteFile(String key)
+	{
+		fileCache.evict(key);
+		delegate.deleteFile(key);
+	}
+
+	@Override
+	public Set<String> deleteFiles(Collection<String> keys)
+	{
+		keys.forEach(fileCache::evict);
+		return delegate.deleteFiles(keys);
+	}
+}
@@ -3,16 +3,20 @@ package app.fuggs.document.service;
 import java.time.LocalTime;
 import java.time.ZoneId;
 import java.util.HashSet;
+import java.util.Optional;
 import java.util.Set;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import app.fuggs.bommel.domain.Bommel;
+import app.fuggs.bommel.repository.BommelRepository;
 import app.fuggs.document.client.DocumentData;
 import app.fuggs.document.client.TradePartyData;
 import app.fuggs.document.domain.Document;
 import app.fuggs.document.domain.TagSource;
 import app.fuggs.document.domain.TradeParty;
+import app.fuggs.document.domain.VendorProfile;
 import app.fuggs.shared.domain.Tag;
 import app.fuggs.shared.repository.TagRepository;
 import jakarta.enterprise.context.ApplicationScoped;
@@ -20,7 +24,9 @@ import jakarta.inject.Inject;
 
 /**
  * Service that applies extracted DocumentData to a Document entity. Handles
- * autofilling fields, mapping trade parties, and applying tags.
+ * autofilling fields, linking the sender to its canonical vendor, applying
+ * tags, and prefilling Bommel and tags learned from the vendor's confirmed
+ * documents.
  */
 @ApplicationScoped
 public class DocumentDataApplier
@@ -30,6 +36,15 @@ public class DocumentDataApplier
 	@Inject
 	TagRepository tagRepository;
 
+	@Inject
+	VendorRegistry vendorRegistry;
+
+	@Inject
+	VendorProfileService vendorProfileService;
+
+	@Inject
+	BommelRepository bommelRepository;
+
 	/**
 	 * Apply extracted document data to a document entity. Only fills fields
 	 * that are currently null or zero.
@@ -59,6 +74,8 @@ public class DocumentDataApplier
 		fieldsUpdated += applySender(document, data);
 		fieldsUpdated += applyDocumentName(document, data);
 		fieldsUpdated += applyTags(document, data, tagSource);
+		fieldsUpdated += applyVendorProfile(document, tagSource);
+		document.updateSearchText();
 
 		LOG.info("Applied document data: documentId={}, fieldsUpdated={}", document.getId(), fieldsUpdated);
 		return fieldsUpdated;
@@ -120,28 +137,20 @@ public class DocumentDataApplier
 			return 0;
 		}
 
-		if (data.merchantAddress() != null)
+		TradePartyData address = data.merchantAddress();
+		if (address == null && data.merchantName() == null)
 		{
-			TradeParty sender = mapTradeParty(data.merchantAddress(), document);
-			if (data.merchantName() != null)
-			{
-				sender.setName(data.merchantName());
-			}
-			document.setSender(sender);
-			LOG.debug("Autofilled sender: {}", sender.getName());
-			return 1;
-		}
-		else if (data.merchantName() != null)
-		{
-			TradeParty sender = new TradeParty();
-			sender.setName(data.merchantName());
-			sender.setOrganization(document.getOrganization());
-			document.setSender(sender);
-			LOG.debug("Autofilled sender name: {}", data.merchantName());
-			return 1;
+			return 0;
 		}
 
-		return 0;
+		String name = data.merchantName() != null ? data.merchantName() : address.name();
+		TradeParty sender = address != null
+			? vendorRegistry.resolve(document.getOrganization(), name, address.street(), address.postalCode(),
+				address.city())
+			: vendorRegistry.resolve(document.getOrganization(), name, null, null, null);
+		document.setSender(sender);
+		LOG.debug("Autofilled sender: {}", sender.getName());
+		return 1;
 	}
 
 	private int applyDocumentName(Document document, DocumentData data)
@@ -182,19 +191,49 @@ public class DocumentDataApplier
 		return 0;
 	}
 
-	private TradeParty mapTradeParty(TradePartyData data, Document document)
+	private int applyVendorProfile(Document document, TagSource tagSource)
 	{
-		if (data == null)
+		TradeParty sender = document.getSender();
+		if (sender == null || sender.id == null || document.getOrganization() == null)
+		{
+			return 0;
+		}
+
+		Long orgId = document.getOrganization().id;
+		Optional<VendorProfile> confidentProfile = vendorProfileService.findProfile(orgId, sender.id)
+			.filter(VendorProfile::confident);
+		if (confidentProfile.isEmpty())
 		{
-			return null;
+			return 0;
 		}
 
-		TradeParty party = new TradeParty();
-		party.setName(data.name());
-		party.setStreet(data.street());
-		party.setZipCode(data.postalCode());
-		party.setCity(data.city());
-		party.setOrganization(document.getOrganization());
-		return party;
+		VendorProfile profile = confidentProfile.get();
+		int fieldsUpdated = 0;
+		if (document.getBommel() == null && profile.bommelId() != null)
+		{
+			Bommel bommel = bommelRepository.findById(profile.bommelId());
+			if (bommel != null && orgId.equals(bommel.getOrganization().id))
+			{
+				document.setBommel(bommel);
+				fieldsUpdated++;
+			}
+		}
+		if (document.getCurrencyCode() == null && profile.currencyCode() != null)
+		{
+			document.setCurrencyCode(profile.currencyCode());
+			fieldsUpdated++;
+		}
+		if (document.getDocumentTags().isEmpty() && !profile.tags().isEmpty())
+		{
+			for (Tag tag : tagRepository.findOrCreateTags(new HashSet<>(profile.tags())))
+			{
+				document.addTag(tag, tagSource);
+			}
+			fieldsUpdated++;
+		}
+
+		LOG.info("Applied vendor profile: documentId={}, vendorId={}, basedOn={} documents, fieldsUpdated={}",
+			document.getId(), sender.id, profile.documents(), fieldsUpdated);
+		return fieldsUpdated;
 	}
 }
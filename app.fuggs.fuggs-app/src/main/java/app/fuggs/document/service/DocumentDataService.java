@@ -11,7 +11,6 @@ import java.util.stream.Collectors;
 
 import app.fuggs.document.domain.Document;
 import app.fuggs.document.domain.TagSource;
-import app.fuggs.document.domain.TradeParty;
 import app.fuggs.shared.domain.Tag;
 import app.fuggs.shared.repository.TagRepository;
 import jakarta.enterprise.context.ApplicationScoped;
@@ -32,6 +31,9 @@ public class DocumentDataService
 	@Inject
 	TagRepository tagRepository;
 
+	@Inject
+	VendorRegistry vendorRegistry;
+
 	/**
 	 * Applies form data directly to a document, bypassing workflow completion.
 	 *
@@ -100,18 +102,8 @@ public class DocumentDataService
 
 		if (hasSenderData)
 		{
-			TradeParty sender = document.getSender();
-			if (sender == null)
-			{
-				sender = new TradeParty();
-				sender.setOrganization(document.getOrganization());
-				document.setSender(sender);
-			}
-
-			sender.setName(senderName);
-			sender.setStreet(senderStreet);
-			sender.setZipCode(senderZipCode);
-			sender.setCity(senderCity);
+			document.setSender(vendorRegistry.resolve(document.getSender(), document.getOrganization(), senderName,
+				senderStreet, senderZipCode, senderCity));
 		}
 	}
 
@@ -129,6 +121,7 @@ public class DocumentDataService
 		{
 			// Clear all manual tags but keep AI tags
 			document.getDocumentTags().removeIf(dt -> dt.getSource() == TagSource.MANUAL);
+			document.updateSearchText();
 			return;
 		}
 
@@ -151,6 +144,8 @@ public class DocumentDataService
 			document.addTag(tag, TagSource.MANUAL);
 		}
 
+		// Also picks up name, sender and amount changes made by the caller
+		document.updateSearchText();
 		LOG.debug("Updated tags for document {}: {}", document.getId(), tagNames);
 	}
 
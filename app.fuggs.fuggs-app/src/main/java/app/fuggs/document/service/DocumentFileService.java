@@ -1,14 +1,20 @@
 package app.fuggs.document.service;
 
 import app.fuggs.document.domain.Document;
+import app.fuggs.document.repository.PendingFileDeletionRepository;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
 import org.jboss.resteasy.reactive.multipart.FileUpload;
 import org.slf4j.Logger;
-import software.amazon.awssdk.core.ResponseInputStream;
-import software.amazon.awssdk.services.s3.model.GetObjectResponse;
 
-import java.util.UUID;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Optional;
 
 import static org.slf4j.LoggerFactory.getLogger;
 
@@ -17,12 +23,27 @@ public class DocumentFileService
 {
 	private static final Logger LOG = getLogger(DocumentFileService.class);
 
+	/**
+	 * Prefix of all document files in storage.
+	 */
+	public static final String KEY_PREFIX = "documents/";
+
 	@Inject
 	StorageService storageService;
 
+	@Inject
+	PendingFileDeletionRepository pendingFileDeletionRepository;
+
 	/**
 	 * Handles file upload for a document: stores file in S3 and updates
 	 * document metadata.
+	 * <p>
+	 * Files are content-addressed per organization
+	 * ({@code documents/<organizationId>/<sha256>}), so identical uploads share
+	 * one object. If the object already exists, the upload is skipped. A
+	 * pending deletion of the same key is cancelled, as the document about to
+	 * be saved references it again.
+	 * </p>
 	 *
 	 * @param document
 	 *            the document to attach the file to
@@ -31,12 +52,20 @@ public class DocumentFileService
 	 */
 	public void handleFileUpload(Document document, FileUpload file)
 	{
-		String fileKey = "documents/" + UUID.randomUUID() + "/" + file.fileName();
-
 		try
 		{
-			storageService.uploadFile(fileKey, file.uploadedFile(), file.contentType());
-			LOG.info("File uploaded to storage: key={}, size={}", fileKey, file.size());
+			String fileKey = buildFileKey(document, file.uploadedFile());
+
+			pendingFileDeletionRepository.cancel(fileKey);
+			if (storageService.fileExists(fileKey))
+			{
+				LOG.info("File content already in storage, skipping upload: key={}, size={}", fileKey, file.size());
+			}
+			else
+			{
+				storageService.uploadFile(fileKey, file.uploadedFile(), file.contentType());
+				LOG.info("File uploaded to storage: key={}, size={}", fileKey, file.size());
+			}
 
 			document.setFileKey(fileKey);
 			document.setFileName(file.fileName());
@@ -51,28 +80,66 @@ public class DocumentFileService
 	}
 
 	/**
-	 * Deletes a file from storage.
+	 * Builds the content-addressed storage key for a file.
 	 *
-	 * @param fileKey
-	 *            the S3 key of the file to delete
+	 * @param document
+	 *            the document the file belongs to (for the organization)
+	 * @param filePath
+	 *            the file to hash
+	 * @return key in the form {@code documents/<organizationId>/<sha256>}
 	 */
-	public void deleteFile(String fileKey)
+	String buildFileKey(Document document, Path filePath) throws IOException
 	{
-		if (fileKey == null || fileKey.isBlank())
+		if (document.getOrganization() == null || document.getOrganization().id == null)
 		{
-			return;
+			throw new IllegalStateException("Document has no organization");
 		}
+		return KEY_PREFIX + document.getOrganization().id + "/" + sha256(filePath);
+	}
 
+	private static String sha256(Path filePath) throws IOException
+	{
+		MessageDigest digest;
 		try
 		{
-			storageService.deleteFile(fileKey);
-			LOG.info("File deleted from storage: key={}", fileKey);
+			digest = MessageDigest.getInstance("SHA-256");
 		}
-		catch (Exception e)
+		catch (NoSuchAlgorithmException e)
+		{
+			throw new IllegalStateException("SHA-256 not available", e);
+		}
+
+		try (InputStream in = Files.newInputStream(filePath))
+		{
+			byte[] buffer = new byte[64 * 1024];
+			int read;
+			while ((read = in.read(buffer)) != -1)
+			{
+				digest.update(buffer, 0, read);
+			}
+		}
+		return HexFormat.of().formatHex(digest.digest());
+	}
+
+	/**
+	 * Schedules a file for deletion from storage. The deletion is recorded in
+	 * the current transaction and carried out in a batch after commit, so a
+	 * rollback keeps the file and the user action does not wait for S3. As
+	 * files are shared between documents with the same content, the object is
+	 * only removed once no document references the key anymore.
+	 *
+	 * @param fileKey
+	 *            the S3 key of the file to delete
+	 */
+	public void deleteFile(String fileKey)
+	{
+		if (fileKey == null || fileKey.isBlank())
 		{
-			LOG.warn("Failed to delete file from storage: key={}", fileKey, e);
-			// Don't fail the operation if file deletion fails
+			return;
 		}
+
+		pendingFileDeletionRepository.enqueue(fileKey);
+		LOG.info("File scheduled for deletion from storage: key={}", fileKey);
 	}
 
 	/**
@@ -80,10 +147,23 @@ public class DocumentFileService
 	 *
 	 * @param fileKey
 	 *            the S3 key of the file
-	 * @return ResponseInputStream of the file content
+	 * @return InputStream of the file content
 	 */
-	public ResponseInputStream<GetObjectResponse> downloadFile(String fileKey)
+	public InputStream downloadFile(String fileKey)
 	{
 		return storageService.downloadFile(fileKey);
 	}
+
+	/**
+	 * Returns the file on the local filesystem if the storage backend keeps
+	 * one, so it can be served without streaming it through the application.
+	 *
+	 * @param fileKey
+	 *            the storage key of the file
+	 * @return the local file, or empty for remote storage
+	 */
+	public Optional<Path> findLocalFile(String fileKey)
+	{
+		return storageService.findLocalFile(fileKey);
+	}
 }
@@ -0,0 +1,279 @@
+package app.fuggs.document.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.quarkus.runtime.configuration.MemorySize;
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+
+/**
+ * Bounded on-disk cache of recently read storage objects.
+ * <p>
+ * Entries are keyed by storage key alone. Document keys are content-addressed
+ * and never overwritten, so a cached copy cannot go stale; keys that are
+ * written or deleted through {@link CachingStorageService} are evicted anyway.
+ * When the total size exceeds
+ * {@code fuggs.storage.cache.max-size}, the least recently used files are
+ * removed. The index is kept in memory only; the cache directory is cleared on
+ * startup.
+ * </p>
+ */
+@ApplicationScoped
+public class FileCache
+{
+	private static final Logger LOG = LoggerFactory.getLogger(FileCache.class);
+
+	@ConfigProperty(name = "fuggs.storage.cache.enabled", defaultValue = "true")
+	boolean enabled;
+
+	@ConfigProperty(name = "fuggs.storage.cache.directory")
+	Optional<Path> configuredDirectory;
+
+	@ConfigProperty(name = "fuggs.storage.cache.max-size", defaultValue = "512M")
+	MemorySize maxSize;
+
+	@Inject
+	MeterRegistry meterRegistry;
+
+	private final Map<String, CachedFile> entries = new LinkedHashMap<>(16, 0.75f, true);
+	private long totalSize;
+	private Path directory;
+	private Counter hits;
+	private Counter misses;
+	private Counter evictions;
+
+	@PostConstruct
+	void init()
+	{
+		hits = meterRegistry.counter("fuggs.storage.cache.requests", "result", "hit");
+		misses = meterRegistry.counter("fuggs.storage.cache.requests", "result", "miss");
+		evictions = meterRegistry.counter("fuggs.storage.cache.evictions");
+		meterRegistry.gauge("fuggs.storage.cache.size", this, FileCache::currentSize);
+
+		if (!enabled)
+		{
+			return;
+		}
+
+		directory = configuredDirectory
+			.orElse(Path.of(System.getProperty("java.io.tmpdir"), "fuggs-file-cache"));
+		try
+		{
+			Files.createDirectories(directory);
+			clearDirectory();
+			LOG.info("File cache initialized: directory={}, maxSize={} bytes", directory, maxSize.asLongValue());
+		}
+		catch (IOException e)
+		{
+			LOG.warn("File cache disabled, directory not usable: directory={}", directory, e);
+			enabled = false;
+		}
+	}
+
+	/**
+	 * Opens a cached file.
+	 *
+	 * @param key
+	 *            the storage key
+	 * @return stream of the cached content, or empty on a cache miss
+	 */
+	public Optional<InputStream> open(String key)
+	{
+		CachedFile cached;
+		synchronized (this)
+		{
+			cached = entries.get(key);
+		}
+
+		if (cached != null)
+		{
+			try
+			{
+				InputStream stream = Files.newInputStream(cached.file());
+				hits.increment();
+				LOG.debug("File cache hit: key={}", key);
+				return Optional.of(stream);
+			}
+			catch (NoSuchFileException e)
+			{
+				synchronized (this)
+				{
+					remove(key);
+				}
+			}
+			catch (IOException e)
+			{
+				LOG.warn("Failed to read cached file: key={}", key, e);
+			}
+		}
+
+		misses.increment();
+		LOG.debug("File cache miss: key={}", key);
+		return Optional.empty();
+	}
+
+	/**
+	 * Copies the content into the cache and returns a stream of the cached
+	 * copy. Evicts least recently used entries if the cache gets too large;
+	 * content larger than the whole cache is streamed from the copy but not
+	 * kept.
+	 *
+	 * @param key
+	 *            the storage key
+	 * @param content
+	 *            the content to cache; read fully but not closed
+	 * @return stream of the cached content
+	 * @throws IOException
+	 *             if the content cannot be written to the cache directory
+	 */
+	public InputStream store(String key, InputStream content) throws IOException
+	{
+		Path file = directory.resolve(fileName(key));
+		Path temp = Files.createTempFile(directory, ".download-", ".tmp");
+		try
+		{
+			long size = Files.copy(content, temp, StandardCopyOption.REPLACE_EXISTING);
+			if (size > maxSize.asLongValue())
+			{
+				// Open files survive deletion, the finally block removes it
+				return Files.newInputStream(temp);
+			}
+			Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+
+			// Open before registering, so a concurrent eviction cannot remove
+			// the file before we read it (open files survive deletion)
+			InputStream stream = Files.newInputStream(file);
+			synchronized (this)
+			{
+				CachedFile previous = entries.put(key, new CachedFile(file, size));
+				if (previous != null)
+				{
+					totalSize -= previous.size();
+					if (!previous.file().equals(file))
+					{
+						deleteQuietly(previous.file());
+					}
+				}
+				totalSize += size;
+				evictIfNeeded();
+			}
+			return stream;
+		}
+		finally
+		{
+			deleteQuietly(temp);
+		}
+	}
+
+	/**
+	 * Removes a file from the cache, e.g. after it was deleted from or
+	 * written to storage.
+	 *
+	 * @param key
+	 *            the storage key
+	 */
+	public synchronized void evict(String key)
+	{
+		remove(key);
+	}
+
+	public boolean isEnabled()
+	{
+		return enabled;
+	}
+
+	synchronized long currentSize()
+	{
+		return totalSize;
+	}
+
+	private void evictIfNeeded()
+	{
+		Iterator<Map.Entry<String, CachedFile>> iterator = entries.entrySet().iterator();
+		while (totalSize > maxSize.asLongValue() && iterator.hasNext())
+		{
+			Map.Entry<String, CachedFile> eldest = iterator.next();
+			iterator.remove();
+			totalSize -= eldest.getValue().size();
+			deleteQuietly(eldest.getValue().file());
+			evictions.increment();
+			LOG.debug("Evicted file from cache: key={}", eldest.getKey());
+		}
+	}
+
+	private void remove(String key)
+	{
+		CachedFile removed = entries.remove(key);
+		if (removed != null)
+		{
+			totalSize -= removed.size();
+			deleteQuietly(removed.file());
+		}
+	}
+
+	private void clearDirectory() throws IOException
+	{
+		List<Path> leftovers;
+		try (Stream<Path> files = Files.list(directory))
+		{
+			leftovers = files.filter(Files::isRegularFile).toList();
+		}
+		leftovers.forEach(FileCache::deleteQuietly);
+		if (!leftovers.isEmpty())
+		{
+			LOG.info("Cleared file cache directory: files={}", leftovers.size());
+		}
+	}
+
+	private static String fileName(String key)
+	{
+		try
+		{
+			MessageDigest digest = MessageDigest.getInstance("SHA-256");
+			digest.update(key.getBytes(StandardCharsets.UTF_8));
+			return HexFormat.of().formatHex(digest.digest());
+		}
+		catch (NoSuchAlgorithmException e)
+		{
+			throw new IllegalStateException("SHA-256 not available", e);
+		}
+	}
+
+	private static void deleteQuietly(Path path)
+	{
+		try
+		{
+			Files.deleteIfExists(path);
+		}
+		catch (IOException e)
+		{
+			LOG.debug("Failed to delete cache file: path={}", path, e);
+		}
+	}
+
+	record CachedFile(Path file, long size)
+	{
+	}
+}
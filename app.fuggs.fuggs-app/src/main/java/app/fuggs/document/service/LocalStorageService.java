@@ -0,0 +1,270 @@
+package app.fuggs.document.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryNotEmptyException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import io.quarkus.arc.properties.IfBuildProperty;
+import jakarta.enterprise.context.ApplicationScoped;
+
+/**
+ * {@link StorageService} that keeps files in a directory on the local
+ * filesystem, for single-node installations without S3.
+ * <p>
+ * The directory tree mirrors the storage keys, so {@code documents/1/abc}
+ * lives at {@code <root>/documents/1/abc}. Writes go to a temporary file in the
+ * target directory first and are moved into place atomically, so readers never
+ * see partial files. Uploads are copied with {@link FileChannel#transferTo},
+ * which lets the kernel move the bytes without copying them through the JVM.
+ * </p>
+ */
+@ApplicationScoped
+@IfBuildProperty(name = "fuggs.storage.type", stringValue = "local")
+public class LocalStorageService implements StorageService
+{
+	private static final Logger LOG = LoggerFactory.getLogger(LocalStorageService.class);
+
+	private static final String TEMP_FILE_PREFIX = ".upload-";
+
+	@ConfigProperty(name = "fuggs.storage.local.root", defaultValue = "data/storage")
+	Path root;
+
+	@Override
+	public void uploadFile(String key, Path filePath, String contentType)
+	{
+		LOG.info("Storing file locally: key={}, contentType={}", key, contentType);
+		LOG.debug("Upload source path: {}", filePath);
+
+		Path target = resolve(key);
+		write(target, temp -> {
+			try (FileChannel source = FileChannel.open(filePath, StandardOpenOption.READ);
+				FileChannel destination = FileChannel.open(temp, StandardOpenOption.WRITE))
+			{
+				long size = source.size();
+				long position = 0;
+				while (position < size)
+				{
+					position += source.transferTo(position, size - position, destination);
+				}
+			}
+		});
+		LOG.info("File stored successfully: key={}", key);
+	}
+
+	@Override
+	public void uploadFile(String key, byte[] content, String contentType)
+	{
+		LOG.info("Storing file locally: key={}, contentType={}, size={} bytes", key, contentType, content.length);
+
+		Path target = resolve(key);
+		write(target, temp -> Files.write(temp, content, StandardOpenOption.WRITE));
+		LOG.info("File stored successfully: key={}", key);
+	}
+
+	@Override
+	public InputStream downloadFile(String key)
+	{
+		LOG.info("Reading local file: key={}", key);
+		try
+		{
+			return Files.newInputStream(resolve(key));
+		}
+		catch (IOException e)
+		{
+			throw new UncheckedIOException("Failed to read file: " + key, e);
+		}
+	}
+
+	@Override
+	public void deleteFile(String key)
+	{
+		LOG.info("Deleting local file: key={}", key);
+		try
+		{
+			delete(resolve(key));
+			LOG.info("File deleted successfully: key={}", key);
+		}
+		catch (IOException e)
+		{
+			throw new UncheckedIOException("Failed to delete file: " + key, e);
+		}
+	}
+
+	@Override
+	public Set<String> deleteFiles(Collection<String> keys)
+	{
+		Set<String> failedKeys = new HashSet<>();
+		for (String key : keys)
+		{
+			try
+			{
+				delete(resolve(key));
+			}
+			catch (IOException | IllegalArgumentException e)
+			{
+				LOG.warn("Failed to delete local file: key={}, message={}", key, e.getMessage());
+				failedKeys.add(key);
+			}
+		}
+
+		LOG.info("Batch delete finished: requested={}, failed={}", keys.size(), failedKeys.size());
+		return failedKeys;
+	}
+
+	@Override
+	public Stream<StoredObject> listFiles(String prefix)
+	{
+		LOG.debug("Listing local files: prefix={}", prefix);
+
+		String directory = prefix.endsWith("/") ? prefix.substring(0, prefix.length() - 1) : prefix;
+		Path start = directory.isEmpty() ? root.toAbsolutePath().normalize() : resolve(directory);
+		if (!Files.isDirectory(start))
+		{
+			return Stream.empty();
+		}
+
+		try
+		{
+			return Files.find(start, Integer.MAX_VALUE,
+				(path, attributes) -> attributes.isRegularFile()
+					&& !path.getFileName().toString().startsWith(TEMP_FILE_PREFIX))
+				.map(this::toStoredObject);
+		}
+		catch (IOException e)
+		{
+			throw new UncheckedIOException("Failed to list files: " + prefix, e);
+		}
+	}
+
+	@Override
+	public boolean fileExists(String key)
+	{
+		LOG.debug("Checking if local file exists: key={}", key);
+		try
+		{
+			return Files.isRegularFile(resolve(key));
+		}
+		catch (IllegalArgumentException e)
+		{
+			return false;
+		}
+	}
+
+	@Override
+	public Optional<Path> findLocalFile(String key)
+	{
+		Path file = resolve(key);
+		return Files.isRegularFile(file) ? Optional.of(file) : Optional.empty();
+	}
+
+	/**
+	 * Maps a key to its path below the root directory and rejects keys that
+	 * would escape it.
+	 */
+	Path resolve(String key)
+	{
+		Path base = root.toAbsolutePath().normalize();
+		Path path = base.resolve(key).normalize();
+		if (key.isBlank() || !path.startsWith(base) || path.equals(base))
+		{
+			throw new IllegalArgumentException("Invalid storage key: " + key);
+		}
+		return path;
+	}
+
+	private void write(Path target, FileWriter writer)
+	{
+		Path temp = null;
+		try
+		{
+			Files.createDirectories(target.getParent());
+			temp = Files.createTempFile(target.getParent(), TEMP_FILE_PREFIX, ".tmp");
+			writer.write(temp);
+			Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+		}
+		catch (IOException e)
+		{
+			throw new UncheckedIOException("Failed to store file: " + target, e);
+		}
+		finally
+		{
+			deleteQuietly(temp);
+		}
+	}
+
+	private void delete(Path file) throws IOException
+	{
+		Files.deleteIfExists(file);
+
+		// Prune directories that became empty, so the tree does not grow with
+		// one empty folder per deleted upload
+		Path base = root.toAbsolutePath().normalize();
+		Path directory = file.getParent();
+		while (directory != null && directory.startsWith(base) && !directory.equals(base))
+		{
+			try
+			{
+				Files.delete(directory);
+			}
+			catch (DirectoryNotEmptyException | NoSuchFileException e)
+			{
+				break;
+			}
+			directory = directory.getParent();
+		}
+	}
+
+	private StoredObject toStoredObject(Path path)
+	{
+		Path base = root.toAbsolutePath().normalize();
+		String key = base.relativize(path).toString().replace(path.getFileSystem().getSeparator(), "/");
+		try
+		{
+			BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+			return new StoredObject(key, attributes.lastModifiedTime().toInstant(), attributes.size());
+		}
+		catch (IOException e)
+		{
+			throw new UncheckedIOException("Failed to read file attributes: " + key, e);
+		}
+	}
+
+	private static void deleteQuietly(Path path)
+	{
+		if (path == null)
+		{
+			return;
+		}
+		try
+		{
+			Files.deleteIfExists(path);
+		}
+		catch (IOException e)
+		{
+			LOG.debug("Failed to delete temporary file: path={}", path, e);
+		}
+	}
+
+	@FunctionalInterface
+	private interface FileWriter
+	{
+		void write(Path temp) throws IOException;
+	}
+}
@@ -0,0 +1,171 @@
+package app.fuggs.document.service;
+
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import io.quarkus.arc.properties.IfBuildProperty;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import software.amazon.awssdk.core.ResponseInputStream;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.Delete;
+import software.amazon.awssdk.services.s3.model.DeleteObjectRequest;
+import software.amazon.awssdk.services.s3.model.DeleteObjectsRequest;
+import software.amazon.awssdk.services.s3.model.DeleteObjectsResponse;
+import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+import software.amazon.awssdk.services.s3.model.GetObjectResponse;
+import software.amazon.awssdk.services.s3.model.ListObjectsV2Request;
+import software.amazon.awssdk.services.s3.model.ObjectIdentifier;
+import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+
+/**
+ * {@link StorageService} backed by an S3 bucket. Used unless
+ * {@code fuggs.storage.type} selects another backend.
+ */
+@ApplicationScoped
+@IfBuildProperty(name = "fuggs.storage.type", stringValue = "s3", enableIfMissing = true)
+public class S3StorageService implements StorageService
+{
+	private static final Logger LOG = LoggerFactory.getLogger(S3StorageService.class);
+
+	@Inject
+	S3Client s3Client;
+
+	@ConfigProperty(name = "bucket.name")
+	String bucketName;
+
+	@Override
+	public void uploadFile(String key, Path filePath, String contentType)
+	{
+		LOG.info("Uploading file to S3: key={}, contentType={}", key, contentType);
+		LOG.debug("Upload source path: {}", filePath);
+
+		PutObjectRequest request = PutObjectRequest.builder()
+			.bucket(bucketName)
+			.key(key)
+			.contentType(contentType)
+			.build();
+
+		s3Client.putObject(request, filePath);
+		LOG.info("File uploaded successfully: key={}", key);
+	}
+
+	@Override
+	public void uploadFile(String key, byte[] content, String contentType)
+	{
+		LOG.info("Uploading file to S3: key={}, contentType={}, size={} bytes", key, contentType, content.length);
+
+		PutObjectRequest request = PutObjectRequest.builder()
+			.bucket(bucketName)
+			.key(key)
+			.contentType(contentType)
+			.build();
+
+		s3Client.putObject(request, RequestBody.fromBytes(content));
+		LOG.info("File uploaded successfully: key={}", key);
+	}
+
+	@Override
+	public ResponseInputStream<GetObjectResponse> downloadFile(String key)
+	{
+		LOG.info("Downloading file from S3: key={}", key);
+
+		GetObjectRequest request = GetObjectRequest.builder()
+			.bucket(bucketName)
+			.key(key)
+			.build();
+
+		ResponseInputStream<GetObjectResponse> response = s3Client.getObject(request);
+		LOG.debug("File download initiated: key={}", key);
+		return response;
+	}
+
+	@Override
+	public void deleteFile(String key)
+	{
+		LOG.info("Deleting file from S3: key={}", key);
+
+		DeleteObjectRequest request = DeleteObjectRequest.builder()
+			.bucket(bucketName)
+			.key(key)
+			.build();
+
+		s3Client.deleteObject(request);
+		LOG.info("File deleted successfully: key={}", key);
+	}
+
+	@Override
+	public Set<String> deleteFiles(Collection<String> keys)
+	{
+		List<String> allKeys = List.copyOf(keys);
+		Set<String> failedKeys = new HashSet<>();
+
+		for (int start = 0; start < allKeys.size(); start += MAX_KEYS_PER_DELETE)
+		{
+			List<ObjectIdentifier> objects = allKeys
+				.subList(start, Math.min(start + MAX_KEYS_PER_DELETE, allKeys.size()))
+				.stream()
+				.map(key -> ObjectIdentifier.builder().key(key).build())
+				.toList();
+
+			LOG.info("Deleting {} files from S3", objects.size());
+
+			DeleteObjectsRequest request = DeleteObjectsRequest.builder()
+				.bucket(bucketName)
+				.delete(Delete.builder().objects(objects).quiet(true).build())
+				.build();
+
+			DeleteObjectsResponse response = s3Client.deleteObjects(request);
+			response.errors().forEach(error -> {
+				LOG.warn("Failed to delete file from S3: key={}, code={}, message={}", error.key(), error.code(),
+					error.message());
+				failedKeys.add(error.key());
+			});
+		}
+
+		LOG.info("Batch delete finished: requested={}, failed={}", allKeys.size(), failedKeys.size());
+		return failedKeys;
+	}
+
+	@Override
+	public Stream<StoredObject> listFiles(String prefix)
+	{
+		LOG.debug("Listing files in S3: prefix={}", prefix);
+
+		ListObjectsV2Request request = ListObjectsV2Request.builder()
+			.bucket(bucketName)
+			.prefix(prefix)
+			.build();
+
+		return s3Client.listObjectsV2Paginator(request)
+			.contents()
+			.stream()
+			.map(object -> new StoredObject(object.key(), object.lastModified(), object.size()));
+	}
+
+	@Override
+	public boolean fileExists(String key)
+	{
+		LOG.debug("Checking if file exists in S3: key={}", key);
+		try
+		{
+			s3Client.headObject(builder -> builder.bucket(bucketName).key(key));
+			LOG.debug("File exists: key={}", key);
+			return true;
+		}
+		catch (Exception e)
+		{
+			LOG.debug("File does not exist: key={}", key);
+			return false;
+		}
+	}
+}
@@ -0,0 +1,281 @@
+package app.fuggs.document.service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import app.fuggs.document.domain.PendingFileDeletion;
+import app.fuggs.document.repository.DocumentRepository;
+import app.fuggs.document.repository.PendingFileDeletionRepository;
+import io.quarkus.scheduler.Scheduled;
+import io.quarkus.scheduler.Scheduled.ConcurrentExecution;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.transaction.Transactional;
+
+/**
+ * Scheduled service that keeps the object store in sync with the database.
+ * <p>
+ * Flushes the file deletion outbox in batches (one DeleteObjects call per up to
+ * 1000 keys), skipping keys that documents still reference, and periodically
+ * reconciles the {@code documents/} prefix against {@code Document.fileKey} to
+ * remove objects that no document references, e.g. after a rolled back upload.
+ * </p>
+ */
+@ApplicationScoped
+public class StorageCleanupService
+{
+	private static final Logger LOG = LoggerFactory.getLogger(StorageCleanupService.class);
+
+	@Inject
+	StorageService storageService;
+
+	@Inject
+	PendingFileDeletionRepository pendingFileDeletionRepository;
+
+	@Inject
+	DocumentRepository documentRepository;
+
+	@ConfigProperty(name = "fuggs.storage.deletion.batch-size", defaultValue = "1000")
+	int batchSize;
+
+	@ConfigProperty(name = "fuggs.storage.deletion.max-attempts", defaultValue = "10")
+	int maxAttempts;
+
+	@ConfigProperty(name = "fuggs.storage.deletion.delay", defaultValue = "PT1M")
+	Duration deletionDelay;
+
+	@ConfigProperty(name = "fuggs.storage.deletion.retry-backoff", defaultValue = "PT1M")
+	Duration retryBackoff;
+
+	@ConfigProperty(name = "fuggs.storage.deletion.max-retry-backoff", defaultValue = "PT1H")
+	Duration maxRetryBackoff;
+
+	@ConfigProperty(name = "fuggs.storage.orphans.min-age", defaultValue = "PT24H")
+	Duration orphanMinAge;
+
+	/**
+	 * Flushes pending deletions. Runs every 30 seconds by default.
+	 */
+	@Scheduled(every = "${fuggs.storage.deletion.flush-interval:30s}", concurrentExecution = ConcurrentExecution.SKIP)
+	void scheduledFlush()
+	{
+		flushPendingDeletions();
+	}
+
+	/**
+	 * Removes orphaned objects. Runs daily at 3:30 AM by default.
+	 */
+	@Scheduled(cron = "${fuggs.storage.orphans.cron:0 30 3 * * ?}", concurrentExecution = ConcurrentExecution.SKIP)
+	void scheduledOrphanCollection()
+	{
+		collectOrphanedFiles();
+		flushPendingDeletions();
+		reportExhaustedDeletions();
+	}
+
+	/**
+	 * Deletes all queued files from storage, batch by batch, until the outbox
+	 * is empty or only contains entries that wait for a retry or exceeded the
+	 * retry limit. Stops early when a whole batch failed, e.g. while the object
+	 * store is down; the failed entries are retried after their backoff.
+	 *
+	 * @return number of files deleted
+	 */
+	public int flushPendingDeletions()
+	{
+		int deleted = 0;
+		FlushResult result;
+		do
+		{
+			result = flushBatch();
+			deleted += result.deleted();
+		}
+		while (result.processed() >= effectiveBatchSize() && result.removed() > 0);
+
+		if (deleted > 0)
+		{
+			LOG.info("Storage deletion flush complete: deleted={}", deleted);
+		}
+		return deleted;
+	}
+
+	/**
+	 * Processes one batch of the outbox in its own transaction.
+	 *
+	 * @return number of outbox entries processed and files deleted
+	 */
+	@Transactional(Transactional.TxType.REQUIRES_NEW)
+	FlushResult flushBatch()
+	{
+		List<PendingFileDeletion> batch = pendingFileDeletionRepository.findBatch(effectiveBatchSize(), maxAttempts,
+			Instant.now().minus(deletionDelay));
+		if (batch.isEmpty())
+		{
+			return new FlushResult(0, 0, 0);
+		}
+
+		// Files are shared by documents with the same content, so only delete
+		// keys that no document references anymore
+		Set<String> referenced = documentRepository.findReferencedFileKeys(
+			batch.stream().map(PendingFileDeletion::getFileKey).toList());
+		List<String> keys = batch.stream()
+			.map(PendingFileDeletion::getFileKey)
+			.filter(key -> !referenced.contains(key))
+			.distinct()
+			.toList();
+		if (!referenced.isEmpty())
+		{
+			LOG.debug("Skipping deletion of files still referenced by documents: count={}", referenced.size());
+		}
+
+		Set<String> failedKeys = Set.of();
+		String error = null;
+		try
+		{
+			if (!keys.isEmpty())
+			{
+				failedKeys = storageService.deleteFiles(keys);
+			}
+		}
+		catch (Exception e)
+		{
+			LOG.warn("Batch delete from storage failed: keys={}", keys.size(), e);
+			failedKeys = Set.copyOf(keys);
+			error = e.getMessage();
+		}
+
+		int removed = 0;
+		int deleted = 0;
+		for (PendingFileDeletion pending : batch)
+		{
+			if (failedKeys.contains(pending.getFileKey()))
+			{
+				pending.recordFailure(error != null ? error : "DeleteObjects reported an error",
+					Instant.now().plus(retryBackoff(pending.getAttempts() + 1)));
+				if (pending.getAttempts() >= maxAttempts)
+				{
+					LOG.error("Giving up deleting file from storage: key={}, attempts={}", pending.getFileKey(),
+						pending.getAttempts());
+				}
+			}
+			else
+			{
+				pendingFileDeletionRepository.delete(pending);
+				removed++;
+				if (!referenced.contains(pending.getFileKey()))
+				{
+					deleted++;
+				}
+			}
+		}
+		return new FlushResult(batch.size(), removed, deleted);
+	}
+
+	/**
+	 * Logs the outbox entries that reached the retry limit; their files stay
+	 * in storage until the entries are reset or removed by hand.
+	 *
+	 * @return number of such entries
+	 */
+	public long reportExhaustedDeletions()
+	{
+		long exhausted = pendingFileDeletionRepository.countExhausted(maxAttempts);
+		if (exhausted > 0)
+		{
+			LOG.error("File deletions exceeded the retry limit and need attention: count={}, maxAttempts={}",
+				exhausted, maxAttempts);
+		}
+		return exhausted;
+	}
+
+	/**
+	 * Doubles the backoff with every failed attempt, up to the maximum.
+	 */
+	Duration retryBackoff(int attempt)
+	{
+		Duration backoff = retryBackoff.multipliedBy(1L << Math.min(Math.max(attempt - 1, 0), 20));
+		return backoff.compareTo(maxRetryBackoff) > 0 ? maxRetryBackoff : backoff;
+	}
+
+	/**
+	 * Lists all document files in storage and queues those for deletion that
+	 * no document references. Objects younger than the configured minimum age
+	 * are skipped, as their upload transaction may not have committed yet.
+	 *
+	 * @return number of orphaned files queued for deletion
+	 */
+	public int collectOrphanedFiles()
+	{
+		LOG.info("Starting orphaned file collection: prefix={}", DocumentFileService.KEY_PREFIX);
+		Instant cutoff = Instant.now().minus(orphanMinAge);
+
+		int checked = 0;
+		int orphaned = 0;
+		List<String> candidates = new ArrayList<>();
+
+		try (Stream<StoredObject> objects = storageService.listFiles(DocumentFileService.KEY_PREFIX))
+		{
+			Iterator<StoredObject> iterator = objects.iterator();
+			while (iterator.hasNext())
+			{
+				StoredObject object = iterator.next();
+				checked++;
+				if (object.lastModified() != null && object.lastModified().isAfter(cutoff))
+				{
+					continue;
+				}
+
+				candidates.add(object.key());
+				if (candidates.size() >= effectiveBatchSize())
+				{
+					orphaned += enqueueUnreferenced(candidates);
+					candidates = new ArrayList<>();
+				}
+			}
+		}
+
+		if (!candidates.isEmpty())
+		{
+			orphaned += enqueueUnreferenced(candidates);
+		}
+
+		LOG.info("Orphaned file collection complete: checked={}, orphaned={}", checked, orphaned);
+		return orphaned;
+	}
+
+	@Transactional(Transactional.TxType.REQUIRES_NEW)
+	int enqueueUnreferenced(List<String> keys)
+	{
+		Set<String> referenced = documentRepository.findReferencedFileKeys(keys);
+
+		int queued = 0;
+		for (String key : keys)
+		{
+			if (!referenced.contains(key))
+			{
+				LOG.debug("Found orphaned file in storage: key={}", key);
+				pendingFileDeletionRepository.enqueue(key);
+				queued++;
+			}
+		}
+		return queued;
+	}
+
+	private int effectiveBatchSize()
+	{
+		return Math.max(1, Math.min(batchSize, StorageService.MAX_KEYS_PER_DELETE));
+	}
+
+	record FlushResult(int processed, int removed, int deleted)
+	{
+	}
+}
@@ -1,101 +1,87 @@
 package app.fuggs.document.service;
 
+import java.io.InputStream;
 import java.nio.file.Path;
-
-import org.eclipse.microprofile.config.inject.ConfigProperty;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
-
-import jakarta.enterprise.context.ApplicationScoped;
-import jakarta.inject.Inject;
-import software.amazon.awssdk.core.ResponseInputStream;
-import software.amazon.awssdk.core.sync.RequestBody;
-import software.amazon.awssdk.services.s3.S3Client;
-import software.amazon.awssdk.services.s3.model.DeleteObjectRequest;
-import software.amazon.awssdk.services.s3.model.GetObjectRequest;
-import software.amazon.awssdk.services.s3.model.GetObjectResponse;
-import software.amazon.awssdk.services.s3.model.PutObjectRequest;
-
-@ApplicationScoped
-public class StorageService
+import java.util.Collection;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * Object storage for uploaded files. The backend is selected at build time
+ * with {@code fuggs.storage.type}: {@code s3} (default) stores files in an S3
+ * bucket, {@code local} stores them on the local filesystem for single-node
+ * installations.
+ */
+public interface StorageService
 {
-	private static final Logger LOG = LoggerFactory.getLogger(StorageService.class);
-
-	@Inject
-	S3Client s3Client;
-
-	@ConfigProperty(name = "bucket.name")
-	String bucketName;
-
-	public void uploadFile(String key, Path filePath, String contentType)
+	/**
+	 * Maximum number of keys S3 accepts in a single DeleteObjects request.
+	 * Callers batching deletions should not exceed it for any backend.
+	 */
+	int MAX_KEYS_PER_DELETE = 1000;
+
+	void uploadFile(String key, Path filePath, String contentType);
+
+	void uploadFile(String key, byte[] content, String contentType);
+
+	/**
+	 * Opens a file for reading. The caller must close the returned stream.
+	 *
+	 * @param key
+	 *            the storage key
+	 * @return stream of the file content
+	 */
+	InputStream downloadFile(String key);
+
+	/**
+	 * Opens a file for reading, bypassing any local cache. Meant for bulk
+	 * reads such as archive exports, which would otherwise evict the files
+	 * under active review. The caller must close the returned stream.
+	 *
+	 * @param key
+	 *            the storage key
+	 * @return stream of the file content
+	 */
+	default InputStream downloadFileUncached(String key)
 	{
-		LOG.info("Uploading file to S3: key={}, contentType={}", key, contentType);
-		LOG.debug("Upload source path: {}", filePath);
-
-		PutObjectRequest request = PutObjectRequest.builder()
-			.bucket(bucketName)
-			.key(key)
-			.contentType(contentType)
-			.build();
-
-		s3Client.putObject(request, filePath);
-		LOG.info("File uploaded successfully: key={}", key);
-	}
-
-	public void uploadFile(String key, byte[] content, String contentType)
-	{
-		LOG.info("Uploading file to S3: key={}, contentType={}, size={} bytes", key, contentType, content.length);
-
-		PutObjectRequest request = PutObjectRequest.builder()
-			.bucket(bucketName)
-			.key(key)
-			.contentType(contentType)
-			.build();
-
-		s3Client.putObject(request, RequestBody.fromBytes(content));
-		LOG.info("File uploaded successfully: key={}", key);
-	}
-
-	public ResponseInputStream<GetObjectResponse> downloadFile(String key)
-	{
-		LOG.info("Downloading file from S3: key={}", key);
-
-		GetObjectRequest request = GetObjectRequest.builder()
-			.bucket(bucketName)
-			.key(key)
-			.build();
-
-		ResponseInputStream<GetObjectResponse> response = s3Client.getObject(request);
-		LOG.debug("File download initiated: key={}", key);
-		return response;
-	}
-
-	public void deleteFile(String key)
-	{
-		LOG.info("Deleting file from S3: key={}", key);
-
-		DeleteObjectRequest request = DeleteObjectRequest.builder()
-			.bucket(bucketName)
-			.key(key)
-			.build();
-
-		s3Client.deleteObject(request);
-		LOG.info("File deleted successfully: key={}", key);
+		return downloadFile(key);
 	}
 
-	public boolean fileExists(String key)
+	void deleteFile(String key);
+
+	/**
+	 * Deletes multiple files, splitting the keys into requests of at most
+	 * {@link #MAX_KEYS_PER_DELETE} keys where the backend needs it.
+	 *
+	 * @param keys
+	 *            the keys to delete
+	 * @return the keys that could not be deleted
+	 */
+	Set<String> deleteFiles(Collection<String> keys);
+
+	/**
+	 * Lists all files below the given prefix. The listing is produced lazily,
+	 * so the returned stream should be closed or fully consumed.
+	 *
+	 * @param prefix
+	 *            the key prefix, e.g. "documents/"
+	 * @return stream of stored objects
+	 */
+	Stream<StoredObject> listFiles(String prefix);
+
+	boolean fileExists(String key);
+
+	/**
+	 * Returns the file on the local filesystem if the backend keeps one, so it
+	 * can be served with sendfile instead of being copied through the JVM.
+	 *
+	 * @param key
+	 *            the storage key
+	 * @return the local file, or empty for remote backends
+	 */
+	default Optional<Path> findLocalFile(String key)
 	{
-		LOG.debug("Checking if file exists in S3: key={}", key);
-		try
-		{
-			s3Client.headObject(builder -> builder.bucket(bucketName).key(key));
-			LOG.debug("File exists: key={}", key);
-			return true;
-		}
-		catch (Exception e)
-		{
-			LOG.debug("File does not exist: key={}", key);
-			return false;
-		}
+		return Optional.empty();
 	}
 }
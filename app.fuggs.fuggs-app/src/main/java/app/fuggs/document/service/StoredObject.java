@@ -0,0 +1,13 @@
+package app.fuggs.document.service;
+
+import java.time.Instant;
+
+/**
+ * Metadata of an object in the document store, as returned by listings.
+ */
+public record StoredObject(
+	String key,
+	Instant lastModified,
+	long size)
+{
+}
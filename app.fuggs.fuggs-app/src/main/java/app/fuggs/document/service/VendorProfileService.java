@@ -0,0 +1,240 @@
+package app.fuggs.document.service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import app.fuggs.document.domain.VendorProfile;
+import app.fuggs.document.domain.VendorStatistic;
+import app.fuggs.document.repository.DocumentRepository;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.transaction.Status;
+import jakarta.transaction.Synchronization;
+import jakarta.transaction.TransactionSynchronizationRegistry;
+
+/**
+ * Learns per organization which Bommel, currency and tags the confirmed
+ * documents of each vendor usually get.
+ * <p>
+ * Profiles are built from four GROUP BY queries over the confirmed documents
+ * and cached per organization. A value becomes part of a profile when at
+ * least {@code fuggs.vendor-profile.min-share} of the vendor's documents have
+ * it; a profile is confident once it is based on
+ * {@code fuggs.vendor-profile.min-documents} documents and has tags. For
+ * confident vendors the extraction services skip AI tag generation, see
+ * {@link #getKnownVendorKeys(Long)}.
+ * </p>
+ */
+@ApplicationScoped
+public class VendorProfileService
+{
+	private static final Logger LOG = LoggerFactory.getLogger(VendorProfileService.class);
+
+	@Inject
+	DocumentRepository documentRepository;
+
+	@Inject
+	TransactionSynchronizationRegistry transactionRegistry;
+
+	@ConfigProperty(name = "fuggs.vendor-profile.min-documents", defaultValue = "3")
+	int minDocuments;
+
+	@ConfigProperty(name = "fuggs.vendor-profile.min-share", defaultValue = "0.8")
+	double minShare;
+
+	@ConfigProperty(name = "fuggs.vendor-profile.max-known-vendors", defaultValue = "50")
+	int maxKnownVendors;
+
+	@ConfigProperty(name = "fuggs.vendor-profile.ttl", defaultValue = "PT15M")
+	Duration ttl;
+
+	private final Map<Long, CachedProfiles> cache = new ConcurrentHashMap<>();
+
+	/**
+	 * Returns the learned profile of a vendor.
+	 *
+	 * @param organizationId
+	 *            the organization of the vendor
+	 * @param vendorId
+	 *            the trade party ID
+	 * @return the profile, or empty if the vendor has no confirmed documents
+	 */
+	public Optional<VendorProfile> findProfile(Long organizationId, Long vendorId)
+	{
+		if (organizationId == null || vendorId == null)
+		{
+			return Optional.empty();
+		}
+		return Optional.ofNullable(profiles(organizationId).profiles().get(vendorId));
+	}
+
+	/**
+	 * Returns the normalized names of the vendors whose documents can be
+	 * tagged from their profile, most frequent first. A name is only included
+	 * if every vendor with that name has a confident profile.
+	 *
+	 * @param organizationId
+	 *            the organization
+	 * @return at most {@code fuggs.vendor-profile.max-known-vendors} names
+	 */
+	public List<String> getKnownVendorKeys(Long organizationId)
+	{
+		if (organizationId == null)
+		{
+			return List.of();
+		}
+		return profiles(organizationId).knownVendorKeys();
+	}
+
+	/**
+	 * Drops the learned profiles of an organization, e.g. after a document was
+	 * confirmed. Inside a transaction they are dropped again after completion,
+	 * so a concurrent reload cannot keep the state before the commit.
+	 *
+	 * @param organizationId
+	 *            the organization whose confirmed documents changed
+	 */
+	public void invalidate(Long organizationId)
+	{
+		if (organizationId == null)
+		{
+			return;
+		}
+		cache.remove(organizationId);
+
+		if (transactionRegistry.getTransactionStatus() == Status.STATUS_ACTIVE)
+		{
+			transactionRegistry.registerInterposedSynchronization(new Synchronization()
+			{
+				@Override
+				public void beforeCompletion()
+				{
+					// nothing to do
+				}
+
+				@Override
+				public void afterCompletion(int status)
+				{
+					cache.remove(organizationId);
+				}
+			});
+		}
+	}
+
+	private CachedProfiles profiles(Long organizationId)
+	{
+		CachedProfiles cached = cache.get(organizationId);
+		if (cached != null && cached.loadedAt().plus(ttl).isAfter(Instant.now()))
+		{
+			return cached;
+		}
+
+		Map<Long, VendorProfile> profiles = buildProfiles(
+			documentRepository.countConfirmedByVendor(organizationId),
+			documentRepository.countConfirmedByVendorAndBommel(organizationId),
+			documentRepository.countConfirmedByVendorAndCurrency(organizationId),
+			documentRepository.countConfirmedByVendorAndTag(organizationId),
+			minDocuments, minShare);
+		List<String> knownVendorKeys = knownVendorKeys(profiles.values(), maxKnownVendors);
+
+		cached = new CachedProfiles(profiles, knownVendorKeys, Instant.now());
+		cache.put(organizationId, cached);
+		LOG.debug("Vendor profiles loaded: organizationId={}, vendors={}, known={}", organizationId,
+			profiles.size(), knownVendorKeys.size());
+		return cached;
+	}
+
+	/**
+	 * Builds the profiles from the per-vendor document counts.
+	 */
+	static Map<Long, VendorProfile> buildProfiles(List<VendorStatistic> totals, List<VendorStatistic> bommels,
+		List<VendorStatistic> currencies, List<VendorStatistic> tags, int minDocuments, double minShare)
+	{
+		Map<Long, List<VendorStatistic>> bommelsByVendor = byVendor(bommels);
+		Map<Long, List<VendorStatistic>> currenciesByVendor = byVendor(currencies);
+		Map<Long, List<VendorStatistic>> tagsByVendor = byVendor(tags);
+
+		Map<Long, VendorProfile> profiles = new HashMap<>();
+		for (VendorStatistic total : totals)
+		{
+			long documents = total.count();
+			List<String> frequentTags = frequentValues(tagsByVendor.get(total.vendorId()), documents, minShare);
+			String bommelId = mostFrequentValue(bommelsByVendor.get(total.vendorId()), documents, minShare);
+
+			profiles.put(total.vendorId(), new VendorProfile(
+				total.vendorId(),
+				total.value(),
+				documents,
+				bommelId != null ? Long.valueOf(bommelId) : null,
+				mostFrequentValue(currenciesByVendor.get(total.vendorId()), documents, minShare),
+				frequentTags,
+				documents >= minDocuments && !frequentTags.isEmpty()));
+		}
+		return profiles;
+	}
+
+	static List<String> knownVendorKeys(Iterable<VendorProfile> profiles, int limit)
+	{
+		Map<String, List<VendorProfile>> byName = new LinkedHashMap<>();
+		for (VendorProfile profile : profiles)
+		{
+			byName.computeIfAbsent(profile.normalizedName(), k -> new ArrayList<>()).add(profile);
+		}
+
+		return byName.entrySet().stream()
+			.filter(entry -> entry.getValue().stream().allMatch(VendorProfile::confident))
+			.sorted(Comparator.comparingLong(
+				(Map.Entry<String, List<VendorProfile>> entry) -> entry.getValue().stream()
+					.mapToLong(VendorProfile::documents)
+					.sum())
+				.reversed()
+				.thenComparing(Map.Entry::getKey))
+			.limit(limit)
+			.map(Map.Entry::getKey)
+			.toList();
+	}
+
+	private static Map<Long, List<VendorStatistic>> byVendor(List<VendorStatistic> statistics)
+	{
+		return statistics.stream().collect(Collectors.groupingBy(VendorStatistic::vendorId));
+	}
+
+	private static String mostFrequentValue(List<VendorStatistic> statistics, long documents, double minShare)
+	{
+		List<String> values = frequentValues(statistics, documents, minShare);
+		return values.isEmpty() ? null : values.getFirst();
+	}
+
+	private static List<String> frequentValues(List<VendorStatistic> statistics, long documents, double minShare)
+	{
+		if (statistics == null || documents == 0)
+		{
+			return List.of();
+		}
+		return statistics.stream()
+			.filter(statistic -> statistic.value() != null)
+			.filter(statistic -> statistic.count() >= minShare * documents)
+			.sorted(Comparator.comparing(VendorStatistic::count).reversed()
+				.thenComparing(VendorStatistic::value))
+			.map(VendorStatistic::value)
+			.toList();
+	}
+
+	private record CachedProfiles(Map<Long, VendorProfile> profiles, List<String> knownVendorKeys,
+		Instant loadedAt)
+	{
+	}
+}
@@ -0,0 +1,377 @@
+package app.fuggs.document.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import app.fuggs.document.domain.TradeParty;
+import app.fuggs.document.domain.VendorKey;
+import app.fuggs.document.repository.TradePartyRepository;
+import app.fuggs.organization.domain.Organization;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.transaction.Status;
+import jakarta.transaction.Synchronization;
+import jakarta.transaction.TransactionSynchronizationRegistry;
+
+/**
+ * Registry of the canonical vendors (trade parties) of each organization.
+ * <p>
+ * Documents and transactions of the same vendor link to one
+ * {@link TradeParty}. Vendors are matched by normalized name and, if known,
+ * zip code, using an in-memory index per organization that is loaded on first
+ * use. Vendors created in a transaction are added to the index after commit;
+ * until then they are only visible to the creating transaction.
+ * </p>
+ */
+@ApplicationScoped
+public class VendorRegistry
+{
+	private static final Logger LOG = LoggerFactory.getLogger(VendorRegistry.class);
+
+	private static final String PENDING_VENDORS = VendorRegistry.class.getName() + ".pending";
+
+	@Inject
+	TradePartyRepository tradePartyRepository;
+
+	@Inject
+	TransactionSynchronizationRegistry transactionRegistry;
+
+	private final Map<Long, Map<String, List<Candidate>>> indexes = new ConcurrentHashMap<>();
+
+	/**
+	 * Returns the canonical vendor for the given name and address, creating
+	 * it if the organization does not know it yet. Address fields missing on
+	 * an existing vendor are filled in. New vendors are not persisted here;
+	 * they are saved together with the document or transaction linking them.
+	 *
+	 * @param organization
+	 *            the organization the vendor belongs to
+	 * @param name
+	 *            the vendor name
+	 * @param street
+	 *            the street, may be null
+	 * @param zipCode
+	 *            the zip code, may be null
+	 * @param city
+	 *            the city, may be null
+	 * @return the matching or a new vendor
+	 */
+	public TradeParty resolve(Organization organization, String name, String street, String zipCode, String city)
+	{
+		String normalizedName = TradeParty.normalizeName(name);
+		if (normalizedName.isEmpty() || organization == null || organization.id == null)
+		{
+			return newVendor(organization, name, street, zipCode, city);
+		}
+
+		Long orgId = organization.id;
+		String normalizedZipCode = TradeParty.normalizeZipCode(zipCode);
+
+		TradeParty pending = select(pendingVendors(orgId, normalizedName),
+			vendor -> TradeParty.normalizeZipCode(vendor.getZipCode()), normalizedZipCode);
+		if (pending != null)
+		{
+			completeAddress(pending, street, zipCode, city);
+			return pending;
+		}
+
+		Candidate candidate = select(index(orgId).getOrDefault(normalizedName, List.of()), Candidate::zipCode,
+			normalizedZipCode);
+		if (candidate != null)
+		{
+			TradeParty vendor = tradePartyRepository.findById(candidate.id());
+			if (vendor != null && orgId.equals(vendor.getOrganization().id))
+			{
+				completeAddress(vendor, street, zipCode, city);
+				LOG.debug("Matched vendor: organizationId={}, vendorId={}", orgId, vendor.id);
+				return vendor;
+			}
+			// Removed outside the application
+			removeFromIndex(orgId, normalizedName, candidate.id());
+		}
+
+		TradeParty vendor = newVendor(organization, name, street, zipCode, city);
+		register(orgId, normalizedName, normalizedZipCode, vendor);
+		LOG.debug("Registered new vendor: organizationId={}, name={}", orgId, name);
+		return vendor;
+	}
+
+	/**
+	 * Resolves the vendor entered in a form for a record currently linked to
+	 * {@code current}. If the normalized name is unchanged and no other record
+	 * links {@code current}, the entry is a correction and is applied to it.
+	 * A vendor shared with other records is never changed here, as that would
+	 * silently rewrite confirmed documents: the record is linked to a vendor
+	 * with exactly the entered data instead, created if there is none. If the
+	 * name changed, the record is relinked to the canonical vendor of the new
+	 * name, leaving {@code current} untouched.
+	 *
+	 * @param current
+	 *            the vendor the record is linked to, may be null
+	 * @param organization
+	 *            the organization of the record
+	 * @param name
+	 *            the entered vendor name
+	 * @param street
+	 *            the entered street
+	 * @param zipCode
+	 *            the entered zip code
+	 * @param city
+	 *            the entered city
+	 * @return the vendor to link
+	 */
+	public TradeParty resolve(TradeParty current, Organization organization, String name, String street,
+		String zipCode, String city)
+	{
+		String normalizedName = TradeParty.normalizeName(name);
+		if (current == null || normalizedName.isEmpty()
+			|| !normalizedName.equals(TradeParty.normalizeName(current.getName())))
+		{
+			return resolve(organization, name, street, zipCode, city);
+		}
+
+		if (hasData(current, name, street, zipCode, city))
+		{
+			return current;
+		}
+		if (current.id != null && tradePartyRepository.countReferences(current.id) > 1)
+		{
+			return resolveExact(organization, normalizedName, name, street, zipCode, city);
+		}
+
+		boolean zipCodeChanged = !Objects.equals(TradeParty.normalizeZipCode(current.getZipCode()),
+			TradeParty.normalizeZipCode(zipCode));
+		current.setName(name);
+		current.setStreet(street);
+		current.setZipCode(zipCode);
+		current.setCity(city);
+		if (zipCodeChanged && current.getOrganization() != null)
+		{
+			// The index still holds the old zip code, reload it on next use
+			indexes.remove(current.getOrganization().id);
+		}
+		return current;
+	}
+
+	/**
+	 * Returns the vendor of the organization with exactly the given data, or
+	 * registers a new one.
+	 */
+	private TradeParty resolveExact(Organization organization, String normalizedName, String name, String street,
+		String zipCode, String city)
+	{
+		if (organization == null || organization.id == null)
+		{
+			return newVendor(organization, name, street, zipCode, city);
+		}
+
+		Long orgId = organization.id;
+		for (TradeParty pending : pendingVendors(orgId, normalizedName))
+		{
+			if (hasData(pending, name, street, zipCode, city))
+			{
+				return pending;
+			}
+		}
+		for (Candidate candidate : index(orgId).getOrDefault(normalizedName, List.of()))
+		{
+			TradeParty vendor = tradePartyRepository.findById(candidate.id());
+			if (vendor != null && orgId.equals(vendor.getOrganization().id)
+				&& hasData(vendor, name, street, zipCode, city))
+			{
+				return vendor;
+			}
+		}
+
+		TradeParty vendor = newVendor(organization, name, street, zipCode, city);
+		register(orgId, normalizedName, TradeParty.normalizeZipCode(zipCode), vendor);
+		LOG.debug("Registered vendor variant: organizationId={}, name={}", orgId, name);
+		return vendor;
+	}
+
+	private Map<String, List<Candidate>> index(Long orgId)
+	{
+		Map<String, List<Candidate>> index = indexes.get(orgId);
+		if (index != null)
+		{
+			return index;
+		}
+
+		Map<String, List<Candidate>> loaded = new ConcurrentHashMap<>();
+		for (VendorKey key : tradePartyRepository.findVendorKeys(orgId))
+		{
+			Candidate candidate = new Candidate(key.id(), TradeParty.normalizeZipCode(key.zipCode()));
+			loaded.merge(key.normalizedName(), List.of(candidate), VendorRegistry::concat);
+		}
+		LOG.debug("Vendor index loaded: organizationId={}, names={}", orgId, loaded.size());
+
+		Map<String, List<Candidate>> previous = indexes.putIfAbsent(orgId, loaded);
+		return previous != null ? previous : loaded;
+	}
+
+	private void register(Long orgId, String normalizedName, String normalizedZipCode, TradeParty vendor)
+	{
+		if (transactionRegistry.getTransactionStatus() != Status.STATUS_ACTIVE)
+		{
+			return;
+		}
+
+		pendingVendors().add(vendor);
+		transactionRegistry.registerInterposedSynchronization(new Synchronization()
+		{
+			@Override
+			public void beforeCompletion()
+			{
+				// nothing to do
+			}
+
+			@Override
+			public void afterCompletion(int status)
+			{
+				// Only committed vendors have a row the index can point to
+				if (status == Status.STATUS_COMMITTED && vendor.id != null)
+				{
+					Map<String, List<Candidate>> index = indexes.get(orgId);
+					if (index != null)
+					{
+						index.merge(normalizedName, List.of(new Candidate(vendor.id, normalizedZipCode)),
+							VendorRegistry::concat);
+					}
+				}
+			}
+		});
+	}
+
+	private void removeFromIndex(Long orgId, String normalizedName, Long id)
+	{
+		Map<String, List<Candidate>> index = indexes.get(orgId);
+		if (index != null)
+		{
+			index.computeIfPresent(normalizedName, (key, candidates) -> {
+				List<Candidate> remaining = candidates.stream().filter(c -> !c.id().equals(id)).toList();
+				return remaining.isEmpty() ? null : remaining;
+			});
+		}
+	}
+
+	private List<TradeParty> pendingVendors(Long orgId, String normalizedName)
+	{
+		if (transactionRegistry.getTransactionStatus() != Status.STATUS_ACTIVE)
+		{
+			return List.of();
+		}
+		return pendingVendors().stream()
+			.filter(vendor -> orgId.equals(vendor.getOrganization().id))
+			.filter(vendor -> normalizedName.equals(TradeParty.normalizeName(vendor.getName())))
+			.toList();
+	}
+
+	@SuppressWarnings("unchecked")
+	private List<TradeParty> pendingVendors()
+	{
+		List<TradeParty> pending = (List<TradeParty>)transactionRegistry.getResource(PENDING_VENDORS);
+		if (pending == null)
+		{
+			pending = new ArrayList<>();
+			transactionRegistry.putResource(PENDING_VENDORS, pending);
+		}
+		return pending;
+	}
+
+	/**
+	 * Picks the candidate with the same zip code, falling back to one without
+	 * zip code. Without a zip code to compare, the oldest candidate wins.
+	 */
+	static <T> T select(List<T> candidates, Function<T, String> zipCodeOf, String zipCode)
+	{
+		if (candidates.isEmpty())
+		{
+			return null;
+		}
+		if (zipCode == null)
+		{
+			return candidates.get(0);
+		}
+		for (T candidate : candidates)
+		{
+			if (zipCode.equals(zipCodeOf.apply(candidate)))
+			{
+				return candidate;
+			}
+		}
+		for (T candidate : candidates)
+		{
+			if (zipCodeOf.apply(candidate) == null)
+			{
+				return candidate;
+			}
+		}
+		return null;
+	}
+
+	private static void completeAddress(TradeParty vendor, String street, String zipCode, String city)
+	{
+		if (isBlank(vendor.getStreet()) && !isBlank(street))
+		{
+			vendor.setStreet(street);
+		}
+		if (isBlank(vendor.getZipCode()) && !isBlank(zipCode))
+		{
+			vendor.setZipCode(zipCode);
+		}
+		if (isBlank(vendor.getCity()) && !isBlank(city))
+		{
+			vendor.setCity(city);
+		}
+	}
+
+	private static TradeParty newVendor(Organization organization, String name, String street, String zipCode,
+		String city)
+	{
+		TradeParty vendor = new TradeParty();
+		vendor.setOrganization(organization);
+		vendor.setName(name);
+		vendor.setStreet(street);
+		vendor.setZipCode(zipCode);
+		vendor.setCity(city);
+		return vendor;
+	}
+
+	private static boolean hasData(TradeParty vendor, String name, String street, String zipCode, String city)
+	{
+		return sameValue(vendor.getName(), name)
+			&& sameValue(vendor.getStreet(), street)
+			&& sameValue(vendor.getZipCode(), zipCode)
+			&& sameValue(vendor.getCity(), city);
+	}
+
+	/**
+	 * Compares form values, treating blank and missing as equal.
+	 */
+	private static boolean sameValue(String stored, String entered)
+	{
+		return Objects.equals(isBlank(stored) ? null : stored.strip(), isBlank(entered) ? null : entered.strip());
+	}
+
+	private static boolean isBlank(String value)
+	{
+		return value == null || value.isBlank();
+	}
+
+	private static List<Candidate> concat(List<Candidate> first, List<Candidate> second)
+	{
+		return Stream.concat(first.stream(), second.stream()).toList();
+	}
+
+	private record Candidate(Long id, String zipCode)
+	{
+	}
+}
@@ -0,0 +1,219 @@
+package app.fuggs.export.api;
+
+import app.fuggs.bommel.domain.BommelOption;
+import app.fuggs.bommel.service.BommelPickerService;
+import app.fuggs.export.domain.ArchiveJob;
+import app.fuggs.export.domain.ExportFilter;
+import app.fuggs.export.domain.ExportFormat;
+import app.fuggs.export.domain.ExportSource;
+import app.fuggs.export.service.ExportService;
+import app.fuggs.export.service.ReceiptArchiveService;
+import app.fuggs.shared.security.OrganizationContext;
+import app.fuggs.shared.util.FlashKeys;
+import io.quarkiverse.renarde.Controller;
+import io.quarkus.qute.CheckedTemplate;
+import io.quarkus.qute.TemplateInstance;
+import io.quarkus.security.Authenticated;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.GET;
+import jakarta.ws.rs.Path;
+import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.core.StreamingOutput;
+import org.jboss.resteasy.reactive.RestQuery;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Downloads of transactions and documents as CSV or DATEV file, and of the
+ * receipt files of a period as ZIP archive. Both are streamed straight into
+ * the response.
+ */
+@Authenticated
+@Path("/export")
+public class ExportResource extends Controller
+{
+	@Inject
+	ExportService exportService;
+
+	@Inject
+	ReceiptArchiveService receiptArchiveService;
+
+	@Inject
+	BommelPickerService bommelPickerService;
+
+	@Inject
+	OrganizationContext organizationContext;
+
+	@CheckedTemplate
+	public static class Templates
+	{
+		private Templates()
+		{
+			// static
+		}
+
+		public static native TemplateInstance index(List<BommelOption> bommels);
+
+		public static native TemplateInstance archive(ArchiveJob job);
+	}
+
+	@GET
+	@Path("")
+	public TemplateInstance index()
+	{
+		return Templates.index(bommelPickerService.getOptions());
+	}
+
+	@GET
+	@Path("/transaktionen")
+	public Response transactions(@RestQuery String format, @RestQuery String from, @RestQuery String to,
+		@RestQuery Long bommelId, @RestQuery String tag)
+	{
+		return export(ExportSource.TRANSACTIONS, format, from, to, bommelId, tag);
+	}
+
+	@GET
+	@Path("/belege")
+	public Response documents(@RestQuery String format, @RestQuery String from, @RestQuery String to,
+		@RestQuery Long bommelId, @RestQuery String tag)
+	{
+		return export(ExportSource.DOCUMENTS, format, from, to, bommelId, tag);
+	}
+
+	/**
+	 * Prepares a ZIP archive of the receipt files matching the filter. The
+	 * page starts the download and shows its progress.
+	 */
+	@GET
+	@Path("/archiv")
+	public TemplateInstance archive(@RestQuery String from, @RestQuery String to, @RestQuery Long bommelId,
+		@RestQuery String tag)
+	{
+		Long orgId = organizationContext.getCurrentOrganizationId();
+		if (orgId == null)
+		{
+			redirect(ExportResource.class).index();
+			return null;
+		}
+
+		ExportFilter filter;
+		try
+		{
+			filter = ExportFilter.of(from, to, bommelId, tag);
+		}
+		catch (IllegalArgumentException e)
+		{
+			flash(FlashKeys.ERROR, e.getMessage());
+			redirect(ExportResource.class).index();
+			return null;
+		}
+		return Templates.archive(receiptArchiveService.createJob(orgId, filter));
+	}
+
+	/**
+	 * Downloads one part of the archive as a complete ZIP. An interrupted part
+	 * is downloaded again from its start.
+	 */
+	@GET
+	@Path("/archiv/{jobId}/download")
+	public Response downloadArchive(String jobId, @RestQuery Integer part)
+	{
+		Optional<ArchiveJob> found = receiptArchiveService.findJob(organizationContext.getCurrentOrganizationId(),
+			jobId);
+		if (found.isEmpty())
+		{
+			return Response.status(Response.Status.NOT_FOUND).build();
+		}
+		ArchiveJob job = found.get();
+		int number = part != null ? part : 1;
+		if (number < 1 || number > job.getParts())
+		{
+			return Response.status(Response.Status.NOT_FOUND).build();
+		}
+		if (!job.start(number))
+		{
+			return Response.status(Response.Status.CONFLICT).entity("Der Export läuft bereits").build();
+		}
+
+		String fileName = fileName("belege", job.getFilter())
+			+ (job.getParts() > 1 ? "_teil" + number : "") + ".zip";
+		StreamingOutput body = output -> receiptArchiveService.write(job, output);
+		return Response.ok(body)
+			.type("application/zip")
+			.header("Content-Disposition", "attachment; filename=\"" + fileName + "\"")
+			.build();
+	}
+
+	@GET
+	@Path("/archiv/{jobId}/status")
+	@Produces(MediaType.APPLICATION_JSON)
+	public Response archiveStatus(String jobId)
+	{
+		return receiptArchiveService.findJob(organizationContext.getCurrentOrganizationId(), jobId)
+			.map(ArchiveJob::getProgress)
+			.map(progress -> Response.ok(progress).build())
+			.orElseGet(() -> Response.status(Response.Status.NOT_FOUND).build());
+	}
+
+	private Response export(ExportSource source, String format, String from, String to, Long bommelId,
+		String tag)
+	{
+		// Resolved before streaming, the request context is gone once the
+		// body is written
+		Long orgId = organizationContext.getCurrentOrganizationId();
+		if (orgId == null)
+		{
+			return Response.status(Response.Status.FORBIDDEN).build();
+		}
+
+		ExportFormat exportFormat;
+		ExportFilter filter;
+		try
+		{
+			exportFormat = ExportFormat.fromParameter(format);
+			filter = ExportFilter.of(from, to, bommelId, tag);
+			if (exportFormat == ExportFormat.DATEV)
+			{
+				filter = filter.withinOneYear(LocalDate.now());
+			}
+		}
+		catch (IllegalArgumentException e)
+		{
+			flash(FlashKeys.ERROR, e.getMessage());
+			redirect(ExportResource.class).index();
+			return null;
+		}
+
+		ExportFilter exportFilter = filter;
+		StreamingOutput body = output -> exportService.export(source, orgId, exportFilter, exportFormat, output);
+		return Response.ok(body)
+			.type(exportFormat.getMediaType())
+			.header("Content-Disposition", "attachment; filename=\"" + fileName(source, exportFormat, filter) + "\"")
+			.build();
+	}
+
+	private static String fileName(ExportSource source, ExportFormat format, ExportFilter filter)
+	{
+		// DATEV only offers files starting with EXTF_ for import
+		String prefix = format == ExportFormat.DATEV ? "EXTF_" : "";
+		return prefix + fileName(source.getFileName(), filter) + ".csv";
+	}
+
+	private static String fileName(String name, ExportFilter filter)
+	{
+		StringBuilder fileName = new StringBuilder(name);
+		if (filter.from() != null)
+		{
+			fileName.append('_').append(filter.from());
+		}
+		if (filter.to() != null)
+		{
+			fileName.append('_').append(filter.to());
+		}
+		return fileName.toString();
+	}
+}
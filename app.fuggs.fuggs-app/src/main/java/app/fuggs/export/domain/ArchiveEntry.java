@@ -0,0 +1,57 @@
+package app.fuggs.export.domain;
+
+import java.math.BigDecimal;
+import java.text.Normalizer;
+import java.time.Instant;
+import java.time.ZoneId;
+
+/**
+ * A document with a stored file, as written to a receipt archive.
+ *
+ * @param id
+ *            the document ID
+ * @param time
+ *            the transaction time, may be null
+ * @param name
+ *            the document name, may be null
+ * @param total
+ *            the total amount, may be null
+ * @param currencyCode
+ *            the ISO currency code, may be null
+ * @param sender
+ *            the vendor name, may be null
+ * @param bommel
+ *            the Bommel title, may be null
+ * @param tags
+ *            the tag names, comma-separated, may be null
+ * @param fileKey
+ *            the storage key of the file
+ * @param fileName
+ *            the original file name, may be null
+ */
+public record ArchiveEntry(Long id, Instant time, String name, BigDecimal total, String currencyCode,
+	String sender, String bommel, String tags, String fileKey, String fileName)
+{
+	private static final int MAX_FILE_NAME_LENGTH = 80;
+
+	/**
+	 * Returns the path of the file inside the archive, e.g.
+	 * {@code belege/2025-03-14_4711_Rechnung.pdf}. The document ID keeps names
+	 * unique; the original name is reduced to characters every unzip tool
+	 * accepts.
+	 */
+	public String getEntryName()
+	{
+		String date = time != null ? time.atZone(ZoneId.systemDefault()).toLocalDate().toString() : "ohne-datum";
+		String original = fileName != null && !fileName.isBlank() ? fileName : "beleg";
+		String safe = Normalizer.normalize(original, Normalizer.Form.NFC)
+			.replaceAll("[^\\p{L}\\p{N}._-]+", "_");
+		if (safe.length() > MAX_FILE_NAME_LENGTH)
+		{
+			int extension = safe.lastIndexOf('.');
+			String suffix = extension > 0 && safe.length() - extension <= 6 ? safe.substring(extension) : "";
+			safe = safe.substring(0, MAX_FILE_NAME_LENGTH - suffix.length()) + suffix;
+		}
+		return "belege/" + date + "_" + id + "_" + safe;
+	}
+}
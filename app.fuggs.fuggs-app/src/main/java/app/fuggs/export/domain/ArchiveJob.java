@@ -0,0 +1,229 @@
+package app.fuggs.export.domain;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A receipt archive export of one organization.
+ * <p>
+ * Documents are archived in ID order and split into parts of a fixed number
+ * of documents, each downloaded as a complete ZIP of its own. The server
+ * cannot tell how much of a download reached the client, so a part only
+ * counts once its ZIP was written to the end; an interrupted part is
+ * downloaded again from its start.
+ * </p>
+ */
+public class ArchiveJob
+{
+	public enum Status
+	{
+		READY,
+		RUNNING,
+		INTERRUPTED,
+		COMPLETED
+	}
+
+	private final String id = UUID.randomUUID().toString();
+	private final Long organizationId;
+	private final ExportFilter filter;
+	private final long total;
+	private final List<Long> partEnds;
+	private final Instant createdAt = Instant.now();
+
+	private final AtomicLong written = new AtomicLong();
+	private final AtomicLong bytes = new AtomicLong();
+	private final Set<Long> missing = ConcurrentHashMap.newKeySet();
+	private final Set<Integer> finishedParts = ConcurrentHashMap.newKeySet();
+
+	private volatile Status status = Status.READY;
+	private volatile long checkpoint;
+	private volatile int part;
+	private volatile String error;
+
+	private long finishedWritten;
+	private long finishedBytes;
+	private long finishedMissing;
+
+	/**
+	 * @param partEnds
+	 *            the ID of the last document of each part, in order; the last
+	 *            part should end at {@link Long#MAX_VALUE} so it also takes
+	 *            documents added later
+	 */
+	public ArchiveJob(Long organizationId, ExportFilter filter, long total, List<Long> partEnds)
+	{
+		if (partEnds.isEmpty())
+		{
+			throw new IllegalArgumentException("An archive has at least one part");
+		}
+		this.organizationId = organizationId;
+		this.filter = filter;
+		this.total = total;
+		this.partEnds = List.copyOf(partEnds);
+	}
+
+	/**
+	 * Starts the download of a part. A part that was interrupted or already
+	 * downloaded is written again from its start.
+	 *
+	 * @param part
+	 *            the part number, starting at 1
+	 * @return false if a download of this job is already running
+	 */
+	public synchronized boolean start(int part)
+	{
+		if (part < 1 || part > partEnds.size())
+		{
+			throw new IllegalArgumentException("Unknown archive part: " + part);
+		}
+		if (status == Status.RUNNING)
+		{
+			return false;
+		}
+		this.part = part;
+		checkpoint = getPartStart();
+		written.set(0);
+		bytes.set(0);
+		missing.clear();
+		error = null;
+		status = Status.RUNNING;
+		return true;
+	}
+
+	/**
+	 * Records a document written to the current part.
+	 */
+	public void entryWritten(long documentId, long size, boolean fileMissing)
+	{
+		if (fileMissing)
+		{
+			missing.add(documentId);
+		}
+		bytes.addAndGet(size);
+		written.incrementAndGet();
+		checkpoint = documentId;
+	}
+
+	/**
+	 * Marks the current part as finished; its ZIP was written completely.
+	 */
+	public synchronized void complete()
+	{
+		if (finishedParts.add(part))
+		{
+			finishedWritten += written.get();
+			finishedBytes += bytes.get();
+			finishedMissing += missing.size();
+		}
+		status = finishedParts.size() == partEnds.size() ? Status.COMPLETED : Status.READY;
+	}
+
+	/**
+	 * Stops the current part. Nothing of it counts, the part has to be
+	 * downloaded again.
+	 */
+	public synchronized void interrupt(String reason)
+	{
+		error = reason;
+		status = Status.INTERRUPTED;
+	}
+
+	public synchronized ArchiveProgress getProgress()
+	{
+		long currentWritten = 0;
+		long currentBytes = 0;
+		long currentMissing = 0;
+		if (status == Status.RUNNING && !finishedParts.contains(part))
+		{
+			currentWritten = written.get();
+			currentBytes = bytes.get();
+			currentMissing = missing.size();
+		}
+		return new ArchiveProgress(status.name(), total, finishedWritten + currentWritten,
+			finishedMissing + currentMissing, finishedBytes + currentBytes, part, partEnds.size(),
+			finishedParts.size(), error);
+	}
+
+	public boolean isMissing(Long documentId)
+	{
+		return missing.contains(documentId);
+	}
+
+	public boolean isFinished(int part)
+	{
+		return finishedParts.contains(part);
+	}
+
+	public String getId()
+	{
+		return id;
+	}
+
+	public Long getOrganizationId()
+	{
+		return organizationId;
+	}
+
+	public ExportFilter getFilter()
+	{
+		return filter;
+	}
+
+	public long getTotal()
+	{
+		return total;
+	}
+
+	public Instant getCreatedAt()
+	{
+		return createdAt;
+	}
+
+	public Status getStatus()
+	{
+		return status;
+	}
+
+	/**
+	 * Returns the ID of the last document written in the current download;
+	 * the part start before the first one.
+	 */
+	public long getCheckpoint()
+	{
+		return checkpoint;
+	}
+
+	/**
+	 * Returns the document ID the current part starts after.
+	 */
+	public long getPartStart()
+	{
+		return part > 1 ? partEnds.get(part - 2) : 0;
+	}
+
+	/**
+	 * Returns the ID of the last document of the current part.
+	 */
+	public long getPartEnd()
+	{
+		return partEnds.get(part - 1);
+	}
+
+	/**
+	 * Returns the number of the current or last downloaded part; 0 before the
+	 * first download.
+	 */
+	public int getPart()
+	{
+		return part;
+	}
+
+	public int getParts()
+	{
+		return partEnds.size();
+	}
+}
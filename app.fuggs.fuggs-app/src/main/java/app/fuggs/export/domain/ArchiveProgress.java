@@ -0,0 +1,29 @@
+package app.fuggs.export.domain;
+
+/**
+ * Progress of a receipt archive, polled by the export page.
+ *
+ * @param status
+ *            the job status
+ * @param total
+ *            documents in the archive
+ * @param written
+ *            documents written so far, over the finished parts and the
+ *            running one
+ * @param missing
+ *            documents whose file could not be read
+ * @param bytes
+ *            file bytes written so far
+ * @param part
+ *            the number of the current or last downloaded part
+ * @param parts
+ *            the number of parts of the archive
+ * @param finishedParts
+ *            the number of parts downloaded completely
+ * @param error
+ *            why the last download stopped, if it was interrupted
+ */
+public record ArchiveProgress(String status, long total, long written, long missing, long bytes, int part,
+	int parts, int finishedParts, String error)
+{
+}
@@ -0,0 +1,75 @@
+package app.fuggs.export.domain;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+
+/**
+ * Filter of an export. All fields are optional; the date range is inclusive.
+ *
+ * @param from
+ *            first day to export
+ * @param to
+ *            last day to export
+ * @param bommelId
+ *            only rows assigned to this Bommel
+ * @param tag
+ *            only rows with this tag (case-insensitive)
+ */
+public record ExportFilter(LocalDate from, LocalDate to, Long bommelId, String tag)
+{
+	/**
+	 * Creates a filter from request parameters. Blank values are ignored.
+	 *
+	 * @throws IllegalArgumentException
+	 *             if a date is not an ISO date or the range is reversed
+	 */
+	public static ExportFilter of(String from, String to, Long bommelId, String tag)
+	{
+		LocalDate fromDate = parseDate(from);
+		LocalDate toDate = parseDate(to);
+		if (fromDate != null && toDate != null && toDate.isBefore(fromDate))
+		{
+			throw new IllegalArgumentException("Das Enddatum liegt vor dem Startdatum");
+		}
+		return new ExportFilter(fromDate, toDate, bommelId, tag == null || tag.isBlank() ? null : tag.trim());
+	}
+
+	/**
+	 * Limits the filter to one calendar year, as a DATEV Buchungsstapel covers
+	 * a single fiscal year. Missing dates are set to the start or end of the
+	 * year of the other date, or of {@code today} if neither is given.
+	 *
+	 * @param today
+	 *            the current date
+	 * @return the filter with both dates set
+	 * @throws IllegalArgumentException
+	 *             if the range spans more than one year
+	 */
+	public ExportFilter withinOneYear(LocalDate today)
+	{
+		int year = from != null ? from.getYear() : to != null ? to.getYear() : today.getYear();
+		LocalDate first = from != null ? from : LocalDate.of(year, 1, 1);
+		LocalDate last = to != null ? to : LocalDate.of(year, 12, 31);
+		if (first.getYear() != last.getYear())
+		{
+			throw new IllegalArgumentException("Der DATEV-Export muss innerhalb eines Kalenderjahres liegen");
+		}
+		return new ExportFilter(first, last, bommelId, tag);
+	}
+
+	private static LocalDate parseDate(String value)
+	{
+		if (value == null || value.isBlank())
+		{
+			return null;
+		}
+		try
+		{
+			return LocalDate.parse(value.trim());
+		}
+		catch (DateTimeParseException e)
+		{
+			throw new IllegalArgumentException("Ungültiges Datum: " + value, e);
+		}
+	}
+}
@@ -0,0 +1,62 @@
+package app.fuggs.export.domain;
+
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+
+/**
+ * File formats of the transaction and document exports.
+ */
+public enum ExportFormat
+{
+	/**
+	 * Semicolon-separated UTF-8 with decimal commas, opens directly in a German
+	 * spreadsheet.
+	 */
+	CSV(StandardCharsets.UTF_8),
+
+	/**
+	 * DATEV format "Buchungsstapel" for the import at the tax consultant.
+	 * DATEV expects Windows-1252.
+	 */
+	DATEV(Charset.forName("windows-1252"));
+
+	private final Charset charset;
+
+	ExportFormat(Charset charset)
+	{
+		this.charset = charset;
+	}
+
+	public Charset getCharset()
+	{
+		return charset;
+	}
+
+	public String getMediaType()
+	{
+		return "text/csv; charset=" + charset.name();
+	}
+
+	/**
+	 * Parses the {@code format} request parameter, defaulting to CSV.
+	 *
+	 * @throws IllegalArgumentException
+	 *             for unknown formats
+	 */
+	public static ExportFormat fromParameter(String value)
+	{
+		if (value == null || value.isBlank())
+		{
+			return CSV;
+		}
+		try
+		{
+			return valueOf(value.trim().toUpperCase(Locale.ROOT));
+		}
+		catch (IllegalArgumentException e)
+		{
+			throw new IllegalArgumentException("Unbekanntes Exportformat: " + value, e);
+		}
+	}
+}
@@ -0,0 +1,36 @@
+package app.fuggs.export.domain;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+/**
+ * One exported transaction or document, read from the export cursor.
+ *
+ * @param id
+ *            the transaction or document ID
+ * @param documentId
+ *            the document the row is based on: the linked document of a
+ *            transaction or the document itself, may be null
+ * @param time
+ *            the transaction time, may be null
+ * @param name
+ *            the name, may be null
+ * @param total
+ *            the total amount, may be null
+ * @param totalTax
+ *            the tax amount, only known for documents
+ * @param currencyCode
+ *            the ISO currency code, may be null
+ * @param sender
+ *            the vendor name, may be null
+ * @param bommel
+ *            the Bommel title, may be null
+ * @param tags
+ *            the tag names, comma-separated, may be null
+ * @param privatelyPaid
+ *            whether the amount was paid privately
+ */
+public record ExportRow(Long id, Long documentId, Instant time, String name, BigDecimal total,
+	BigDecimal totalTax, String currencyCode, String sender, String bommel, String tags, boolean privatelyPaid)
+{
+}
@@ -0,0 +1,22 @@
+package app.fuggs.export.domain;
+
+/**
+ * The records an export reads.
+ */
+public enum ExportSource
+{
+	TRANSACTIONS("transaktionen"),
+	DOCUMENTS("belege");
+
+	private final String fileName;
+
+	ExportSource(String fileName)
+	{
+		this.fileName = fileName;
+	}
+
+	public String getFileName()
+	{
+		return fileName;
+	}
+}
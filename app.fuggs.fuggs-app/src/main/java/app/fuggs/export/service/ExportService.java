@@ -0,0 +1,408 @@
+package app.fuggs.export.service;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import javax.sql.DataSource;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import app.fuggs.export.domain.ExportFilter;
+import app.fuggs.export.domain.ExportFormat;
+import app.fuggs.export.domain.ExportRow;
+import app.fuggs.export.domain.ExportSource;
+import io.quarkus.narayana.jta.QuarkusTransaction;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+
+/**
+ * Streams transactions and documents as CSV or DATEV Buchungsstapel.
+ * <p>
+ * Rows are read with a forward-only JDBC cursor in chunks of
+ * {@code fuggs.export.fetch-size} and written to the output as they arrive,
+ * so an export of several years needs no more memory than one chunk. The
+ * PostgreSQL driver only uses a cursor inside a transaction, hence every
+ * export runs in its own transaction.
+ * </p>
+ */
+@ApplicationScoped
+public class ExportService
+{
+	private static final Logger LOG = LoggerFactory.getLogger(ExportService.class);
+
+	private static final DateTimeFormatter CSV_DATE = DateTimeFormatter.ofPattern("dd.MM.yyyy");
+	private static final DateTimeFormatter DATEV_DATE = DateTimeFormatter.ofPattern("ddMM");
+	private static final DateTimeFormatter DATEV_DAY = DateTimeFormatter.ofPattern("yyyyMMdd");
+	private static final DateTimeFormatter DATEV_CREATED = DateTimeFormatter.ofPattern("yyyyMMddHHmmssSSS");
+
+	private static final List<String> CSV_HEADER = List.of("ID", "Datum", "Bezeichnung", "Absender", "Betrag",
+		"Steuer", "Währung", "Bommel", "Tags", "Privat bezahlt", "Beleg-ID");
+
+	/**
+	 * Column 37 of the DATEV format is the cost center (KOST1); the Bommel is
+	 * exported there. Konto and Gegenkonto stay empty, Fuggs knows no chart of
+	 * accounts.
+	 */
+	private static final List<String> DATEV_HEADER = datevHeader();
+
+	private static final Pattern NUMBER = Pattern.compile("-?\\d+(,\\d+)?");
+
+	private static final int DATEV_BOOKING_TEXT_LENGTH = 60;
+	private static final int DATEV_FIELD_LENGTH = 36;
+
+	@Inject
+	DataSource dataSource;
+
+	@ConfigProperty(name = "fuggs.export.fetch-size", defaultValue = "500")
+	int fetchSize;
+
+	@ConfigProperty(name = "fuggs.export.timeout", defaultValue = "PT30M")
+	Duration timeout;
+
+	/**
+	 * Writes the filtered rows of an organization to the output, oldest first.
+	 * The output is not closed.
+	 *
+	 * @param source
+	 *            transactions or documents
+	 * @param organizationId
+	 *            the organization to export
+	 * @param filter
+	 *            the filter; for DATEV it must be limited to one year, see
+	 *            {@link ExportFilter#withinOneYear(LocalDate)}
+	 * @param format
+	 *            the file format
+	 * @param output
+	 *            the stream to write to
+	 * @return the number of exported rows
+	 */
+	public long export(ExportSource source, Long organizationId, ExportFilter filter, ExportFormat format,
+		OutputStream output)
+	{
+		long start = System.currentTimeMillis();
+		long rows = QuarkusTransaction.requiringNew()
+			.timeout((int)timeout.toSeconds())
+			.call(() -> stream(source, organizationId, filter, format, output));
+		LOG.info("Export finished: organizationId={}, source={}, format={}, rows={}, durationMs={}", organizationId,
+			source, format, rows, System.currentTimeMillis() - start);
+		return rows;
+	}
+
+	private long stream(ExportSource source, Long organizationId, ExportFilter filter, ExportFormat format,
+		OutputStream output)
+	{
+		List<Object> parameters = new ArrayList<>();
+		String sql = buildQuery(source, organizationId, filter, parameters);
+
+		try (Connection connection = dataSource.getConnection();
+			PreparedStatement statement = connection.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY,
+				ResultSet.CONCUR_READ_ONLY))
+		{
+			statement.setFetchSize(fetchSize);
+			for (int i = 0; i < parameters.size(); i++)
+			{
+				statement.setObject(i + 1, parameters.get(i));
+			}
+
+			Writer writer = new BufferedWriter(new OutputStreamWriter(output, format.getCharset()));
+			long rows = 0;
+			try (ResultSet resultSet = statement.executeQuery())
+			{
+				if (format == ExportFormat.DATEV)
+				{
+					writeDatevLine(writer, datevPreamble(source, filter));
+					writeDatevLine(writer, DATEV_HEADER);
+				}
+				else
+				{
+					writeCsvLine(writer, CSV_HEADER);
+				}
+
+				while (resultSet.next())
+				{
+					ExportRow row = readRow(resultSet);
+					if (format == ExportFormat.DATEV)
+					{
+						writeDatevLine(writer, datevValues(row));
+					}
+					else
+					{
+						writeCsvLine(writer, csvValues(row));
+					}
+					rows++;
+				}
+			}
+			writer.flush();
+			return rows;
+		}
+		catch (IOException e)
+		{
+			throw new UncheckedIOException("Export failed, client may have disconnected", e);
+		}
+		catch (SQLException e)
+		{
+			throw new IllegalStateException("Export query failed: source=" + source, e);
+		}
+	}
+
+	/**
+	 * Builds the export query. Filters only add conditions, the values are
+	 * collected in {@code parameters} in placeholder order.
+	 */
+	static String buildQuery(ExportSource source, Long organizationId, ExportFilter filter,
+		List<Object> parameters)
+	{
+		boolean documents = source == ExportSource.DOCUMENTS;
+		String timeColumn = documents ? "r.transactionTime" : "r.transaction_time";
+
+		StringBuilder sql = new StringBuilder()
+			.append("SELECT r.id, ").append(documents ? "r.id" : "r.document_id").append(" AS document_id, ")
+			.append(timeColumn).append(" AS ts, r.name, r.total, ")
+			.append(documents ? "r.totalTax" : "NULL").append(" AS total_tax, r.currencyCode, ")
+			.append("s.name AS sender, b.title AS bommel, r.privatelyPaid, ")
+			.append(tagsSubquery(source)).append(" AS tags ")
+			.append("FROM ").append(documents ? "document" : "transactionrecord").append(" r ")
+			.append("LEFT JOIN tradeparty s ON s.id = r.sender_id ")
+			.append("LEFT JOIN bommel b ON b.id = r.bommel_id ")
+			.append("WHERE r.organization_id = ?");
+		parameters.add(organizationId);
+		appendFilter(sql, source, filter, parameters);
+		return sql.append(" ORDER BY ts NULLS LAST, r.id").toString();
+	}
+
+	/**
+	 * Appends the filter conditions for the table aliased {@code r}.
+	 */
+	static void appendFilter(StringBuilder sql, ExportSource source, ExportFilter filter, List<Object> parameters)
+	{
+		boolean documents = source == ExportSource.DOCUMENTS;
+		String timeColumn = documents ? "r.transactionTime" : "r.transaction_time";
+
+		ZoneId zone = ZoneId.systemDefault();
+		if (filter.from() != null)
+		{
+			sql.append(" AND ").append(timeColumn).append(" >= ?");
+			parameters.add(filter.from().atStartOfDay(zone).toInstant().atOffset(ZoneOffset.UTC));
+		}
+		if (filter.to() != null)
+		{
+			sql.append(" AND ").append(timeColumn).append(" < ?");
+			parameters.add(filter.to().plusDays(1).atStartOfDay(zone).toInstant().atOffset(ZoneOffset.UTC));
+		}
+		if (filter.bommelId() != null)
+		{
+			sql.append(" AND r.bommel_id = ?");
+			parameters.add(filter.bommelId());
+		}
+		if (filter.tag() != null)
+		{
+			sql.append(" AND EXISTS (SELECT 1 FROM ").append(tagTable(source))
+				.append(" x JOIN tag g ON g.id = x.tag_id WHERE x.").append(tagColumn(source))
+				.append(" = r.id AND lower(g.name) = lower(?))");
+			parameters.add(filter.tag());
+		}
+	}
+
+	/**
+	 * Returns the subquery aggregating the tag names of the row {@code r}.
+	 */
+	static String tagsSubquery(ExportSource source)
+	{
+		return "(SELECT string_agg(g.name, ', ' ORDER BY g.name) FROM " + tagTable(source)
+			+ " x JOIN tag g ON g.id = x.tag_id WHERE x." + tagColumn(source) + " = r.id)";
+	}
+
+	private static String tagTable(ExportSource source)
+	{
+		return source == ExportSource.DOCUMENTS ? "document_tag" : "transaction_tag";
+	}
+
+	private static String tagColumn(ExportSource source)
+	{
+		return source == ExportSource.DOCUMENTS ? "document_id" : "transactionRecord_id";
+	}
+
+	private static ExportRow readRow(ResultSet resultSet) throws SQLException
+	{
+		OffsetDateTime time = resultSet.getObject("ts", OffsetDateTime.class);
+		return new ExportRow(
+			resultSet.getLong("id"),
+			resultSet.getObject("document_id", Long.class),
+			time != null ? time.toInstant() : null,
+			resultSet.getString("name"),
+			resultSet.getBigDecimal("total"),
+			resultSet.getBigDecimal("total_tax"),
+			resultSet.getString("currencyCode"),
+			resultSet.getString("sender"),
+			resultSet.getString("bommel"),
+			resultSet.getString("tags"),
+			resultSet.getBoolean("privatelyPaid"));
+	}
+
+	static List<String> csvValues(ExportRow row)
+	{
+		List<String> values = new ArrayList<>(CSV_HEADER.size());
+		values.add(String.valueOf(row.id()));
+		values.add(row.time() != null ? CSV_DATE.format(localDate(row.time())) : "");
+		values.add(text(row.name()));
+		values.add(text(row.sender()));
+		values.add(amount(row.total()));
+		values.add(amount(row.totalTax()));
+		values.add(text(row.currencyCode()));
+		values.add(text(row.bommel()));
+		values.add(text(row.tags()));
+		values.add(row.privatelyPaid() ? "ja" : "nein");
+		values.add(row.documentId() != null ? String.valueOf(row.documentId()) : "");
+		return values;
+	}
+
+	/**
+	 * Returns the booking values, positioned as in {@link #DATEV_HEADER}. The
+	 * amount is unsigned; negative totals are booked as credit (H).
+	 */
+	static List<String> datevValues(ExportRow row)
+	{
+		List<String> values = new ArrayList<>(DATEV_HEADER.size());
+		for (int i = 0; i < DATEV_HEADER.size(); i++)
+		{
+			values.add("");
+		}
+		BigDecimal total = row.total() != null ? row.total() : BigDecimal.ZERO;
+		values.set(0, amount(total.abs()));
+		values.set(1, total.signum() < 0 ? "H" : "S");
+		values.set(2, text(row.currencyCode()));
+		values.set(9, row.time() != null ? DATEV_DATE.format(localDate(row.time())) : "");
+		values.set(10, String.valueOf(row.documentId() != null ? row.documentId() : row.id()));
+		values.set(13, truncate(text(row.name() != null ? row.name() : row.sender()), DATEV_BOOKING_TEXT_LENGTH));
+		values.set(36, truncate(text(row.bommel()), DATEV_FIELD_LENGTH));
+		return values;
+	}
+
+	/**
+	 * Returns the first line of a DATEV file: format "EXTF" version 700,
+	 * category 21 (Buchungsstapel). Consultant and client number are left to
+	 * the tax consultant's import.
+	 */
+	private static List<String> datevPreamble(ExportSource source, ExportFilter filter)
+	{
+		LocalDate from = filter.from();
+		return List.of("EXTF", "700", "21", "Buchungsstapel", "13",
+			DATEV_CREATED.format(LocalDateTime.now()), "", "", "Fuggs", "", "", "",
+			DATEV_DAY.format(from.withDayOfYear(1)), "4", DATEV_DAY.format(from), DATEV_DAY.format(filter.to()),
+			"Fuggs " + source.getFileName(), "", "1", "0", "0", "EUR");
+	}
+
+	private static List<String> datevHeader()
+	{
+		List<String> header = new ArrayList<>(List.of("Umsatz (ohne Soll/Haben-Kz)", "Soll/Haben-Kennzeichen",
+			"WKZ Umsatz", "Kurs", "Basis-Umsatz", "WKZ Basis-Umsatz", "Konto", "Gegenkonto (ohne BU-Schlüssel)",
+			"BU-Schlüssel", "Belegdatum", "Belegfeld 1", "Belegfeld 2", "Skonto", "Buchungstext", "Postensperre",
+			"Diverse Adressnummer", "Geschäftspartnerbank", "Sachverhalt", "Zinssperre", "Beleglink"));
+		for (int i = 1; i <= 8; i++)
+		{
+			header.add("Beleginfo - Art " + i);
+			header.add("Beleginfo - Inhalt " + i);
+		}
+		header.add("KOST1 - Kostenstelle");
+		return List.copyOf(header);
+	}
+
+	/**
+	 * Writes a line separated by semicolons. Text is quoted; a leading
+	 * formula character is escaped so spreadsheets do not evaluate
+	 * vendor-controlled content.
+	 */
+	static void writeCsvLine(Writer writer, List<String> values) throws IOException
+	{
+		for (int i = 0; i < values.size(); i++)
+		{
+			if (i > 0)
+			{
+				writer.write(';');
+			}
+			String value = values.get(i);
+			if (!value.isEmpty() && "=+-@\t\r".indexOf(value.charAt(0)) >= 0 && !isNumber(value))
+			{
+				value = "'" + value;
+			}
+			writer.write('"');
+			writer.write(value.replace("\"", "\"\""));
+			writer.write('"');
+		}
+		writer.write("\r\n");
+	}
+
+	/**
+	 * Writes a DATEV line: numbers bare, everything else quoted.
+	 */
+	private static void writeDatevLine(Writer writer, List<String> values) throws IOException
+	{
+		for (int i = 0; i < values.size(); i++)
+		{
+			if (i > 0)
+			{
+				writer.write(';');
+			}
+			String value = values.get(i);
+			if (isNumber(value))
+			{
+				writer.write(value);
+			}
+			else if (!value.isEmpty())
+			{
+				writer.write('"');
+				writer.write(value.replace("\"", "\"\"").replace('\r', ' ').replace('\n', ' '));
+				writer.write('"');
+			}
+		}
+		writer.write("\r\n");
+	}
+
+	private static boolean isNumber(String value)
+	{
+		return !value.isEmpty() && NUMBER.matcher(value).matches();
+	}
+
+	static String amount(BigDecimal value)
+	{
+		return value != null ? value.setScale(2, RoundingMode.HALF_UP).toPlainString().replace('.', ',') : "";
+	}
+
+	static String text(String value)
+	{
+		return value != null ? value : "";
+	}
+
+	private static String truncate(String value, int length)
+	{
+		return value.length() > length ? value.substring(0, length) : value;
+	}
+
+	private static LocalDate localDate(Instant instant)
+	{
+		return instant.atZone(ZoneId.systemDefault()).toLocalDate();
+	}
+}
@@ -0,0 +1,552 @@
+package app.fuggs.export.service;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import javax.sql.DataSource;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import app.fuggs.document.service.StorageService;
+import app.fuggs.export.domain.ArchiveEntry;
+import app.fuggs.export.domain.ArchiveJob;
+import app.fuggs.export.domain.ExportFilter;
+import app.fuggs.export.domain.ExportSource;
+import io.quarkus.narayana.jta.QuarkusTransaction;
+import io.quarkus.runtime.configuration.MemorySize;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+
+/**
+ * Streams the files of all documents in a period as one ZIP archive with an
+ * {@code index.csv}.
+ * <p>
+ * The archive is built on the fly: documents are read page by page in ID
+ * order, their files are opened up to {@code fuggs.export.archive.prefetch}
+ * documents ahead on virtual threads, and each file is copied into the ZIP
+ * while the next ones are already being fetched. Per prefetched file at most
+ * {@code fuggs.export.archive.prefetch-buffer} bytes are held in memory; the
+ * rest is streamed from storage when the entry is written. Large archives are
+ * split into parts of {@code fuggs.export.archive.part-size} documents; each
+ * download writes one part as a complete ZIP, so an interrupted download only
+ * has to repeat its own part. Progress is kept in an {@link ArchiveJob}.
+ * </p>
+ */
+@ApplicationScoped
+public class ReceiptArchiveService
+{
+	private static final Logger LOG = LoggerFactory.getLogger(ReceiptArchiveService.class);
+
+	static final String INDEX_ENTRY = "index.csv";
+
+	private static final List<String> INDEX_HEADER = List.of("Datei", "Beleg-ID", "Datum", "Bezeichnung",
+		"Absender", "Betrag", "Währung", "Bommel", "Tags", "Status");
+
+	private static final DateTimeFormatter INDEX_DATE = DateTimeFormatter.ofPattern("dd.MM.yyyy");
+
+	private static final int COPY_BUFFER_SIZE = 64 * 1024;
+
+	@Inject
+	DataSource dataSource;
+
+	@Inject
+	StorageService storageService;
+
+	@ConfigProperty(name = "fuggs.export.archive.prefetch", defaultValue = "4")
+	int prefetch;
+
+	@ConfigProperty(name = "fuggs.export.archive.prefetch-buffer", defaultValue = "1M")
+	MemorySize prefetchBuffer;
+
+	@ConfigProperty(name = "fuggs.export.archive.page-size", defaultValue = "200")
+	int pageSize;
+
+	@ConfigProperty(name = "fuggs.export.archive.part-size", defaultValue = "500")
+	int partSize;
+
+	@ConfigProperty(name = "fuggs.export.archive.job-ttl", defaultValue = "PT24H")
+	Duration jobTtl;
+
+	private final Map<String, ArchiveJob> jobs = new ConcurrentHashMap<>();
+
+	/**
+	 * Creates an archive job for the documents matching the filter.
+	 *
+	 * @param organizationId
+	 *            the organization to export
+	 * @param filter
+	 *            the documents to include
+	 * @return the job, ready to be downloaded
+	 */
+	public ArchiveJob createJob(Long organizationId, ExportFilter filter)
+	{
+		Instant expired = Instant.now().minus(jobTtl);
+		jobs.values().removeIf(job -> job.getStatus() != ArchiveJob.Status.RUNNING
+			&& job.getCreatedAt().isBefore(expired));
+
+		ArchiveJob job = QuarkusTransaction.requiringNew().call(() -> {
+			long total = count(organizationId, filter);
+			return new ArchiveJob(organizationId, filter, total, partEnds(organizationId, filter, total));
+		});
+		jobs.put(job.getId(), job);
+		LOG.info("Receipt archive created: organizationId={}, jobId={}, documents={}, parts={}", organizationId,
+			job.getId(), job.getTotal(), job.getParts());
+		return job;
+	}
+
+	/**
+	 * Returns a job of the organization.
+	 *
+	 * @param organizationId
+	 *            the organization of the current user
+	 * @param jobId
+	 *            the job ID
+	 * @return the job, or empty if it is unknown, expired or belongs to
+	 *         another organization
+	 */
+	public Optional<ArchiveJob> findJob(Long organizationId, String jobId)
+	{
+		ArchiveJob job = jobId != null ? jobs.get(jobId) : null;
+		if (job == null || !job.getOrganizationId().equals(organizationId))
+		{
+			return Optional.empty();
+		}
+		return Optional.of(job);
+	}
+
+	/**
+	 * Writes the started part of the archive: its documents, followed by the
+	 * index of this part. The job must have been started with
+	 * {@link ArchiveJob#start(int)}. The ZIP is finished but the output is not
+	 * closed.
+	 *
+	 * @param job
+	 *            the started job
+	 * @param output
+	 *            the stream to write the ZIP to
+	 */
+	public void write(ArchiveJob job, OutputStream output)
+	{
+		long start = System.currentTimeMillis();
+		ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+		Deque<Future<FetchedFile>> window = new ArrayDeque<>();
+		try
+		{
+			ZipOutputStream zip = new ZipOutputStream(output, StandardCharsets.UTF_8);
+			// Receipts are mostly PDFs and JPEGs that hardly compress further
+			zip.setLevel(Deflater.BEST_SPEED);
+
+			Iterator<ArchiveEntry> entries = entries(job.getOrganizationId(), job.getFilter(), job.getPartStart(),
+				job.getPartEnd());
+			byte[] buffer = new byte[COPY_BUFFER_SIZE];
+			while (entries.hasNext() || !window.isEmpty())
+			{
+				while (window.size() < Math.max(1, prefetch) && entries.hasNext())
+				{
+					ArchiveEntry entry = entries.next();
+					window.add(executor.submit(() -> fetch(entry)));
+				}
+				writeEntry(job, zip, window.poll(), buffer);
+			}
+
+			writeIndex(job, zip);
+			zip.finish();
+			job.complete();
+			LOG.info("Receipt archive written: jobId={}, part={}, documents={}, missing={}, durationMs={}",
+				job.getId(), job.getPart(), job.getProgress().written(), job.getProgress().missing(),
+				System.currentTimeMillis() - start);
+		}
+		catch (IOException e)
+		{
+			job.interrupt("Download abgebrochen");
+			LOG.info("Receipt archive interrupted: jobId={}, part={}, checkpoint={}", job.getId(), job.getPart(),
+				job.getCheckpoint());
+			throw new UncheckedIOException("Receipt archive interrupted, client may have disconnected", e);
+		}
+		catch (RuntimeException e)
+		{
+			job.interrupt("Interner Fehler beim Export");
+			LOG.error("Receipt archive failed: jobId={}, part={}, checkpoint={}", job.getId(), job.getPart(),
+				job.getCheckpoint(), e);
+			throw e;
+		}
+		finally
+		{
+			discard(window);
+			executor.shutdownNow();
+		}
+	}
+
+	private void writeEntry(ArchiveJob job, ZipOutputStream zip, Future<FetchedFile> next, byte[] buffer)
+		throws IOException
+	{
+		FetchedFile file;
+		try
+		{
+			file = next.get();
+		}
+		catch (InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while fetching receipt", e);
+		}
+		catch (ExecutionException e)
+		{
+			throw new IllegalStateException("Receipt fetch failed unexpectedly", e.getCause());
+		}
+
+		ArchiveEntry entry = file.entry();
+		if (file.head() == null)
+		{
+			// Listed in the index as missing, the archive goes on without it
+			job.entryWritten(entry.id(), 0, true);
+			return;
+		}
+
+		zip.putNextEntry(new ZipEntry(entry.getEntryName()));
+		zip.write(file.head());
+		long size = file.head().length;
+		boolean complete = true;
+		if (file.rest() != null)
+		{
+			try (InputStream rest = file.rest())
+			{
+				while (true)
+				{
+					int read;
+					try
+					{
+						read = rest.read(buffer);
+					}
+					catch (IOException e)
+					{
+						LOG.warn("Receipt file truncated in archive: documentId={}, key={}", entry.id(),
+							entry.fileKey(), e);
+						complete = false;
+						break;
+					}
+					if (read < 0)
+					{
+						break;
+					}
+					// Failures here are on the client side and abort the
+					// archive
+					zip.write(buffer, 0, read);
+					size += read;
+				}
+			}
+		}
+		zip.closeEntry();
+		job.entryWritten(entry.id(), size, !complete);
+	}
+
+	/**
+	 * Opens a file and reads its beginning. Small files are read completely
+	 * and closed; larger ones keep their stream open for the rest.
+	 */
+	private FetchedFile fetch(ArchiveEntry entry)
+	{
+		InputStream content = null;
+		try
+		{
+			content = storageService.downloadFileUncached(entry.fileKey());
+			byte[] head = content.readNBytes((int)Math.min(prefetchBuffer.asLongValue(), Integer.MAX_VALUE - 8));
+			if (Thread.currentThread().isInterrupted())
+			{
+				// Archive aborted while fetching, nobody will read this stream
+				content.close();
+				return new FetchedFile(entry, null, null);
+			}
+			if (head.length < prefetchBuffer.asLongValue())
+			{
+				content.close();
+				return new FetchedFile(entry, head, null);
+			}
+			return new FetchedFile(entry, head, content);
+		}
+		catch (IOException | RuntimeException e)
+		{
+			LOG.warn("Receipt file missing in archive: documentId={}, key={}", entry.id(), entry.fileKey(), e);
+			closeQuietly(content);
+			return new FetchedFile(entry, null, null);
+		}
+	}
+
+	/**
+	 * Writes the index of the current part. The documents are read again in
+	 * the same order instead of being collected while the files were written.
+	 */
+	private void writeIndex(ArchiveJob job, ZipOutputStream zip) throws IOException
+	{
+		zip.putNextEntry(new ZipEntry(INDEX_ENTRY));
+		Writer writer = new BufferedWriter(new OutputStreamWriter(zip, StandardCharsets.UTF_8));
+		ExportService.writeCsvLine(writer, INDEX_HEADER);
+
+		Iterator<ArchiveEntry> entries = entries(job.getOrganizationId(), job.getFilter(), job.getPartStart(),
+			job.getCheckpoint());
+		while (entries.hasNext())
+		{
+			ArchiveEntry entry = entries.next();
+			boolean missing = job.isMissing(entry.id());
+			ExportService.writeCsvLine(writer, List.of(
+				missing ? "" : entry.getEntryName(),
+				String.valueOf(entry.id()),
+				entry.time() != null ? INDEX_DATE.format(entry.time().atZone(ZoneId.systemDefault())) : "",
+				ExportService.text(entry.name()),
+				ExportService.text(entry.sender()),
+				ExportService.amount(entry.total()),
+				ExportService.text(entry.currencyCode()),
+				ExportService.text(entry.bommel()),
+				ExportService.text(entry.tags()),
+				missing ? "Datei fehlt" : "ok"));
+		}
+		writer.flush();
+		zip.closeEntry();
+	}
+
+	/**
+	 * Iterates the documents with a file in ID order, after {@code afterId}
+	 * and up to {@code untilId}. Each page is read in its own short
+	 * transaction, so no connection is held while files are transferred.
+	 */
+	private Iterator<ArchiveEntry> entries(Long organizationId, ExportFilter filter, long afterId, long untilId)
+	{
+		return new Iterator<>()
+		{
+			private List<ArchiveEntry> page = List.of();
+			private int position;
+			private long lastId = afterId;
+			private boolean exhausted;
+
+			@Override
+			public boolean hasNext()
+			{
+				if (position < page.size())
+				{
+					return true;
+				}
+				if (exhausted)
+				{
+					return false;
+				}
+				page = QuarkusTransaction.requiringNew()
+					.call(() -> loadPage(organizationId, filter, lastId, untilId, pageSize));
+				position = 0;
+				exhausted = page.size() < pageSize;
+				return !page.isEmpty();
+			}
+
+			@Override
+			public ArchiveEntry next()
+			{
+				if (!hasNext())
+				{
+					throw new NoSuchElementException();
+				}
+				ArchiveEntry entry = page.get(position++);
+				lastId = entry.id();
+				return entry;
+			}
+		};
+	}
+
+	private List<ArchiveEntry> loadPage(Long organizationId, ExportFilter filter, long afterId, long untilId,
+		int limit)
+	{
+		List<Object> parameters = new ArrayList<>();
+		StringBuilder sql = new StringBuilder()
+			.append("SELECT r.id, r.transactionTime AS ts, r.name, r.total, r.currencyCode, r.fileKey, r.fileName, ")
+			.append("s.name AS sender, b.title AS bommel, ")
+			.append(ExportService.tagsSubquery(ExportSource.DOCUMENTS)).append(" AS tags ")
+			.append("FROM document r ")
+			.append("LEFT JOIN tradeparty s ON s.id = r.sender_id ")
+			.append("LEFT JOIN bommel b ON b.id = r.bommel_id ");
+		appendDocumentsWithFile(sql, organizationId, filter, parameters);
+		sql.append(" AND r.id > ? AND r.id <= ? ORDER BY r.id LIMIT ?");
+		parameters.add(afterId);
+		parameters.add(untilId);
+		parameters.add(limit);
+
+		try (Connection connection = dataSource.getConnection();
+			PreparedStatement statement = prepare(connection, sql.toString(), parameters);
+			ResultSet resultSet = statement.executeQuery())
+		{
+			List<ArchiveEntry> entries = new ArrayList<>(limit);
+			while (resultSet.next())
+			{
+				OffsetDateTime time = resultSet.getObject("ts", OffsetDateTime.class);
+				entries.add(new ArchiveEntry(
+					resultSet.getLong("id"),
+					time != null ? time.toInstant() : null,
+					resultSet.getString("name"),
+					resultSet.getBigDecimal("total"),
+					resultSet.getString("currencyCode"),
+					resultSet.getString("sender"),
+					resultSet.getString("bommel"),
+					resultSet.getString("tags"),
+					resultSet.getString("fileKey"),
+					resultSet.getString("fileName")));
+			}
+			return entries;
+		}
+		catch (SQLException e)
+		{
+			throw new IllegalStateException("Failed to load receipts: organizationId=" + organizationId, e);
+		}
+	}
+
+	/**
+	 * Returns the ID of the last document of each part. Every
+	 * {@code partSize}-th document closes a part; the last part is left open
+	 * so documents added after the job was created are still archived.
+	 */
+	private List<Long> partEnds(Long organizationId, ExportFilter filter, long total)
+	{
+		List<Object> parameters = new ArrayList<>();
+		StringBuilder sql = new StringBuilder("SELECT id FROM (SELECT r.id, row_number() OVER (ORDER BY r.id) AS rn ")
+			.append("FROM document r ");
+		appendDocumentsWithFile(sql, organizationId, filter, parameters);
+		sql.append(") p WHERE p.rn % ? = 0 AND p.rn < ? ORDER BY p.id");
+		parameters.add(Math.max(1, partSize));
+		parameters.add(total);
+
+		try (Connection connection = dataSource.getConnection();
+			PreparedStatement statement = prepare(connection, sql.toString(), parameters);
+			ResultSet resultSet = statement.executeQuery())
+		{
+			List<Long> ends = new ArrayList<>();
+			while (resultSet.next())
+			{
+				ends.add(resultSet.getLong(1));
+			}
+			ends.add(Long.MAX_VALUE);
+			return ends;
+		}
+		catch (SQLException e)
+		{
+			throw new IllegalStateException("Failed to split receipts: organizationId=" + organizationId, e);
+		}
+	}
+
+	private long count(Long organizationId, ExportFilter filter)
+	{
+		List<Object> parameters = new ArrayList<>();
+		StringBuilder sql = new StringBuilder("SELECT count(*) FROM document r ");
+		appendDocumentsWithFile(sql, organizationId, filter, parameters);
+
+		try (Connection connection = dataSource.getConnection();
+			PreparedStatement statement = prepare(connection, sql.toString(), parameters);
+			ResultSet resultSet = statement.executeQuery())
+		{
+			resultSet.next();
+			return resultSet.getLong(1);
+		}
+		catch (SQLException e)
+		{
+			throw new IllegalStateException("Failed to count receipts: organizationId=" + organizationId, e);
+		}
+	}
+
+	private static void appendDocumentsWithFile(StringBuilder sql, Long organizationId, ExportFilter filter,
+		List<Object> parameters)
+	{
+		sql.append("WHERE r.organization_id = ? AND r.fileKey IS NOT NULL");
+		parameters.add(organizationId);
+		ExportService.appendFilter(sql, ExportSource.DOCUMENTS, filter, parameters);
+	}
+
+	private static PreparedStatement prepare(Connection connection, String sql, List<Object> parameters)
+		throws SQLException
+	{
+		PreparedStatement statement = connection.prepareStatement(sql);
+		for (int i = 0; i < parameters.size(); i++)
+		{
+			statement.setObject(i + 1, parameters.get(i));
+		}
+		return statement;
+	}
+
+	/**
+	 * Cancels prefetches that were not written and closes the streams they
+	 * already opened.
+	 */
+	private static void discard(Deque<Future<FetchedFile>> window)
+	{
+		for (Future<FetchedFile> future : window)
+		{
+			if (!future.cancel(true) && future.isDone() && !future.isCancelled())
+			{
+				try
+				{
+					closeQuietly(future.get().rest());
+				}
+				catch (InterruptedException e)
+				{
+					Thread.currentThread().interrupt();
+				}
+				catch (ExecutionException e)
+				{
+					// nothing was opened
+				}
+			}
+		}
+		window.clear();
+	}
+
+	private static void closeQuietly(InputStream stream)
+	{
+		if (stream == null)
+		{
+			return;
+		}
+		try
+		{
+			stream.close();
+		}
+		catch (IOException e)
+		{
+			LOG.debug("Failed to close receipt stream", e);
+		}
+	}
+
+	/**
+	 * A prefetched file: its first bytes and, if it is larger, the open stream
+	 * for the rest. {@code head} is null if the file could not be read.
+	 */
+	private record FetchedFile(ArchiveEntry entry, byte[] head, InputStream rest)
+	{
+	}
+}
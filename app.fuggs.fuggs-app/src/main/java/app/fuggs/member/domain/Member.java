@@ -3,6 +3,7 @@ package app.fuggs.member.domain;
 import app.fuggs.bommel.domain.Bommel;
 import app.fuggs.organization.domain.Organization;
 import io.quarkus.hibernate.orm.panache.PanacheEntity;
+import jakarta.persistence.Cacheable;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.FetchType;
@@ -17,6 +18,7 @@ import java.util.ArrayList;
 import java.util.List;
 
 @Entity
+@Cacheable
 public class Member extends PanacheEntity
 {
 	@NotBlank
@@ -2,6 +2,8 @@ package app.fuggs.member.repository;
 
 import java.util.List;
 
+import org.hibernate.jpa.HibernateHints;
+
 import app.fuggs.member.domain.Member;
 import app.fuggs.shared.security.OrganizationContext;
 import io.quarkus.hibernate.orm.panache.PanacheRepository;
@@ -26,7 +28,9 @@ public class MemberRepository implements PanacheRepository<Member>
 		{
 			return List.of();
 		}
-		return list("organization.id = ?1 ORDER BY lastName, firstName", orgId);
+		return find("organization.id = ?1 ORDER BY lastName, firstName", orgId)
+			.withHint(HibernateHints.HINT_CACHEABLE, true)
+			.list();
 	}
 
 	/**
@@ -70,7 +74,9 @@ public class MemberRepository implements PanacheRepository<Member>
 	 */
 	public Member findByKeycloakUserId(String keycloakUserId)
 	{
-		return find("keycloakUserId", keycloakUserId).firstResult();
+		return find("keycloakUserId", keycloakUserId)
+			.withHint(HibernateHints.HINT_CACHEABLE, true)
+			.firstResult();
 	}
 
 	/**
@@ -88,7 +94,8 @@ public class MemberRepository implements PanacheRepository<Member>
 		{
 			return null;
 		}
-		return find("id = ?1 and organization.id = ?2", id, orgId).firstResult();
+		Member member = findById(id);
+		return member != null && orgId.equals(member.getOrganization().id) ? member : null;
 	}
 
 	/**
@@ -101,6 +108,9 @@ public class MemberRepository implements PanacheRepository<Member>
 	 */
 	public Member findByUsername(String userName)
 	{
-		return find("userName", userName).firstResult();
+		// Runs on every request via OrganizationContext and UserContext
+		return find("userName", userName)
+			.withHint(HibernateHints.HINT_CACHEABLE, true)
+			.firstResult();
 	}
 }
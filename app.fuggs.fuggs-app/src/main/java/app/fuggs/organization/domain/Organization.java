@@ -1,6 +1,7 @@
 package app.fuggs.organization.domain;
 
 import io.quarkus.hibernate.orm.panache.PanacheEntity;
+import jakarta.persistence.Cacheable;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.PrePersist;
@@ -8,6 +9,7 @@ import jakarta.validation.constraints.NotBlank;
 import java.time.Instant;
 
 @Entity
+@Cacheable
 public class Organization extends PanacheEntity
 {
 	@Column(nullable = false, unique = true)
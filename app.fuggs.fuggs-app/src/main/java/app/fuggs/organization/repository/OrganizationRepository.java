@@ -1,5 +1,7 @@
 package app.fuggs.organization.repository;
 
+import org.hibernate.jpa.HibernateHints;
+
 import app.fuggs.organization.domain.Organization;
 import io.quarkus.hibernate.orm.panache.PanacheRepository;
 import jakarta.enterprise.context.ApplicationScoped;
@@ -9,7 +11,9 @@ public class OrganizationRepository implements PanacheRepository<Organization>
 {
 	public Organization findBySlug(String slug)
 	{
-		return find("slug", slug).firstResult();
+		return find("slug", slug)
+			.withHint(HibernateHints.HINT_CACHEABLE, true)
+			.firstResult();
 	}
 
 	public Organization findByName(String name)
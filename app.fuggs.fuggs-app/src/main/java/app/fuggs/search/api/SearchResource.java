@@ -0,0 +1,40 @@
+package app.fuggs.search.api;
+
+import org.jboss.resteasy.reactive.RestQuery;
+
+import app.fuggs.search.service.SearchService;
+import app.fuggs.search.service.SearchService.SearchPage;
+import io.quarkiverse.renarde.Controller;
+import io.quarkus.qute.CheckedTemplate;
+import io.quarkus.qute.TemplateInstance;
+import io.quarkus.security.Authenticated;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.GET;
+import jakarta.ws.rs.Path;
+
+@Authenticated
+@Path("/suche")
+public class SearchResource extends Controller
+{
+	@Inject
+	SearchService searchService;
+
+	@CheckedTemplate
+	public static class Templates
+	{
+		private Templates()
+		{
+			// static
+		}
+
+		public static native TemplateInstance index(SearchPage results);
+	}
+
+	@GET
+	@Path("")
+	public TemplateInstance index(@RestQuery String q, @RestQuery Integer page)
+	{
+		SearchPage results = searchService.search(q, page != null ? page : 1);
+		return Templates.index(results);
+	}
+}
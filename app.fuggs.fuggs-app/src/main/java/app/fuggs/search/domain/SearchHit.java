@@ -0,0 +1,70 @@
+package app.fuggs.search.domain;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.Locale;
+
+/**
+ * A single search result, either a document or a transaction.
+ */
+public record SearchHit(
+	Kind kind,
+	Long id,
+	String name,
+	String senderName,
+	BigDecimal total,
+	String currencyCode,
+	Instant transactionTime,
+	double rank)
+{
+	public enum Kind
+	{
+		DOCUMENT,
+		TRANSACTION
+	}
+
+	public String getUrl()
+	{
+		return kind == Kind.DOCUMENT ? "/belege/" + id : "/transaktionen/" + id;
+	}
+
+	public String getKindLabel()
+	{
+		return kind == Kind.DOCUMENT ? "Beleg" : "Transaktion";
+	}
+
+	public String getDisplayName()
+	{
+		if (name != null && !name.isBlank())
+		{
+			return name;
+		}
+		if (senderName != null && !senderName.isBlank())
+		{
+			return senderName;
+		}
+		return getKindLabel() + " #" + id;
+	}
+
+	public String getDisplayTotal()
+	{
+		if (total == null)
+		{
+			return "-";
+		}
+		String currency = currencyCode != null ? currencyCode : "EUR";
+		return String.format(Locale.GERMAN, "%.2f %s", total, currency);
+	}
+
+	public String getDisplayDate()
+	{
+		if (transactionTime == null)
+		{
+			return "-";
+		}
+		return transactionTime.atZone(ZoneId.systemDefault()).toLocalDate()
+			.format(DateTimeFormatter.ofPattern("dd.MM.yyyy"));
+	}
+}
@@ -0,0 +1,73 @@
+package app.fuggs.search.service;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+
+import javax.sql.DataSource;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import io.quarkus.runtime.StartupEvent;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+
+/**
+ * Creates the database objects behind the full-text search.
+ * <p>
+ * Hibernate cannot map generated columns or non-B-tree indexes, so they are
+ * added on startup: a {@code searchVector} column derived from
+ * {@code searchText} with the German text search configuration, a GIN index
+ * on it for documents and transactions, and a trigram index on trade party
+ * names for fuzzy sender matching. All statements are idempotent.
+ * </p>
+ */
+@ApplicationScoped
+public class SearchIndexSetup
+{
+	private static final Logger LOG = LoggerFactory.getLogger(SearchIndexSetup.class);
+
+	private static final List<String> STATEMENTS = List.of(
+		"CREATE EXTENSION IF NOT EXISTS pg_trgm",
+		"ALTER TABLE document ADD COLUMN IF NOT EXISTS searchVector tsvector "
+			+ "GENERATED ALWAYS AS (to_tsvector('german'::regconfig, coalesce(searchText, ''))) STORED",
+		"CREATE INDEX IF NOT EXISTS document_search_idx ON document USING gin (searchVector)",
+		"ALTER TABLE transactionrecord ADD COLUMN IF NOT EXISTS searchVector tsvector "
+			+ "GENERATED ALWAYS AS (to_tsvector('german'::regconfig, coalesce(searchText, ''))) STORED",
+		"CREATE INDEX IF NOT EXISTS transactionrecord_search_idx ON transactionrecord USING gin (searchVector)",
+		"CREATE INDEX IF NOT EXISTS tradeparty_name_trgm_idx ON tradeparty USING gin (lower(name) gin_trgm_ops)");
+
+	@Inject
+	DataSource dataSource;
+
+	@ConfigProperty(name = "fuggs.search.setup.enabled", defaultValue = "true")
+	boolean enabled;
+
+	void onStart(@Observes StartupEvent event)
+	{
+		if (!enabled)
+		{
+			return;
+		}
+
+		try (Connection connection = dataSource.getConnection();
+			Statement statement = connection.createStatement())
+		{
+			for (String sql : STATEMENTS)
+			{
+				statement.execute(sql);
+			}
+			LOG.info("Search indexes ready");
+		}
+		catch (SQLException e)
+		{
+			// Search degrades to errors on the search page only, the rest of
+			// the application does not depend on these objects
+			LOG.error("Failed to set up search indexes", e);
+		}
+	}
+}
@@ -0,0 +1,172 @@
+package app.fuggs.search.service;
+
+import java.math.BigDecimal;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import app.fuggs.search.domain.SearchHit;
+import app.fuggs.shared.security.OrganizationContext;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.persistence.EntityManager;
+
+/**
+ * Full-text search over documents and transactions of the current
+ * organization.
+ * <p>
+ * Matches the German {@code searchVector} columns (name, sender, tags,
+ * amounts, dates) with {@code websearch_to_tsquery}, so users can type quotes,
+ * {@code or} and {@code -term}. Sender names additionally match by trigram
+ * similarity, which finds "Mueller" for "Müller" or typos. Results are
+ * ranked by text rank plus sender similarity and paginated.
+ * </p>
+ */
+@ApplicationScoped
+public class SearchService
+{
+	private static final Logger LOG = LoggerFactory.getLogger(SearchService.class);
+
+	public static final int PAGE_SIZE = 25;
+
+	private static final String SEARCH_SQL = """
+		SELECT * FROM (
+			SELECT 'DOCUMENT' AS kind, d.id, d.name, s.name AS sender, d.total, d.currencyCode,
+				d.transactionTime AS ts,
+				ts_rank(d.searchVector, q.query) + coalesce(similarity(lower(s.name), q.term), 0) AS rank
+			FROM document d
+			CROSS JOIN (SELECT websearch_to_tsquery('german', ?1) AS query, lower(?1) AS term) q
+			LEFT JOIN tradeparty s ON s.id = d.sender_id
+			WHERE d.organization_id = ?2
+				AND (d.searchVector @@ q.query OR lower(s.name) % q.term)
+			UNION ALL
+			SELECT 'TRANSACTION' AS kind, t.id, t.name, s.name AS sender, t.total, t.currencyCode,
+				t.transaction_time AS ts,
+				ts_rank(t.searchVector, q.query) + coalesce(similarity(lower(s.name), q.term), 0) AS rank
+			FROM transactionrecord t
+			CROSS JOIN (SELECT websearch_to_tsquery('german', ?1) AS query, lower(?1) AS term) q
+			LEFT JOIN tradeparty s ON s.id = t.sender_id
+			WHERE t.organization_id = ?2
+				AND (t.searchVector @@ q.query OR lower(s.name) % q.term)
+		) hits
+		ORDER BY rank DESC, ts DESC NULLS LAST, id DESC
+		LIMIT ?3 OFFSET ?4
+		""";
+
+	@Inject
+	EntityManager entityManager;
+
+	@Inject
+	OrganizationContext organizationContext;
+
+	/**
+	 * Searches documents and transactions.
+	 *
+	 * @param query
+	 *            the search input as typed by the user
+	 * @param page
+	 *            1-based page number
+	 * @return the requested page of hits, best match first
+	 */
+	public SearchPage search(String query, int page)
+	{
+		Long orgId = organizationContext.getCurrentOrganizationId();
+		String term = query != null ? query.strip() : "";
+		int pageNumber = Math.max(page, 1);
+		if (orgId == null || term.isEmpty())
+		{
+			return new SearchPage(term, List.of(), pageNumber, false);
+		}
+
+		long start = System.nanoTime();
+		// One extra row tells whether another page follows, without a count
+		@SuppressWarnings("unchecked")
+		List<Object[]> rows = entityManager.createNativeQuery(SEARCH_SQL)
+			.setParameter(1, term)
+			.setParameter(2, orgId)
+			.setParameter(3, PAGE_SIZE + 1)
+			.setParameter(4, (pageNumber - 1) * PAGE_SIZE)
+			.getResultList();
+
+		List<SearchHit> hits = new ArrayList<>(Math.min(rows.size(), PAGE_SIZE));
+		for (int i = 0; i < rows.size() && i < PAGE_SIZE; i++)
+		{
+			hits.add(toHit(rows.get(i)));
+		}
+		LOG.debug("Search finished: organizationId={}, hits={}, page={}, durationMs={}", orgId, hits.size(),
+			pageNumber, (System.nanoTime() - start) / 1_000_000);
+		return new SearchPage(term, hits, pageNumber, rows.size() > PAGE_SIZE);
+	}
+
+	private static SearchHit toHit(Object[] row)
+	{
+		return new SearchHit(
+			SearchHit.Kind.valueOf((String)row[0]),
+			((Number)row[1]).longValue(),
+			(String)row[2],
+			(String)row[3],
+			(BigDecimal)row[4],
+			(String)row[5],
+			toInstant(row[6]),
+			((Number)row[7]).doubleValue());
+	}
+
+	private static Instant toInstant(Object value)
+	{
+		if (value instanceof Instant instant)
+		{
+			return instant;
+		}
+		if (value instanceof OffsetDateTime offsetDateTime)
+		{
+			return offsetDateTime.toInstant();
+		}
+		if (value instanceof Timestamp timestamp)
+		{
+			return timestamp.toInstant();
+		}
+		return null;
+	}
+
+	/**
+	 * One page of search results.
+	 *
+	 * @param query
+	 *            the normalized search input
+	 * @param hits
+	 *            hits of this page, best match first
+	 * @param page
+	 *            1-based page number
+	 * @param hasMore
+	 *            whether another page follows
+	 */
+	public record SearchPage(String query, List<SearchHit> hits, int page, boolean hasMore)
+	{
+		public String encodedQuery()
+		{
+			return URLEncoder.encode(query, StandardCharsets.UTF_8);
+		}
+
+		public boolean hasPrevious()
+		{
+			return page > 1;
+		}
+
+		public int nextPage()
+		{
+			return page + 1;
+		}
+
+		public int previousPage()
+		{
+			return page - 1;
+		}
+	}
+}
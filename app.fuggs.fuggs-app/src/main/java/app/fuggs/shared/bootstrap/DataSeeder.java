@@ -495,16 +495,7 @@ public class DataSeeder
 		tx.setCurrencyCode(doc.getCurrencyCode());
 		tx.setPrivatelyPaid(doc.isPrivatelyPaid());
 
-		if (doc.getSender() != null)
-		{
-			TradeParty txSender = new TradeParty();
-			txSender.setName(doc.getSender().getName());
-			txSender.setStreet(doc.getSender().getStreet());
-			txSender.setZipCode(doc.getSender().getZipCode());
-			txSender.setCity(doc.getSender().getCity());
-			txSender.setOrganization(org);
-			tx.setSender(txSender);
-		}
+		tx.setSender(doc.getSender());
 
 		for (Tag tag : tags)
 		{
@@ -5,6 +5,8 @@ import java.util.Optional;
 import java.util.Set;
 import java.util.stream.Collectors;
 
+import org.hibernate.jpa.HibernateHints;
+
 import app.fuggs.organization.domain.Organization;
 import app.fuggs.shared.domain.Tag;
 import app.fuggs.shared.security.OrganizationContext;
@@ -32,7 +34,9 @@ public class TagRepository implements PanacheRepository<Tag>
 		{
 			return Optional.empty();
 		}
-		return find("name = ?1 and organization.id = ?2", name, orgId).firstResultOptional();
+		return find("name = ?1 and organization.id = ?2", name, orgId)
+			.withHint(HibernateHints.HINT_CACHEABLE, true)
+			.firstResultOptional();
 	}
 
 	/**
@@ -47,7 +51,9 @@ public class TagRepository implements PanacheRepository<Tag>
 		{
 			return List.of();
 		}
-		return list("organization.id = ?1 ORDER BY name", orgId);
+		return find("organization.id = ?1 ORDER BY name", orgId)
+			.withHint(HibernateHints.HINT_CACHEABLE, true)
+			.list();
 	}
 
 	/**
@@ -65,6 +71,30 @@ public class TagRepository implements PanacheRepository<Tag>
 			.collect(Collectors.toSet());
 	}
 
+	/**
+	 * Finds existing tags or creates new ones in the given organization. For
+	 * work outside of a request, where there is no current organization.
+	 *
+	 * @param tagNames
+	 *            Set of tag names
+	 * @param organization
+	 *            The organization owning the tags
+	 * @return Set of tags
+	 */
+	public Set<Tag> findOrCreateTags(Set<String> tagNames, Organization organization)
+	{
+		return tagNames.stream()
+			.map(name -> find("name = ?1 and organization.id = ?2", name, organization.id)
+				.<Tag> firstResultOptional()
+				.orElseGet(() -> {
+					Tag tag = new Tag(name);
+					tag.setOrganization(organization);
+					persist(tag);
+					return tag;
+				}))
+			.collect(Collectors.toSet());
+	}
+
 	/**
 	 * Finds an existing tag by name within the current organization or creates
 	 * a new one.
@@ -103,6 +133,7 @@ public class TagRepository implements PanacheRepository<Tag>
 		{
 			return null;
 		}
-		return find("id = ?1 and organization.id = ?2", id, orgId).firstResult();
+		Tag tag = findById(id);
+		return tag != null && orgId.equals(tag.getOrganization().id) ? tag : null;
 	}
 }
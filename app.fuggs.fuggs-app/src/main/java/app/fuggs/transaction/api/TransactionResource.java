@@ -1,8 +1,15 @@
 package app.fuggs.transaction.api;
 
+import app.fuggs.audit.domain.AuditEvent;
+import app.fuggs.audit.domain.FieldChange;
+import app.fuggs.audit.service.AuditHistoryService;
+import app.fuggs.audit.service.AuditHistoryService.HistoryPage;
+import app.fuggs.audit.service.AuditLogService;
 import app.fuggs.bommel.domain.Bommel;
+import app.fuggs.bommel.domain.BommelOption;
 import app.fuggs.bommel.repository.BommelRepository;
-import app.fuggs.document.domain.TradeParty;
+import app.fuggs.bommel.service.BommelPickerService;
+import app.fuggs.document.service.VendorRegistry;
 import app.fuggs.organization.domain.Organization;
 import app.fuggs.shared.domain.Tag;
 import app.fuggs.shared.repository.TagRepository;
@@ -33,6 +40,7 @@ import java.time.LocalDate;
 import java.time.ZoneId;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.stream.Collectors;
 
@@ -48,15 +56,27 @@ public class TransactionResource extends Controller
 	@Inject
 	BommelRepository bommelRepository;
 
+	@Inject
+	BommelPickerService bommelPickerService;
+
 	@Inject
 	TagRepository tagRepository;
 
+	@Inject
+	VendorRegistry vendorRegistry;
+
 	@Inject
 	SecurityIdentity securityIdentity;
 
 	@Inject
 	OrganizationContext organizationContext;
 
+	@Inject
+	AuditLogService auditLogService;
+
+	@Inject
+	AuditHistoryService auditHistoryService;
+
 	@CheckedTemplate
 	public static class Templates
 	{
@@ -67,9 +87,11 @@ public class TransactionResource extends Controller
 
 		public static native TemplateInstance index(List<TransactionRecord> transactions, String sortBy, String sortDir, Long bommelId, Long documentId);
 
-		public static native TemplateInstance create(List<Bommel> bommels);
+		public static native TemplateInstance create(List<BommelOption> bommels);
 
-		public static native TemplateInstance show(TransactionRecord transaction, List<Bommel> bommels);
+		public static native TemplateInstance show(TransactionRecord transaction, List<BommelOption> bommels);
+
+		public static native TemplateInstance history(TransactionRecord transaction, HistoryPage history);
 	}
 
 	@GET
@@ -98,7 +120,7 @@ public class TransactionResource extends Controller
 	@Path("/neu")
 	public TemplateInstance create()
 	{
-		List<Bommel> bommels = bommelRepository.listAll();
+		List<BommelOption> bommels = bommelPickerService.getOptions();
 		return Templates.create(bommels);
 	}
 
@@ -157,13 +179,8 @@ public class TransactionResource extends Controller
 		// Set sender
 		if (senderName != null && !senderName.isBlank())
 		{
-			TradeParty sender = new TradeParty();
-			sender.setName(senderName);
-			sender.setStreet(senderStreet);
-			sender.setZipCode(senderZipCode);
-			sender.setCity(senderCity);
-			sender.setOrganization(currentOrg);
-			transaction.setSender(sender);
+			transaction.setSender(
+				vendorRegistry.resolve(currentOrg, senderName, senderStreet, senderZipCode, senderCity));
 		}
 
 		// Persist transaction
@@ -171,6 +188,7 @@ public class TransactionResource extends Controller
 
 		// Add tags
 		updateTransactionTags(transaction, tags);
+		transaction.updateSearchText();
 
 		flash(FlashKeys.SUCCESS, "Transaktion erstellt");
 		redirect(TransactionResource.class).show(transaction.getId());
@@ -187,10 +205,26 @@ public class TransactionResource extends Controller
 			redirect(TransactionResource.class).index(null, null, null, null);
 			return null;
 		}
-		List<Bommel> bommels = bommelRepository.listAll();
+		List<BommelOption> bommels = bommelPickerService.getOptions();
 		return Templates.show(transaction, bommels);
 	}
 
+	@GET
+	@Path("/{id}/verlauf")
+	public TemplateInstance history(Long id, @RestQuery String before, @RestQuery Long beforeId)
+	{
+		TransactionRecord transaction = transactionRepository.findByIdScoped(id);
+		if (transaction == null)
+		{
+			flash(FlashKeys.ERROR, "Transaktion nicht gefunden");
+			redirect(TransactionResource.class).index(null, null, null, null);
+			return null;
+		}
+
+		HistoryPage history = auditHistoryService.loadPage("TransactionRecord", id, before, beforeId);
+		return Templates.history(transaction, history);
+	}
+
 	@POST
 	@Transactional
 	public void update(
@@ -215,6 +249,8 @@ public class TransactionResource extends Controller
 			return;
 		}
 
+		Map<String, String> before = transaction.toAuditSnapshot();
+
 		// Update core fields
 		transaction.setTotal(total);
 		transaction.setName(name);
@@ -246,16 +282,8 @@ public class TransactionResource extends Controller
 		// Update sender
 		if (senderName != null && !senderName.isBlank())
 		{
-			if (transaction.getSender() == null)
-			{
-				TradeParty sender = new TradeParty();
-				sender.setOrganization(transaction.getOrganization());
-				transaction.setSender(sender);
-			}
-			transaction.getSender().setName(senderName);
-			transaction.getSender().setStreet(senderStreet);
-			transaction.getSender().setZipCode(senderZipCode);
-			transaction.getSender().setCity(senderCity);
+			transaction.setSender(vendorRegistry.resolve(transaction.getSender(), transaction.getOrganization(),
+				senderName, senderStreet, senderZipCode, senderCity));
 		}
 		else
 		{
@@ -264,6 +292,8 @@ public class TransactionResource extends Controller
 
 		// Update tags
 		updateTransactionTags(transaction, tags);
+		transaction.updateSearchText();
+		logChanges(transaction, before);
 
 		flash(FlashKeys.SUCCESS, "Transaktion aktualisiert");
 		redirect(TransactionResource.class).show(transaction.getId());
@@ -287,6 +317,18 @@ public class TransactionResource extends Controller
 		redirect(TransactionResource.class).index(null, null, null, null);
 	}
 
+	private void logChanges(TransactionRecord transaction, Map<String, String> before)
+	{
+		List<FieldChange> changes = FieldChange.diff(before, transaction.toAuditSnapshot());
+		if (changes.isEmpty())
+		{
+			return;
+		}
+		auditLogService.logInTransaction(AuditEvent.ofChanges(transaction.getOrganization().id,
+			securityIdentity.getPrincipal().getName(), "TransactionRecord", transaction.getId().toString(),
+			"UpdateTransaction", changes));
+	}
+
 	private void updateTransactionTags(TransactionRecord transaction, String tagsInput)
 	{
 		if (tagsInput == null || tagsInput.isBlank())
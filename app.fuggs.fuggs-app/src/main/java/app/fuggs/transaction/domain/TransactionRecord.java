@@ -6,8 +6,10 @@ import java.time.LocalDate;
 import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 import app.fuggs.bommel.domain.Bommel;
@@ -22,11 +24,15 @@ import jakarta.persistence.Entity;
 import jakarta.persistence.EnumType;
 import jakarta.persistence.Enumerated;
 import jakarta.persistence.FetchType;
+import jakarta.persistence.Index;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
 import jakarta.persistence.OneToMany;
+import jakarta.persistence.PrePersist;
+import jakarta.persistence.Table;
 
 @Entity
+@Table(indexes = @Index(columnList = "sender_id"))
 public class TransactionRecord extends PanacheEntity
 {
 	// Relationships (all nullable for flexibility)
@@ -40,7 +46,7 @@ public class TransactionRecord extends PanacheEntity
 	@JoinColumn(name = "organization_id", nullable = false)
 	private Organization organization;
 
-	@ManyToOne(cascade = CascadeType.ALL, fetch = FetchType.LAZY)
+	@ManyToOne(cascade = { CascadeType.PERSIST, CascadeType.MERGE }, fetch = FetchType.LAZY)
 	private TradeParty sender;
 
 	@ManyToOne(cascade = CascadeType.ALL, fetch = FetchType.LAZY)
@@ -69,6 +75,10 @@ public class TransactionRecord extends PanacheEntity
 	@Column(nullable = false, updatable = false)
 	private Instant createdAt;
 
+	// Input of the generated full-text vector, see Document#updateSearchText
+	@Column(length = 4000)
+	private String searchText;
+
 	public TransactionRecord()
 	{
 		this.createdAt = Instant.now();
@@ -376,4 +386,58 @@ public class TransactionRecord extends PanacheEntity
 	{
 		return getTransactionDateForInput();
 	}
+
+	/**
+	 * Returns the user-editable fields as display strings, in a stable order,
+	 * for the field-level diff in the audit log.
+	 */
+	public Map<String, String> toAuditSnapshot()
+	{
+		Map<String, String> snapshot = new LinkedHashMap<>();
+		snapshot.put("name", name);
+		snapshot.put("total", total != null ? total.toPlainString() : null);
+		snapshot.put("currencyCode", currencyCode);
+		snapshot.put("transactionDate", transactionTime != null ? getTransactionDateForInput() : null);
+		snapshot.put("bommel", bommel != null ? bommel.getTitle() : null);
+		snapshot.put("sender", sender != null ? sender.getName() : null);
+		snapshot.put("privatelyPaid", privatelyPaid ? "ja" : "nein");
+		String tags = getTagsAsString();
+		snapshot.put("tags", tags.isEmpty() ? null : tags);
+		return snapshot;
+	}
+
+	public String getSearchText()
+	{
+		return searchText;
+	}
+
+	/**
+	 * Rebuilds the search text from name, sender, tags, amount and date.
+	 */
+	@PrePersist
+	public void updateSearchText()
+	{
+		List<String> terms = new ArrayList<>();
+		terms.add(name);
+		terms.add(sender != null ? sender.getName() : null);
+		if (transactionTags != null)
+		{
+			transactionTags.forEach(transactionTag -> terms.add(transactionTag.getName()));
+		}
+		if (total != null)
+		{
+			terms.add(total.toPlainString());
+			terms.add(total.toPlainString().replace('.', ','));
+		}
+		if (transactionTime != null)
+		{
+			LocalDate date = transactionTime.atZone(ZoneId.systemDefault()).toLocalDate();
+			terms.add(date.toString());
+			terms.add(date.format(DateTimeFormatter.ofPattern("dd.MM.yyyy")));
+		}
+		String text = terms.stream()
+			.filter(term -> term != null && !term.isBlank())
+			.collect(Collectors.joining(" "));
+		searchText = text.length() > 4000 ? text.substring(0, 4000) : text;
+	}
 }
@@ -0,0 +1,123 @@
+package app.fuggs.audit.service;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+
+import javax.sql.DataSource;
+
+import org.junit.jupiter.api.Test;
+
+import app.fuggs.document.service.StorageService;
+import app.fuggs.organization.domain.Organization;
+import app.fuggs.shared.BaseOrganizationTest;
+import io.quarkus.narayana.jta.QuarkusTransaction;
+import io.quarkus.test.junit.QuarkusTest;
+import jakarta.inject.Inject;
+
+@QuarkusTest
+class AuditLogPartitionServiceTest extends BaseOrganizationTest
+{
+	@Inject
+	AuditLogPartitionService partitionService;
+
+	@Inject
+	StorageService storageService;
+
+	@Inject
+	DataSource dataSource;
+
+	@Test
+	void shouldPartitionAuditLogByMonth()
+	{
+		String kind = queryString("SELECT relkind::text FROM pg_class WHERE oid = to_regclass('auditlogentry')");
+		String current = AuditLogPartitionService.partitionName(YearMonth.now(ZoneOffset.UTC));
+
+		assertThat(kind, equalTo("p"));
+		assertThat(queryString("SELECT to_regclass('" + current + "')::text"), equalTo(current));
+	}
+
+	@Test
+	void shouldArchiveExpiredPartition()
+	{
+		// Given - an entry in a partition far beyond the retention period
+		Organization org = getOrCreateTestOrganization();
+		YearMonth expired = YearMonth.of(2001, 1);
+		String partition = AuditLogPartitionService.partitionName(expired);
+		QuarkusTransaction.requiringNew().run(() -> {
+			partitionService.createPartition(expired);
+			execute("INSERT INTO auditlogentry (id, organization_id, username, timestamp, taskName, details) "
+				+ "VALUES (nextval('AuditLogEntry_SEQ'), " + org.id
+				+ ", 'system', '2001-01-15T10:00:00Z', 'Test', 'old entry')");
+		});
+
+		// When
+		int archived = partitionService.archiveExpiredPartitions();
+
+		// Then
+		assertThat(archived, equalTo(1));
+		assertThat(queryString("SELECT to_regclass('" + partition + "')::text"), is((String)null));
+		assertThat(storageService.fileExists(AuditLogPartitionService.ARCHIVE_PREFIX + partition + ".csv.gz"),
+			is(true));
+	}
+
+	@Test
+	void shouldKeepEntriesOfMonthsWithoutPartition()
+	{
+		// Given - an entry for a month whose partition was not created yet
+		Organization org = getOrCreateTestOrganization();
+		YearMonth future = YearMonth.of(2090, 1);
+		String partition = AuditLogPartitionService.partitionName(future);
+		QuarkusTransaction.requiringNew().run(() -> execute(
+			"INSERT INTO auditlogentry (id, organization_id, username, timestamp, taskName, details) "
+				+ "VALUES (nextval('AuditLogEntry_SEQ'), " + org.id
+				+ ", 'system', '2090-01-15T10:00:00Z', 'Test', 'early entry')"));
+
+		// When
+		QuarkusTransaction.requiringNew().run(() -> partitionService.createPartition(future));
+
+		// Then - the entry moved from the default partition to the new one
+		assertThat(queryString("SELECT count(*) FROM " + partition), equalTo("1"));
+		assertThat(queryString("SELECT count(*) FROM " + AuditLogPartitionService.DEFAULT_PARTITION
+			+ " WHERE timestamp >= '2090-01-01T00:00:00Z'"), equalTo("0"));
+		QuarkusTransaction.requiringNew().run(() -> execute("DROP TABLE " + partition));
+	}
+
+	@Test
+	void shouldParsePartitionMonth()
+	{
+		assertThat(AuditLogPartitionService.monthOf("auditlogentry_2025_03"), equalTo(YearMonth.of(2025, 3)));
+		assertThat(AuditLogPartitionService.monthOf("something_else"), is((YearMonth)null));
+	}
+
+	private void execute(String sql)
+	{
+		try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement())
+		{
+			statement.execute(sql);
+		}
+		catch (SQLException e)
+		{
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private String queryString(String sql)
+	{
+		return QuarkusTransaction.requiringNew().call(() -> {
+			try (Connection connection = dataSource.getConnection();
+				Statement statement = connection.createStatement();
+				ResultSet resultSet = statement.executeQuery(sql))
+			{
+				return resultSet.next() ? resultSet.getString(1) : null;
+			}
+		});
+	}
+}
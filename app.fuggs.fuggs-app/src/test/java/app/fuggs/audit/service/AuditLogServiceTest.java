@@ -0,0 +1,120 @@
+package app.fuggs.audit.service;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import org.junit.jupiter.api.Test;
+
+import app.fuggs.audit.domain.AuditEvent;
+import app.fuggs.audit.domain.AuditLogEntry;
+import app.fuggs.audit.domain.FieldChange;
+import app.fuggs.audit.repository.AuditLogRepository;
+import app.fuggs.organization.domain.Organization;
+import app.fuggs.shared.BaseOrganizationTest;
+import io.quarkus.narayana.jta.QuarkusTransaction;
+import io.quarkus.test.junit.QuarkusTest;
+import jakarta.inject.Inject;
+import jakarta.transaction.TransactionalException;
+
+@QuarkusTest
+class AuditLogServiceTest extends BaseOrganizationTest
+{
+	@Inject
+	AuditLogService auditLogService;
+
+	@Inject
+	AuditLogRepository auditLogRepository;
+
+	@Test
+	void shouldWriteQueuedEventsOnFlush()
+	{
+		// Given
+		Organization org = getOrCreateTestOrganization();
+		String entityId = UUID.randomUUID().toString();
+		for (int i = 0; i < 3; i++)
+		{
+			auditLogService.log(AuditEvent.of(org.id, "system", "Document", entityId, "Test", "Event " + i));
+		}
+
+		// When
+		auditLogService.flush();
+
+		// Then
+		assertThat(countEntries(entityId), equalTo(3L));
+	}
+
+	@Test
+	void shouldDropInvalidEventAndWriteTheRestOfItsBatch()
+	{
+		// Given - one event references an organization that does not exist
+		Organization org = getOrCreateTestOrganization();
+		String entityId = UUID.randomUUID().toString();
+		auditLogService.log(AuditEvent.of(org.id, "system", "Document", entityId, "Test", "before"));
+		auditLogService.log(AuditEvent.of(Long.MAX_VALUE, "system", "Document", entityId, "Test", "invalid"));
+		auditLogService.log(AuditEvent.of(org.id, "system", "Document", entityId, "Test", "after"));
+
+		// When
+		auditLogService.flush();
+
+		// Then - the valid events are written, the invalid one is not retried
+		assertThat(countEntries(entityId), equalTo(2L));
+		assertThat(auditLogService.queuedCount(), equalTo(0));
+	}
+
+	@Test
+	void shouldWriteTransactionalEventWithCallerTransaction()
+	{
+		// Given
+		Organization org = getOrCreateTestOrganization();
+		String entityId = UUID.randomUUID().toString();
+
+		// When - the caller rolls back
+		QuarkusTransaction.requiringNew().run(() -> {
+			auditLogService.logInTransaction(AuditEvent.of(org.id, "system", "Document", entityId, "Test", "x"));
+			QuarkusTransaction.setRollbackOnly();
+		});
+
+		// Then - the entry is rolled back too
+		assertThat(countEntries(entityId), equalTo(0L));
+	}
+
+	@Test
+	void shouldStoreFieldChangesOfBatchedEvents()
+	{
+		// Given
+		Organization org = getOrCreateTestOrganization();
+		String entityId = UUID.randomUUID().toString();
+		List<FieldChange> changes = FieldChange.diff(
+			Map.of("name", "Alt", "total", "10.00"),
+			Map.of("name", "Neu", "total", "10.00"));
+		auditLogService.log(AuditEvent.ofChanges(org.id, "alice", "Document", entityId, "UpdateDocument", changes));
+
+		// When
+		auditLogService.flush();
+
+		// Then - only the changed field is stored and read back from JSON
+		List<AuditLogEntry> entries = QuarkusTransaction.requiringNew()
+			.call(() -> auditLogRepository.list("entityId", entityId));
+		assertThat(entries.size(), equalTo(1));
+		assertThat(entries.get(0).getChanges(), equalTo(List.of(new FieldChange("name", "Alt", "Neu"))));
+	}
+
+	@Test
+	void shouldRequireTransactionForTransactionalEvent()
+	{
+		Organization org = getOrCreateTestOrganization();
+
+		assertThrows(TransactionalException.class, () -> auditLogService
+			.logInTransaction(AuditEvent.of(org.id, "system", "Document", "1", "Test", "x")));
+	}
+
+	private long countEntries(String entityId)
+	{
+		return QuarkusTransaction.requiringNew().call(() -> auditLogRepository.count("entityId", entityId));
+	}
+}
@@ -157,6 +157,42 @@ class BommelResourceTest extends BaseOrganizationTest
 			.body(containsString("Bommel löschen"));
 	}
 
+	@Test
+	@TestSecurity(user = TestSecurityHelper.TEST_USER_MARIA, roles = { "admin", "user" })
+	void shouldShowAddedAndDeletedChildInRenderedTree()
+	{
+		deleteAllBommels();
+		Long rootId = createRootBommel("home", "Verein");
+		Long childId = createChildBommel(rootId, "group", "Jugend");
+		// Renders the tree once, so the children of the root were loaded
+		given().when().get("/bommels").then().statusCode(200);
+
+		given()
+			.redirects().follow(false)
+			.formParam("parentId", rootId)
+			.formParam("icon", "music")
+			.formParam("title", "Orchester")
+			.when()
+			.post("/bommels/addChild")
+			.then()
+			.statusCode(303);
+		given()
+			.redirects().follow(false)
+			.formParam("id", childId)
+			.when()
+			.post("/bommels/delete")
+			.then()
+			.statusCode(303);
+
+		given()
+			.when()
+			.get("/bommels")
+			.then()
+			.statusCode(200)
+			.body(containsString("Orchester"))
+			.body(not(containsString("Jugend")));
+	}
+
 	@Transactional(Transactional.TxType.REQUIRES_NEW)
 	void deleteAllBommels()
 	{
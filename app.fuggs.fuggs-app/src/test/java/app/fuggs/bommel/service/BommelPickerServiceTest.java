@@ -0,0 +1,48 @@
+package app.fuggs.bommel.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import app.fuggs.bommel.domain.BommelOption;
+
+class BommelPickerServiceTest
+{
+	@Test
+	void shouldFlattenTreeDepthFirstWithSortedSiblings()
+	{
+		// Given - unordered rows as returned by the projection query
+		List<BommelOption> rows = List.of(
+			new BommelOption(4L, 2L, "Trikots", "folder"),
+			new BommelOption(2L, 1L, "Sport", "folder"),
+			new BommelOption(3L, 1L, "Kultur", "folder"),
+			new BommelOption(1L, null, "Verein", "home"),
+			new BommelOption(5L, 2L, "Bälle", "folder"));
+
+		// When
+		List<BommelOption> options = BommelPickerService.flatten(rows);
+
+		// Then
+		assertEquals(List.of(1L, 3L, 2L, 5L, 4L), options.stream().map(BommelOption::id).toList());
+		assertEquals(List.of(0, 1, 1, 2, 2), options.stream().map(BommelOption::depth).toList());
+		assertEquals("\u00A0".repeat(6) + "Bälle", options.get(3).getLabel());
+	}
+
+	@Test
+	void shouldTreatOptionsWithUnknownParentAsRoots()
+	{
+		// Given
+		List<BommelOption> rows = List.of(
+			new BommelOption(7L, 99L, "Verwaist", "folder"),
+			new BommelOption(1L, null, "Verein", "home"));
+
+		// When
+		List<BommelOption> options = BommelPickerService.flatten(rows);
+
+		// Then
+		assertEquals(List.of(1L, 7L), options.stream().map(BommelOption::id).toList());
+		assertEquals(0, options.get(1).depth());
+	}
+}
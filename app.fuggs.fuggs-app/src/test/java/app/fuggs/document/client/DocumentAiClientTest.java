@@ -2,8 +2,9 @@ package app.fuggs.document.client;
 
 import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
 import static com.github.tomakehurst.wiremock.client.WireMock.containing;
+import static com.github.tomakehurst.wiremock.client.WireMock.get;
 import static com.github.tomakehurst.wiremock.client.WireMock.post;
-import static com.github.tomakehurst.wiremock.client.WireMock.urlEqualTo;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlPathEqualTo;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.is;
@@ -15,6 +16,7 @@ import java.io.InputStream;
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.LocalTime;
+import java.util.List;
 
 import org.eclipse.microprofile.rest.client.inject.RestClient;
 import org.junit.jupiter.api.Test;
@@ -87,8 +89,9 @@ class DocumentAiClientTest
 	@Test
 	void shouldScanDocumentAndReturnExtractedData() throws IOException
 	{
-		wireMock.register(post(urlEqualTo("/api/az-document-ai/document/scan"))
-			.withHeader("Content-Type", containing("multipart/form-data"))
+		wireMock.register(post(urlPathEqualTo("/api/az-document-ai/document/scan"))
+			.withHeader("Content-Type", containing(MediaType.APPLICATION_OCTET_STREAM))
+			.withQueryParam("transactionRecordId", WireMock.equalTo("123"))
 			.willReturn(aResponse()
 				.withStatus(200)
 				.withHeader("Content-Type", MediaType.APPLICATION_JSON)
@@ -96,7 +99,7 @@ class DocumentAiClientTest
 
 		try (InputStream testDocument = getClass().getResourceAsStream("/document/receipt.png"))
 		{
-			DocumentData result = documentAiClient.scanDocument(testDocument, 123L);
+			DocumentData result = documentAiClient.scanDocument(testDocument, 123L, List.of());
 
 			assertThat(result, is(notNullValue()));
 			assertThat(result.total(), equalTo(new BigDecimal("1234.56")));
@@ -127,6 +130,65 @@ class DocumentAiClientTest
 		}
 	}
 
+	@Test
+	void shouldScanReceiptsAndReturnOneEntryEach() throws IOException
+	{
+		wireMock.register(post(urlPathEqualTo("/api/az-document-ai/document/scan/receipts"))
+			.withHeader("Content-Type", containing(MediaType.APPLICATION_OCTET_STREAM))
+			.withQueryParam("transactionRecordId", WireMock.equalTo("456"))
+			.willReturn(aResponse()
+				.withStatus(200)
+				.withHeader("Content-Type", MediaType.APPLICATION_JSON)
+				.withBody("[" + DOCUMENT_RESPONSE + ", { \"total\": 9.90, \"currencyCode\": \"EUR\" }]")));
+
+		try (InputStream testDocument = getClass().getResourceAsStream("/document/receipt.png"))
+		{
+			List<DocumentData> result = documentAiClient.scanReceipts(testDocument, 456L, List.of());
+
+			assertThat(result.size(), equalTo(2));
+			assertThat(result.get(0).documentId(), equalTo("INV-2024-0042"));
+			assertThat(result.get(1).total(), equalTo(new BigDecimal("9.90")));
+			assertThat(result.get(1).merchantName(), is(nullValue()));
+		}
+	}
+
+	@Test
+	void shouldSubmitScanAndFetchResult() throws IOException
+	{
+		wireMock.register(post(urlPathEqualTo("/api/az-document-ai/document/scan/operations"))
+			.withHeader("Content-Type", containing(MediaType.APPLICATION_OCTET_STREAM))
+			.withQueryParam("transactionRecordId", WireMock.equalTo("321"))
+			.withQueryParam("split", WireMock.equalTo("false"))
+			.willReturn(aResponse()
+				.withStatus(202)
+				.withHeader("Content-Type", MediaType.APPLICATION_JSON)
+				.withBody("{ \"operationId\": \"op-1\", \"status\": \"RUNNING\", \"error\": null }")));
+		wireMock.register(get(urlPathEqualTo("/api/az-document-ai/document/scan/operations/op-1"))
+			.withQueryParam("waitSeconds", WireMock.equalTo("20"))
+			.willReturn(aResponse()
+				.withStatus(200)
+				.withHeader("Content-Type", MediaType.APPLICATION_JSON)
+				.withBody("{ \"operationId\": \"op-1\", \"status\": \"SUCCEEDED\", \"error\": null }")));
+		wireMock.register(get(urlPathEqualTo("/api/az-document-ai/document/scan/operations/op-1/result"))
+			.willReturn(aResponse()
+				.withStatus(200)
+				.withHeader("Content-Type", MediaType.APPLICATION_JSON)
+				.withBody("[" + DOCUMENT_RESPONSE + "]")));
+
+		try (InputStream testDocument = getClass().getResourceAsStream("/document/receipt.png"))
+		{
+			ScanOperation submitted = documentAiClient.submitScan(testDocument, 321L, List.of(), false);
+			ScanOperation finished = documentAiClient.awaitScan(submitted.operationId(), 20);
+			List<DocumentData> result = documentAiClient.scanResult(finished.operationId());
+
+			assertThat(submitted.operationId(), equalTo("op-1"));
+			assertThat(submitted.running(), is(true));
+			assertThat(finished.succeeded(), is(true));
+			assertThat(result.size(), equalTo(1));
+			assertThat(result.getFirst().documentId(), equalTo("INV-2024-0042"));
+		}
+	}
+
 	@Test
 	void shouldHandleNullFieldsInResponse() throws IOException
 	{
@@ -156,7 +218,7 @@ class DocumentAiClientTest
 			}
 			""";
 
-		wireMock.register(post(urlEqualTo("/api/az-document-ai/document/scan"))
+		wireMock.register(post(urlPathEqualTo("/api/az-document-ai/document/scan"))
 			.willReturn(aResponse()
 				.withStatus(200)
 				.withHeader("Content-Type", MediaType.APPLICATION_JSON)
@@ -164,7 +226,7 @@ class DocumentAiClientTest
 
 		try (InputStream testDocument = getClass().getResourceAsStream("/document/receipt.png"))
 		{
-			DocumentData result = documentAiClient.scanDocument(testDocument, 789L);
+			DocumentData result = documentAiClient.scanDocument(testDocument, 789L, List.of());
 
 			assertThat(result, is(notNullValue()));
 			assertThat(result.total(), equalTo(new BigDecimal("100.00")));
@@ -0,0 +1,233 @@
+package app.fuggs.document.flow;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.intThat;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import app.fuggs.audit.service.AuditLogService;
+import app.fuggs.document.client.DocumentAiClient;
+import app.fuggs.document.client.DocumentData;
+import app.fuggs.document.client.ScanOperation;
+import app.fuggs.document.domain.Document;
+import app.fuggs.document.domain.DocumentStatus;
+import app.fuggs.document.domain.TagSource;
+import app.fuggs.document.repository.DocumentRepository;
+import app.fuggs.document.service.DocumentDataApplier;
+import app.fuggs.document.service.StorageService;
+import app.fuggs.document.service.VendorProfileService;
+import app.fuggs.organization.domain.Organization;
+
+@ExtendWith(MockitoExtension.class)
+class DocumentAnalysisActivitiesServiceTest
+{
+	@Mock
+	DocumentRepository documentRepository;
+
+	@Mock
+	StorageService storageService;
+
+	@Mock
+	DocumentDataApplier documentDataApplier;
+
+	@Mock
+	AuditLogService auditLogService;
+
+	@Mock
+	VendorProfileService vendorProfileService;
+
+	@Mock
+	DocumentAiClient documentAiClient;
+
+	@InjectMocks
+	DocumentAnalysisActivitiesService activities;
+
+	private Document original;
+
+	@BeforeEach
+	void setUp()
+	{
+		activities.splitReceipts = true;
+		activities.documentAiAsync = false;
+
+		Organization organization = new Organization();
+		organization.id = 1L;
+		original = new Document();
+		original.id = 10L;
+		original.setOrganization(organization);
+		original.setFileKey("documents/1/bundle");
+		original.setFileName("bundle.pdf");
+		original.setFileContentType("application/pdf");
+		when(documentRepository.findById(10L)).thenReturn(original);
+		when(storageService.downloadFile("documents/1/bundle")).thenReturn(new ByteArrayInputStream(new byte[0]));
+	}
+
+	@Test
+	void shouldCreateDocumentForEachFurtherReceipt()
+	{
+		// Given
+		DocumentData first = receipt("Bäckerei");
+		DocumentData second = receipt("Baumarkt");
+		when(documentAiClient.scanReceipts(any(InputStream.class), eq(10L), any())).thenReturn(List.of(first, second));
+		when(documentRepository.findBySourceDocument(10L)).thenReturn(List.of());
+		assignIdOnPersist(11L);
+
+		// When
+		activities.analyzeWithDocumentAi(10L);
+
+		// Then
+		ArgumentCaptor<Document> created = ArgumentCaptor.forClass(Document.class);
+		verify(documentRepository).persist(created.capture());
+		assertEquals(10L, created.getValue().getSourceDocumentId());
+		assertEquals("documents/1/bundle", created.getValue().getFileKey());
+		assertEquals(DocumentStatus.ANALYZED, created.getValue().getDocumentStatus());
+		assertEquals(DocumentStatus.ANALYZED, original.getDocumentStatus());
+		verify(documentDataApplier).applyDocumentData(original, first, TagSource.AI);
+		verify(documentDataApplier).applyDocumentData(created.getValue(), second, TagSource.AI);
+	}
+
+	@Test
+	void shouldReplaceUnreviewedDocumentsOfPreviousSplit()
+	{
+		// Given - the document is analyzed again
+		Document previous = new Document();
+		previous.id = 11L;
+		previous.setSourceDocumentId(10L);
+		when(documentAiClient.scanReceipts(any(InputStream.class), eq(10L), any()))
+			.thenReturn(List.of(receipt("Bäckerei"), receipt("Baumarkt")));
+		when(documentRepository.findBySourceDocument(10L)).thenReturn(List.of(previous));
+		assignIdOnPersist(12L);
+
+		// When
+		activities.analyzeWithDocumentAi(10L);
+
+		// Then
+		verify(documentRepository).delete(previous);
+		verify(documentRepository).persist(any(Document.class));
+	}
+
+	@Test
+	void shouldKeepPreviousSplitOnceReviewed()
+	{
+		// Given
+		when(documentAiClient.scanReceipts(any(InputStream.class), eq(10L), any()))
+			.thenReturn(List.of(receipt("Bäckerei"), receipt("Baumarkt")));
+		when(documentRepository.hasReviewedBySourceDocument(10L)).thenReturn(true);
+
+		// When
+		activities.analyzeWithDocumentAi(10L);
+
+		// Then
+		verify(documentRepository, never()).delete(any(Document.class));
+		verify(documentRepository, never()).persist(any(Document.class));
+		assertEquals(DocumentStatus.ANALYZED, original.getDocumentStatus());
+	}
+
+	@Test
+	void shouldScanSingleDocumentWhenSplittingIsOff()
+	{
+		// Given
+		activities.splitReceipts = false;
+		when(documentAiClient.scanDocument(any(InputStream.class), eq(10L), any())).thenReturn(receipt("Bäckerei"));
+
+		// When
+		activities.analyzeWithDocumentAi(10L);
+
+		// Then
+		verify(documentAiClient, never()).scanReceipts(any(), any(), any());
+		verify(documentRepository, never()).persist(any(Document.class));
+		assertEquals(DocumentStatus.ANALYZED, original.getDocumentStatus());
+	}
+
+	@Test
+	void shouldNotSplitDocumentSplitFromAnother()
+	{
+		// Given - its file is the whole bundle of the source document
+		original.setSourceDocumentId(5L);
+		when(documentAiClient.scanDocument(any(InputStream.class), eq(10L), any())).thenReturn(receipt("Baumarkt"));
+
+		// When
+		activities.analyzeWithDocumentAi(10L);
+
+		// Then
+		verify(documentAiClient, never()).scanReceipts(any(), any(), any());
+		verify(documentRepository, never()).persist(any(Document.class));
+	}
+
+	@Test
+	void shouldPollSingleDocumentScanNoLongerThanTimeout()
+	{
+		// Given
+		activities.splitReceipts = false;
+		activities.documentAiAsync = true;
+		activities.documentAiTimeout = Duration.ofSeconds(5);
+		activities.documentAiPollWait = Duration.ofSeconds(20);
+		when(documentAiClient.submitScan(any(InputStream.class), eq(10L), any(), eq(false)))
+			.thenReturn(new ScanOperation("op-1", "RUNNING", null));
+		when(documentAiClient.awaitScan(eq("op-1"), anyInt())).thenReturn(new ScanOperation("op-1", "SUCCEEDED", null));
+		when(documentAiClient.scanResult("op-1")).thenReturn(List.of(receipt("Bäckerei")));
+
+		// When
+		activities.analyzeWithDocumentAi(10L);
+
+		// Then
+		verify(documentAiClient).awaitScan(eq("op-1"), intThat(waitSeconds -> waitSeconds > 0 && waitSeconds <= 5));
+		verify(documentRepository, never()).persist(any(Document.class));
+		assertEquals(DocumentStatus.ANALYZED, original.getDocumentStatus());
+	}
+
+	private void assignIdOnPersist(Long id)
+	{
+		doAnswer(invocation -> {
+			invocation.<Document> getArgument(0).id = id;
+			return null;
+		}).when(documentRepository).persist(any(Document.class));
+	}
+
+	private static DocumentData receipt(String merchantName)
+	{
+		return new DocumentData(
+			new BigDecimal("12.50"),
+			"EUR",
+			null, // date
+			null, // time
+			null, // documentId
+			merchantName,
+			null, // merchantAddress
+			null, // merchantTaxId
+			null, // customerName
+			null, // customerId
+			null, // customerAddress
+			null, // billingAddress
+			null, // shippingAddress
+			null, // subTotal
+			null, // totalTax
+			null, // totalDiscount
+			null, // previousUnpaidBalance
+			null, // purchaseOrderNumber
+			null, // paymentTerm
+			null, // serviceStartDate
+			null, // serviceEndDate
+			List.of(),
+			null); // tagJobId
+	}
+}
@@ -11,6 +11,7 @@ import java.time.LocalTime;
 import java.time.ZoneId;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Optional;
 import java.util.Set;
 
 import org.junit.jupiter.api.BeforeEach;
@@ -19,19 +20,37 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 
+import app.fuggs.bommel.domain.Bommel;
+import app.fuggs.bommel.repository.BommelRepository;
 import app.fuggs.document.client.DocumentData;
 import app.fuggs.document.client.TradePartyData;
 import app.fuggs.document.domain.Document;
 import app.fuggs.document.domain.TagSource;
 import app.fuggs.document.domain.TradeParty;
+import app.fuggs.document.domain.VendorProfile;
+import app.fuggs.document.repository.TradePartyRepository;
+import app.fuggs.organization.domain.Organization;
 import app.fuggs.shared.domain.Tag;
 import app.fuggs.shared.repository.TagRepository;
+import jakarta.transaction.TransactionSynchronizationRegistry;
 
 class DocumentDataApplierTest
 {
 	@Mock
 	TagRepository tagRepository;
 
+	@Mock
+	TradePartyRepository tradePartyRepository;
+
+	@Mock
+	TransactionSynchronizationRegistry transactionRegistry;
+
+	@Mock
+	VendorProfileService vendorProfileService;
+
+	@Mock
+	BommelRepository bommelRepository;
+
 	@InjectMocks
 	DocumentDataApplier applier;
 
@@ -41,6 +60,10 @@ class DocumentDataApplierTest
 	void setUp()
 	{
 		MockitoAnnotations.openMocks(this);
+		VendorRegistry vendorRegistry = new VendorRegistry();
+		vendorRegistry.tradePartyRepository = tradePartyRepository;
+		vendorRegistry.transactionRegistry = transactionRegistry;
+		applier.vendorRegistry = vendorRegistry;
 		document = new Document();
 	}
 
@@ -81,7 +104,8 @@ class DocumentDataApplierTest
 			null, // paymentTerm
 			null, // serviceStartDate
 			null, // serviceEndDate
-			tags);
+			tags,
+			null); // tagJobId
 	}
 
 	private TradePartyData createTradePartyData(String name, String street, String postalCode, String city)
@@ -489,6 +513,66 @@ class DocumentDataApplierTest
 		assertNotNull(document.getTransactionTime());
 	}
 
+	@Test
+	void shouldPrefillBommelAndTagsFromConfidentVendorProfile()
+	{
+		// given - a known vendor whose confirmed documents go to the same
+		// Bommel
+		Organization organization = new Organization();
+		organization.id = 1L;
+		document.setOrganization(organization);
+		TradeParty vendor = new TradeParty();
+		vendor.id = 7L;
+		vendor.setName("Büro König GmbH");
+		document.setSender(vendor);
+
+		Bommel bommel = new Bommel();
+		bommel.id = 3L;
+		bommel.setOrganization(organization);
+		Tag tag = new Tag("büro");
+		when(vendorProfileService.findProfile(1L, 7L)).thenReturn(Optional.of(
+			new VendorProfile(7L, "buro konig", 6, 3L, "EUR", List.of("büro"), true)));
+		when(bommelRepository.findById(3L)).thenReturn(bommel);
+		when(tagRepository.findOrCreateTags(Set.of("büro"))).thenReturn(Set.of(tag));
+
+		DocumentData data = createDocumentData(
+			BigDecimal.valueOf(42), null, null, null, null, null, null, null, null, null, null);
+
+		// when
+		applier.applyDocumentData(document, data, TagSource.AI);
+
+		// then
+		assertSame(bommel, document.getBommel());
+		assertEquals("EUR", document.getCurrencyCode());
+		assertEquals(1, document.getDocumentTags().size());
+		assertEquals("büro", document.getDocumentTags().getFirst().getTag().getName());
+	}
+
+	@Test
+	void shouldIgnoreVendorProfileWithoutConfidence()
+	{
+		// given
+		Organization organization = new Organization();
+		organization.id = 1L;
+		document.setOrganization(organization);
+		TradeParty vendor = new TradeParty();
+		vendor.id = 7L;
+		document.setSender(vendor);
+		when(vendorProfileService.findProfile(1L, 7L)).thenReturn(Optional.of(
+			new VendorProfile(7L, "buro konig", 1, 3L, "EUR", List.of("büro"), false)));
+
+		DocumentData data = createDocumentData(
+			BigDecimal.valueOf(42), null, null, null, null, null, null, null, null, null, null);
+
+		// when
+		applier.applyDocumentData(document, data, TagSource.AI);
+
+		// then
+		assertNull(document.getBommel());
+		assertTrue(document.getDocumentTags().isEmpty());
+		verify(bommelRepository, never()).findById(any());
+	}
+
 	@Test
 	void shouldApplyAllFieldsWhenDocumentIsEmpty()
 	{
@@ -3,8 +3,10 @@ package app.fuggs.document.service;
 import app.fuggs.document.domain.Document;
 import app.fuggs.document.domain.TagSource;
 import app.fuggs.document.domain.TradeParty;
+import app.fuggs.document.repository.TradePartyRepository;
 import app.fuggs.shared.domain.Tag;
 import app.fuggs.shared.repository.TagRepository;
+import jakarta.transaction.TransactionSynchronizationRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -35,6 +37,12 @@ class DocumentDataServiceTest
 	@Mock
 	TagRepository tagRepository;
 
+	@Mock
+	TradePartyRepository tradePartyRepository;
+
+	@Mock
+	TransactionSynchronizationRegistry transactionRegistry;
+
 	@InjectMocks
 	DocumentDataService documentDataService;
 
@@ -44,6 +52,11 @@ class DocumentDataServiceTest
 	@BeforeEach
 	void setUp()
 	{
+		VendorRegistry vendorRegistry = new VendorRegistry();
+		vendorRegistry.tradePartyRepository = tradePartyRepository;
+		vendorRegistry.transactionRegistry = transactionRegistry;
+		documentDataService.vendorRegistry = vendorRegistry;
+
 		document = new Document();
 		document.id = 123L;
 		userInput = new HashMap<>();
@@ -261,15 +274,18 @@ class DocumentDataServiceTest
 	}
 
 	@Test
-	void shouldUpdateExistingSenderWithoutReplacing()
+	void shouldCorrectSenderUsedOnlyByThisDocument()
 	{
-		// Given - document already has a sender
+		// Given - the sender is linked to no other record, the form corrects
+		// its address
 		TradeParty existingSender = new TradeParty();
+		existingSender.id = 7L;
 		existingSender.setName("Old Company");
 		existingSender.setStreet("Old Street");
 		document.setSender(existingSender);
+		when(tradePartyRepository.countReferences(7L)).thenReturn(1L);
 
-		userInput.put("senderName", "New Company");
+		userInput.put("senderName", "Old Company GmbH");
 		userInput.put("senderStreet", "New Street");
 		userInput.put("senderZipCode", "54321");
 		userInput.put("senderCity", "New City");
@@ -277,15 +293,84 @@ class DocumentDataServiceTest
 		// When
 		documentDataService.applyFormData(document, userInput);
 
-		// Then - sender should be updated, not replaced
+		// Then - the vendor is updated, not replaced
 		TradeParty sender = document.getSender();
-		assertNotNull(sender);
-		assertEquals("New Company", sender.getName());
+		assertTrue(sender == existingSender);
+		assertEquals("Old Company GmbH", sender.getName());
 		assertEquals("New Street", sender.getStreet());
 		assertEquals("54321", sender.getZipCode());
 		assertEquals("New City", sender.getCity());
-		// Verify it's the same instance, not a new one
-		assertTrue(sender == existingSender);
+	}
+
+	@Test
+	void shouldNotChangeSharedSenderWhenFormCorrectsAddress()
+	{
+		// Given - the sender is shared with other, possibly confirmed records
+		TradeParty existingSender = new TradeParty();
+		existingSender.id = 7L;
+		existingSender.setName("Old Company");
+		existingSender.setStreet("Old Street");
+		document.setSender(existingSender);
+		when(tradePartyRepository.countReferences(7L)).thenReturn(3L);
+
+		userInput.put("senderName", "Old Company GmbH");
+		userInput.put("senderStreet", "New Street");
+
+		// When
+		documentDataService.applyFormData(document, userInput);
+
+		// Then - the document gets a vendor with the entered data, the shared
+		// one stays untouched
+		TradeParty sender = document.getSender();
+		assertFalse(sender == existingSender);
+		assertEquals("Old Company GmbH", sender.getName());
+		assertEquals("New Street", sender.getStreet());
+		assertEquals("Old Company", existingSender.getName());
+		assertEquals("Old Street", existingSender.getStreet());
+	}
+
+	@Test
+	void shouldKeepSharedSenderWhenFormIsUnchanged()
+	{
+		// Given
+		TradeParty existingSender = new TradeParty();
+		existingSender.id = 7L;
+		existingSender.setName("Old Company");
+		existingSender.setStreet("Old Street");
+		document.setSender(existingSender);
+
+		userInput.put("senderName", "Old Company");
+		userInput.put("senderStreet", "Old Street");
+		userInput.put("senderZipCode", "");
+
+		// When
+		documentDataService.applyFormData(document, userInput);
+
+		// Then
+		assertTrue(document.getSender() == existingSender);
+	}
+
+	@Test
+	void shouldLinkOtherVendorWhenSenderNameChanges()
+	{
+		// Given - the sender is a vendor shared with other records
+		TradeParty existingSender = new TradeParty();
+		existingSender.setName("Old Company");
+		existingSender.setStreet("Old Street");
+		document.setSender(existingSender);
+
+		userInput.put("senderName", "New Company");
+		userInput.put("senderStreet", "New Street");
+
+		// When
+		documentDataService.applyFormData(document, userInput);
+
+		// Then - the document is relinked, the old vendor stays untouched
+		assertNotNull(document.getSender());
+		assertFalse(document.getSender() == existingSender);
+		assertEquals("New Company", document.getSender().getName());
+		assertEquals("Old Company", existingSender.getName());
+		assertEquals("Old Street", existingSender.getStreet());
 	}
 
 	@Test
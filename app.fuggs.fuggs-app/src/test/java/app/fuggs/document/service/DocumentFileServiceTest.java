@@ -1,18 +1,23 @@
 package app.fuggs.document.service;
 
 import app.fuggs.document.domain.Document;
+import app.fuggs.document.repository.PendingFileDeletionRepository;
+import app.fuggs.organization.domain.Organization;
 import org.jboss.resteasy.reactive.multipart.FileUpload;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
-import software.amazon.awssdk.core.ResponseInputStream;
-import software.amazon.awssdk.services.s3.model.GetObjectResponse;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.Paths;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotEquals;
@@ -28,28 +33,37 @@ import static org.mockito.Mockito.when;
 @ExtendWith(MockitoExtension.class)
 class DocumentFileServiceTest
 {
+	// SHA-256 of "test content"
+	private static final String TEST_CONTENT_HASH = "6ae8a75555209fd6c44157c0aed8016e763ff435a19cf186f76863140143ff72";
+
 	@Mock
 	StorageService storageService;
 
+	@Mock
+	PendingFileDeletionRepository pendingFileDeletionRepository;
+
 	@Mock
 	FileUpload fileUpload;
 
 	@InjectMocks
 	DocumentFileService documentFileService;
 
+	@TempDir
+	Path tempDir;
+
 	private Document document;
 
 	@BeforeEach
 	void setUp()
 	{
-		document = new Document();
+		document = createDocument(1L);
 	}
 
 	@Test
-	void shouldHandleFileUploadSuccessfully()
+	void shouldHandleFileUploadSuccessfully() throws IOException
 	{
 		// Given
-		Path filePath = Paths.get("/tmp/test.pdf");
+		Path filePath = createFile("test.pdf", "test content");
 		when(fileUpload.fileName()).thenReturn("test.pdf");
 		when(fileUpload.uploadedFile()).thenReturn(filePath);
 		when(fileUpload.contentType()).thenReturn("application/pdf");
@@ -63,16 +77,35 @@ class DocumentFileServiceTest
 		assertEquals("test.pdf", document.getFileName());
 		assertEquals("application/pdf", document.getFileContentType());
 		assertEquals(1024L, document.getFileSize());
-		assertTrue(document.getFileKey().startsWith("documents/"));
-		assertTrue(document.getFileKey().endsWith("/test.pdf"));
+		assertEquals("documents/1/" + TEST_CONTENT_HASH, document.getFileKey());
 	}
 
 	@Test
-	void shouldThrowExceptionWhenUploadFails()
+	void shouldSkipUploadWhenContentAlreadyStored() throws IOException
 	{
 		// Given
-		Path filePath = Paths.get("/tmp/test.pdf");
-		when(fileUpload.fileName()).thenReturn("test.pdf");
+		Path filePath = createFile("statement.pdf", "test content");
+		when(fileUpload.fileName()).thenReturn("statement.pdf");
+		when(fileUpload.uploadedFile()).thenReturn(filePath);
+		when(fileUpload.contentType()).thenReturn("application/pdf");
+		when(fileUpload.size()).thenReturn(12L);
+		when(storageService.fileExists("documents/1/" + TEST_CONTENT_HASH)).thenReturn(true);
+
+		// When
+		documentFileService.handleFileUpload(document, fileUpload);
+
+		// Then - no PUT, but the document still points to the shared object
+		verify(storageService, never()).uploadFile(any(String.class), any(Path.class), any(String.class));
+		verify(pendingFileDeletionRepository).cancel("documents/1/" + TEST_CONTENT_HASH);
+		assertEquals("documents/1/" + TEST_CONTENT_HASH, document.getFileKey());
+		assertEquals("statement.pdf", document.getFileName());
+	}
+
+	@Test
+	void shouldThrowExceptionWhenUploadFails() throws IOException
+	{
+		// Given
+		Path filePath = createFile("test.pdf", "test content");
 		when(fileUpload.uploadedFile()).thenReturn(filePath);
 		when(fileUpload.contentType()).thenReturn("application/pdf");
 		doThrow(new RuntimeException("S3 error")).when(storageService)
@@ -85,7 +118,21 @@ class DocumentFileServiceTest
 	}
 
 	@Test
-	void shouldDeleteFileSuccessfully()
+	void shouldThrowExceptionWhenDocumentHasNoOrganization() throws IOException
+	{
+		// Given
+		Path filePath = createFile("test.pdf", "test content");
+		when(fileUpload.uploadedFile()).thenReturn(filePath);
+
+		// When/Then
+		assertThrows(RuntimeException.class, () -> {
+			documentFileService.handleFileUpload(new Document(), fileUpload);
+		});
+		verify(storageService, never()).uploadFile(any(String.class), any(Path.class), any(String.class));
+	}
+
+	@Test
+	void shouldQueueFileForDeletion()
 	{
 		// Given
 		String fileKey = "documents/test-uuid/test.pdf";
@@ -93,8 +140,9 @@ class DocumentFileServiceTest
 		// When
 		documentFileService.deleteFile(fileKey);
 
-		// Then
-		verify(storageService).deleteFile(fileKey);
+		// Then - deletion is recorded in the outbox, not executed directly
+		verify(pendingFileDeletionRepository).enqueue(fileKey);
+		verify(storageService, never()).deleteFile(any());
 	}
 
 	@Test
@@ -104,6 +152,7 @@ class DocumentFileServiceTest
 		documentFileService.deleteFile(null);
 
 		// Then
+		verify(pendingFileDeletionRepository, never()).enqueue(any());
 		verify(storageService, never()).deleteFile(any());
 	}
 
@@ -114,33 +163,20 @@ class DocumentFileServiceTest
 		documentFileService.deleteFile("");
 
 		// Then
+		verify(pendingFileDeletionRepository, never()).enqueue(any());
 		verify(storageService, never()).deleteFile(any());
 	}
 
-	@Test
-	void shouldNotThrowExceptionWhenDeleteFails()
-	{
-		// Given
-		String fileKey = "documents/test-uuid/test.pdf";
-		doThrow(new RuntimeException("S3 error")).when(storageService).deleteFile(fileKey);
-
-		// When/Then - should not throw
-		documentFileService.deleteFile(fileKey);
-		verify(storageService).deleteFile(fileKey);
-	}
-
 	@Test
 	void shouldDownloadFileSuccessfully()
 	{
 		// Given
 		String fileKey = "documents/test-uuid/test.pdf";
-		@SuppressWarnings("unchecked")
-		ResponseInputStream<GetObjectResponse> mockInputStream = org.mockito.Mockito
-			.mock(ResponseInputStream.class);
+		InputStream mockInputStream = new ByteArrayInputStream(new byte[] { 1, 2, 3 });
 		when(storageService.downloadFile(fileKey)).thenReturn(mockInputStream);
 
 		// When
-		ResponseInputStream<GetObjectResponse> result = documentFileService.downloadFile(fileKey);
+		InputStream result = documentFileService.downloadFile(fileKey);
 
 		// Then
 		assertEquals(mockInputStream, result);
@@ -148,10 +184,10 @@ class DocumentFileServiceTest
 	}
 
 	@Test
-	void shouldHandleSpecialCharactersInFileName()
+	void shouldHandleSpecialCharactersInFileName() throws IOException
 	{
 		// Given
-		Path filePath = Paths.get("/tmp/test (1) [draft].pdf");
+		Path filePath = createFile("test (1) [draft].pdf", "test content");
 		when(fileUpload.fileName()).thenReturn("test (1) [draft].pdf");
 		when(fileUpload.uploadedFile()).thenReturn(filePath);
 		when(fileUpload.contentType()).thenReturn("application/pdf");
@@ -160,38 +196,64 @@ class DocumentFileServiceTest
 		// When
 		documentFileService.handleFileUpload(document, fileUpload);
 
-		// Then
+		// Then - the file name is kept as metadata, the key only uses the hash
 		verify(storageService).uploadFile(any(String.class), eq(filePath), eq("application/pdf"));
 		assertEquals("test (1) [draft].pdf", document.getFileName());
-		assertTrue(document.getFileKey().endsWith("/test (1) [draft].pdf"));
+		assertEquals("documents/1/" + TEST_CONTENT_HASH, document.getFileKey());
+	}
+
+	@Test
+	void shouldGenerateSameKeyForSameContent() throws IOException
+	{
+		// Given - same content under different names
+		Document document2 = createDocument(1L);
+		Path first = createFile("january.pdf", "monthly statement");
+		Path second = createFile("january-copy.pdf", "monthly statement");
+
+		// When
+		String firstKey = documentFileService.buildFileKey(document, first);
+		String secondKey = documentFileService.buildFileKey(document2, second);
+
+		// Then
+		assertEquals(firstKey, secondKey);
 	}
 
 	@Test
-	void shouldGenerateUniqueFileKeysForMultipleUploads()
+	void shouldGenerateDifferentKeysForDifferentContent() throws IOException
 	{
 		// Given
-		Document document2 = new Document();
-		Path filePath = Paths.get("/tmp/same-file.pdf");
-		when(fileUpload.fileName()).thenReturn("same-file.pdf");
-		when(fileUpload.uploadedFile()).thenReturn(filePath);
-		when(fileUpload.contentType()).thenReturn("application/pdf");
-		when(fileUpload.size()).thenReturn(1024L);
+		Path first = createFile("a.pdf", "content a");
+		Path second = createFile("b.pdf", "content b");
 
 		// When
-		documentFileService.handleFileUpload(document, fileUpload);
-		documentFileService.handleFileUpload(document2, fileUpload);
+		String firstKey = documentFileService.buildFileKey(document, first);
+		String secondKey = documentFileService.buildFileKey(document, second);
 
-		// Then - file keys should be different due to UUID
-		assertTrue(document.getFileKey().startsWith("documents/"));
-		assertTrue(document2.getFileKey().startsWith("documents/"));
-		assertNotEquals(document.getFileKey(), document2.getFileKey(), "File keys should be unique");
+		// Then
+		assertNotEquals(firstKey, secondKey, "Different content must not share a key");
 	}
 
 	@Test
-	void shouldHandleDifferentContentTypes()
+	void shouldScopeKeysToOrganization() throws IOException
+	{
+		// Given - same content uploaded in two organizations
+		Path filePath = createFile("shared.pdf", "test content");
+
+		// When
+		String firstKey = documentFileService.buildFileKey(document, filePath);
+		String secondKey = documentFileService.buildFileKey(createDocument(2L), filePath);
+
+		// Then
+		assertTrue(firstKey.startsWith("documents/1/"));
+		assertTrue(secondKey.startsWith("documents/2/"));
+		assertNotEquals(firstKey, secondKey);
+	}
+
+	@Test
+	void shouldHandleDifferentContentTypes() throws IOException
 	{
 		// Given - test JPEG
-		Path jpegPath = Paths.get("/tmp/image.jpg");
+		Path jpegPath = createFile("image.jpg", "jpeg");
 		when(fileUpload.fileName()).thenReturn("image.jpg");
 		when(fileUpload.uploadedFile()).thenReturn(jpegPath);
 		when(fileUpload.contentType()).thenReturn("image/jpeg");
@@ -205,8 +267,8 @@ class DocumentFileServiceTest
 		assertEquals("image.jpg", document.getFileName());
 
 		// Given - test PNG
-		Document pngDoc = new Document();
-		Path pngPath = Paths.get("/tmp/image.png");
+		Document pngDoc = createDocument(1L);
+		Path pngPath = createFile("image.png", "png");
 		when(fileUpload.fileName()).thenReturn("image.png");
 		when(fileUpload.uploadedFile()).thenReturn(pngPath);
 		when(fileUpload.contentType()).thenReturn("image/png");
@@ -220,11 +282,11 @@ class DocumentFileServiceTest
 	}
 
 	@Test
-	void shouldHandleVeryLongFileNames()
+	void shouldHandleVeryLongFileNames() throws IOException
 	{
 		// Given - filename with 200 characters
 		String longName = "a".repeat(190) + "-test.pdf";
-		Path filePath = Paths.get("/tmp/" + longName);
+		Path filePath = createFile("long.pdf", "test content");
 		when(fileUpload.fileName()).thenReturn(longName);
 		when(fileUpload.uploadedFile()).thenReturn(filePath);
 		when(fileUpload.contentType()).thenReturn("application/pdf");
@@ -233,34 +295,23 @@ class DocumentFileServiceTest
 		// When
 		documentFileService.handleFileUpload(document, fileUpload);
 
-		// Then
+		// Then - key length does not depend on the file name
 		verify(storageService).uploadFile(any(String.class), eq(filePath), eq("application/pdf"));
 		assertEquals(longName, document.getFileName());
-		assertTrue(document.getFileKey().endsWith("/" + longName));
+		assertEquals("documents/1/" + TEST_CONTENT_HASH, document.getFileKey());
 	}
 
-	@Test
-	void shouldPreserveFileExtension()
+	private Document createDocument(Long organizationId)
+	{
+		Organization organization = new Organization();
+		organization.id = organizationId;
+		Document doc = new Document();
+		doc.setOrganization(organization);
+		return doc;
+	}
+
+	private Path createFile(String name, String content) throws IOException
 	{
-		// Given - test various extensions
-		String[] fileNames = { "document.pdf", "spreadsheet.xlsx", "presentation.pptx", "archive.zip" };
-
-		for (String fileName : fileNames)
-		{
-			Document doc = new Document();
-			Path filePath = Paths.get("/tmp/" + fileName);
-			when(fileUpload.fileName()).thenReturn(fileName);
-			when(fileUpload.uploadedFile()).thenReturn(filePath);
-			when(fileUpload.contentType()).thenReturn("application/octet-stream");
-			when(fileUpload.size()).thenReturn(1024L);
-
-			// When
-			documentFileService.handleFileUpload(doc, fileUpload);
-
-			// Then
-			assertEquals(fileName, doc.getFileName());
-			assertTrue(doc.getFileKey().endsWith("/" + fileName),
-				"File key should preserve extension for " + fileName);
-		}
+		return Files.writeString(tempDir.resolve(name), content, StandardCharsets.UTF_8);
 	}
 }
@@ -0,0 +1,118 @@
+package app.fuggs.document.service;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigInteger;
+import java.nio.file.Path;
+import java.util.Optional;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.quarkus.runtime.configuration.MemorySize;
+
+class FileCacheTest
+{
+	@TempDir
+	Path directory;
+
+	MeterRegistry meterRegistry;
+
+	FileCache fileCache;
+
+	@BeforeEach
+	void setUp()
+	{
+		meterRegistry = new SimpleMeterRegistry();
+		fileCache = new FileCache();
+		fileCache.enabled = true;
+		fileCache.configuredDirectory = Optional.of(directory);
+		fileCache.maxSize = new MemorySize(BigInteger.valueOf(10));
+		fileCache.meterRegistry = meterRegistry;
+		fileCache.init();
+	}
+
+	@Test
+	void shouldServeStoredFileOnSecondRead() throws IOException
+	{
+		read(fileCache.store("a", content("hello")));
+
+		Optional<InputStream> cached = fileCache.open("a");
+
+		assertThat(cached.isPresent(), is(true));
+		assertThat(read(cached.get()), equalTo("hello"));
+		assertThat(counter("hit"), equalTo(1.0));
+	}
+
+	@Test
+	void shouldMissUnknownKey()
+	{
+		Optional<InputStream> cached = fileCache.open("a");
+
+		assertThat(cached.isPresent(), is(false));
+		assertThat(counter("miss"), equalTo(1.0));
+	}
+
+	@Test
+	void shouldEvictLeastRecentlyUsedEntries() throws IOException
+	{
+		read(fileCache.store("a", content("aaaa")));
+		read(fileCache.store("b", content("bbbb")));
+		// Touch a, so b becomes the eldest entry
+		read(fileCache.open("a").orElseThrow());
+
+		read(fileCache.store("c", content("cccc")));
+
+		assertThat(fileCache.open("a").isPresent(), is(true));
+		assertThat(fileCache.open("b").isPresent(), is(false));
+		assertThat(fileCache.open("c").isPresent(), is(true));
+		assertThat(fileCache.currentSize(), equalTo(8L));
+	}
+
+	@Test
+	void shouldServeButNotKeepFilesLargerThanCache() throws IOException
+	{
+		String content = read(fileCache.store("a", content("01234567890")));
+
+		assertThat(content, equalTo("01234567890"));
+		assertThat(fileCache.open("a").isPresent(), is(false));
+		assertThat(fileCache.currentSize(), equalTo(0L));
+	}
+
+	@Test
+	void shouldForgetEvictedKeys() throws IOException
+	{
+		read(fileCache.store("a", content("aaaa")));
+
+		fileCache.evict("a");
+
+		assertThat(fileCache.open("a").isPresent(), is(false));
+		assertThat(fileCache.currentSize(), equalTo(0L));
+	}
+
+	private double counter(String result)
+	{
+		return meterRegistry.counter("fuggs.storage.cache.requests", "result", result).count();
+	}
+
+	private static InputStream content(String value)
+	{
+		return new ByteArrayInputStream(value.getBytes());
+	}
+
+	private static String read(InputStream stream) throws IOException
+	{
+		try (stream)
+		{
+			return new String(stream.readAllBytes());
+		}
+	}
+}
@@ -0,0 +1,126 @@
+package app.fuggs.document.service;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class LocalStorageServiceTest
+{
+	@TempDir
+	Path root;
+
+	LocalStorageService storageService;
+
+	@BeforeEach
+	void setUp()
+	{
+		storageService = new LocalStorageService();
+		storageService.root = root;
+	}
+
+	@Test
+	void shouldUploadAndDownloadFileFromBytes() throws IOException
+	{
+		storageService.uploadFile("documents/1/a.txt", "Hello".getBytes(StandardCharsets.UTF_8), "text/plain");
+
+		try (InputStream in = storageService.downloadFile("documents/1/a.txt"))
+		{
+			assertThat(new String(in.readAllBytes(), StandardCharsets.UTF_8), equalTo("Hello"));
+		}
+	}
+
+	@Test
+	void shouldUploadFileFromPath() throws IOException
+	{
+		Path source = Files.createTempFile("local-storage", ".bin");
+		byte[] content = new byte[64 * 1024];
+		for (int i = 0; i < content.length; i++)
+		{
+			content[i] = (byte)i;
+		}
+		Files.write(source, content);
+
+		try
+		{
+			storageService.uploadFile("documents/1/b.bin", source, "application/octet-stream");
+
+			assertThat(Files.readAllBytes(root.resolve("documents/1/b.bin")), equalTo(content));
+			assertThat(storageService.findLocalFile("documents/1/b.bin").isPresent(), is(true));
+		}
+		finally
+		{
+			Files.deleteIfExists(source);
+		}
+	}
+
+	@Test
+	void shouldDeleteFileAndPruneEmptyDirectories()
+	{
+		storageService.uploadFile("documents/1/c.txt", "c".getBytes(), "text/plain");
+
+		storageService.deleteFile("documents/1/c.txt");
+
+		assertThat(storageService.fileExists("documents/1/c.txt"), is(false));
+		assertThat(Files.exists(root.resolve("documents")), is(false));
+		assertThat(Files.exists(root), is(true));
+	}
+
+	@Test
+	void shouldDeleteMultipleFiles()
+	{
+		storageService.uploadFile("documents/1/d.txt", "d".getBytes(), "text/plain");
+		storageService.uploadFile("documents/2/e.txt", "e".getBytes(), "text/plain");
+
+		Set<String> failed = storageService.deleteFiles(List.of("documents/1/d.txt", "documents/2/e.txt",
+			"documents/3/missing.txt"));
+
+		assertThat(failed, is(empty()));
+		assertThat(storageService.fileExists("documents/1/d.txt"), is(false));
+		assertThat(storageService.fileExists("documents/2/e.txt"), is(false));
+	}
+
+	@Test
+	void shouldListFilesBelowPrefix()
+	{
+		storageService.uploadFile("documents/1/f.txt", "f".getBytes(), "text/plain");
+		storageService.uploadFile("other/g.txt", "g".getBytes(), "text/plain");
+
+		try (Stream<StoredObject> files = storageService.listFiles("documents/"))
+		{
+			assertThat(files.map(StoredObject::key).toList(), contains("documents/1/f.txt"));
+		}
+	}
+
+	@Test
+	void shouldReturnEmptyListingForMissingPrefix()
+	{
+		try (Stream<StoredObject> files = storageService.listFiles("documents/"))
+		{
+			assertThat(files.toList(), is(empty()));
+		}
+	}
+
+	@Test
+	void shouldRejectKeysOutsideRoot()
+	{
+		assertThrows(IllegalArgumentException.class,
+			() -> storageService.uploadFile("../escape.txt", "x".getBytes(), "text/plain"));
+		assertThat(storageService.fileExists("../escape.txt"), is(false));
+	}
+}
@@ -0,0 +1,201 @@
+package app.fuggs.document.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import app.fuggs.document.domain.PendingFileDeletion;
+import app.fuggs.document.repository.DocumentRepository;
+import app.fuggs.document.repository.PendingFileDeletionRepository;
+
+@ExtendWith(MockitoExtension.class)
+class StorageCleanupServiceTest
+{
+	@Mock
+	StorageService storageService;
+
+	@Mock
+	PendingFileDeletionRepository pendingFileDeletionRepository;
+
+	@Mock
+	DocumentRepository documentRepository;
+
+	@InjectMocks
+	StorageCleanupService cleanupService;
+
+	@BeforeEach
+	void setUp()
+	{
+		cleanupService.batchSize = 1000;
+		cleanupService.maxAttempts = 3;
+		cleanupService.deletionDelay = Duration.ofMinutes(1);
+		cleanupService.retryBackoff = Duration.ofMinutes(1);
+		cleanupService.maxRetryBackoff = Duration.ofHours(1);
+		cleanupService.orphanMinAge = Duration.ofHours(24);
+	}
+
+	@Test
+	void shouldDeleteQueuedFilesInOneBatch()
+	{
+		// Given
+		PendingFileDeletion first = new PendingFileDeletion("documents/a/one.pdf");
+		PendingFileDeletion second = new PendingFileDeletion("documents/b/two.pdf");
+		when(pendingFileDeletionRepository.findBatch(eq(1000), eq(3), any(Instant.class))).thenReturn(List.of(first, second));
+		when(storageService.deleteFiles(List.of("documents/a/one.pdf", "documents/b/two.pdf")))
+			.thenReturn(Set.of());
+
+		// When
+		int deleted = cleanupService.flushPendingDeletions();
+
+		// Then
+		assertEquals(2, deleted);
+		verify(pendingFileDeletionRepository).delete(first);
+		verify(pendingFileDeletionRepository).delete(second);
+	}
+
+	@Test
+	void shouldNotDeleteFilesStillReferencedByDocuments()
+	{
+		// Given - the same content was uploaded again by another document
+		PendingFileDeletion shared = new PendingFileDeletion("documents/1/shared");
+		PendingFileDeletion unused = new PendingFileDeletion("documents/1/unused");
+		when(pendingFileDeletionRepository.findBatch(eq(1000), eq(3), any(Instant.class)))
+			.thenReturn(List.of(shared, unused));
+		when(documentRepository.findReferencedFileKeys(List.of("documents/1/shared", "documents/1/unused")))
+			.thenReturn(Set.of("documents/1/shared"));
+		when(storageService.deleteFiles(List.of("documents/1/unused"))).thenReturn(Set.of());
+
+		// When
+		int deleted = cleanupService.flushPendingDeletions();
+
+		// Then - both entries leave the outbox, only the unused file is deleted
+		assertEquals(1, deleted);
+		verify(pendingFileDeletionRepository).delete(shared);
+		verify(pendingFileDeletionRepository).delete(unused);
+	}
+
+	@Test
+	void shouldKeepFailedKeysForRetry()
+	{
+		// Given
+		PendingFileDeletion ok = new PendingFileDeletion("documents/a/ok.pdf");
+		PendingFileDeletion failing = new PendingFileDeletion("documents/b/failing.pdf");
+		when(pendingFileDeletionRepository.findBatch(eq(1000), eq(3), any(Instant.class))).thenReturn(List.of(ok, failing));
+		when(storageService.deleteFiles(anyCollection())).thenReturn(Set.of("documents/b/failing.pdf"));
+
+		// When
+		int deleted = cleanupService.flushPendingDeletions();
+
+		// Then
+		assertEquals(1, deleted);
+		verify(pendingFileDeletionRepository).delete(ok);
+		verify(pendingFileDeletionRepository, never()).delete(failing);
+		assertEquals(1, failing.getAttempts());
+	}
+
+	@Test
+	void shouldRecordFailureWhenStorageIsUnavailable()
+	{
+		// Given
+		PendingFileDeletion pending = new PendingFileDeletion("documents/a/one.pdf");
+		when(pendingFileDeletionRepository.findBatch(eq(1000), eq(3), any(Instant.class))).thenReturn(List.of(pending));
+		when(storageService.deleteFiles(anyCollection())).thenThrow(new RuntimeException("S3 down"));
+
+		// When
+		int deleted = cleanupService.flushPendingDeletions();
+
+		// Then
+		assertEquals(0, deleted);
+		assertEquals(1, pending.getAttempts());
+		assertEquals("S3 down", pending.getLastError());
+		assertTrue(pending.getNextAttemptAt().isAfter(Instant.now()));
+		verify(pendingFileDeletionRepository, never()).delete(any(PendingFileDeletion.class));
+	}
+
+	@Test
+	void shouldStopFlushWhenWholeBatchFailed()
+	{
+		// Given - a full batch while storage is down
+		cleanupService.batchSize = 2;
+		PendingFileDeletion first = new PendingFileDeletion("documents/a/one.pdf");
+		PendingFileDeletion second = new PendingFileDeletion("documents/b/two.pdf");
+		when(pendingFileDeletionRepository.findBatch(eq(2), eq(3), any(Instant.class)))
+			.thenReturn(List.of(first, second));
+		when(storageService.deleteFiles(anyCollection())).thenThrow(new RuntimeException("S3 down"));
+
+		// When
+		int deleted = cleanupService.flushPendingDeletions();
+
+		// Then - one attempt each, the rest waits for the backoff
+		assertEquals(0, deleted);
+		assertEquals(1, first.getAttempts());
+		assertEquals(1, second.getAttempts());
+		verify(pendingFileDeletionRepository, times(1)).findBatch(eq(2), eq(3), any(Instant.class));
+	}
+
+	@Test
+	void shouldDoubleRetryBackoffUpToMaximum()
+	{
+		assertEquals(Duration.ofMinutes(1), cleanupService.retryBackoff(1));
+		assertEquals(Duration.ofMinutes(4), cleanupService.retryBackoff(3));
+		assertEquals(Duration.ofHours(1), cleanupService.retryBackoff(10));
+	}
+
+	@Test
+	void shouldNotCallStorageWhenOutboxIsEmpty()
+	{
+		// Given
+		when(pendingFileDeletionRepository.findBatch(anyInt(), anyInt(), any(Instant.class))).thenReturn(List.of());
+
+		// When
+		int deleted = cleanupService.flushPendingDeletions();
+
+		// Then
+		assertEquals(0, deleted);
+		verify(storageService, never()).deleteFiles(anyCollection());
+	}
+
+	@Test
+	void shouldQueueOnlyUnreferencedOldFiles()
+	{
+		// Given
+		Instant old = Instant.now().minus(Duration.ofDays(2));
+		Instant recent = Instant.now().minus(Duration.ofMinutes(5));
+		when(storageService.listFiles(DocumentFileService.KEY_PREFIX)).thenReturn(Stream.of(
+			new StoredObject("documents/a/referenced.pdf", old, 10),
+			new StoredObject("documents/b/orphan.pdf", old, 10),
+			new StoredObject("documents/c/uploading.pdf", recent, 10)));
+		when(documentRepository.findReferencedFileKeys(List.of("documents/a/referenced.pdf",
+			"documents/b/orphan.pdf")))
+			.thenReturn(Set.of("documents/a/referenced.pdf"));
+
+		// When
+		int orphaned = cleanupService.collectOrphanedFiles();
+
+		// Then
+		assertEquals(1, orphaned);
+		verify(pendingFileDeletionRepository).enqueue("documents/b/orphan.pdf");
+		verify(pendingFileDeletionRepository, never()).enqueue("documents/a/referenced.pdf");
+		verify(pendingFileDeletionRepository, never()).enqueue("documents/c/uploading.pdf");
+	}
+}
@@ -0,0 +1,90 @@
+package app.fuggs.document.service;
+
+import app.fuggs.document.domain.VendorProfile;
+import app.fuggs.document.domain.VendorStatistic;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class VendorProfileServiceTest
+{
+	@Test
+	void shouldLearnTypicalValuesOfVendor()
+	{
+		// Given - 5 confirmed documents, 4 of them in Bommel 3 and tagged
+		// "büro"
+		List<VendorStatistic> totals = List.of(new VendorStatistic(1L, "buro konig", 5L));
+		List<VendorStatistic> bommels = List.of(
+			new VendorStatistic(1L, "3", 4L),
+			new VendorStatistic(1L, "8", 1L));
+		List<VendorStatistic> currencies = List.of(new VendorStatistic(1L, "EUR", 5L));
+		List<VendorStatistic> tags = List.of(
+			new VendorStatistic(1L, "büro", 4L),
+			new VendorStatistic(1L, "papier", 5L),
+			new VendorStatistic(1L, "toner", 1L));
+
+		// When
+		Map<Long, VendorProfile> profiles = VendorProfileService.buildProfiles(totals, bommels, currencies, tags, 3,
+			0.8);
+
+		// Then
+		VendorProfile profile = profiles.get(1L);
+		assertEquals(5, profile.documents());
+		assertEquals(3L, profile.bommelId());
+		assertEquals("EUR", profile.currencyCode());
+		assertEquals(List.of("papier", "büro"), profile.tags());
+		assertTrue(profile.confident());
+	}
+
+	@Test
+	void shouldNotBeConfidentWithFewOrInconsistentDocuments()
+	{
+		// Given - vendor 1 has too few documents, vendor 2 no common tag or
+		// Bommel
+		List<VendorStatistic> totals = List.of(
+			new VendorStatistic(1L, "metzgerei huber", 2L),
+			new VendorStatistic(2L, "amazon eu s a r l", 10L));
+		List<VendorStatistic> bommels = List.of(
+			new VendorStatistic(2L, null, 4L),
+			new VendorStatistic(2L, "5", 6L));
+		List<VendorStatistic> tags = List.of(
+			new VendorStatistic(1L, "lebensmittel", 2L),
+			new VendorStatistic(2L, "technik", 5L),
+			new VendorStatistic(2L, "bücher", 5L));
+
+		// When
+		Map<Long, VendorProfile> profiles = VendorProfileService.buildProfiles(totals, bommels, List.of(), tags, 3,
+			0.8);
+
+		// Then
+		assertFalse(profiles.get(1L).confident());
+		assertEquals(List.of("lebensmittel"), profiles.get(1L).tags());
+		assertFalse(profiles.get(2L).confident());
+		assertNull(profiles.get(2L).bommelId());
+		assertTrue(profiles.get(2L).tags().isEmpty());
+	}
+
+	@Test
+	void shouldOnlyListNamesWhoseVendorsAreAllConfident()
+	{
+		// Given - two REWE branches, only one of them confident
+		List<VendorProfile> profiles = List.of(
+			new VendorProfile(1L, "rewe", 12, null, "EUR", List.of("lebensmittel"), true),
+			new VendorProfile(2L, "rewe", 1, null, "EUR", List.of(), false),
+			new VendorProfile(3L, "thomann", 4, 2L, "EUR", List.of("instrumente"), true),
+			new VendorProfile(4L, "buro konig", 9, 1L, "EUR", List.of("büro"), true));
+
+		// When
+		List<String> known = VendorProfileService.knownVendorKeys(profiles, 1);
+
+		// Then - most frequent first, limited
+		assertEquals(List.of("buro konig"), known);
+		assertEquals(List.of("buro konig", "thomann"), VendorProfileService.knownVendorKeys(profiles, 10));
+	}
+}
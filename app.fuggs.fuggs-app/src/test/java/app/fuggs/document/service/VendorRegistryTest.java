@@ -0,0 +1,188 @@
+package app.fuggs.document.service;
+
+import app.fuggs.document.domain.TradeParty;
+import app.fuggs.document.domain.VendorKey;
+import app.fuggs.document.repository.TradePartyRepository;
+import app.fuggs.organization.domain.Organization;
+import jakarta.transaction.Status;
+import jakarta.transaction.TransactionSynchronizationRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class VendorRegistryTest
+{
+	@Mock
+	TradePartyRepository tradePartyRepository;
+
+	@Mock
+	TransactionSynchronizationRegistry transactionRegistry;
+
+	@InjectMocks
+	VendorRegistry vendorRegistry;
+
+	private Organization organization;
+
+	@BeforeEach
+	void setUp()
+	{
+		organization = new Organization();
+		organization.id = 1L;
+		lenient().when(transactionRegistry.getTransactionStatus()).thenReturn(Status.STATUS_NO_TRANSACTION);
+	}
+
+	@Test
+	void shouldNormalizeLegalFormsAndDiacritics()
+	{
+		assertEquals("muller", TradeParty.normalizeName("Müller GmbH & Co. KG"));
+		assertEquals("muller", TradeParty.normalizeName("  MÜLLER  "));
+		assertEquals("strassenbau weiss", TradeParty.normalizeName("Straßenbau Weiß e.V."));
+		assertEquals("gmbh", TradeParty.normalizeName("GmbH"));
+		assertEquals("", TradeParty.normalizeName(null));
+		assertEquals("80331", TradeParty.normalizeZipCode(" 803 31 "));
+		assertNull(TradeParty.normalizeZipCode(" "));
+	}
+
+	@Test
+	void shouldMatchExistingVendorByNormalizedNameAndZipCode()
+	{
+		// Given
+		TradeParty existing = vendor(7L, "Büro König GmbH", "80331");
+		when(tradePartyRepository.findVendorKeys(1L))
+			.thenReturn(List.of(new VendorKey(7L, "buro konig", "80331")));
+		when(tradePartyRepository.findById(7L)).thenReturn(existing);
+
+		// When
+		TradeParty resolved = vendorRegistry.resolve(organization, "BÜRO KÖNIG", "Hauptstraße 42", "80331",
+			"München");
+
+		// Then
+		assertSame(existing, resolved);
+		assertEquals("Büro König GmbH", resolved.getName());
+		assertEquals("Hauptstraße 42", resolved.getStreet(), "Missing address fields are filled in");
+	}
+
+	@Test
+	void shouldCreateVendorForSameNameWithOtherZipCode()
+	{
+		// Given - a branch of the same chain in another town
+		when(tradePartyRepository.findVendorKeys(1L))
+			.thenReturn(List.of(new VendorKey(7L, "rewe", "80331")));
+
+		// When
+		TradeParty resolved = vendorRegistry.resolve(organization, "REWE", null, "20095", "Hamburg");
+
+		// Then
+		assertNull(resolved.id);
+		assertEquals("REWE", resolved.getName());
+		assertEquals("20095", resolved.getZipCode());
+		verify(tradePartyRepository, never()).findById(any());
+	}
+
+	@Test
+	void shouldLoadIndexOnlyOnce()
+	{
+		// Given
+		TradeParty existing = vendor(7L, "Metzgerei Huber", null);
+		when(tradePartyRepository.findVendorKeys(1L))
+			.thenReturn(List.of(new VendorKey(7L, "metzgerei huber", null)));
+		when(tradePartyRepository.findById(7L)).thenReturn(existing);
+
+		// When
+		vendorRegistry.resolve(organization, "Metzgerei Huber", null, "85354", null);
+		TradeParty second = vendorRegistry.resolve(organization, "metzgerei huber", null, null, null);
+
+		// Then
+		assertSame(existing, second);
+		verify(tradePartyRepository).findVendorKeys(1L);
+	}
+
+	@Test
+	void shouldReuseVendorCreatedInSameTransaction()
+	{
+		// Given
+		Map<Object, Object> resources = new HashMap<>();
+		when(transactionRegistry.getTransactionStatus()).thenReturn(Status.STATUS_ACTIVE);
+		when(transactionRegistry.getResource(any())).thenAnswer(invocation -> resources.get(invocation.getArgument(0)));
+		doAnswer(invocation -> resources.put(invocation.getArgument(0), invocation.getArgument(1)))
+			.when(transactionRegistry).putResource(any(), any());
+		when(tradePartyRepository.findVendorKeys(1L)).thenReturn(List.of());
+
+		// When
+		TradeParty first = vendorRegistry.resolve(organization, "Musikhaus Thomann", null, "96138", null);
+		TradeParty second = vendorRegistry.resolve(organization, "Musikhaus Thomann GmbH", "Treppendorf 30",
+			"96138", null);
+
+		// Then
+		assertSame(first, second);
+		assertEquals("Treppendorf 30", first.getStreet());
+	}
+
+	@Test
+	void shouldRelinkInsteadOfRenamingSharedVendor()
+	{
+		// Given
+		TradeParty current = vendor(7L, "Reisebus Schmidt", "80939");
+		when(tradePartyRepository.findVendorKeys(1L))
+			.thenReturn(List.of(new VendorKey(7L, "reisebus schmidt", "80939")));
+
+		// When
+		TradeParty resolved = vendorRegistry.resolve(current, organization, "Reisebus Meier", null, "80939", null);
+
+		// Then
+		assertNotSame(current, resolved);
+		assertEquals("Reisebus Schmidt", current.getName());
+		assertEquals("Reisebus Meier", resolved.getName());
+	}
+
+	@Test
+	void shouldLinkExistingVariantInsteadOfCorrectingSharedVendor()
+	{
+		// Given - vendor 7 is shared, vendor 9 already has the corrected data
+		TradeParty current = vendor(7L, "Reisebus Schmidt", "80939");
+		TradeParty variant = vendor(9L, "Reisebus Schmidt", "80939");
+		variant.setStreet("Ringstraße 5");
+		when(tradePartyRepository.countReferences(7L)).thenReturn(4L);
+		when(tradePartyRepository.findVendorKeys(1L)).thenReturn(List.of(
+			new VendorKey(7L, "reisebus schmidt", "80939"), new VendorKey(9L, "reisebus schmidt", "80939")));
+		when(tradePartyRepository.findById(7L)).thenReturn(current);
+		when(tradePartyRepository.findById(9L)).thenReturn(variant);
+
+		// When
+		TradeParty resolved = vendorRegistry.resolve(current, organization, "Reisebus Schmidt", "Ringstraße 5",
+			"80939", null);
+
+		// Then
+		assertSame(variant, resolved);
+		assertNull(current.getStreet());
+	}
+
+	private TradeParty vendor(Long id, String name, String zipCode)
+	{
+		TradeParty vendor = new TradeParty();
+		vendor.id = id;
+		vendor.setName(name);
+		vendor.setZipCode(zipCode);
+		vendor.setOrganization(organization);
+		return vendor;
+	}
+}
@@ -0,0 +1,111 @@
+package app.fuggs.export.api;
+
+import app.fuggs.organization.domain.Organization;
+import app.fuggs.shared.BaseOrganizationTest;
+import app.fuggs.shared.TestSecurityHelper;
+import app.fuggs.transaction.domain.TransactionRecord;
+import app.fuggs.transaction.repository.TransactionRecordRepository;
+import io.quarkus.test.junit.QuarkusTest;
+import io.quarkus.test.security.TestSecurity;
+import jakarta.inject.Inject;
+import jakarta.transaction.Transactional;
+import jakarta.transaction.Transactional.TxType;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.ZoneId;
+
+import static io.restassured.RestAssured.given;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.startsWith;
+
+@QuarkusTest
+@TestSecurity(user = TestSecurityHelper.TEST_USER_MARIA, roles = "user")
+class ExportResourceTest extends BaseOrganizationTest
+{
+	@Inject
+	TransactionRecordRepository transactionRepository;
+
+	@BeforeEach
+	void setupOrganizationContext()
+	{
+		Organization testOrg = getOrCreateTestOrganization();
+		createTestMember(TestSecurityHelper.TEST_USER_MARIA, testOrg);
+	}
+
+	@Test
+	void shouldExportTransactionsAsCsv()
+	{
+		// Given
+		createTestTransaction("Notenständer Export", "149.90", LocalDate.of(2025, 3, 14));
+
+		// When/Then
+		given()
+			.when().get("/export/transaktionen")
+			.then()
+			.statusCode(200)
+			.header("Content-Disposition", containsString("transaktionen.csv"))
+			.body(startsWith("\"ID\";\"Datum\";\"Bezeichnung\""))
+			.body(containsString("\"14.03.2025\";\"Notenständer Export\""))
+			.body(containsString("\"149,90\""));
+	}
+
+	@Test
+	void shouldFilterByDateRange()
+	{
+		// Given
+		createTestTransaction("Saalmiete Januar", "80.00", LocalDate.of(2024, 1, 20));
+		createTestTransaction("Saalmiete Februar", "80.00", LocalDate.of(2024, 2, 20));
+
+		// When/Then
+		given()
+			.when().get("/export/transaktionen?from=2024-02-01&to=2024-02-29")
+			.then()
+			.statusCode(200)
+			.body(containsString("Saalmiete Februar"))
+			.body(not(containsString("Saalmiete Januar")));
+	}
+
+	@Test
+	void shouldExportDatevBuchungsstapel()
+	{
+		// Given - a refund is booked on the credit side
+		createTestTransaction("Erstattung Busreise", "-45.50", LocalDate.of(2023, 7, 3));
+
+		// When/Then
+		given()
+			.when().get("/export/transaktionen?format=datev&from=2023-07-01&to=2023-07-31")
+			.then()
+			.statusCode(200)
+			.header("Content-Disposition", containsString("EXTF_transaktionen_2023-07-01_2023-07-31.csv"))
+			.body(startsWith("\"EXTF\";700;21;\"Buchungsstapel\""))
+			.body(containsString("45,50;\"H\";\"EUR\""))
+			.body(containsString(";0307;"))
+			.body(containsString("\"Erstattung Busreise\""));
+	}
+
+	@Test
+	void shouldRejectDatevExportAcrossYears()
+	{
+		given()
+			.redirects().follow(false)
+			.when().get("/export/transaktionen?format=datev&from=2023-12-01&to=2024-01-31")
+			.then()
+			.statusCode(303);
+	}
+
+	@Transactional(TxType.REQUIRES_NEW)
+	TransactionRecord createTestTransaction(String name, String total, LocalDate date)
+	{
+		TransactionRecord t = new TransactionRecord(new BigDecimal(total), "test-user");
+		t.setName(name);
+		t.setCurrencyCode("EUR");
+		t.setTransactionTime(date.atStartOfDay(ZoneId.systemDefault()).toInstant());
+		t.setOrganization(getOrCreateTestOrganization());
+		transactionRepository.persist(t);
+		return t;
+	}
+}
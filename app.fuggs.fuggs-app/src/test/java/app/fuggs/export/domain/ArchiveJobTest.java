@@ -0,0 +1,114 @@
+package app.fuggs.export.domain;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ArchiveJobTest
+{
+	private final ExportFilter filter = new ExportFilter(null, null, null, null);
+
+	@Test
+	void shouldRestartInterruptedPartFromItsStart()
+	{
+		// Given
+		ArchiveJob job = new ArchiveJob(1L, filter, 4, List.of(12L, Long.MAX_VALUE));
+		job.start(1);
+		job.entryWritten(10L, 1000, false);
+		job.entryWritten(12L, 500, false);
+		job.complete();
+		job.start(2);
+		job.entryWritten(14L, 1000, false);
+		job.interrupt("Download abgebrochen");
+
+		// When
+		boolean started = job.start(2);
+
+		// Then
+		assertTrue(started);
+		assertEquals(12L, job.getPartStart());
+		assertEquals(12L, job.getCheckpoint());
+		assertEquals(2, job.getProgress().written());
+		assertEquals(1500, job.getProgress().bytes());
+		assertEquals(1, job.getProgress().finishedParts());
+	}
+
+	@Test
+	void shouldCompleteWhenAllPartsAreFinished()
+	{
+		// Given
+		ArchiveJob job = new ArchiveJob(1L, filter, 2, List.of(10L, Long.MAX_VALUE));
+		job.start(2);
+		job.entryWritten(12L, 0, true);
+		job.complete();
+		assertEquals(ArchiveJob.Status.READY, job.getStatus());
+
+		// When
+		job.start(1);
+		job.entryWritten(10L, 1000, false);
+		job.complete();
+
+		// Then
+		assertEquals(ArchiveJob.Status.COMPLETED, job.getStatus());
+		assertEquals(2, job.getProgress().written());
+		assertEquals(1, job.getProgress().missing());
+	}
+
+	@Test
+	void shouldRejectSecondDownloadWhileRunning()
+	{
+		// Given
+		ArchiveJob job = new ArchiveJob(1L, filter, 1, List.of(Long.MAX_VALUE));
+		job.start(1);
+
+		// When/Then
+		assertFalse(job.start(1));
+	}
+
+	@Test
+	void shouldNotCountDownloadedPartTwice()
+	{
+		// Given
+		ArchiveJob job = new ArchiveJob(1L, filter, 1, List.of(Long.MAX_VALUE));
+		job.start(1);
+		job.entryWritten(10L, 1000, false);
+		job.complete();
+
+		// When
+		job.start(1);
+		job.entryWritten(10L, 1000, false);
+		job.complete();
+
+		// Then
+		assertEquals(0L, job.getPartStart());
+		assertEquals(1, job.getProgress().written());
+		assertEquals(1000, job.getProgress().bytes());
+	}
+
+	@Test
+	void shouldBuildSafeUniqueEntryNames()
+	{
+		// Given
+		ArchiveEntry entry = new ArchiveEntry(4711L,
+			LocalDate.of(2025, 3, 14).atStartOfDay(ZoneId.systemDefault()).toInstant(), "Noten",
+			new BigDecimal("12.50"), "EUR", null, null, null, "documents/abc", "Rechnung März/2025 (1).pdf");
+
+		// When/Then
+		assertEquals("belege/2025-03-14_4711_Rechnung_März_2025_1_.pdf", entry.getEntryName());
+	}
+
+	@Test
+	void shouldNameEntriesWithoutDateOrFileName()
+	{
+		ArchiveEntry entry = new ArchiveEntry(5L, null, null, null, null, null, null, null, "documents/x", null);
+
+		assertEquals("belege/ohne-datum_5_beleg", entry.getEntryName());
+	}
+}
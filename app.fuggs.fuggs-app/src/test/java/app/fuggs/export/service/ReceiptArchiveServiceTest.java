@@ -0,0 +1,188 @@
+package app.fuggs.export.service;
+
+import app.fuggs.document.domain.Document;
+import app.fuggs.document.repository.DocumentRepository;
+import app.fuggs.document.service.StorageService;
+import app.fuggs.export.domain.ArchiveJob;
+import app.fuggs.export.domain.ExportFilter;
+import app.fuggs.shared.BaseOrganizationTest;
+import io.quarkus.test.junit.QuarkusTest;
+import jakarta.inject.Inject;
+import jakarta.transaction.Transactional;
+import jakarta.transaction.Transactional.TxType;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.equalTo;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@QuarkusTest
+class ReceiptArchiveServiceTest extends BaseOrganizationTest
+{
+	@Inject
+	ReceiptArchiveService receiptArchiveService;
+
+	@Inject
+	DocumentRepository documentRepository;
+
+	@Inject
+	StorageService storageService;
+
+	@Test
+	void shouldWriteEachPartAsCompleteZip() throws IOException
+	{
+		// Given - part-size=2 in the test configuration
+		Long orgId = organizationId();
+		Long first = createDocument("Notenpult", LocalDate.of(2018, 6, 1), uploadFile("Notenpult".getBytes(StandardCharsets.UTF_8)));
+		Long second = createDocument("Saalmiete", LocalDate.of(2018, 6, 2), uploadFile("Saalmiete".getBytes(StandardCharsets.UTF_8)));
+		Long third = createDocument("Busreise", LocalDate.of(2018, 6, 3), "test/archive-missing-" + UUID.randomUUID());
+		ArchiveJob job = receiptArchiveService.createJob(orgId, ExportFilter.of("2018-06-01", "2018-06-30", null,
+			null));
+
+		// When
+		job.start(1);
+		Map<String, String> firstPart = write(job);
+		job.start(2);
+		Map<String, String> secondPart = write(job);
+
+		// Then
+		assertThat(job.getParts(), equalTo(2));
+		assertThat(job.getStatus(), equalTo(ArchiveJob.Status.COMPLETED));
+		assertThat(firstPart.keySet(), contains(
+			"belege/2018-06-01_" + first + "_beleg",
+			"belege/2018-06-02_" + second + "_beleg",
+			ReceiptArchiveService.INDEX_ENTRY));
+		assertThat(firstPart.get("belege/2018-06-02_" + second + "_beleg"), equalTo("Saalmiete"));
+		assertThat(secondPart.keySet(), contains(ReceiptArchiveService.INDEX_ENTRY));
+		assertThat(secondPart.get(ReceiptArchiveService.INDEX_ENTRY), containsString("\"" + third + "\""));
+		assertThat(secondPart.get(ReceiptArchiveService.INDEX_ENTRY), containsString("\"Datei fehlt\""));
+		assertThat(job.getProgress().written(), equalTo(3L));
+		assertThat(job.getProgress().missing(), equalTo(1L));
+	}
+
+	@Test
+	void shouldWriteInterruptedPartAgainFromItsStart() throws IOException
+	{
+		// Given - receipts that do not compress, so the client breaks off
+		// within the part
+		Long orgId = organizationId();
+		Long first = createDocument("Noten", LocalDate.of(2018, 7, 1), uploadFile(randomBytes(64 * 1024)));
+		Long second = createDocument("Bühne", LocalDate.of(2018, 7, 2), uploadFile(randomBytes(64 * 1024)));
+		ArchiveJob job = receiptArchiveService.createJob(orgId, ExportFilter.of("2018-07-01", "2018-07-31", null,
+			null));
+		job.start(1);
+		assertThrows(UncheckedIOException.class,
+			() -> receiptArchiveService.write(job, new BrokenOutputStream(80 * 1024)));
+		assertThat(job.getStatus(), equalTo(ArchiveJob.Status.INTERRUPTED));
+		assertThat(job.getProgress().written(), equalTo(0L));
+
+		// When
+		job.start(1);
+		Map<String, String> part = write(job);
+
+		// Then
+		assertThat(part.keySet(), contains(
+			"belege/2018-07-01_" + first + "_beleg",
+			"belege/2018-07-02_" + second + "_beleg",
+			ReceiptArchiveService.INDEX_ENTRY));
+		assertThat(job.getStatus(), equalTo(ArchiveJob.Status.COMPLETED));
+		assertThat(job.getProgress().written(), equalTo(2L));
+	}
+
+	private Map<String, String> write(ArchiveJob job) throws IOException
+	{
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		receiptArchiveService.write(job, output);
+
+		Map<String, String> entries = new LinkedHashMap<>();
+		try (ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(output.toByteArray()),
+			StandardCharsets.UTF_8))
+		{
+			ZipEntry entry;
+			while ((entry = zip.getNextEntry()) != null)
+			{
+				entries.put(entry.getName(), new String(zip.readAllBytes(), StandardCharsets.UTF_8));
+			}
+		}
+		return entries;
+	}
+
+	private String uploadFile(byte[] content)
+	{
+		String key = "test/archive-" + UUID.randomUUID();
+		storageService.uploadFile(key, content, "application/octet-stream");
+		return key;
+	}
+
+	private static byte[] randomBytes(int size)
+	{
+		byte[] bytes = new byte[size];
+		new Random(42).nextBytes(bytes);
+		return bytes;
+	}
+
+	@Transactional(TxType.REQUIRES_NEW)
+	Long organizationId()
+	{
+		return getOrCreateTestOrganization().getId();
+	}
+
+	@Transactional(TxType.REQUIRES_NEW)
+	Long createDocument(String name, LocalDate date, String fileKey)
+	{
+		Document document = new Document();
+		document.setName(name);
+		document.setCurrencyCode("EUR");
+		document.setTransactionTime(date.atStartOfDay(ZoneId.systemDefault()).toInstant());
+		document.setFileKey(fileKey);
+		document.setOrganization(getOrCreateTestOrganization());
+		documentRepository.persist(document);
+		return document.getId();
+	}
+
+	/**
+	 * Accepts a number of bytes and then fails like a disconnected client.
+	 */
+	private static class BrokenOutputStream extends OutputStream
+	{
+		private long remaining;
+
+		BrokenOutputStream(long limit)
+		{
+			remaining = limit;
+		}
+
+		@Override
+		public void write(int b) throws IOException
+		{
+			write(new byte[] { (byte)b }, 0, 1);
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException
+		{
+			if (len > remaining)
+			{
+				throw new IOException("Connection reset");
+			}
+			remaining -= len;
+		}
+	}
+}
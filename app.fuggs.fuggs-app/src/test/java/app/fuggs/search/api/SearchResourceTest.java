@@ -0,0 +1,85 @@
+package app.fuggs.search.api;
+
+import app.fuggs.organization.domain.Organization;
+import app.fuggs.shared.BaseOrganizationTest;
+import app.fuggs.shared.TestSecurityHelper;
+import app.fuggs.transaction.domain.TransactionRecord;
+import app.fuggs.transaction.repository.TransactionRecordRepository;
+import io.quarkus.test.junit.QuarkusTest;
+import io.quarkus.test.security.TestSecurity;
+import jakarta.inject.Inject;
+import jakarta.transaction.Transactional;
+import jakarta.transaction.Transactional.TxType;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static io.restassured.RestAssured.given;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.not;
+
+@QuarkusTest
+@TestSecurity(user = TestSecurityHelper.TEST_USER_MARIA, roles = "user")
+class SearchResourceTest extends BaseOrganizationTest
+{
+	@Inject
+	TransactionRecordRepository transactionRepository;
+
+	@BeforeEach
+	void setupOrganizationContext()
+	{
+		Organization testOrg = getOrCreateTestOrganization();
+		createTestMember(TestSecurityHelper.TEST_USER_MARIA, testOrg);
+	}
+
+	@Test
+	void shouldFindTransactionByStemmedName()
+	{
+		// Given
+		createTestTransaction("Getränke für das Sommerfest", "84.20");
+
+		// When/Then - German stemming matches the singular form
+		given()
+			.when().get("/suche?q=Sommerfeste")
+			.then()
+			.statusCode(200)
+			.body(containsString("Getränke für das Sommerfest"))
+			.body(containsString("Transaktion"));
+	}
+
+	@Test
+	void shouldFindTransactionByAmount()
+	{
+		// Given
+		createTestTransaction("Hallenmiete", "312.75");
+
+		// When/Then
+		given()
+			.when().get("/suche?q=312,75")
+			.then()
+			.statusCode(200)
+			.body(containsString("Hallenmiete"));
+	}
+
+	@Test
+	void shouldShowHintWithoutQuery()
+	{
+		given()
+			.when().get("/suche")
+			.then()
+			.statusCode(200)
+			.body(containsString("Durchsucht Belege und Transaktionen"))
+			.body(not(containsString("Keine Treffer")));
+	}
+
+	@Transactional(TxType.REQUIRES_NEW)
+	TransactionRecord createTestTransaction(String name, String total)
+	{
+		TransactionRecord t = new TransactionRecord(new BigDecimal(total), "test-user");
+		t.setName(name);
+		t.setOrganization(getOrCreateTestOrganization());
+		transactionRepository.persist(t);
+		return t;
+	}
+}
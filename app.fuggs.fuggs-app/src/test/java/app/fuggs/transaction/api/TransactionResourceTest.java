@@ -112,6 +112,20 @@ class TransactionResourceTest extends BaseOrganizationTest
 			.body(containsString("Detail Test"));
 	}
 
+	@Test
+	void shouldShowEmptyHistory()
+	{
+		deleteAllData();
+		TransactionRecord transaction = createTestTransaction("History Test", "12.00");
+
+		given()
+			.when().get("/transaktionen/" + transaction.getId() + "/verlauf")
+			.then()
+			.statusCode(200)
+			.body(containsString("Verlauf: History Test"))
+			.body(containsString("Noch keine Änderungen aufgezeichnet."));
+	}
+
 	@Transactional(TxType.REQUIRES_NEW)
 	void deleteAllData()
 	{
@@ -0,0 +1,253 @@
+package app.fuggs.tagging;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * In-memory cache of generated tags, so recurring documents of a vendor are
+ * tagged without asking the AI again.
+ * <p>
+ * Entries are keyed by a hash of {@link TagPrompt#fingerprint()}, which
+ * ignores numbers, dates and amounts. If {@link Settings#similarityThreshold()}
+ * is set, a miss falls back to the most similar entry of the same vendor by
+ * embedding cosine similarity. The cache holds at most
+ * {@link Settings#maxSize()} entries, evicting the least recently used, and
+ * drops entries older than {@link Settings#ttl()}. Empty results are not
+ * cached, they usually mean the generation failed.
+ * </p>
+ * <p>
+ * The services create one instance from their own configuration prefix, see
+ * their {@code TagCacheProducer}.
+ * </p>
+ */
+public class TagCache
+{
+	private static final Logger LOG = LoggerFactory.getLogger(TagCache.class);
+
+	/**
+	 * @param enabled
+	 *            whether tags are cached at all
+	 * @param maxSize
+	 *            maximum number of entries
+	 * @param ttl
+	 *            age after which entries are dropped
+	 * @param similarityThreshold
+	 *            minimum cosine similarity of a fallback entry; empty disables
+	 *            the lookup by embedding
+	 */
+	public record Settings(boolean enabled, int maxSize, Duration ttl, Optional<Double> similarityThreshold)
+	{
+	}
+
+	private final boolean enabled;
+	private final int maxSize;
+	private final Duration ttl;
+	private final Optional<Double> similarityThreshold;
+	private final Supplier<EmbeddingModel> embeddingModel;
+
+	private final Map<String, CachedTags> entries = new LinkedHashMap<>(16, 0.75f, true);
+	private final Counter hits;
+	private final Counter similarHits;
+	private final Counter misses;
+
+	/**
+	 * @param settings
+	 *            the cache configuration
+	 * @param embeddingModel
+	 *            supplies the model for the lookup by embedding, null if
+	 *            there is none; only called if a similarity threshold is set
+	 * @param meterRegistry
+	 *            registry of the hit, miss and size metrics
+	 */
+	public TagCache(Settings settings, Supplier<EmbeddingModel> embeddingModel, MeterRegistry meterRegistry)
+	{
+		this.enabled = settings.enabled();
+		this.maxSize = settings.maxSize();
+		this.ttl = settings.ttl();
+		this.similarityThreshold = settings.similarityThreshold();
+		this.embeddingModel = embeddingModel;
+		hits = meterRegistry.counter("fuggs.tags.cache.requests", "result", "hit");
+		similarHits = meterRegistry.counter("fuggs.tags.cache.requests", "result", "similar");
+		misses = meterRegistry.counter("fuggs.tags.cache.requests", "result", "miss");
+		meterRegistry.gauge("fuggs.tags.cache.size", this, TagCache::currentSize);
+	}
+
+	/**
+	 * Returns the cached tags for the prompt or generates and caches them.
+	 *
+	 * @param prompt
+	 *            the prompt data of the document
+	 * @param generator
+	 *            generates the tags on a cache miss
+	 * @return the tags
+	 */
+	public List<String> getOrGenerate(TagPrompt prompt, Supplier<List<String>> generator)
+	{
+		String fingerprint = prompt.fingerprint();
+		if (!enabled || fingerprint.isEmpty())
+		{
+			return generator.get();
+		}
+
+		String key = hash(fingerprint);
+		String vendorKey = VendorNames.normalize(prompt.vendor());
+		Optional<List<String>> cached = find(key);
+		if (cached.isPresent())
+		{
+			hits.increment();
+			LOG.debug("Tag cache hit: key={}", key);
+			return cached.get();
+		}
+
+		float[] vector = embed(fingerprint);
+		if (vector != null)
+		{
+			Optional<List<String>> similar = findSimilar(vendorKey, vector);
+			if (similar.isPresent())
+			{
+				similarHits.increment();
+				LOG.debug("Tag cache hit by similarity: key={}", key);
+				return similar.get();
+			}
+		}
+
+		misses.increment();
+		List<String> tags = generator.get();
+		if (tags != null && !tags.isEmpty())
+		{
+			put(key, new CachedTags(List.copyOf(tags), vendorKey, vector, Instant.now()));
+		}
+		return tags;
+	}
+
+	synchronized int currentSize()
+	{
+		return entries.size();
+	}
+
+	private synchronized Optional<List<String>> find(String key)
+	{
+		CachedTags cached = entries.get(key);
+		if (cached == null)
+		{
+			return Optional.empty();
+		}
+		if (isExpired(cached))
+		{
+			entries.remove(key);
+			return Optional.empty();
+		}
+		return Optional.of(cached.tags());
+	}
+
+	private synchronized Optional<List<String>> findSimilar(String vendorKey, float[] vector)
+	{
+		double threshold = similarityThreshold.orElse(1.0);
+		CachedTags best = null;
+		double bestSimilarity = threshold;
+		for (CachedTags cached : entries.values())
+		{
+			if (cached.vector() == null || !cached.vendorKey().equals(vendorKey) || isExpired(cached))
+			{
+				continue;
+			}
+			double similarity = cosineSimilarity(vector, cached.vector());
+			if (similarity >= bestSimilarity)
+			{
+				best = cached;
+				bestSimilarity = similarity;
+			}
+		}
+		return Optional.ofNullable(best).map(CachedTags::tags);
+	}
+
+	private synchronized void put(String key, CachedTags tags)
+	{
+		entries.put(key, tags);
+		Iterator<Map.Entry<String, CachedTags>> iterator = entries.entrySet().iterator();
+		while (entries.size() > maxSize && iterator.hasNext())
+		{
+			iterator.next();
+			iterator.remove();
+		}
+	}
+
+	private boolean isExpired(CachedTags cached)
+	{
+		return cached.createdAt().plus(ttl).isBefore(Instant.now());
+	}
+
+	/**
+	 * @return the embedding of the fingerprint, null if the similarity lookup
+	 *         is disabled or the embedding failed
+	 */
+	private float[] embed(String fingerprint)
+	{
+		if (similarityThreshold.isEmpty())
+		{
+			return null;
+		}
+		try
+		{
+			EmbeddingModel model = embeddingModel.get();
+			return model != null ? model.embed(fingerprint).content().vector() : null;
+		}
+		catch (Exception e)
+		{
+			LOG.warn("Embedding for tag cache lookup failed: {}", e.getMessage());
+			return null;
+		}
+	}
+
+	static double cosineSimilarity(float[] a, float[] b)
+	{
+		if (a.length != b.length)
+		{
+			return 0;
+		}
+		double dot = 0;
+		double normA = 0;
+		double normB = 0;
+		for (int i = 0; i < a.length; i++)
+		{
+			dot += a[i] * b[i];
+			normA += a[i] * a[i];
+			normB += b[i] * b[i];
+		}
+		return normA == 0 || normB == 0 ? 0 : dot / (Math.sqrt(normA) * Math.sqrt(normB));
+	}
+
+	private static String hash(String fingerprint)
+	{
+		try
+		{
+			MessageDigest digest = MessageDigest.getInstance("SHA-256");
+			return HexFormat.of().formatHex(digest.digest(fingerprint.getBytes(StandardCharsets.UTF_8)));
+		}
+		catch (NoSuchAlgorithmException e)
+		{
+			throw new IllegalStateException("SHA-256 not available", e);
+		}
+	}
+
+	record CachedTags(List<String> tags, String vendorKey, float[] vector, Instant createdAt)
+	{
+	}
+}
@@ -0,0 +1,113 @@
+package app.fuggs.tagging;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * The part of a document the tag generation needs: who sold what, and for how
+ * much. Replaces the serialized document in the prompt, which mostly consists
+ * of addresses, layout data and empty fields. The services build it from
+ * their extraction results with {@link #of}.
+ *
+ * @param vendor
+ *            the seller's or merchant's name
+ * @param items
+ *            distinct line item descriptions, in document order
+ * @param omittedItems
+ *            number of line items left out to stay within the token budget
+ * @param total
+ *            the grand total
+ * @param currency
+ *            the currency code
+ */
+@JsonInclude(JsonInclude.Include.NON_EMPTY)
+public record TagPrompt(String vendor, List<String> items, int omittedItems, BigDecimal total, String currency)
+{
+	/** Rough average for German and English text with GPT tokenizers. */
+	static final int CHARS_PER_TOKEN = 4;
+
+	/** Line items longer than this are cut, the start names the product. */
+	static final int MAX_ITEM_LENGTH = 120;
+
+	/** Allowance for the JSON syntax, vendor and total. */
+	private static final int FIXED_CHARS = 120;
+
+	private static final Pattern DIGITS_AND_PUNCTUATION = Pattern.compile("[^\\p{L}]+");
+
+	/**
+	 * Builds the prompt data, dropping blank and duplicate items and cutting
+	 * the item list once it exceeds the token budget.
+	 *
+	 * @param vendor
+	 *            the seller's or merchant's name
+	 * @param descriptions
+	 *            line item descriptions, may contain blanks and duplicates
+	 * @param total
+	 *            the grand total
+	 * @param currency
+	 *            the currency code
+	 * @param maxTokens
+	 *            token budget; line items that exceed it are left out
+	 * @return the prompt data
+	 */
+	public static TagPrompt of(String vendor, List<String> descriptions, BigDecimal total, String currency,
+		int maxTokens)
+	{
+		int budget = maxTokens * CHARS_PER_TOKEN - FIXED_CHARS - (vendor != null ? vendor.length() : 0);
+		Set<String> distinct = new LinkedHashSet<>();
+		for (String description : descriptions)
+		{
+			if (description != null && !description.isBlank())
+			{
+				distinct.add(truncate(description.strip().replaceAll("\\s+", " ")));
+			}
+		}
+
+		List<String> included = new ArrayList<>();
+		for (String description : distinct)
+		{
+			// Quotes and comma of the JSON array
+			int cost = description.length() + 3;
+			if (cost > budget)
+			{
+				break;
+			}
+			included.add(description);
+			budget -= cost;
+		}
+		return new TagPrompt(vendor, included, distinct.size() - included.size(), total,
+			currency != null && !currency.isBlank() ? currency : null);
+	}
+
+	/**
+	 * Text shared by documents that get the same tags: the normalized vendor
+	 * and the sorted line items without digits and punctuation, so the
+	 * periods, numbers and amounts of recurring invoices do not matter.
+	 *
+	 * @return the fingerprint, empty if there is neither vendor nor item
+	 */
+	public String fingerprint()
+	{
+		String itemText = items.stream()
+			.map(item -> DIGITS_AND_PUNCTUATION.matcher(item.toLowerCase(Locale.ROOT)).replaceAll(" ").strip())
+			.filter(item -> !item.isEmpty())
+			.sorted()
+			.distinct()
+			.collect(Collectors.joining("|"));
+		String vendorKey = VendorNames.normalize(vendor);
+		return vendorKey.isEmpty() && itemText.isEmpty() ? "" : vendorKey + "#" + itemText;
+	}
+
+	private static String truncate(String value)
+	{
+		return value.length() <= MAX_ITEM_LENGTH ? value : value.substring(0, MAX_ITEM_LENGTH - 1) + "…";
+	}
+}
@@ -0,0 +1,37 @@
+package app.fuggs.tagging;
+
+import java.text.Normalizer;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * Normalizes vendor names the same way as {@code TradeParty.normalizeName} in
+ * fuggs-app, so extracted seller and merchant names can be compared with the
+ * known vendors sent by the caller.
+ */
+public final class VendorNames
+{
+	private static final Pattern DIACRITICS = Pattern.compile("\\p{M}+");
+	private static final Pattern NON_ALPHANUMERIC = Pattern.compile("[^a-z0-9]+");
+	private static final Pattern LEGAL_FORM = Pattern.compile(
+		"\\b(gmbh|mbh|ag|kg|kgaa|ohg|gbr|ug|haftungsbeschrankt|e v|e k|co|se|ltd|inc|llc)\\b");
+
+	private VendorNames()
+	{
+		// only call the static method
+	}
+
+	public static String normalize(String name)
+	{
+		if (name == null)
+		{
+			return "";
+		}
+		String folded = Normalizer.normalize(name.toLowerCase(Locale.ROOT).replace("ß", "ss"), Normalizer.Form.NFD);
+		folded = DIACRITICS.matcher(folded).replaceAll("");
+		folded = NON_ALPHANUMERIC.matcher(folded).replaceAll(" ").trim();
+
+		String withoutLegalForm = LEGAL_FORM.matcher(folded).replaceAll(" ").trim().replaceAll(" +", " ");
+		return withoutLegalForm.isEmpty() ? folded : withoutLegalForm;
+	}
+}
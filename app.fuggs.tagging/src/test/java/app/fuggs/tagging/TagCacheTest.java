@@ -0,0 +1,122 @@
+package app.fuggs.tagging;
+
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import dev.langchain4j.model.output.Response;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class TagCacheTest
+{
+	private TagCache cache;
+	private SimpleMeterRegistry meterRegistry;
+	private AtomicInteger generated;
+
+	@BeforeEach
+	void setUp()
+	{
+		meterRegistry = new SimpleMeterRegistry();
+		cache = new TagCache(new TagCache.Settings(true, 2, Duration.ofDays(1), Optional.empty()), () -> null,
+			meterRegistry);
+		generated = new AtomicInteger();
+	}
+
+	@Test
+	void shouldReuseTagsOfRecurringInvoice()
+	{
+		// given - the monthly invoice only differs in period and amount
+		TagPrompt march = prompt("Hetzner Online GmbH", "Cloud Server CX22 01.03.2025 - 31.03.2025", "4.51");
+		TagPrompt april = prompt("Hetzner Online", "Cloud Server CX22 01.04.2025 - 30.04.2025", "4.62");
+
+		// when
+		List<String> first = cache.getOrGenerate(march, () -> generate("cloud", "server"));
+		List<String> second = cache.getOrGenerate(april, () -> generate("falsch"));
+
+		// then
+		assertEquals(List.of("cloud", "server"), first);
+		assertEquals(first, second);
+		assertEquals(1, generated.get());
+		assertEquals(1.0, meterRegistry.counter("fuggs.tags.cache.requests", "result", "hit").count());
+	}
+
+	@Test
+	void shouldNotCacheEmptyResult()
+	{
+		// given
+		TagPrompt prompt = prompt("Musikhaus Thomann", "Notenständer", "19.90");
+
+		// when
+		cache.getOrGenerate(prompt, () -> generate());
+		List<String> tags = cache.getOrGenerate(prompt, () -> generate("musik"));
+
+		// then
+		assertEquals(List.of("musik"), tags);
+		assertEquals(2, generated.get());
+	}
+
+	@Test
+	void shouldEvictLeastRecentlyUsed()
+	{
+		// given
+		TagPrompt a = prompt("Bäckerei Huber", "Brezen", "3.00");
+		TagPrompt b = prompt("Metzgerei Maier", "Leberkäse", "5.00");
+		TagPrompt c = prompt("Getränke Hoffmann", "Apfelschorle", "12.00");
+		cache.getOrGenerate(a, () -> generate("backwaren"));
+		cache.getOrGenerate(b, () -> generate("fleisch"));
+		cache.getOrGenerate(a, () -> generate("backwaren"));
+
+		// when
+		cache.getOrGenerate(c, () -> generate("getränke"));
+		cache.getOrGenerate(b, () -> generate("fleisch"));
+
+		// then - b was evicted by c, a stayed
+		assertEquals(4, generated.get());
+		assertEquals(2, cache.currentSize());
+	}
+
+	@Test
+	void shouldFallBackToSimilarDocumentOfSameVendor()
+	{
+		// given
+		EmbeddingModel model = mock(EmbeddingModel.class);
+		when(model.embed(anyString())).thenReturn(Response.from(Embedding.from(new float[] { 1f, 0.1f })));
+		cache = new TagCache(new TagCache.Settings(true, 2, Duration.ofDays(1), Optional.of(0.9)), () -> model,
+			meterRegistry);
+
+		cache.getOrGenerate(prompt("Hetzner Online", "Cloud Server CX22", "4.51"), () -> generate("cloud"));
+
+		// when
+		List<String> sameVendor = cache.getOrGenerate(prompt("Hetzner Online", "Dedicated Cloud Server", "7.59"),
+			() -> generate("falsch"));
+		List<String> otherVendor = cache.getOrGenerate(prompt("IONOS", "Cloud Server XL", "9.00"),
+			() -> generate("hosting"));
+
+		// then
+		assertEquals(List.of("cloud"), sameVendor);
+		assertEquals(List.of("hosting"), otherVendor);
+		assertEquals(1.0, meterRegistry.counter("fuggs.tags.cache.requests", "result", "similar").count());
+	}
+
+	private List<String> generate(String... tags)
+	{
+		generated.incrementAndGet();
+		return List.of(tags);
+	}
+
+	private static TagPrompt prompt(String vendor, String item, String total)
+	{
+		return new TagPrompt(vendor, List.of(item), 0, new BigDecimal(total), "EUR");
+	}
+}
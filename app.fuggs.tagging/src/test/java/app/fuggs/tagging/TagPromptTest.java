@@ -0,0 +1,61 @@
+package app.fuggs.tagging;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TagPromptTest
+{
+	@Test
+	void shouldDropDuplicateAndBlankItems()
+	{
+		// when
+		TagPrompt prompt = TagPrompt.of("Musikhaus", List.of("Gitarrensaiten", " ", "Gitarrensaiten", "Capo"),
+			null, "", 300);
+
+		// then
+		assertEquals(List.of("Gitarrensaiten", "Capo"), prompt.items());
+		assertNull(prompt.currency());
+	}
+
+	@Test
+	void shouldLeaveOutItemsBeyondTokenBudget()
+	{
+		// given
+		List<String> items = new ArrayList<>();
+		for (int i = 0; i < 200; i++)
+		{
+			items.add("Artikel " + i + " " + "x".repeat(200));
+		}
+
+		// when
+		TagPrompt prompt = TagPrompt.of("Großhandel", items, BigDecimal.TEN, "EUR", 100);
+
+		// then
+		assertTrue(prompt.items().size() < items.size());
+		assertEquals(items.size(), prompt.items().size() + prompt.omittedItems());
+		int chars = prompt.items().stream().mapToInt(String::length).sum();
+		assertTrue(chars <= 100 * TagPrompt.CHARS_PER_TOKEN, "Prompt exceeds budget: " + chars);
+		prompt.items().forEach(item -> assertTrue(item.length() <= TagPrompt.MAX_ITEM_LENGTH));
+	}
+
+	@Test
+	void shouldIgnoreNumbersAndLegalFormInFingerprint()
+	{
+		// given
+		TagPrompt march = TagPrompt.of("Hetzner Online GmbH", List.of("Cloud Server 01.03.2025 - 31.03.2025"),
+			new BigDecimal("4.51"), "EUR", 300);
+		TagPrompt april = TagPrompt.of("Hetzner Online", List.of("Cloud Server 01.04.2025 - 30.04.2025"),
+			new BigDecimal("4.62"), "EUR", 300);
+
+		// when / then
+		assertEquals(march.fingerprint(), april.fingerprint());
+		assertEquals("", TagPrompt.of(null, List.of(), null, null, 300).fingerprint());
+	}
+}
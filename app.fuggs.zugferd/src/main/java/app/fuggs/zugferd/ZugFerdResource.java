@@ -1,10 +1,20 @@
 package app.fuggs.zugferd;
 
+import app.fuggs.zugferd.model.BatchScanResult;
 import app.fuggs.zugferd.model.DocumentData;
+import app.fuggs.zugferd.model.EmbeddedInvoice;
+import app.fuggs.zugferd.model.TagJobResult;
+import app.fuggs.zugferd.service.BatchScanService;
+import app.fuggs.zugferd.service.EmbeddedInvoiceDetector;
+import app.fuggs.zugferd.service.TagJobService;
+import io.quarkus.runtime.configuration.MemorySize;
+import io.smallrye.mutiny.Multi;
+import io.smallrye.mutiny.Uni;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
 import jakarta.ws.rs.*;
 import jakarta.ws.rs.core.MediaType;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
 import org.eclipse.microprofile.openapi.annotations.Operation;
 import org.eclipse.microprofile.openapi.annotations.enums.SchemaType;
 import org.eclipse.microprofile.openapi.annotations.media.Content;
@@ -13,6 +23,9 @@ import org.eclipse.microprofile.openapi.annotations.responses.APIResponse;
 import org.eclipse.microprofile.openapi.annotations.responses.APIResponses;
 import org.jboss.resteasy.reactive.PartType;
 import org.jboss.resteasy.reactive.RestForm;
+import org.jboss.resteasy.reactive.RestMediaType;
+import org.jboss.resteasy.reactive.RestQuery;
+import org.jboss.resteasy.reactive.RestStreamElementType;
 import org.jboss.resteasy.reactive.multipart.FileUpload;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -20,7 +33,14 @@ import org.slf4j.LoggerFactory;
 import javax.xml.xpath.XPathExpressionException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
 import java.text.ParseException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 
 @Path("/api/zugferd")
 @ApplicationScoped
@@ -31,6 +51,28 @@ public class ZugFerdResource
 	@Inject
 	ZugFerdService service;
 
+	@Inject
+	EmbeddedInvoiceDetector embeddedInvoiceDetector;
+
+	@Inject
+	BatchScanService batchScanService;
+
+	@Inject
+	TagJobService tagJobService;
+
+	@ConfigProperty(name = "app.fuggs.zugferd.batch.max-documents", defaultValue = "100")
+	int maxBatchDocuments;
+
+	@ConfigProperty(name = "app.fuggs.zugferd.tags.max-wait", defaultValue = "PT30S")
+	Duration maxTagWait;
+
+	/**
+	 * Largest PDF accepted by the single-document endpoints. The HTTP body
+	 * limit is sized for batches, and a raw body is read into memory.
+	 */
+	@ConfigProperty(name = "app.fuggs.zugferd.max-document-size", defaultValue = "20M")
+	MemorySize maxDocumentSize;
+
 	@POST
 	@Path("/document/scan")
 	@Consumes(MediaType.MULTIPART_FORM_DATA)
@@ -38,6 +80,7 @@ public class ZugFerdResource
 	@Operation(summary = "Upload and process ZUGFeRD invoice", description = "Uploads a PDF file containing a ZUGFeRD invoice and extracts its data")
 	@APIResponses(value = {
 		@APIResponse(responseCode = "200", description = "Document successfully processed", content = @Content(mediaType = MediaType.APPLICATION_JSON, schema = @Schema(implementation = DocumentData.class))),
+		@APIResponse(responseCode = "413", description = "PDF larger than app.fuggs.zugferd.max-document-size"),
 		@APIResponse(responseCode = "422", description = "Invalid PDF file or parsing error", content = @Content(mediaType = MediaType.APPLICATION_JSON))
 	})
 	public DocumentData uploadDocument(
@@ -45,18 +88,207 @@ public class ZugFerdResource
 		@RestForm @PartType(MediaType.TEXT_PLAIN) @Schema(description = "Transaction record ID for tracking", examples = "12345") Long transactionRecordId)
 		throws IOException
 	{
-		try (InputStream stream = document.uploadedFile().toFile().toPath().toUri().toURL().openStream())
+		checkSize(document.size());
+		try (InputStream stream = Files.newInputStream(document.uploadedFile()))
+		{
+			return scan(transactionRecordId, stream, List.of());
+		}
+	}
+
+	@POST
+	@Path("/document/scan")
+	@Consumes(MediaType.APPLICATION_OCTET_STREAM)
+	@Produces(MediaType.APPLICATION_JSON)
+	@Operation(summary = "Process ZUGFeRD invoice sent as request body", description = "Extracts the data of a ZUGFeRD invoice PDF sent as raw request body, without a multipart temp file")
+	@APIResponses(value = {
+		@APIResponse(responseCode = "200", description = "Document successfully processed", content = @Content(mediaType = MediaType.APPLICATION_JSON, schema = @Schema(implementation = DocumentData.class))),
+		@APIResponse(responseCode = "413", description = "PDF larger than app.fuggs.zugferd.max-document-size"),
+		@APIResponse(responseCode = "422", description = "Invalid PDF file or parsing error", content = @Content(mediaType = MediaType.APPLICATION_JSON))
+	})
+	public DocumentData scanDocumentBody(InputStream document,
+		@RestQuery @Schema(description = "Transaction record ID for tracking", examples = "12345") Long transactionRecordId,
+		@RestQuery("knownVendor") @Schema(description = "Normalized names of vendors that need no AI tags") List<String> knownVendors,
+		@RestQuery @Schema(description = "Return without tags and generate them in the background, see tagJobId") boolean asyncTags)
+	{
+		byte[] pdf = readBody(document, transactionRecordId);
+		try
+		{
+			return service.scanDocument(transactionRecordId, pdf,
+				knownVendors != null ? Set.copyOf(knownVendors) : Set.of(), asyncTags);
+		}
+		catch (ParseException | XPathExpressionException e)
+		{
+			throw unparsablePdf(transactionRecordId, e);
+		}
+	}
+
+	@GET
+	@Path("/document/tags/{jobId}")
+	@Produces(MediaType.APPLICATION_JSON)
+	@Operation(summary = "Fetch tags generated in the background", description = "Returns the tags of a scan started with asyncTags. Waits up to waitSeconds for the generation to finish and reports done=false if it is still running.")
+	@APIResponses(value = {
+		@APIResponse(responseCode = "200", description = "Current state of the tag generation", content = @Content(mediaType = MediaType.APPLICATION_JSON, schema = @Schema(implementation = TagJobResult.class))),
+		@APIResponse(responseCode = "404", description = "Unknown or expired job")
+	})
+	public Uni<TagJobResult> tags(@PathParam("jobId") String jobId,
+		@RestQuery @Schema(description = "Seconds to wait for the tags", examples = "20") int waitSeconds)
+	{
+		CompletableFuture<List<String>> tags = tagJobService.find(jobId)
+			.orElseThrow(() -> new WebApplicationException("Unknown tag job", 404));
+		if (tags.isDone() || waitSeconds <= 0)
 		{
-			try
-			{
-				return service.scanDocument(transactionRecordId, stream);
-			}
-			catch (ParseException | XPathExpressionException e)
-			{
-				LOGGER.info("Scanning document failed (transactionRecordId={})", transactionRecordId);
-				// 422 means Unprocessable Entity
-				throw new WebApplicationException("Could not parse PDF", e, 422);
-			}
+			return Uni.createFrom().item(tags.isDone()
+				? new TagJobResult(jobId, true, tags.join())
+				: TagJobResult.pending(jobId));
 		}
+
+		Duration wait = Duration.ofSeconds(waitSeconds);
+		return Uni.createFrom().completionStage(tags)
+			.map(result -> new TagJobResult(jobId, true, result))
+			.ifNoItem().after(wait.compareTo(maxTagWait) < 0 ? wait : maxTagWait)
+			.recoverWithItem(() -> TagJobResult.pending(jobId));
+	}
+
+	@POST
+	@Path("/document/scan/batch")
+	@Consumes(MediaType.MULTIPART_FORM_DATA)
+	@Produces(RestMediaType.APPLICATION_NDJSON)
+	@RestStreamElementType(MediaType.APPLICATION_JSON)
+	@Operation(summary = "Process many ZUGFeRD invoices", description = "Uploads several PDF files as repeated 'document' parts and streams one JSON line per file as soon as it is processed. Failures are reported per file.")
+	@APIResponses(value = {
+		@APIResponse(responseCode = "200", description = "One result per file, in completion order", content = @Content(mediaType = RestMediaType.APPLICATION_NDJSON, schema = @Schema(implementation = BatchScanResult.class))),
+		@APIResponse(responseCode = "400", description = "No files uploaded"),
+		@APIResponse(responseCode = "413", description = "Too many files in one batch")
+	})
+	public Multi<BatchScanResult> scanBatch(
+		@RestForm("document") @Schema(type = SchemaType.ARRAY, format = "binary") List<FileUpload> documents,
+		@RestQuery("knownVendor") @Schema(description = "Normalized names of vendors that need no AI tags") List<String> knownVendors)
+	{
+		if (documents == null || documents.isEmpty())
+		{
+			throw new WebApplicationException("No documents uploaded", 400);
+		}
+		if (documents.size() > maxBatchDocuments)
+		{
+			throw new WebApplicationException("At most " + maxBatchDocuments + " documents per batch", 413);
+		}
+
+		List<BatchScanService.Item> items = new ArrayList<>(documents.size());
+		for (int i = 0; i < documents.size(); i++)
+		{
+			FileUpload document = documents.get(i);
+			items.add(new BatchScanService.Item(i, document.fileName(), document.uploadedFile()));
+		}
+		return batchScanService.scan(items, knownVendors != null ? Set.copyOf(knownVendors) : Set.of());
+	}
+
+	@POST
+	@Path("/document/detect")
+	@Consumes(MediaType.MULTIPART_FORM_DATA)
+	@Produces(MediaType.APPLICATION_JSON)
+	@Operation(summary = "Check PDF for an embedded e-invoice", description = "Looks up a ZUGFeRD, Factur-X or XRechnung XML in the embedded files of a PDF without extracting it")
+	@APIResponses(value = {
+		@APIResponse(responseCode = "200", description = "PDF checked", content = @Content(mediaType = MediaType.APPLICATION_JSON, schema = @Schema(implementation = EmbeddedInvoice.class))),
+		@APIResponse(responseCode = "413", description = "PDF larger than app.fuggs.zugferd.max-document-size"),
+		@APIResponse(responseCode = "422", description = "Invalid PDF file", content = @Content(mediaType = MediaType.APPLICATION_JSON))
+	})
+	public EmbeddedInvoice detectDocument(
+		@RestForm("document") @Schema(type = SchemaType.OBJECT, format = "binary") FileUpload document,
+		@RestForm @PartType(MediaType.TEXT_PLAIN) @Schema(description = "Transaction record ID for tracking", examples = "12345") Long transactionRecordId)
+	{
+		checkSize(document.size());
+		try
+		{
+			return logDetection(transactionRecordId, embeddedInvoiceDetector.detect(document.uploadedFile()));
+		}
+		catch (IOException e)
+		{
+			throw unreadablePdf(transactionRecordId, e);
+		}
+	}
+
+	@POST
+	@Path("/document/detect")
+	@Consumes(MediaType.APPLICATION_OCTET_STREAM)
+	@Produces(MediaType.APPLICATION_JSON)
+	@Operation(summary = "Check PDF sent as request body for an embedded e-invoice", description = "Looks up a ZUGFeRD, Factur-X or XRechnung XML in the embedded files of a PDF sent as raw request body")
+	@APIResponses(value = {
+		@APIResponse(responseCode = "200", description = "PDF checked", content = @Content(mediaType = MediaType.APPLICATION_JSON, schema = @Schema(implementation = EmbeddedInvoice.class))),
+		@APIResponse(responseCode = "413", description = "PDF larger than app.fuggs.zugferd.max-document-size"),
+		@APIResponse(responseCode = "422", description = "Invalid PDF file", content = @Content(mediaType = MediaType.APPLICATION_JSON))
+	})
+	public EmbeddedInvoice detectDocumentBody(InputStream document,
+		@RestQuery @Schema(description = "Transaction record ID for tracking", examples = "12345") Long transactionRecordId)
+	{
+		byte[] pdf = readBody(document, transactionRecordId);
+		try
+		{
+			return logDetection(transactionRecordId, embeddedInvoiceDetector.detect(pdf));
+		}
+		catch (IOException e)
+		{
+			throw unreadablePdf(transactionRecordId, e);
+		}
+	}
+
+	/**
+	 * Reads a raw request body, at most {@link #maxDocumentSize} bytes. A body
+	 * that breaks off is rejected like an unreadable PDF.
+	 */
+	private byte[] readBody(InputStream body, Long transactionRecordId)
+	{
+		long limit = maxDocumentSize.asLongValue();
+		byte[] pdf;
+		try
+		{
+			pdf = body.readNBytes((int)Math.min(limit + 1, Integer.MAX_VALUE - 8));
+		}
+		catch (IOException e)
+		{
+			LOGGER.info("Reading document failed (transactionRecordId={})", transactionRecordId);
+			throw new WebApplicationException("Could not read PDF", e, 422);
+		}
+		checkSize(pdf.length);
+		return pdf;
+	}
+
+	private void checkSize(long size)
+	{
+		if (size > maxDocumentSize.asLongValue())
+		{
+			throw new WebApplicationException("PDF larger than " + maxDocumentSize.asLongValue() + " bytes", 413);
+		}
+	}
+
+	private static EmbeddedInvoice logDetection(Long transactionRecordId, EmbeddedInvoice result)
+	{
+		LOGGER.debug("Checked document for embedded invoice (transactionRecordId={}, embedded={}, fileName={})",
+			transactionRecordId, result.embedded(), result.fileName());
+		return result;
+	}
+
+	private static WebApplicationException unreadablePdf(Long transactionRecordId, IOException e)
+	{
+		LOGGER.info("Checking document for embedded invoice failed (transactionRecordId={})", transactionRecordId);
+		return new WebApplicationException("Could not read PDF", e, 422);
+	}
+
+	private DocumentData scan(Long transactionRecordId, InputStream stream, List<String> knownVendors)
+	{
+		try
+		{
+			return service.scanDocument(transactionRecordId, stream, Set.copyOf(knownVendors), false);
+		}
+		catch (ParseException | XPathExpressionException | UncheckedIOException e)
+		{
+			throw unparsablePdf(transactionRecordId, e);
+		}
+	}
+
+	private static WebApplicationException unparsablePdf(Long transactionRecordId, Exception e)
+	{
+		LOGGER.info("Scanning document failed (transactionRecordId={})", transactionRecordId);
+		// 422 means Unprocessable Entity
+		return new WebApplicationException("Could not parse PDF", e, 422);
 	}
 }
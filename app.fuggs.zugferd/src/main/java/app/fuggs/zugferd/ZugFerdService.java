@@ -1,20 +1,34 @@
 package app.fuggs.zugferd;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
 import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
 import java.text.ParseException;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
+import java.util.Optional;
+import java.util.Set;
 
 import javax.xml.xpath.XPathExpressionException;
 
+import org.eclipse.microprofile.config.inject.ConfigProperty;
 import org.mustangproject.Invoice;
 import org.mustangproject.ZUGFeRD.ZUGFeRDImporter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import app.fuggs.tagging.VendorNames;
 import app.fuggs.zugferd.model.DocumentData;
 import app.fuggs.zugferd.model.DocumentDataHandler;
+import app.fuggs.zugferd.model.InvoiceHeader;
+import app.fuggs.zugferd.service.EmbeddedInvoiceDetector;
+import app.fuggs.zugferd.service.InvoiceXmlExtractor;
 import app.fuggs.zugferd.service.TagGenerationService;
+import app.fuggs.zugferd.service.TagJobService;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
 
@@ -26,32 +40,211 @@ public class ZugFerdService
 	@Inject
 	TagGenerationService tagGenerationService;
 
+	@Inject
+	TagJobService tagJobService;
+
+	@Inject
+	EmbeddedInvoiceDetector embeddedInvoiceDetector;
+
+	@Inject
+	InvoiceXmlExtractor invoiceXmlExtractor;
+
+	@ConfigProperty(name = "app.fuggs.zugferd.fast-extraction.enabled", defaultValue = "true")
+	boolean fastExtraction;
+
 	public DocumentData scanDocument(Long transactionRecordId, InputStream stream)
 		throws XPathExpressionException, ParseException
+	{
+		return scanDocument(transactionRecordId, stream, Set.of());
+	}
+
+	/**
+	 * Extracts the invoice embedded in a PDF. Tag generation is skipped if the
+	 * seller is one of the caller's known vendors.
+	 *
+	 * @param transactionRecordId
+	 *            ID used for logging
+	 * @param stream
+	 *            the PDF content
+	 * @param knownVendors
+	 *            normalized names of vendors that need no AI tags
+	 * @return the extracted data
+	 */
+	public DocumentData scanDocument(Long transactionRecordId, InputStream stream, Collection<String> knownVendors)
+		throws XPathExpressionException, ParseException
+	{
+		return scanDocument(transactionRecordId, stream, knownVendors, false);
+	}
+
+	/**
+	 * Extracts the invoice embedded in a PDF. CII and UBL invoices are read by
+	 * the {@link InvoiceXmlExtractor}; ZUGFeRD 1 and anything it cannot read
+	 * go through the {@code ZUGFeRDImporter}. With {@code asyncTags} the data
+	 * is returned without waiting for the AI: the tags are empty and
+	 * {@link DocumentData#tagJobId()} names the background job that generates
+	 * them. The job ID is null if no tags are generated at all.
+	 *
+	 * @param transactionRecordId
+	 *            ID used for logging
+	 * @param stream
+	 *            the PDF content
+	 * @param knownVendors
+	 *            normalized names of vendors that need no AI tags
+	 * @param asyncTags
+	 *            whether to generate the tags in the background
+	 * @return the extracted data
+	 */
+	public DocumentData scanDocument(Long transactionRecordId, InputStream stream, Collection<String> knownVendors,
+		boolean asyncTags) throws XPathExpressionException, ParseException
+	{
+		return scanDocument(transactionRecordId, readAll(stream), knownVendors, asyncTags);
+	}
+
+	/**
+	 * Extracts the invoice embedded in a PDF already held in memory, see
+	 * {@link #scanDocument(Long, InputStream, Collection, boolean)}.
+	 */
+	public DocumentData scanDocument(Long transactionRecordId, byte[] pdf, Collection<String> knownVendors,
+		boolean asyncTags) throws XPathExpressionException, ParseException
 	{
 		LOG.info("Starting scan of document (transactionRecordId={})", transactionRecordId);
+		byte[] xml = readInvoiceXml(transactionRecordId, pdf);
+
+		Optional<InvoiceHeader> header = fastExtraction && xml != null
+			? invoiceXmlExtractor.extract(xml)
+			: Optional.empty();
+		if (header.isPresent())
+		{
+			return scanHeader(transactionRecordId, header.get(), knownVendors, asyncTags);
+		}
+		return scanWithMustang(transactionRecordId, pdf, xml, knownVendors, asyncTags);
+	}
+
+	/**
+	 * @return the embedded invoice XML, null if there is none or the PDF
+	 *         cannot be read
+	 */
+	private byte[] readInvoiceXml(Long transactionRecordId, byte[] pdf)
+	{
+		try
+		{
+			return embeddedInvoiceDetector.readInvoiceXml(pdf);
+		}
+		catch (IOException e)
+		{
+			// Mustang reports the unreadable PDF
+			LOG.debug("Reading embedded invoice failed (transactionRecordId={}): {}", transactionRecordId,
+				e.getMessage());
+			return null;
+		}
+	}
+
+	private DocumentData scanHeader(Long transactionRecordId, InvoiceHeader header,
+		Collection<String> knownVendors, boolean asyncTags)
+	{
+		LOG.info(
+			"Successfully extracted invoice header from XML (transactionRecordId={}, grandTotal={}, totalTax={})",
+			transactionRecordId, header.total(), header.taxTotal());
+
+		List<String> tags = Collections.emptyList();
+		String tagJobId = null;
+		if (isKnownVendor(header.seller().name(), knownVendors))
+		{
+			LOG.info("Skipping tag generation for known vendor (transactionRecordId={})", transactionRecordId);
+		}
+		else if (asyncTags)
+		{
+			tagJobId = tagJobService.submit(() -> tagGenerationService.generateTagsForHeader(header));
+			LOG.info("Generating tags in background (transactionRecordId={}, tagJobId={})", transactionRecordId,
+				tagJobId);
+		}
+		else
+		{
+			tags = tagGenerationService.generateTagsForHeader(header);
+		}
+		return DocumentDataHandler.fromHeader(header, tags, tagJobId);
+	}
+
+	private DocumentData scanWithMustang(Long transactionRecordId, byte[] pdf, byte[] xml,
+		Collection<String> knownVendors, boolean asyncTags) throws XPathExpressionException, ParseException
+	{
+		// The importer keeps the parsed invoice, so it is not shared between
+		// scans; JaxpFactories makes creating one cheap
 		ZUGFeRDImporter importer = new ZUGFeRDImporter();
 		importer.doIgnoreCalculationErrors(); // Ignore validation errors for
 												// incomplete invoices
-		importer.setInputStream(stream);
+		if (xml != null)
+		{
+			// Factur-X and ZUGFeRD prescribe UTF-8; spares parsing the PDF
+			// again
+			importer.fromXML(new String(xml, StandardCharsets.UTF_8));
+		}
+		else
+		{
+			importer.setInputStream(new ByteArrayInputStream(pdf));
+		}
 		Invoice invoice = importer.extractInvoice();
 		// Get values directly from the importer (reads from XML header)
 		// because TransactionCalculator returns 0 when calculation errors are
 		// ignored
 		BigDecimal grandTotal = parseBigDecimal(importer.getAmount());
-		BigDecimal totalTax = parseBigDecimal(importer.getTaxTotalAmount());
-		BigDecimal taxBasis = parseBigDecimal(importer.getTaxBasisTotalAmount());
 		LOG.info(
-			"Successfully extracted invoice from PDF (transactionRecordId={}, grandTotal={}, totalTax={})",
-			transactionRecordId, grandTotal, totalTax);
+			"Successfully extracted invoice from PDF with Mustang (transactionRecordId={}, grandTotal={})",
+			transactionRecordId, grandTotal);
+
+		// Generate AI-powered tags for the invoice, unless the caller tags
+		// documents of this seller itself
+		List<String> tags = Collections.emptyList();
+		String tagJobId = null;
+		String seller = invoice.getSender() != null ? invoice.getSender().getName() : null;
+		if (isKnownVendor(seller, knownVendors))
+		{
+			LOG.info("Skipping tag generation for known vendor (transactionRecordId={})", transactionRecordId);
+		}
+		else if (asyncTags)
+		{
+			tagJobId = tagJobService.submit(() -> tagGenerationService.generateTagsForInvoice(invoice, grandTotal));
+			LOG.info("Generating tags in background (transactionRecordId={}, tagJobId={})", transactionRecordId,
+				tagJobId);
+		}
+		else
+		{
+			tags = tagGenerationService.generateTagsForInvoice(invoice, grandTotal);
+		}
+
+		return fromImporter(importer, invoice, tags, tagJobId);
+	}
+
+	/**
+	 * Maps an invoice extracted by Mustang, taking the totals from the XML
+	 * header like the {@link InvoiceXmlExtractor}.
+	 */
+	static DocumentData fromImporter(ZUGFeRDImporter importer, Invoice invoice, List<String> tags, String tagJobId)
+		throws XPathExpressionException
+	{
+		return DocumentDataHandler.fromZugferd(invoice, parseBigDecimal(importer.getAmount()),
+			parseBigDecimal(importer.getTaxTotalAmount()), parseBigDecimal(importer.getTaxBasisTotalAmount()), tags,
+			tagJobId);
+	}
 
-		// Generate AI-powered tags for the invoice
-		List<String> tags = tagGenerationService.generateTagsForInvoice(invoice);
+	private static boolean isKnownVendor(String seller, Collection<String> knownVendors)
+	{
+		return !knownVendors.isEmpty() && seller != null && knownVendors.contains(VendorNames.normalize(seller));
+	}
 
-		return DocumentDataHandler.fromZugferd(invoice, grandTotal, totalTax, taxBasis, tags);
+	private static byte[] readAll(InputStream stream)
+	{
+		try
+		{
+			return stream.readAllBytes();
+		}
+		catch (IOException e)
+		{
+			throw new UncheckedIOException(e);
+		}
 	}
 
-	private BigDecimal parseBigDecimal(String value)
+	private static BigDecimal parseBigDecimal(String value)
 	{
 		if (value == null || value.isEmpty())
 		{
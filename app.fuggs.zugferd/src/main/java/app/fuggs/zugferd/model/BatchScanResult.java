@@ -0,0 +1,40 @@
+package app.fuggs.zugferd.model;
+
+/**
+ * One line of a batch scan response, emitted as soon as the document is done.
+ *
+ * @param index
+ *            position of the document in the request, starting at 0
+ * @param fileName
+ *            the uploaded file name
+ * @param status
+ *            the outcome
+ * @param data
+ *            the extracted data, only for {@link Status#OK}
+ * @param error
+ *            what went wrong, for the other states
+ */
+public record BatchScanResult(int index, String fileName, Status status, DocumentData data, String error)
+{
+	public enum Status
+	{
+		/** Invoice extracted */
+		OK,
+		/** The PDF embeds no e-invoice */
+		NO_INVOICE,
+		/** The PDF or its invoice could not be parsed, 422 for single scans */
+		UNPROCESSABLE,
+		/** Unexpected failure */
+		ERROR
+	}
+
+	public static BatchScanResult ok(int index, String fileName, DocumentData data)
+	{
+		return new BatchScanResult(index, fileName, Status.OK, data, null);
+	}
+
+	public static BatchScanResult failed(int index, String fileName, Status status, String error)
+	{
+		return new BatchScanResult(index, fileName, status, null, error);
+	}
+}
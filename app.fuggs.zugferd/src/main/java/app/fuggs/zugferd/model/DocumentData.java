@@ -29,6 +29,7 @@ public record DocumentData(
 	String paymentTerm,
 	LocalDate serviceStartDate,
 	LocalDate serviceEndDate,
-	List<String> tags)
+	List<String> tags,
+	String tagJobId)
 {
 }
@@ -17,6 +17,12 @@ public class DocumentDataHandler
 
 	public static DocumentData fromZugferd(Invoice invoice, BigDecimal grandTotal,
 		BigDecimal totalTax, BigDecimal taxBasis, List<String> tags)
+	{
+		return fromZugferd(invoice, grandTotal, totalTax, taxBasis, tags, null);
+	}
+
+	public static DocumentData fromZugferd(Invoice invoice, BigDecimal grandTotal,
+		BigDecimal totalTax, BigDecimal taxBasis, List<String> tags, String tagJobId)
 	{
 		// Values are passed from ZUGFeRDImporter because TransactionCalculator
 		// returns 0 when calculation errors are ignored (e.g., when line items
@@ -56,7 +62,48 @@ public class DocumentDataHandler
 			null, // paymentTerm - not directly available
 			null, // serviceStartDate - not directly available
 			null, // serviceEndDate - not directly available
-			tags);
+			tags,
+			tagJobId);
+	}
+
+	public static DocumentData fromHeader(InvoiceHeader header, List<String> tags, String tagJobId)
+	{
+		// Same derivations as fromZugferd, so both paths yield equal data
+		BigDecimal amountDue = header.total();
+		if (header.total() != null && header.prepaid() != null)
+		{
+			amountDue = header.total().subtract(header.prepaid());
+		}
+
+		TradeParty seller = header.seller();
+		TradeParty buyer = header.buyer();
+
+		return new DocumentData(
+			header.total(),
+			header.currency(),
+			header.issueDate(),
+			null, // time - not available in ZUGFeRD
+			header.number(),
+			seller != null ? seller.name() : null,
+			seller,
+			seller != null ? seller.taxID() : null,
+			buyer != null ? buyer.name() : null,
+			null, // customerId - not available in ZUGFeRD
+			buyer,
+			null, // billingAddress - not separately available
+			null, // shippingAddress - not separately available
+			header.dueDate(),
+			amountDue,
+			header.taxBasis(),
+			header.taxTotal(),
+			null, // totalDiscount - not directly available
+			header.prepaid(),
+			header.buyerReference(),
+			null, // paymentTerm - not directly available
+			null, // serviceStartDate - not directly available
+			null, // serviceEndDate - not directly available
+			tags,
+			tagJobId);
 	}
 
 	private static LocalDate toLocalDate(Date date)
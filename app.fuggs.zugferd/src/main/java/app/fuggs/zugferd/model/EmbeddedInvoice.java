@@ -0,0 +1,17 @@
+package app.fuggs.zugferd.model;
+
+/**
+ * Result of the embedded invoice check.
+ *
+ * @param embedded
+ *            whether the PDF carries a ZUGFeRD, Factur-X or XRechnung XML
+ * @param fileName
+ *            the name of the embedded XML file, null if none was found
+ */
+public record EmbeddedInvoice(boolean embedded, String fileName)
+{
+	public static EmbeddedInvoice none()
+	{
+		return new EmbeddedInvoice(false, null);
+	}
+}
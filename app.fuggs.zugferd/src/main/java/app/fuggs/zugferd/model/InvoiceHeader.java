@@ -0,0 +1,49 @@
+package app.fuggs.zugferd.model;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Header fields of an e-invoice XML, read without building the Mustang model.
+ *
+ * @param number
+ *            the invoice number
+ * @param issueDate
+ *            the invoice date
+ * @param dueDate
+ *            the payment due date
+ * @param currency
+ *            the invoice currency code
+ * @param buyerReference
+ *            the buyer reference (Leitweg-ID for XRechnung)
+ * @param seller
+ *            the seller
+ * @param buyer
+ *            the buyer, or the payee if no buyer is given
+ * @param total
+ *            the amount due for payment, or the grand total if not given
+ * @param taxTotal
+ *            the total tax amount
+ * @param taxBasis
+ *            the total net amount
+ * @param prepaid
+ *            the amount already paid
+ * @param items
+ *            line item descriptions, in invoice order
+ */
+public record InvoiceHeader(
+	String number,
+	LocalDate issueDate,
+	LocalDate dueDate,
+	String currency,
+	String buyerReference,
+	TradeParty seller,
+	TradeParty buyer,
+	BigDecimal total,
+	BigDecimal taxTotal,
+	BigDecimal taxBasis,
+	BigDecimal prepaid,
+	List<String> items)
+{
+}
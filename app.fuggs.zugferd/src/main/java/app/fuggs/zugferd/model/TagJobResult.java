@@ -0,0 +1,22 @@
+package app.fuggs.zugferd.model;
+
+import java.util.List;
+
+/**
+ * State of an asynchronous tag generation.
+ *
+ * @param jobId
+ *            the job ID returned with the extracted document data
+ * @param done
+ *            whether the tags are generated
+ * @param tags
+ *            the generated tags, empty while the job is running or if the
+ *            generation failed
+ */
+public record TagJobResult(String jobId, boolean done, List<String> tags)
+{
+	public static TagJobResult pending(String jobId)
+	{
+		return new TagJobResult(jobId, false, List.of());
+	}
+}
@@ -0,0 +1,80 @@
+package app.fuggs.zugferd.model;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.mustangproject.Invoice;
+import org.mustangproject.ZUGFeRD.IZUGFeRDExportableItem;
+import org.mustangproject.ZUGFeRD.IZUGFeRDExportableProduct;
+
+import app.fuggs.tagging.TagPrompt;
+
+/**
+ * Builds the {@link TagPrompt} of an e-invoice, from the Mustang invoice or
+ * the header read by the {@code InvoiceXmlExtractor}.
+ */
+public final class TagPrompts
+{
+	private TagPrompts()
+	{
+		// only call the static methods
+	}
+
+	/**
+	 * Builds the prompt data of an invoice.
+	 *
+	 * @param invoice
+	 *            the extracted invoice
+	 * @param total
+	 *            the grand total read from the XML header
+	 * @param maxTokens
+	 *            token budget; line items that exceed it are left out
+	 * @return the prompt data
+	 */
+	public static TagPrompt fromInvoice(Invoice invoice, BigDecimal total, int maxTokens)
+	{
+		List<String> descriptions = new ArrayList<>();
+		IZUGFeRDExportableItem[] items = invoice.getZFItems();
+		if (items != null)
+		{
+			for (IZUGFeRDExportableItem item : items)
+			{
+				descriptions.add(describe(item.getProduct()));
+			}
+		}
+		String vendor = invoice.getSender() != null ? invoice.getSender().getName() : null;
+		return TagPrompt.of(vendor, descriptions, total, invoice.getCurrency(), maxTokens);
+	}
+
+	/**
+	 * Builds the prompt data of an invoice read by the
+	 * {@code InvoiceXmlExtractor}.
+	 *
+	 * @param header
+	 *            the invoice header
+	 * @param maxTokens
+	 *            token budget; line items that exceed it are left out
+	 * @return the prompt data
+	 */
+	public static TagPrompt fromHeader(InvoiceHeader header, int maxTokens)
+	{
+		String vendor = header.seller() != null ? header.seller().name() : null;
+		return TagPrompt.of(vendor, header.items(), header.total(), header.currency(), maxTokens);
+	}
+
+	private static String describe(IZUGFeRDExportableProduct product)
+	{
+		if (product == null)
+		{
+			return null;
+		}
+		String name = product.getName();
+		String description = product.getDescription();
+		if (description == null || description.isBlank() || description.equals(name))
+		{
+			return name;
+		}
+		return name == null || name.isBlank() ? description : name + ": " + description;
+	}
+}
@@ -0,0 +1,124 @@
+package app.fuggs.zugferd.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import javax.xml.xpath.XPathExpressionException;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import app.fuggs.zugferd.ZugFerdService;
+import app.fuggs.zugferd.model.BatchScanResult;
+import app.fuggs.zugferd.model.BatchScanResult.Status;
+import app.fuggs.zugferd.model.EmbeddedInvoice;
+import io.smallrye.mutiny.Multi;
+import io.smallrye.mutiny.Uni;
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+
+/**
+ * Scans many PDFs of one request in parallel.
+ * <p>
+ * Each document is scanned on its own virtual thread; at most
+ * {@code app.fuggs.zugferd.batch.parallelism} run at the same time, so a large
+ * batch cannot flood the tag generation with requests. Results are emitted in
+ * completion order. PDFs without an embedded e-invoice are recognized by the
+ * {@link EmbeddedInvoiceDetector} and never reach the Mustang import.
+ * </p>
+ */
+@ApplicationScoped
+public class BatchScanService
+{
+	private static final Logger LOG = LoggerFactory.getLogger(BatchScanService.class);
+
+	@Inject
+	ZugFerdService zugFerdService;
+
+	@Inject
+	EmbeddedInvoiceDetector embeddedInvoiceDetector;
+
+	@ConfigProperty(name = "app.fuggs.zugferd.batch.parallelism", defaultValue = "4")
+	int parallelism;
+
+	private final ExecutorService executor = Executors
+		.newThreadPerTaskExecutor(Thread.ofVirtual().name("zugferd-batch-", 0).factory());
+
+	/**
+	 * A document of a batch.
+	 *
+	 * @param index
+	 *            position in the request
+	 * @param fileName
+	 *            the uploaded file name
+	 * @param file
+	 *            the uploaded content
+	 */
+	public record Item(int index, String fileName, Path file)
+	{
+	}
+
+	/**
+	 * Scans the documents. Failures are reported per document and do not end
+	 * the stream.
+	 *
+	 * @param items
+	 *            the documents
+	 * @param knownVendors
+	 *            normalized names of vendors that need no AI tags
+	 * @return one result per document, as each finishes
+	 */
+	public Multi<BatchScanResult> scan(List<Item> items, Collection<String> knownVendors)
+	{
+		LOG.info("Starting batch scan (documents={}, parallelism={})", items.size(), parallelism);
+		return Multi.createFrom().iterable(items)
+			.onItem().transformToUni(item -> Uni.createFrom().item(() -> scan(item, knownVendors))
+				.runSubscriptionOn(executor))
+			.merge(Math.max(1, parallelism));
+	}
+
+	private BatchScanResult scan(Item item, Collection<String> knownVendors)
+	{
+		try
+		{
+			EmbeddedInvoice embedded = embeddedInvoiceDetector.detect(item.file());
+			if (!embedded.embedded())
+			{
+				return BatchScanResult.failed(item.index(), item.fileName(), Status.NO_INVOICE,
+					"No embedded e-invoice");
+			}
+			try (InputStream stream = Files.newInputStream(item.file()))
+			{
+				return BatchScanResult.ok(item.index(), item.fileName(),
+					zugFerdService.scanDocument(null, stream, knownVendors));
+			}
+		}
+		catch (IOException | UncheckedIOException | ParseException | XPathExpressionException e)
+		{
+			LOG.info("Batch item could not be parsed (index={}, fileName={})", item.index(), item.fileName());
+			return BatchScanResult.failed(item.index(), item.fileName(), Status.UNPROCESSABLE,
+				"Could not parse PDF: " + e.getMessage());
+		}
+		catch (RuntimeException e)
+		{
+			LOG.warn("Batch item failed (index={}, fileName={})", item.index(), item.fileName(), e);
+			return BatchScanResult.failed(item.index(), item.fileName(), Status.ERROR, e.getMessage());
+		}
+	}
+
+	@PreDestroy
+	void shutdown()
+	{
+		executor.shutdownNow();
+	}
+}
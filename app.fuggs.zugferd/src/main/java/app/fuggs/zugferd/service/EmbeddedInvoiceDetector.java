@@ -0,0 +1,166 @@
+package app.fuggs.zugferd.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.io.RandomAccessReadBuffer;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDDocumentNameDictionary;
+import org.apache.pdfbox.pdmodel.common.PDNameTreeNode;
+import org.apache.pdfbox.pdmodel.common.filespecification.PDComplexFileSpecification;
+import org.apache.pdfbox.pdmodel.common.filespecification.PDEmbeddedFile;
+
+import app.fuggs.zugferd.model.EmbeddedInvoice;
+import jakarta.enterprise.context.ApplicationScoped;
+
+/**
+ * Checks whether a PDF carries an e-invoice without extracting it.
+ * <p>
+ * Only the cross-reference table, the catalog and the embedded-files name
+ * tree are read; PDFBox loads all other objects lazily, so pages, fonts and
+ * images are never parsed. This is a fraction of the work of
+ * {@code ZUGFeRDImporter}, which parses and validates the whole invoice.
+ * </p>
+ * <p>
+ * {@link #readInvoiceXml(byte[])} reads the embedded XML itself, for the
+ * {@link InvoiceXmlExtractor}.
+ * </p>
+ */
+@ApplicationScoped
+public class EmbeddedInvoiceDetector
+{
+	/**
+	 * File names of the invoice XML in ZUGFeRD 1 and 2, Factur-X and
+	 * XRechnung, compared case-insensitively.
+	 */
+	static final Set<String> INVOICE_FILE_NAMES = Set.of("zugferd-invoice.xml", "factur-x.xml", "xrechnung.xml");
+
+	/**
+	 * Name trees nest kids; deeper trees are malformed or malicious.
+	 */
+	private static final int MAX_TREE_DEPTH = 16;
+
+	public EmbeddedInvoice detect(Path pdf) throws IOException
+	{
+		try (PDDocument document = Loader.loadPDF(pdf.toFile()))
+		{
+			return detect(document);
+		}
+	}
+
+	public EmbeddedInvoice detect(byte[] pdf) throws IOException
+	{
+		try (PDDocument document = Loader.loadPDF(pdf))
+		{
+			return detect(document);
+		}
+	}
+
+	public EmbeddedInvoice detect(InputStream pdf) throws IOException
+	{
+		try (PDDocument document = Loader.loadPDF(new RandomAccessReadBuffer(pdf)))
+		{
+			return detect(document);
+		}
+	}
+
+	/**
+	 * Reads the invoice XML embedded in a PDF.
+	 *
+	 * @param pdf
+	 *            the PDF content
+	 * @return the XML, null if the PDF carries no e-invoice
+	 * @throws IOException
+	 *             if the PDF cannot be read
+	 */
+	public byte[] readInvoiceXml(byte[] pdf) throws IOException
+	{
+		try (PDDocument document = Loader.loadPDF(pdf))
+		{
+			InvoiceFile file = findInvoiceFile(document);
+			if (file == null || file.specification() == null)
+			{
+				return null;
+			}
+			PDEmbeddedFile embedded = file.specification().getEmbeddedFileUnicode() != null
+				? file.specification().getEmbeddedFileUnicode()
+				: file.specification().getEmbeddedFile();
+			return embedded != null ? embedded.toByteArray() : null;
+		}
+	}
+
+	private EmbeddedInvoice detect(PDDocument document) throws IOException
+	{
+		InvoiceFile file = findInvoiceFile(document);
+		return file != null ? new EmbeddedInvoice(true, file.name()) : EmbeddedInvoice.none();
+	}
+
+	private static InvoiceFile findInvoiceFile(PDDocument document) throws IOException
+	{
+		PDDocumentNameDictionary names = document.getDocumentCatalog().getNames();
+		if (names == null || names.getEmbeddedFiles() == null)
+		{
+			return null;
+		}
+		return findInvoiceFile(names.getEmbeddedFiles(), 0);
+	}
+
+	private static InvoiceFile findInvoiceFile(PDNameTreeNode<PDComplexFileSpecification> node, int depth)
+		throws IOException
+	{
+		if (depth > MAX_TREE_DEPTH)
+		{
+			return null;
+		}
+
+		Map<String, PDComplexFileSpecification> files = node.getNames();
+		if (files != null)
+		{
+			for (Map.Entry<String, PDComplexFileSpecification> file : files.entrySet())
+			{
+				// The tree key is usually the file name, but only the file
+				// specification is authoritative
+				for (String name : fileNames(file.getKey(), file.getValue()))
+				{
+					if (name != null && INVOICE_FILE_NAMES.contains(name.toLowerCase(Locale.ROOT)))
+					{
+						return new InvoiceFile(name, file.getValue());
+					}
+				}
+			}
+		}
+
+		List<PDNameTreeNode<PDComplexFileSpecification>> kids = node.getKids();
+		if (kids != null)
+		{
+			for (PDNameTreeNode<PDComplexFileSpecification> kid : kids)
+			{
+				InvoiceFile file = findInvoiceFile(kid, depth + 1);
+				if (file != null)
+				{
+					return file;
+				}
+			}
+		}
+		return null;
+	}
+
+	private static String[] fileNames(String key, PDComplexFileSpecification specification)
+	{
+		if (specification == null)
+		{
+			return new String[] { key };
+		}
+		return new String[] { key, specification.getFileUnicode(), specification.getFilename() };
+	}
+
+	private record InvoiceFile(String name, PDComplexFileSpecification specification)
+	{
+	}
+}
@@ -0,0 +1,441 @@
+package app.fuggs.zugferd.service;
+
+import java.io.ByteArrayInputStream;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import app.fuggs.zugferd.model.InvoiceHeader;
+import app.fuggs.zugferd.model.TradeParty;
+import jakarta.enterprise.context.ApplicationScoped;
+
+/**
+ * Reads the header fields of a CII (ZUGFeRD 2, Factur-X, XRechnung) or UBL
+ * (XRechnung) invoice in a single StAX pass.
+ * <p>
+ * Elements are matched by their path of local names, like the
+ * {@code local-name()} XPath expressions of Mustang. Subtrees that contain no
+ * wanted field, such as line item prices or payment details, are skipped
+ * without looking at their content. No DOM and no invoice model are built.
+ * </p>
+ * <p>
+ * Anything unexpected (ZUGFeRD 1, other date formats, missing totals, malformed
+ * XML) yields an empty result, and the caller falls back to the
+ * {@code ZUGFeRDImporter}.
+ * </p>
+ */
+@ApplicationScoped
+public class InvoiceXmlExtractor
+{
+	private static final Logger LOG = LoggerFactory.getLogger(InvoiceXmlExtractor.class);
+
+	/** Invoices nest about 8 levels deep; deeper documents are not read. */
+	private static final int MAX_DEPTH = 64;
+
+	private static final DateTimeFormatter CII_DATE = DateTimeFormatter.BASIC_ISO_DATE;
+
+	private static final String CII_NAMESPACE = "urn:un:unece:uncefact:data:standard:CrossIndustryInvoice:100";
+	private static final String UBL_INVOICE_NAMESPACE = "urn:oasis:names:specification:ubl:schema:xsd:Invoice-2";
+	private static final String UBL_CREDIT_NOTE_NAMESPACE = "urn:oasis:names:specification:ubl:schema:xsd:CreditNote-2";
+
+	private static final Syntax CII = cii();
+	private static final Syntax UBL_INVOICE = ubl("/Invoice", "InvoiceLine");
+	private static final Syntax UBL_CREDIT_NOTE = ubl("/CreditNote", "CreditNoteLine");
+
+	// Readers created by a configured factory are independent of each other
+	private final XMLInputFactory inputFactory = createInputFactory();
+
+	/**
+	 * Reads the header fields of an invoice XML.
+	 *
+	 * @param xml
+	 *            the invoice XML
+	 * @return the header, empty if the XML is not a supported CII or UBL
+	 *         invoice or lacks number, date, total or seller
+	 */
+	public Optional<InvoiceHeader> extract(byte[] xml)
+	{
+		try
+		{
+			XMLStreamReader reader = inputFactory.createXMLStreamReader(new ByteArrayInputStream(xml));
+			try
+			{
+				return read(reader);
+			}
+			finally
+			{
+				reader.close();
+			}
+		}
+		catch (XMLStreamException | DateTimeParseException | NumberFormatException e)
+		{
+			LOG.debug("Fast invoice extraction failed, using Mustang: {}", e.getMessage());
+			return Optional.empty();
+		}
+	}
+
+	private static Optional<InvoiceHeader> read(XMLStreamReader reader) throws XMLStreamException
+	{
+		while (reader.hasNext() && reader.next() != XMLStreamConstants.START_ELEMENT)
+		{
+			// skip prolog and comments
+		}
+		if (!reader.isStartElement())
+		{
+			return Optional.empty();
+		}
+		Syntax syntax = switch (String.valueOf(reader.getNamespaceURI()))
+		{
+			case CII_NAMESPACE -> CII;
+			case UBL_INVOICE_NAMESPACE -> UBL_INVOICE;
+			case UBL_CREDIT_NOTE_NAMESPACE -> UBL_CREDIT_NOTE;
+			default -> null;
+		};
+		if (syntax == null || !syntax.root().equals("/" + reader.getLocalName()))
+		{
+			LOG.debug("Unsupported invoice syntax, using Mustang: root={}, namespace={}", reader.getLocalName(),
+				reader.getNamespaceURI());
+			return Optional.empty();
+		}
+
+		HeaderBuilder header = new HeaderBuilder();
+		StringBuilder path = new StringBuilder(syntax.root());
+		StringBuilder text = new StringBuilder();
+		int[] pathLengths = new int[MAX_DEPTH];
+		Field[] fields = new Field[MAX_DEPTH];
+		String[] schemes = new String[MAX_DEPTH];
+		int depth = 1;
+
+		while (reader.hasNext())
+		{
+			switch (reader.next())
+			{
+				case XMLStreamConstants.START_ELEMENT ->
+				{
+					if (depth == MAX_DEPTH)
+					{
+						throw new XMLStreamException("Invoice XML nested too deep");
+					}
+					int length = path.length();
+					path.append('/').append(reader.getLocalName());
+					String key = path.toString();
+					Field field = syntax.fields().get(key);
+					if (field == null && !syntax.prefixes().contains(key))
+					{
+						skipElement(reader);
+						path.setLength(length);
+					}
+					else
+					{
+						pathLengths[depth] = length;
+						fields[depth] = field;
+						schemes[depth] = field != null ? reader.getAttributeValue(null, "schemeID") : null;
+						depth++;
+						text.setLength(0);
+					}
+				}
+				case XMLStreamConstants.CHARACTERS, XMLStreamConstants.CDATA ->
+				{
+					if (fields[depth - 1] != null)
+					{
+						text.append(reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength());
+					}
+				}
+				case XMLStreamConstants.END_ELEMENT ->
+				{
+					depth--;
+					if (depth == 0)
+					{
+						return header.build();
+					}
+					if (fields[depth] != null)
+					{
+						fields[depth].apply(header, text.toString().strip(), schemes[depth]);
+					}
+					text.setLength(0);
+					path.setLength(pathLengths[depth]);
+				}
+				default ->
+				{
+					// comments, processing instructions and whitespace
+				}
+			}
+		}
+		return header.build();
+	}
+
+	private static void skipElement(XMLStreamReader reader) throws XMLStreamException
+	{
+		int depth = 1;
+		while (depth > 0)
+		{
+			int event = reader.next();
+			if (event == XMLStreamConstants.START_ELEMENT)
+			{
+				depth++;
+			}
+			else if (event == XMLStreamConstants.END_ELEMENT)
+			{
+				depth--;
+			}
+		}
+	}
+
+	private static XMLInputFactory createInputFactory()
+	{
+		XMLInputFactory factory = XMLInputFactory.newFactory();
+		// Invoices come from outside, never resolve DTDs or entities
+		factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+		factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+		return factory;
+	}
+
+	private static Syntax cii()
+	{
+		String root = "/CrossIndustryInvoice";
+		String transaction = root + "/SupplyChainTradeTransaction";
+		String product = transaction + "/IncludedSupplyChainTradeLineItem/SpecifiedTradeProduct";
+		String agreement = transaction + "/ApplicableHeaderTradeAgreement";
+		String settlement = transaction + "/ApplicableHeaderTradeSettlement";
+		String summation = settlement + "/SpecifiedTradeSettlementHeaderMonetarySummation";
+
+		Map<String, Field> fields = new HashMap<>();
+		fields.put(root + "/ExchangedDocument/ID", (h, text, scheme) -> h.number = text);
+		fields.put(root + "/ExchangedDocument/IssueDateTime/DateTimeString",
+			(h, text, scheme) -> h.issueDate = LocalDate.parse(text, CII_DATE));
+		fields.put(product + "/Name", (h, text, scheme) -> h.itemName = text);
+		fields.put(product + "/Description", (h, text, scheme) -> h.itemDescription = text);
+		fields.put(product, (h, text, scheme) -> h.addItem());
+		fields.put(agreement + "/BuyerReference", (h, text, scheme) -> h.buyerReference = text);
+		ciiParty(fields, agreement + "/SellerTradeParty", h -> h.seller);
+		ciiParty(fields, agreement + "/BuyerTradeParty", h -> h.buyer);
+		ciiParty(fields, settlement + "/PayeeTradeParty", h -> h.payee);
+		fields.put(settlement + "/InvoiceCurrencyCode", (h, text, scheme) -> h.currency = text);
+		fields.put(settlement + "/SpecifiedTradePaymentTerms/DueDateDateTime/DateTimeString",
+			(h, text, scheme) -> h.dueDate = h.dueDate != null ? h.dueDate : LocalDate.parse(text, CII_DATE));
+		fields.put(summation + "/TaxBasisTotalAmount", (h, text, scheme) -> h.taxBasis = amount(text));
+		// Given twice if the tax currency differs, the first is in invoice
+		// currency
+		fields.put(summation + "/TaxTotalAmount",
+			(h, text, scheme) -> h.taxTotal = h.taxTotal != null ? h.taxTotal : amount(text));
+		fields.put(summation + "/GrandTotalAmount", (h, text, scheme) -> h.grandTotal = amount(text));
+		fields.put(summation + "/TotalPrepaidAmount", (h, text, scheme) -> h.prepaid = amount(text));
+		fields.put(summation + "/DuePayableAmount", (h, text, scheme) -> h.duePayable = amount(text));
+		return new Syntax(root, fields);
+	}
+
+	private static void ciiParty(Map<String, Field> fields, String prefix, Function<HeaderBuilder, PartyBuilder> party)
+	{
+		String address = prefix + "/PostalTradeAddress";
+		fields.put(prefix + "/Name", (h, text, scheme) -> party.apply(h).name = text);
+		fields.put(prefix + "/Description", (h, text, scheme) -> party.apply(h).description = text);
+		fields.put(address + "/PostcodeCode", (h, text, scheme) -> party.apply(h).postalCode = text);
+		fields.put(address + "/LineOne", (h, text, scheme) -> party.apply(h).street = text);
+		fields.put(address + "/LineTwo", (h, text, scheme) -> party.apply(h).additionalAddress = text);
+		fields.put(address + "/CityName", (h, text, scheme) -> party.apply(h).city = text);
+		fields.put(address + "/CountryID", (h, text, scheme) -> party.apply(h).country = text);
+		fields.put(prefix + "/SpecifiedTaxRegistration/ID", (h, text, scheme) -> {
+			if ("VA".equals(scheme))
+			{
+				party.apply(h).vatId = text;
+			}
+			else if ("FC".equals(scheme))
+			{
+				party.apply(h).taxId = text;
+			}
+		});
+	}
+
+	private static Syntax ubl(String root, String lineElement)
+	{
+		String item = root + "/" + lineElement + "/Item";
+		String total = root + "/LegalMonetaryTotal";
+
+		Map<String, Field> fields = new HashMap<>();
+		fields.put(root + "/ID", (h, text, scheme) -> h.number = text);
+		fields.put(root + "/IssueDate", (h, text, scheme) -> h.issueDate = LocalDate.parse(text));
+		fields.put(root + "/DueDate", (h, text, scheme) -> h.dueDate = LocalDate.parse(text));
+		fields.put(root + "/DocumentCurrencyCode", (h, text, scheme) -> h.currency = text);
+		fields.put(root + "/BuyerReference", (h, text, scheme) -> h.buyerReference = text);
+		fields.put(item + "/Name", (h, text, scheme) -> h.itemName = text);
+		fields.put(item + "/Description", (h, text, scheme) -> h.itemDescription = text);
+		fields.put(item, (h, text, scheme) -> h.addItem());
+		ublParty(fields, root + "/AccountingSupplierParty/Party", h -> h.seller);
+		ublParty(fields, root + "/AccountingCustomerParty/Party", h -> h.buyer);
+		ublParty(fields, root + "/PayeeParty", h -> h.payee);
+		fields.put(root + "/TaxTotal/TaxAmount",
+			(h, text, scheme) -> h.taxTotal = h.taxTotal != null ? h.taxTotal : amount(text));
+		fields.put(total + "/TaxExclusiveAmount", (h, text, scheme) -> h.taxBasis = amount(text));
+		fields.put(total + "/TaxInclusiveAmount", (h, text, scheme) -> h.grandTotal = amount(text));
+		fields.put(total + "/PrepaidAmount", (h, text, scheme) -> h.prepaid = amount(text));
+		fields.put(total + "/PayableAmount", (h, text, scheme) -> h.duePayable = amount(text));
+		return new Syntax(root, fields);
+	}
+
+	private static void ublParty(Map<String, Field> fields, String prefix, Function<HeaderBuilder, PartyBuilder> party)
+	{
+		String address = prefix + "/PostalAddress";
+		String taxScheme = prefix + "/PartyTaxScheme";
+		fields.put(prefix + "/PartyName/Name", (h, text, scheme) -> party.apply(h).tradingName = text);
+		fields.put(prefix + "/PartyLegalEntity/RegistrationName", (h, text, scheme) -> party.apply(h).name = text);
+		fields.put(address + "/StreetName", (h, text, scheme) -> party.apply(h).street = text);
+		fields.put(address + "/AdditionalStreetName", (h, text, scheme) -> party.apply(h).additionalAddress = text);
+		fields.put(address + "/CityName", (h, text, scheme) -> party.apply(h).city = text);
+		fields.put(address + "/PostalZone", (h, text, scheme) -> party.apply(h).postalCode = text);
+		fields.put(address + "/Country/IdentificationCode", (h, text, scheme) -> party.apply(h).country = text);
+		fields.put(taxScheme + "/CompanyID", (h, text, scheme) -> party.apply(h).pendingTaxNumber = text);
+		fields.put(taxScheme + "/TaxScheme/ID", (h, text, scheme) -> party.apply(h).pendingTaxScheme = text);
+		fields.put(taxScheme, (h, text, scheme) -> party.apply(h).applyTaxScheme());
+	}
+
+	private static BigDecimal amount(String text)
+	{
+		return text.isEmpty() ? null : new BigDecimal(text);
+	}
+
+	/**
+	 * Wanted fields by element path, and all paths leading to them.
+	 */
+	private record Syntax(String root, Map<String, Field> fields, Set<String> prefixes)
+	{
+		Syntax(String root, Map<String, Field> fields)
+		{
+			this(root, Map.copyOf(fields), prefixesOf(fields.keySet()));
+		}
+
+		private static Set<String> prefixesOf(Set<String> paths)
+		{
+			Set<String> prefixes = new HashSet<>();
+			for (String path : paths)
+			{
+				for (int i = path.indexOf('/', 1); i > 0; i = path.indexOf('/', i + 1))
+				{
+					prefixes.add(path.substring(0, i));
+				}
+			}
+			return Set.copyOf(prefixes);
+		}
+	}
+
+	/**
+	 * Applies the text of an element once it ends.
+	 */
+	@FunctionalInterface
+	private interface Field
+	{
+		void apply(HeaderBuilder header, String text, String schemeId);
+	}
+
+	private static final class HeaderBuilder
+	{
+		String number;
+		LocalDate issueDate;
+		LocalDate dueDate;
+		String currency;
+		String buyerReference;
+		final PartyBuilder seller = new PartyBuilder();
+		final PartyBuilder buyer = new PartyBuilder();
+		final PartyBuilder payee = new PartyBuilder();
+		BigDecimal grandTotal;
+		BigDecimal duePayable;
+		BigDecimal taxTotal;
+		BigDecimal taxBasis;
+		BigDecimal prepaid;
+		final List<String> items = new ArrayList<>();
+		String itemName;
+		String itemDescription;
+
+		void addItem()
+		{
+			String item;
+			if (itemDescription == null || itemDescription.isEmpty() || itemDescription.equals(itemName))
+			{
+				item = itemName;
+			}
+			else
+			{
+				item = itemName == null || itemName.isEmpty() ? itemDescription : itemName + ": " + itemDescription;
+			}
+			if (item != null && !item.isEmpty())
+			{
+				items.add(item);
+			}
+			itemName = null;
+			itemDescription = null;
+		}
+
+		Optional<InvoiceHeader> build()
+		{
+			BigDecimal total = duePayable != null ? duePayable : grandTotal;
+			TradeParty sellerParty = seller.build();
+			if (number == null || issueDate == null || total == null || sellerParty == null)
+			{
+				LOG.debug("Invoice header incomplete, using Mustang: number={}, issueDate={}, total={}", number,
+					issueDate, total);
+				return Optional.empty();
+			}
+			TradeParty buyerParty = buyer.build();
+			return Optional.of(new InvoiceHeader(number, issueDate, dueDate, currency, buyerReference, sellerParty,
+				buyerParty != null ? buyerParty : payee.build(), total, taxTotal, taxBasis, prepaid,
+				List.copyOf(items)));
+		}
+	}
+
+	private static final class PartyBuilder
+	{
+		String name;
+		String tradingName;
+		String description;
+		String street;
+		String additionalAddress;
+		String postalCode;
+		String city;
+		String country;
+		String taxId;
+		String vatId;
+		String pendingTaxNumber;
+		String pendingTaxScheme;
+
+		void applyTaxScheme()
+		{
+			if ("VAT".equals(pendingTaxScheme))
+			{
+				vatId = pendingTaxNumber;
+			}
+			else if (pendingTaxNumber != null)
+			{
+				taxId = pendingTaxNumber;
+			}
+			pendingTaxNumber = null;
+			pendingTaxScheme = null;
+		}
+
+		TradeParty build()
+		{
+			String partyName = name != null ? name : tradingName;
+			if (partyName == null)
+			{
+				return null;
+			}
+			return new TradeParty(partyName, country, postalCode, null, city, street, additionalAddress, taxId, vatId,
+				description);
+		}
+	}
+}
@@ -0,0 +1,75 @@
+package app.fuggs.zugferd.service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.xpath.XPathFactory;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import io.quarkus.runtime.StartupEvent;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+
+/**
+ * Pins the JAXP factory implementations used by the {@code ZUGFeRDImporter}.
+ * <p>
+ * Mustang calls {@code DocumentBuilderFactory.newInstance()} and
+ * {@code XPathFactory.newInstance()} for every invoice. Without a system
+ * property, each call scans the classpath with the {@code ServiceLoader}
+ * before it falls back to the JDK implementation, which dominates the CPU
+ * profile of bulk imports. On startup the implementation the lookup selects is
+ * resolved once and set as system property, so later lookups load it
+ * directly. Properties that are already set are left alone.
+ * </p>
+ */
+@ApplicationScoped
+public class JaxpFactories
+{
+	private static final Logger LOG = LoggerFactory.getLogger(JaxpFactories.class);
+
+	@ConfigProperty(name = "app.fuggs.zugferd.jaxp.pin-factories", defaultValue = "true")
+	boolean enabled;
+
+	void onStart(@Observes StartupEvent event)
+	{
+		if (enabled)
+		{
+			pin();
+		}
+	}
+
+	/**
+	 * Sets the system properties of the JAXP factories to the implementations
+	 * the default lookup resolves.
+	 *
+	 * @return the properties set by this call
+	 */
+	public static Map<String, String> pin()
+	{
+		Map<String, String> pinned = new LinkedHashMap<>();
+		pin(pinned, DocumentBuilderFactory.class.getName(), DocumentBuilderFactory::newInstance);
+		pin(pinned, XPathFactory.DEFAULT_PROPERTY_NAME + ":" + XPathFactory.DEFAULT_OBJECT_MODEL_URI,
+			XPathFactory::newInstance);
+		if (!pinned.isEmpty())
+		{
+			LOG.info("Pinned JAXP factories: {}", pinned);
+		}
+		return pinned;
+	}
+
+	private static void pin(Map<String, String> pinned, String property, Supplier<Object> factory)
+	{
+		if (System.getProperty(property) != null)
+		{
+			return;
+		}
+		String implementation = factory.get().getClass().getName();
+		System.setProperty(property, implementation);
+		pinned.put(property, implementation);
+	}
+}
@@ -0,0 +1,49 @@
+package app.fuggs.zugferd.service;
+
+import java.time.Duration;
+import java.util.Optional;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import app.fuggs.tagging.TagCache;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.inject.Instance;
+import jakarta.enterprise.inject.Produces;
+import jakarta.inject.Inject;
+import jakarta.inject.Singleton;
+
+/**
+ * Creates the shared {@link TagCache} from the
+ * {@code app.fuggs.zugferd.tags.cache.*} configuration.
+ */
+@ApplicationScoped
+public class TagCacheProducer
+{
+	@ConfigProperty(name = "app.fuggs.zugferd.tags.cache.enabled", defaultValue = "true")
+	boolean enabled;
+
+	@ConfigProperty(name = "app.fuggs.zugferd.tags.cache.max-size", defaultValue = "1000")
+	int maxSize;
+
+	@ConfigProperty(name = "app.fuggs.zugferd.tags.cache.ttl", defaultValue = "P35D")
+	Duration ttl;
+
+	@ConfigProperty(name = "app.fuggs.zugferd.tags.cache.similarity-threshold")
+	Optional<Double> similarityThreshold;
+
+	@Inject
+	Instance<EmbeddingModel> embeddingModel;
+
+	@Inject
+	MeterRegistry meterRegistry;
+
+	@Produces
+	@Singleton
+	TagCache tagCache()
+	{
+		return new TagCache(new TagCache.Settings(enabled, maxSize, ttl, similarityThreshold),
+			() -> embeddingModel.isResolvable() ? embeddingModel.get() : null, meterRegistry);
+	}
+}
@@ -1,8 +1,10 @@
 package app.fuggs.zugferd.service;
 
+import java.math.BigDecimal;
 import java.util.Collections;
 import java.util.List;
 
+import org.eclipse.microprofile.config.inject.ConfigProperty;
 import org.mustangproject.Invoice;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -10,12 +12,19 @@ import org.slf4j.LoggerFactory;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
+import app.fuggs.tagging.TagCache;
+import app.fuggs.tagging.TagPrompt;
+import app.fuggs.zugferd.model.InvoiceHeader;
+import app.fuggs.zugferd.model.TagPrompts;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
 
 /**
  * Service for generating AI-powered tags for ZugFerd invoices. Uses LangChain4j
- * and OpenAI GPT-4o-mini to generate German language tags.
+ * and OpenAI GPT-4o-mini to generate German language tags. The prompt only
+ * carries a {@link TagPrompt} of the invoice, limited to
+ * {@code app.fuggs.zugferd.tags.max-prompt-tokens}. Tags of recurring invoices
+ * come from the {@link TagCache}.
  */
 @ApplicationScoped
 public class TagGenerationService
@@ -28,20 +37,55 @@ public class TagGenerationService
 	@Inject
 	ObjectMapper objectMapper;
 
+	@Inject
+	TagCache tagCache;
+
+	@ConfigProperty(name = "app.fuggs.zugferd.tags.max-prompt-tokens", defaultValue = "300")
+	int maxPromptTokens;
+
 	/**
 	 * Generate tags for a ZugFerd invoice using AI. Returns empty list on
 	 * failure to ensure graceful degradation.
 	 *
 	 * @param invoice
 	 *            The ZugFerd invoice to generate tags for
+	 * @param total
+	 *            The grand total of the invoice, may be null
+	 * @return List of German language tags, or empty list on error
+	 */
+	public List<String> generateTagsForInvoice(Invoice invoice, BigDecimal total)
+	{
+		return generateCachedTags(TagPrompts.fromInvoice(invoice, total, maxPromptTokens));
+	}
+
+	/**
+	 * Generate tags for an invoice read by the {@link InvoiceXmlExtractor}.
+	 * Returns empty list on failure to ensure graceful degradation.
+	 *
+	 * @param header
+	 *            The invoice header to generate tags for
 	 * @return List of German language tags, or empty list on error
 	 */
-	public List<String> generateTagsForInvoice(Invoice invoice)
+	public List<String> generateTagsForHeader(InvoiceHeader header)
+	{
+		return generateCachedTags(TagPrompts.fromHeader(header, maxPromptTokens));
+	}
+
+	private List<String> generateCachedTags(TagPrompt prompt)
+	{
+		if (prompt.omittedItems() > 0)
+		{
+			LOG.debug("Left out {} line items to stay within {} prompt tokens", prompt.omittedItems(),
+				maxPromptTokens);
+		}
+		return tagCache.getOrGenerate(prompt, () -> generateTags(prompt));
+	}
+
+	private List<String> generateTags(TagPrompt prompt)
 	{
 		try
 		{
-			// Serialize invoice to JSON
-			String invoiceJson = objectMapper.writeValueAsString(invoice);
+			String invoiceJson = objectMapper.writeValueAsString(prompt);
 
 			// Generate tags using AI service
 			List<String> tags = documentTagService.generateTags(invoiceJson);
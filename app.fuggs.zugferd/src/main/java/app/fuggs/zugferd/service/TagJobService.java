@@ -0,0 +1,87 @@
+package app.fuggs.zugferd.service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+
+/**
+ * Runs the AI tag generation of a scan in the background.
+ * <p>
+ * The extracted invoice data is returned right away; the caller fetches the
+ * tags later with the job ID. Jobs are kept in memory and dropped after
+ * {@code app.fuggs.zugferd.tags.ttl}, so a caller that never asks does not
+ * leak them.
+ * </p>
+ */
+@ApplicationScoped
+public class TagJobService
+{
+	private static final Logger LOG = LoggerFactory.getLogger(TagJobService.class);
+
+	@ConfigProperty(name = "app.fuggs.zugferd.tags.ttl", defaultValue = "PT10M")
+	Duration ttl;
+
+	private final Map<String, Job> jobs = new ConcurrentHashMap<>();
+
+	private final ExecutorService executor = Executors
+		.newThreadPerTaskExecutor(Thread.ofVirtual().name("zugferd-tags-", 0).factory());
+
+	private record Job(CompletableFuture<List<String>> tags, Instant createdAt)
+	{
+	}
+
+	/**
+	 * Starts the tag generation for an invoice.
+	 *
+	 * @param generation
+	 *            a call of the {@link TagGenerationService}
+	 * @return the job ID
+	 */
+	public String submit(Supplier<List<String>> generation)
+	{
+		evictExpired();
+		String jobId = UUID.randomUUID().toString();
+		// TagGenerationService never throws, failures end up as empty list
+		CompletableFuture<List<String>> tags = CompletableFuture.supplyAsync(generation, executor);
+		jobs.put(jobId, new Job(tags, Instant.now()));
+		LOG.debug("Submitted tag generation (jobId={})", jobId);
+		return jobId;
+	}
+
+	/**
+	 * @param jobId
+	 *            the job ID
+	 * @return the pending tags, empty if the job is unknown or expired
+	 */
+	public Optional<CompletableFuture<List<String>>> find(String jobId)
+	{
+		return Optional.ofNullable(jobs.get(jobId)).map(Job::tags);
+	}
+
+	private void evictExpired()
+	{
+		Instant cutoff = Instant.now().minus(ttl);
+		jobs.values().removeIf(job -> job.createdAt().isBefore(cutoff));
+	}
+
+	@PreDestroy
+	void shutdown()
+	{
+		executor.shutdownNow();
+	}
+}
@@ -0,0 +1,129 @@
+package app.fuggs.zugferd;
+
+import app.fuggs.zugferd.model.DocumentData;
+import app.fuggs.zugferd.model.DocumentDataHandler;
+import app.fuggs.zugferd.model.InvoiceHeader;
+import app.fuggs.zugferd.model.TagPrompts;
+import app.fuggs.zugferd.service.InvoiceXmlExtractor;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.mustangproject.Invoice;
+import org.mustangproject.ZUGFeRD.ZUGFeRDImporter;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks that the StAX extraction yields the same data as Mustang.
+ */
+class ExtractionParityTest
+{
+	private final InvoiceXmlExtractor extractor = new InvoiceXmlExtractor();
+
+	@ParameterizedTest
+	@ValueSource(strings = { "xml/factur-x-en16931.xml", "xml/xrechnung-ubl.xml" })
+	void shouldExtractSameDataAsMustang(String resource) throws Exception
+	{
+		// given
+		byte[] xml = read(resource);
+
+		// when
+		InvoiceHeader header = extractor.extract(xml).orElseThrow();
+		DocumentData fast = DocumentDataHandler.fromHeader(header, List.of(), null);
+		ZUGFeRDImporter importer = new ZUGFeRDImporter();
+		importer.doIgnoreCalculationErrors();
+		importer.fromXML(new String(xml, StandardCharsets.UTF_8));
+		Invoice invoice = importer.extractInvoice();
+		DocumentData mustang = ZugFerdService.fromImporter(importer, invoice, List.of(), null);
+
+		// then
+		assertEquals(mustang.documentId(), fast.documentId());
+		assertEquals(mustang.date(), fast.date());
+		assertEquals(mustang.dueDate(), fast.dueDate());
+		assertEquals(mustang.currencyCode(), fast.currencyCode());
+		assertEquals(mustang.merchantName(), fast.merchantName());
+		assertEquals(mustang.merchantAddress(), fast.merchantAddress());
+		assertEquals(mustang.merchantTaxId(), fast.merchantTaxId());
+		assertEquals(mustang.customerName(), fast.customerName());
+		assertEquals(mustang.customerAddress(), fast.customerAddress());
+		assertEquals(mustang.purchaseOrderNumber(), fast.purchaseOrderNumber());
+		assertSameAmount(mustang.total(), fast.total());
+		assertSameAmount(mustang.amountDue(), fast.amountDue());
+		assertSameAmount(mustang.subTotal(), fast.subTotal());
+		assertSameAmount(mustang.totalTax(), fast.totalTax());
+		assertSameAmount(mustang.previousUnpaidBalance(), fast.previousUnpaidBalance());
+		assertEquals(TagPrompts.fromInvoice(invoice, mustang.total(), 300),
+			TagPrompts.fromHeader(header, 300));
+	}
+
+	@Test
+	void shouldReadFacturXHeader() throws Exception
+	{
+		// when
+		InvoiceHeader header = extractor.extract(read("xml/factur-x-en16931.xml")).orElseThrow();
+
+		// then
+		assertEquals("RE-2025-0471", header.number());
+		assertEquals("Musikhaus Klangfarbe GmbH", header.seller().name());
+		assertEquals("DE123456789", header.seller().vatID());
+		assertEquals("Blaskapelle Unterföhring e.V.", header.buyer().name());
+		assertSameAmount(new BigDecimal("98.75"), header.total());
+		assertEquals(List.of("Notenständer klappbar: Schwarz, mit Tasche", "Gitarrensaiten Satz"), header.items());
+	}
+
+	@Test
+	void shouldLeaveZugferd1ToMustang() throws Exception
+	{
+		// given
+		String xml = """
+			<?xml version="1.0" encoding="UTF-8"?>
+			<rsm:CrossIndustryDocument xmlns:rsm="urn:ferd:CrossIndustryDocument:invoice:1p0">
+			</rsm:CrossIndustryDocument>
+			""";
+
+		// when / then
+		assertTrue(extractor.extract(xml.strip().getBytes(StandardCharsets.UTF_8)).isEmpty());
+	}
+
+	@Test
+	void shouldNotResolveExternalEntities()
+	{
+		// given
+		String xml = """
+			<?xml version="1.0" encoding="UTF-8"?>
+			<!DOCTYPE foo [ <!ENTITY xxe SYSTEM "file:///etc/passwd"> ]>
+			<rsm:CrossIndustryInvoice xmlns:rsm="urn:un:unece:uncefact:data:standard:CrossIndustryInvoice:100">&xxe;</rsm:CrossIndustryInvoice>
+			""";
+
+		// when / then
+		assertTrue(extractor.extract(xml.strip().getBytes(StandardCharsets.UTF_8)).isEmpty());
+	}
+
+	private static void assertSameAmount(BigDecimal expected, BigDecimal actual)
+	{
+		if (expected == null)
+		{
+			assertEquals(null, actual);
+			return;
+		}
+		assertNotNull(actual);
+		assertEquals(0, expected.compareTo(actual), () -> "expected " + expected + " but was " + actual);
+	}
+
+	private byte[] read(String resource) throws IOException
+	{
+		try (InputStream stream = getClass().getClassLoader().getResourceAsStream(resource))
+		{
+			assertNotNull(stream, resource);
+			return stream.readAllBytes();
+		}
+	}
+}
@@ -2,18 +2,35 @@ package app.fuggs.zugferd;
 
 import io.quarkus.test.junit.QuarkusTest;
 import io.restassured.http.ContentType;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.WebApplicationException;
 import org.junit.jupiter.api.Test;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
 import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
 
 import static io.restassured.RestAssured.given;
+import static org.hamcrest.Matchers.emptyIterable;
 import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 @QuarkusTest
 class ZugFerdResourceTest
 {
+	@Inject
+	ZugFerdResource resource;
+
 	@Test
 	void shouldReadZugFerd()
 	{
@@ -52,4 +69,215 @@ class ZugFerdResourceTest
 			.then()
 			.statusCode(422); // 422: Unprocessable Entity
 	}
+
+	@Test
+	void shouldReadZugFerdFromRequestBody() throws Exception
+	{
+		// prepare
+		URL resourceUrl = getClass().getClassLoader().getResource("MustangGnuaccountingBeispielRE-20170509_505.pdf");
+		assertNotNull(resourceUrl, "Test file not found in classpath");
+		byte[] content = Files.readAllBytes(Path.of(resourceUrl.toURI()));
+
+		given()
+			.body(content)
+			.queryParam("transactionRecordId", 123L)
+			.contentType(ContentType.BINARY)
+			.when()
+			.post("/api/zugferd/document/scan")
+			.then()
+			.statusCode(200)
+			.body("customerName", equalTo("Theodor Est"));
+	}
+
+	@Test
+	void shouldNotReadNonZugferdFromRequestBody() throws Exception
+	{
+		// prepare
+		URL resourceUrl = getClass().getClassLoader().getResource("wacky-widgets.pdf");
+		assertNotNull(resourceUrl, "Test file not found in classpath");
+		byte[] content = Files.readAllBytes(Path.of(resourceUrl.toURI()));
+
+		given()
+			.body(content)
+			.queryParam("transactionRecordId", 123L)
+			.contentType(ContentType.BINARY)
+			.when()
+			.post("/api/zugferd/document/scan")
+			.then()
+			.statusCode(422);
+	}
+
+	@Test
+	void shouldRejectRequestBodyAboveDocumentLimit()
+	{
+		// max-document-size is 2M in the test profile
+		byte[] content = new byte[3 * 1024 * 1024];
+
+		given()
+			.body(content)
+			.contentType(ContentType.BINARY)
+			.when()
+			.post("/api/zugferd/document/scan")
+			.then()
+			.statusCode(413);
+		given()
+			.body(content)
+			.contentType(ContentType.BINARY)
+			.when()
+			.post("/api/zugferd/document/detect")
+			.then()
+			.statusCode(413);
+	}
+
+	@Test
+	void shouldRejectTruncatedRequestBodyAsUnprocessable()
+	{
+		// The client breaks off after the first bytes
+		InputStream truncated = new SequenceInputStream(new ByteArrayInputStream("%PDF-1.7".getBytes()),
+			new InputStream()
+			{
+				@Override
+				public int read() throws IOException
+				{
+					throw new IOException("Connection reset");
+				}
+			});
+
+		WebApplicationException e = assertThrows(WebApplicationException.class,
+			() -> resource.scanDocumentBody(truncated, 123L, List.of(), false));
+
+		assertEquals(422, e.getResponse().getStatus());
+	}
+
+	@Test
+	void shouldDetectEmbeddedInvoice() throws Exception
+	{
+		// prepare
+		URL resourceUrl = getClass().getClassLoader().getResource("MustangGnuaccountingBeispielRE-20170509_505.pdf");
+		assertNotNull(resourceUrl, "Test file not found in classpath");
+		byte[] content = Files.readAllBytes(Path.of(resourceUrl.toURI()));
+
+		given()
+			.body(content)
+			.queryParam("transactionRecordId", 123L)
+			.contentType(ContentType.BINARY)
+			.when()
+			.post("/api/zugferd/document/detect")
+			.then()
+			.statusCode(200)
+			.body("embedded", equalTo(true))
+			.body("fileName", equalTo("ZUGFeRD-invoice.xml"));
+	}
+
+	@Test
+	void shouldDetectPlainPdf()
+	{
+		// prepare
+		URL resourceUrl = getClass().getClassLoader().getResource("wacky-widgets.pdf");
+		assertNotNull(resourceUrl, "Test file not found in classpath");
+		File testFile = new File(resourceUrl.getFile());
+
+		given()
+			.multiPart("document", testFile)
+			.multiPart("transactionRecordId", 123L)
+			.contentType(ContentType.MULTIPART)
+			.when()
+			.post("/api/zugferd/document/detect")
+			.then()
+			.statusCode(200)
+			.body("embedded", equalTo(false));
+	}
+
+	@Test
+	void shouldRejectNonPdfInDetection()
+	{
+		given()
+			.body("no pdf".getBytes())
+			.contentType(ContentType.BINARY)
+			.when()
+			.post("/api/zugferd/document/detect")
+			.then()
+			.statusCode(422);
+	}
+
+	@Test
+	void shouldStreamBatchResultsPerDocument()
+	{
+		// prepare
+		URL invoiceUrl = getClass().getClassLoader().getResource("MustangGnuaccountingBeispielRE-20170509_505.pdf");
+		URL plainUrl = getClass().getClassLoader().getResource("wacky-widgets.pdf");
+		assertNotNull(invoiceUrl, "Test file not found in classpath");
+		assertNotNull(plainUrl, "Test file not found in classpath");
+
+		String body = given()
+			.multiPart("document", new File(invoiceUrl.getFile()))
+			.multiPart("document", new File(plainUrl.getFile()))
+			.contentType(ContentType.MULTIPART)
+			.when()
+			.post("/api/zugferd/document/scan/batch")
+			.then()
+			.statusCode(200)
+			.extract().asString();
+
+		// One JSON line per document, the plain PDF does not fail the batch
+		List<String> lines = body.lines().filter(line -> !line.isBlank()).toList();
+		assertEquals(2, lines.size());
+		assertTrue(lines.stream().anyMatch(line -> line.contains("\"status\":\"OK\"")
+			&& line.contains("Theodor Est")));
+		assertTrue(lines.stream().anyMatch(line -> line.contains("\"status\":\"NO_INVOICE\"")
+			&& line.contains("wacky-widgets.pdf")));
+	}
+
+	@Test
+	void shouldRejectEmptyBatch()
+	{
+		given()
+			.multiPart("knownVendor", "none")
+			.contentType(ContentType.MULTIPART)
+			.when()
+			.post("/api/zugferd/document/scan/batch")
+			.then()
+			.statusCode(400);
+	}
+
+	@Test
+	void shouldReturnDataBeforeTagsAreGenerated() throws Exception
+	{
+		// prepare
+		URL resourceUrl = getClass().getClassLoader().getResource("MustangGnuaccountingBeispielRE-20170509_505.pdf");
+		assertNotNull(resourceUrl, "Test file not found in classpath");
+		byte[] content = Files.readAllBytes(Path.of(resourceUrl.toURI()));
+
+		String tagJobId = given()
+			.body(content)
+			.queryParam("asyncTags", true)
+			.contentType(ContentType.BINARY)
+			.when()
+			.post("/api/zugferd/document/scan")
+			.then()
+			.statusCode(200)
+			.body("customerName", equalTo("Theodor Est"))
+			.body("tags", emptyIterable())
+			.body("tagJobId", notNullValue())
+			.extract().path("tagJobId");
+
+		given()
+			.queryParam("waitSeconds", 5)
+			.when()
+			.get("/api/zugferd/document/tags/" + tagJobId)
+			.then()
+			.statusCode(200)
+			.body("jobId", equalTo(tagJobId))
+			.body("tags", notNullValue());
+	}
+
+	@Test
+	void shouldRejectUnknownTagJob()
+	{
+		given()
+			.when()
+			.get("/api/zugferd/document/tags/unknown")
+			.then()
+			.statusCode(404);
+	}
 }
@@ -0,0 +1,93 @@
+package app.fuggs.zugferd.benchmark;
+
+import app.fuggs.zugferd.service.InvoiceXmlExtractor;
+import app.fuggs.zugferd.service.JaxpFactories;
+import org.mustangproject.Invoice;
+import org.mustangproject.ZUGFeRD.ZUGFeRDImporter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Invoices per second with all cores extracting at once, as in a batch
+ * import. {@code pinFactories} compares the Mustang path with and without
+ * {@link JaxpFactories}; each value runs in its own fork, as the system
+ * properties cannot be unset.
+ * <p>
+ * Run like {@link InvoiceExtractionBenchmark}, with
+ * {@code -Dexec.mainClass=app.fuggs.zugferd.benchmark.ConcurrentExtractionBenchmark}.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Threads(Threads.MAX)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ConcurrentExtractionBenchmark
+{
+	@Param({ "false", "true" })
+	boolean pinFactories;
+
+	private final InvoiceXmlExtractor extractor = new InvoiceXmlExtractor();
+	private byte[] xml;
+
+	@Setup(Level.Trial)
+	public void setUp() throws IOException
+	{
+		if (pinFactories)
+		{
+			JaxpFactories.pin();
+		}
+		try (InputStream stream = getClass().getClassLoader().getResourceAsStream("xml/factur-x-en16931.xml"))
+		{
+			xml = stream.readAllBytes();
+		}
+	}
+
+	@Benchmark
+	public void mustang(Blackhole blackhole) throws Exception
+	{
+		ZUGFeRDImporter importer = new ZUGFeRDImporter();
+		importer.doIgnoreCalculationErrors();
+		importer.fromXML(new String(xml, StandardCharsets.UTF_8));
+		Invoice invoice = importer.extractInvoice();
+		blackhole.consume(invoice);
+		blackhole.consume(importer.getAmount());
+	}
+
+	@Benchmark
+	public void stax(Blackhole blackhole)
+	{
+		blackhole.consume(extractor.extract(xml));
+	}
+
+	public static void main(String[] args) throws RunnerException
+	{
+		Options options = new OptionsBuilder()
+			.include(ConcurrentExtractionBenchmark.class.getSimpleName())
+			.build();
+		new Runner(options).run();
+	}
+}
@@ -0,0 +1,90 @@
+package app.fuggs.zugferd.benchmark;
+
+import app.fuggs.zugferd.model.InvoiceHeader;
+import app.fuggs.zugferd.service.InvoiceXmlExtractor;
+import org.mustangproject.Invoice;
+import org.mustangproject.ZUGFeRD.ZUGFeRDImporter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the StAX header extraction with the Mustang importer on the invoice
+ * XML fixtures, in time and allocation per invoice.
+ * <p>
+ * Not run by surefire. Run it after {@code mvn test-compile} with
+ * {@code mvn exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=app.fuggs.zugferd.benchmark.InvoiceExtractionBenchmark}, or
+ * from the IDE.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class InvoiceExtractionBenchmark
+{
+	@Param({ "xml/factur-x-en16931.xml", "xml/xrechnung-ubl.xml" })
+	String resource;
+
+	private final InvoiceXmlExtractor extractor = new InvoiceXmlExtractor();
+	private byte[] xml;
+
+	@Setup
+	public void setUp() throws IOException
+	{
+		try (InputStream stream = getClass().getClassLoader().getResourceAsStream(resource))
+		{
+			xml = stream.readAllBytes();
+		}
+	}
+
+	@Benchmark
+	public InvoiceHeader stax()
+	{
+		return extractor.extract(xml).orElseThrow();
+	}
+
+	@Benchmark
+	public void mustang(Blackhole blackhole) throws Exception
+	{
+		ZUGFeRDImporter importer = new ZUGFeRDImporter();
+		importer.doIgnoreCalculationErrors();
+		importer.fromXML(new String(xml, StandardCharsets.UTF_8));
+		Invoice invoice = importer.extractInvoice();
+		blackhole.consume(invoice);
+		blackhole.consume(importer.getAmount());
+		blackhole.consume(importer.getTaxTotalAmount());
+		blackhole.consume(importer.getTaxBasisTotalAmount());
+	}
+
+	public static void main(String[] args) throws RunnerException
+	{
+		Options options = new OptionsBuilder()
+			.include(InvoiceExtractionBenchmark.class.getSimpleName())
+			.addProfiler(GCProfiler.class)
+			.build();
+		new Runner(options).run();
+	}
+}
@@ -0,0 +1,85 @@
+package app.fuggs.zugferd.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.xpath.XPathFactory;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks that pinning the JAXP factories keeps the implementations the default
+ * lookup picks. The properties apply to the whole JVM, so they are restored
+ * after each test.
+ */
+class JaxpFactoriesTest
+{
+	private static final String DOCUMENT_BUILDER = DocumentBuilderFactory.class.getName();
+
+	private static final String XPATH = XPathFactory.DEFAULT_PROPERTY_NAME + ":" + XPathFactory.DEFAULT_OBJECT_MODEL_URI;
+
+	private final Map<String, String> previous = new HashMap<>();
+
+	@BeforeEach
+	void clearProperties()
+	{
+		for (String property : new String[] { DOCUMENT_BUILDER, XPATH })
+		{
+			previous.put(property, System.clearProperty(property));
+		}
+	}
+
+	@AfterEach
+	void restoreProperties()
+	{
+		previous.forEach((property, value) -> {
+			if (value != null)
+			{
+				System.setProperty(property, value);
+			}
+			else
+			{
+				System.clearProperty(property);
+			}
+		});
+	}
+
+	@Test
+	void shouldPinImplementationsOfDefaultLookup()
+	{
+		// given
+		String documentBuilder = DocumentBuilderFactory.newInstance().getClass().getName();
+		String xpath = XPathFactory.newInstance().getClass().getName();
+
+		// when
+		Map<String, String> pinned = JaxpFactories.pin();
+
+		// then
+		assertEquals(Map.of(DOCUMENT_BUILDER, documentBuilder, XPATH, xpath), pinned);
+		assertEquals(documentBuilder, System.getProperty(DOCUMENT_BUILDER));
+		assertEquals(xpath, System.getProperty(XPATH));
+		assertEquals(documentBuilder, DocumentBuilderFactory.newInstance().getClass().getName());
+		assertEquals(xpath, XPathFactory.newInstance().getClass().getName());
+	}
+
+	@Test
+	void shouldKeepPropertiesAlreadySet()
+	{
+		// given
+		String documentBuilder = DocumentBuilderFactory.newInstance().getClass().getName();
+		System.setProperty(DOCUMENT_BUILDER, documentBuilder);
+
+		// when
+		Map<String, String> pinned = JaxpFactories.pin();
+
+		// then
+		assertFalse(pinned.containsKey(DOCUMENT_BUILDER));
+		assertTrue(pinned.containsKey(XPATH));
+	}
+}